@@ -0,0 +1,215 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.joliciel.talismane.machineLearning.Decision;
+import com.typesafe.config.Config;
+
+/**
+ * Adapts the beam width of a beam search to the confidence of the decisions
+ * which fed each heap.<br>
+ * <br>
+ * The confidence of a heap is the lowest top decision probability among the
+ * histories which were expanded into it. If it is at least the
+ * confident-threshold, the probability mass is concentrated and the heap is
+ * explored with the min-beam-width. If it is below the uncertain-threshold,
+ * the heap is explored with the max-beam-width. Otherwise, the configured
+ * beam width is used. In addition, when the top decision for a history is
+ * above the confident-threshold, only this decision is expanded.<br>
+ * <br>
+ * Whether or not adaptive mode is enabled, the beam widths actually used are
+ * counted, so that the average beam width can be reported during evaluation.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class AdaptiveBeam {
+  private final boolean enabled;
+  private final double confidentThreshold;
+  private final double uncertainThreshold;
+  private final int minBeamWidth;
+  private final int maxBeamWidth;
+
+  private final LongAdder stepCount = new LongAdder();
+  private final LongAdder totalBeamWidth = new LongAdder();
+
+  /**
+   * Reads the adaptive beam settings from the configuration of a given module.
+   *
+   * @param moduleConfig
+   *          the module's configuration, containing an adaptive-beam section
+   */
+  public AdaptiveBeam(Config moduleConfig) {
+    this(moduleConfig.getBoolean("adaptive-beam.enabled"), moduleConfig.getDouble("adaptive-beam.confident-threshold"),
+        moduleConfig.getDouble("adaptive-beam.uncertain-threshold"), moduleConfig.getInt("adaptive-beam.min-beam-width"),
+        moduleConfig.getInt("adaptive-beam.max-beam-width"));
+  }
+
+  /**
+   * @param maxBeamWidth
+   *          the beam width to use when uncertain, or 0 to use the configured
+   *          beam width
+   */
+  public AdaptiveBeam(boolean enabled, double confidentThreshold, double uncertainThreshold, int minBeamWidth, int maxBeamWidth) {
+    if (enabled && uncertainThreshold > confidentThreshold)
+      throw new TalismaneException(
+          "adaptive-beam.uncertain-threshold (" + uncertainThreshold + ") cannot be greater than confident-threshold (" + confidentThreshold + ")");
+    if (enabled && minBeamWidth < 1)
+      throw new TalismaneException("adaptive-beam.min-beam-width must be at least 1");
+    this.enabled = enabled;
+    this.confidentThreshold = confidentThreshold;
+    this.uncertainThreshold = uncertainThreshold;
+    this.minBeamWidth = minBeamWidth;
+    this.maxBeamWidth = maxBeamWidth;
+  }
+
+  /**
+   * An adaptive beam which never changes the beam width.
+   */
+  public static AdaptiveBeam fixed() {
+    return new AdaptiveBeam(false, 1.0, 0.0, 1, 0);
+  }
+
+  /**
+   * Start a new beam search, whose heaps are identified by keys of type K.
+   */
+  public <K> Search<K> start() {
+    return new Search<>();
+  }
+
+  /**
+   * The highest probability among a list of decisions.
+   */
+  public static double getTopProbability(List<Decision> decisions) {
+    double top = 0.0;
+    for (Decision decision : decisions) {
+      if (decision.getProbability() > top)
+        top = decision.getProbability();
+    }
+    return top;
+  }
+
+  /**
+   * If the top decision is above the confident-threshold, returns a list
+   * containing this decision only. Otherwise returns the decisions as is.
+   */
+  public List<Decision> prune(List<Decision> decisions) {
+    if (!enabled || decisions.size() <= 1)
+      return decisions;
+    Decision top = null;
+    for (Decision decision : decisions) {
+      if (top == null || decision.getProbability() > top.getProbability())
+        top = decision;
+    }
+    if (top.getProbability() < confidentThreshold)
+      return decisions;
+    List<Decision> pruned = new ArrayList<>(1);
+    pruned.add(top);
+    return pruned;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public double getConfidentThreshold() {
+    return confidentThreshold;
+  }
+
+  public double getUncertainThreshold() {
+    return uncertainThreshold;
+  }
+
+  public int getMinBeamWidth() {
+    return minBeamWidth;
+  }
+
+  public int getMaxBeamWidth() {
+    return maxBeamWidth;
+  }
+
+  /**
+   * The number of heaps explored so far, across all searches.
+   */
+  public long getStepCount() {
+    return stepCount.sum();
+  }
+
+  /**
+   * The average number of histories explored per heap, across all searches.
+   */
+  public double getAverageBeamWidth() {
+    long steps = stepCount.sum();
+    if (steps == 0)
+      return 0.0;
+    return (double) totalBeamWidth.sum() / (double) steps;
+  }
+
+  /**
+   * The state of the adaptive beam for a single beam search.
+   */
+  public final class Search<K> {
+    private final Map<K, Double> heapConfidences = enabled ? new HashMap<>() : null;
+
+    private Search() {
+    }
+
+    /**
+     * Record that a history expanded with the given top decision probability
+     * has added a result to a given heap.
+     */
+    public void record(K heapKey, double topProbability) {
+      if (!enabled)
+        return;
+      Double confidence = heapConfidences.get(heapKey);
+      if (confidence == null || topProbability < confidence)
+        heapConfidences.put(heapKey, topProbability);
+    }
+
+    /**
+     * The beam width to use for a given heap, given the configured beam width.
+     */
+    public int getBeamWidth(K heapKey, int beamWidth) {
+      if (!enabled)
+        return beamWidth;
+      Double confidence = heapConfidences.remove(heapKey);
+      if (confidence == null)
+        return beamWidth;
+      if (confidence >= confidentThreshold)
+        return minBeamWidth < beamWidth ? minBeamWidth : beamWidth;
+      if (confidence < uncertainThreshold)
+        return maxBeamWidth > beamWidth ? maxBeamWidth : beamWidth;
+      return beamWidth;
+    }
+
+    /**
+     * Record the number of histories actually explored for a heap.
+     */
+    public void explored(int historyCount) {
+      stepCount.increment();
+      totalBeamWidth.add(historyCount);
+    }
+  }
+}
@@ -0,0 +1,179 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.rawText.Sentence;
+import com.typesafe.config.Config;
+
+/**
+ * A per-sentence time and memory budget, shared by the beam searches of the
+ * tokeniser, pos-tagger and parser.<br>
+ * <br>
+ * The time is measured from the moment the first module started analysing
+ * the sentence, as given by {@link Sentence#getAnalysisStartTime()}, and not
+ * from the start of each module: each module's max-analysis-time is a
+ * deadline for the sentence's analysis up to and including that module.
+ * Time spent tokenising and pos-tagging a sentence is therefore deducted from
+ * the time left to parse it.<br>
+ * <br>
+ * Rather than abandoning the analysis when the budget is exceeded, the beam
+ * is narrowed: each time the beam search asks for its width while the budget
+ * is exceeded, the width is halved, until a greedy (width 1) search is
+ * reached. A greedy search is linear in the sentence length, and therefore
+ * always completes in reasonable time.<br>
+ * <br>
+ * Free memory is measured as the maximum heap size minus the heap currently
+ * used, as reported by the {@link MemoryMXBean}, so that memory the JVM
+ * hasn't yet committed is counted as free.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class AnalysisBudget {
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisBudget.class);
+  private static final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+  private static final long KILOBYTE = 1024;
+
+  private final long maxAnalysisTimeNanos;
+  private final long minFreeMemoryBytes;
+
+  /**
+   * Reads the budget from the configuration of a given module.
+   *
+   * @param moduleConfig
+   *          the module's configuration, containing max-analysis-time in
+   *          seconds and min-free-memory in kilobytes
+   */
+  public AnalysisBudget(Config moduleConfig) {
+    this(moduleConfig.getInt("max-analysis-time") * 1000L, moduleConfig.getInt("min-free-memory") * KILOBYTE);
+  }
+
+  /**
+   * @param maxAnalysisTimeMillis
+   *          the time allowed per sentence in milliseconds, or 0 for no limit
+   * @param minFreeMemoryBytes
+   *          the minimum free memory in bytes, or 0 for no limit
+   */
+  public AnalysisBudget(long maxAnalysisTimeMillis, long minFreeMemoryBytes) {
+    this.maxAnalysisTimeNanos = maxAnalysisTimeMillis * 1000000L;
+    this.minFreeMemoryBytes = minFreeMemoryBytes;
+  }
+
+  /**
+   * Start this module's budget for a sentence, whose clock may already have
+   * been started by a previous module.
+   */
+  public SentenceBudget start(Sentence sentence) {
+    return new SentenceBudget(sentence);
+  }
+
+  /**
+   * Is there any limit on the time or memory?
+   */
+  public boolean isLimited() {
+    return maxAnalysisTimeNanos > 0 || minFreeMemoryBytes > 0;
+  }
+
+  public long getMaxAnalysisTimeMillis() {
+    return maxAnalysisTimeNanos / 1000000L;
+  }
+
+  public long getMinFreeMemoryBytes() {
+    return minFreeMemoryBytes;
+  }
+
+  static long getFreeMemory() {
+    MemoryUsage heapUsage = memoryBean.getHeapMemoryUsage();
+    long max = heapUsage.getMax() >= 0 ? heapUsage.getMax() : heapUsage.getCommitted();
+    return max - heapUsage.getUsed();
+  }
+
+  /**
+   * The budget for a single sentence.
+   */
+  public final class SentenceBudget {
+    private final CharSequence sentence;
+    private final long deadline;
+    private int maxBeamWidth = Integer.MAX_VALUE;
+    private boolean exhausted = false;
+
+    private SentenceBudget(Sentence sentence) {
+      this.sentence = sentence.getText();
+      this.deadline = sentence.getAnalysisStartTime() + maxAnalysisTimeNanos;
+    }
+
+    /**
+     * The beam width to use for the next step of the beam search, given the
+     * configured beam width. Narrows the beam if the budget has been exceeded.
+     */
+    public int getBeamWidth(int beamWidth) {
+      if (!isLimited())
+        return beamWidth;
+
+      int width = beamWidth < maxBeamWidth ? beamWidth : maxBeamWidth;
+      boolean timeExceeded = maxAnalysisTimeNanos > 0 && System.nanoTime() - deadline > 0;
+      long freeMemory = minFreeMemoryBytes > 0 ? getFreeMemory() : Long.MAX_VALUE;
+      boolean memoryLow = freeMemory < minFreeMemoryBytes;
+
+      if (timeExceeded || memoryLow) {
+        if (width <= 1) {
+          // already greedy: we can't narrow any more
+          if (memoryLow && !exhausted) {
+            LOG.info("Not enough memory left to analyse sentence, even with a beam width of 1: " + sentence);
+            LOG.info("Min free memory (bytes): " + minFreeMemoryBytes + ". Current free memory (bytes): " + freeMemory);
+          }
+          exhausted = memoryLow;
+          width = 1;
+        } else {
+          width = width / 2;
+          if (maxBeamWidth == Integer.MAX_VALUE) {
+            if (timeExceeded)
+              LOG.info("Analysis took more than " + AnalysisBudget.this.getMaxAnalysisTimeMillis() + " ms, narrowing beam for sentence: " + sentence);
+            else
+              LOG.info("Free memory (" + freeMemory + " bytes) below " + minFreeMemoryBytes + " bytes, narrowing beam for sentence: " + sentence);
+          }
+        }
+        maxBeamWidth = width;
+      }
+      return width;
+    }
+
+    /**
+     * Has the beam been narrowed for this sentence?
+     */
+    public boolean isNarrowed() {
+      return maxBeamWidth < Integer.MAX_VALUE;
+    }
+
+    /**
+     * True if the memory is still insufficient even with a beam width of 1, in
+     * which case the analysis should stop if it can produce a partial result.
+     */
+    public boolean isExhausted() {
+      return exhausted;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs output tasks, such as writing an analysed sentence, on a dedicated
+ * writer thread, so that slow output doesn't hold up analysis.<br>
+ * <br>
+ * Tasks are held in a bounded ring buffer, and run one at a time in the order
+ * in which they were submitted. When the buffer is full, the
+ * {@link OverflowPolicy} decides whether the submitting thread waits or fails.
+ * If a task fails, subsequent tasks are skipped, and the failure is rethrown
+ * by the next call to {@link #submit(ProcessingTask)} or {@link #close()}.
+ * The writer thread is only started when the first task is submitted.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class AsyncProcessingStage implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncProcessingStage.class);
+
+  public enum OverflowPolicy {
+    /**
+     * Wait until the writer thread has freed up space in the buffer.
+     */
+    BLOCK,
+    /**
+     * Throw a {@link TalismaneException}.
+     */
+    FAIL
+  }
+
+  /**
+   * A unit of output to be run on the writer thread.
+   */
+  @FunctionalInterface
+  public interface ProcessingTask {
+    public void process() throws IOException, TalismaneException;
+  }
+
+  private static final ProcessingTask END_OF_TASKS = () -> {
+  };
+
+  private final BlockingQueue<ProcessingTask> buffer;
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final Thread writerThread;
+  private volatile Throwable failure = null;
+  private boolean started = false;
+  private boolean closed = false;
+
+  /**
+   * @param capacity
+   *          the maximum number of tasks waiting to be run
+   * @param name
+   *          the name of the writer thread
+   */
+  public AsyncProcessingStage(int capacity, OverflowPolicy overflowPolicy, String name) {
+    this.capacity = capacity;
+    this.buffer = new ArrayBlockingQueue<>(capacity);
+    this.overflowPolicy = overflowPolicy;
+    this.writerThread = new Thread(this::runTasks, name);
+    this.writerThread.setDaemon(true);
+  }
+
+  /**
+   * Add a task to the buffer, to be run after all previously submitted tasks.
+   *
+   * @throws TalismaneException
+   *           if the buffer is full and the overflow policy is
+   *           {@link OverflowPolicy#FAIL}, or if the stage has been closed
+   * @throws IOException
+   *           if a previous task failed with an IOException
+   */
+  public void submit(ProcessingTask task) throws IOException, TalismaneException {
+    this.checkFailure();
+    if (closed)
+      throw new TalismaneException("Cannot submit output to a closed processing stage");
+    if (!started) {
+      writerThread.start();
+      started = true;
+    }
+    if (overflowPolicy == OverflowPolicy.BLOCK) {
+      try {
+        buffer.put(task);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for output buffer");
+      }
+    } else if (!buffer.offer(task)) {
+      throw new TalismaneException("Output buffer full: " + capacity + " outputs waiting to be written");
+    }
+  }
+
+  /**
+   * Wait for all submitted tasks to be run, and stop the writer thread.
+   *
+   * @throws IOException
+   *           if a task failed with an IOException
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      if (!started)
+        return;
+      try {
+        buffer.put(END_OF_TASKS);
+        writerThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for output to be written");
+      }
+    }
+    this.checkFailure();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  private void runTasks() {
+    while (true) {
+      ProcessingTask task = null;
+      try {
+        task = buffer.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (task == END_OF_TASKS)
+        return;
+      // after a failure, keep emptying the buffer so that submitters don't
+      // wait forever
+      if (failure == null) {
+        try {
+          task.process();
+        } catch (IOException | RuntimeException | Error e) {
+          LOG.error("Output failed", e);
+          failure = e;
+        }
+      }
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable e = failure;
+    if (e == null)
+      return;
+    if (e instanceof IOException)
+      throw (IOException) e;
+    if (e instanceof RuntimeException)
+      throw (RuntimeException) e;
+    throw (Error) e;
+  }
+}
@@ -0,0 +1,249 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.Talismane.Module;
+import com.joliciel.talismane.machineLearning.ClassificationModel;
+import com.joliciel.talismane.parser.ParseCorpusSnapshot;
+import com.joliciel.talismane.parser.ParserAnnotatedCorpusReader;
+import com.joliciel.talismane.parser.ParserTrainer;
+import com.joliciel.talismane.parser.TransitionBasedParser;
+import com.joliciel.talismane.parser.evaluate.ParserEvaluator;
+import com.joliciel.talismane.parser.evaluate.ParserFScoreCalculator;
+import com.joliciel.talismane.posTagger.ForwardStatisticalPosTagger;
+import com.joliciel.talismane.posTagger.PosTagAnnotatedCorpusReader;
+import com.joliciel.talismane.posTagger.PosTagger;
+import com.joliciel.talismane.posTagger.PosTaggerTrainer;
+import com.joliciel.talismane.posTagger.PosTaggers;
+import com.joliciel.talismane.posTagger.evaluate.PosTagFScoreCalculator;
+import com.joliciel.talismane.posTagger.evaluate.PosTaggerEvaluator;
+import com.joliciel.talismane.stats.ConcurrentFScoreCalculator;
+import com.joliciel.talismane.stats.FScoreCalculator;
+import com.joliciel.talismane.tokeniser.Tokeniser;
+import com.joliciel.talismane.utils.LogUtils;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+/**
+ * Trains and evaluates a pos-tagger or parser model on each cross-validation
+ * fold of an annotated corpus, within a single JVM.<br>
+ * <br>
+ * The corpus is read once into a {@link ParseCorpusSnapshot}, and each fold
+ * trains on the sentences outside of the fold and evaluates on the sentences
+ * inside it. Up to talismane.core.[sessionId].cross-validation.threads folds
+ * are processed at the same time, sharing the session's read-only resources
+ * (lexicons, word lists, external resources). The number of folds is read
+ * from the module's train.cross-validation.fold-count.<br>
+ * <br>
+ * The f-scores of each fold are written to [baseName]_fold[i] f-score files,
+ * and the combined results to [baseName]_crossValidation.csv, as written by
+ * {@link FScoreCalculator#combineCrossValidationResults(List, String, Writer)}.
+ * Models are not written to disk.<br>
+ * <br>
+ * When evaluating, the configured start-module is respected: any other
+ * module required (e.g. the pos-tagger when cross-validating the parser) uses
+ * its configured model.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class CrossValidator {
+  private static final Logger LOG = LoggerFactory.getLogger(CrossValidator.class);
+
+  private final String sessionId;
+  private final File outDir;
+  private final Module module;
+  private final Config trainConfig;
+  private final Config evalConfig;
+  private final Module startModule;
+  private final int foldCount;
+  private final int threadCount;
+  private final ParseCorpusSnapshot snapshot;
+
+  /**
+   * @throws TalismaneException
+   *           if the module is not supported, or if there are fewer than two
+   *           folds
+   */
+  public CrossValidator(Reader reader, File outDir, String sessionId) throws IOException, ReflectiveOperationException, TalismaneException {
+    this.sessionId = sessionId;
+    this.outDir = outDir;
+    TalismaneSession session = TalismaneSession.get(sessionId);
+    this.module = session.getModule();
+
+    Config config = ConfigFactory.load();
+    Config moduleConfig = null;
+    switch (module) {
+    case posTagger:
+      moduleConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger");
+      break;
+    case parser:
+      moduleConfig = config.getConfig("talismane.core." + sessionId + ".parser");
+      break;
+    default:
+      throw new TalismaneException("Command 'crossValidate' does not yet support module: " + module);
+    }
+    this.trainConfig = moduleConfig.getConfig("train");
+    this.evalConfig = moduleConfig.getConfig("input");
+    this.startModule = Module.valueOf(moduleConfig.getString("evaluate.start-module"));
+
+    this.foldCount = trainConfig.getInt("cross-validation.fold-count");
+    if (foldCount < 2)
+      throw new TalismaneException("Cross-validation requires at least 2 folds, got " + foldCount);
+
+    int threads = OrderedTaskRunner.getThreadCount(config.getInt("talismane.core." + sessionId + ".cross-validation.threads"));
+    this.threadCount = Math.min(threads, foldCount);
+
+    // build the lazily initialised shared resources before the folds start
+    session.getPosTagSet();
+    session.getLinguisticRules();
+    session.getDiacriticizer();
+    if (module == Module.parser)
+      session.getTransitionSystem();
+
+    Config fullCorpusConfig = ParseCorpusSnapshot.getFullCorpusConfig(trainConfig);
+    PosTagAnnotatedCorpusReader corpusReader = null;
+    if (module == Module.parser)
+      corpusReader = ParserAnnotatedCorpusReader.getCorpusReader(reader, fullCorpusConfig, sessionId);
+    else
+      corpusReader = PosTagAnnotatedCorpusReader.getCorpusReader(reader, fullCorpusConfig, sessionId);
+    this.snapshot = ParseCorpusSnapshot.load(corpusReader, sessionId);
+    LOG.info("Read " + snapshot.size() + " sentences for " + foldCount + "-fold cross-validation");
+  }
+
+  /**
+   * Train and evaluate all folds, and write the combined results.
+   *
+   * @return the f-score calculators for each fold, in fold order
+   */
+  public List<FScoreCalculator<String>> crossValidate() throws TalismaneException, IOException {
+    List<Fold> folds = new ArrayList<>(foldCount);
+    try {
+      // the configured models are read here, since their factories aren't
+      // thread-safe
+      for (int i = 0; i < foldCount; i++) {
+        Tokeniser tokeniser = null;
+        PosTagger posTagger = null;
+        if (startModule == Module.tokeniser)
+          tokeniser = Tokeniser.getInstance(sessionId);
+        if (module == Module.parser && (startModule == Module.tokeniser || startModule == Module.posTagger))
+          posTagger = PosTaggers.getPosTagger(sessionId);
+        folds.add(new Fold(i, tokeniser, posTagger));
+      }
+    } catch (ReflectiveOperationException e) {
+      throw new TalismaneException("Unable to read the configured models", e);
+    }
+
+    // each fold adds its tests to the pooled results from its own thread, as
+    // soon as it is evaluated
+    ConcurrentFScoreCalculator<String> allFolds = new ConcurrentFScoreCalculator<>();
+    List<FScoreCalculator<String>> results = new ArrayList<>(foldCount);
+    try (OrderedTaskRunner<FScoreCalculator<String>> runner = new OrderedTaskRunner<>(threadCount, foldCount)) {
+      for (Fold fold : folds) {
+        runner.submit(() -> {
+          FScoreCalculator<String> result = fold.run();
+          allFolds.merge(result);
+          return result;
+        });
+      }
+      while (runner.hasNext())
+        results.add(runner.next());
+    }
+
+    String baseName = TalismaneSession.get(sessionId).getBaseName();
+    File csvFile = new File(outDir, baseName + "_crossValidation.csv");
+    try (Writer csvFileWriter = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(csvFile, false), TalismaneSession.get(sessionId).getCsvCharset()))) {
+      FScoreCalculator.combineCrossValidationResults(results, baseName, csvFileWriter);
+    }
+
+    for (int i = 0; i < results.size(); i++)
+      LOG.info("Fold " + i + " f-score: " + results.get(i).getTotalFScore());
+    File allFoldsFile = new File(outDir, baseName + "_allFolds.fscores.csv");
+    allFolds.writeScoresToCSVFile(allFoldsFile, TalismaneSession.get(sessionId).getCsvCharset().name());
+    LOG.info("All folds f-score: " + allFolds.getFScoreCalculator().getTotalFScore());
+    return results;
+  }
+
+  private final class Fold {
+    private final int index;
+    private final Tokeniser tokeniser;
+    private final PosTagger posTagger;
+
+    private Fold(int index, Tokeniser tokeniser, PosTagger posTagger) {
+      this.index = index;
+      this.tokeniser = tokeniser;
+      this.posTagger = posTagger;
+    }
+
+    private FScoreCalculator<String> run() throws TalismaneException, IOException {
+      try {
+        Config foldTrainConfig = trainConfig.withValue("cross-validation.fold-count", ConfigValueFactory.fromAnyRef(foldCount))
+            .withValue("cross-validation.include-index", ConfigValueFactory.fromAnyRef(-1))
+            .withValue("cross-validation.exclude-index", ConfigValueFactory.fromAnyRef(index));
+        Config foldEvalConfig = evalConfig.withValue("cross-validation.fold-count", ConfigValueFactory.fromAnyRef(foldCount))
+            .withValue("cross-validation.include-index", ConfigValueFactory.fromAnyRef(index))
+            .withValue("cross-validation.exclude-index", ConfigValueFactory.fromAnyRef(-1));
+        String foldBaseName = TalismaneSession.get(sessionId).getBaseName() + "_fold" + index;
+
+        LOG.info("Training fold " + index);
+        if (module == Module.parser) {
+          ParserTrainer trainer = new ParserTrainer(snapshot.getReader(foldTrainConfig), sessionId);
+          ClassificationModel model = trainer.trainModel();
+
+          LOG.info("Evaluating fold " + index);
+          TransitionBasedParser parser = new TransitionBasedParser(model, sessionId);
+          ParserEvaluator evaluator = new ParserEvaluator(snapshot.getReader(foldEvalConfig), parser, posTagger, tokeniser, false, false, sessionId);
+          ParserFScoreCalculator fScoreCalculator = new ParserFScoreCalculator(outDir, foldBaseName, sessionId);
+          evaluator.addObserver(fScoreCalculator);
+          evaluator.evaluate();
+          return fScoreCalculator.getFscoreCalculator();
+        } else {
+          PosTaggerTrainer trainer = new PosTaggerTrainer(snapshot.getReader(foldTrainConfig), sessionId);
+          ClassificationModel model = trainer.trainModel();
+
+          LOG.info("Evaluating fold " + index);
+          ForwardStatisticalPosTagger posTagger = new ForwardStatisticalPosTagger(model, sessionId);
+          PosTaggerEvaluator evaluator = new PosTaggerEvaluator(posTagger, snapshot.getReader(foldEvalConfig), tokeniser, sessionId);
+          PosTagFScoreCalculator fScoreCalculator = new PosTagFScoreCalculator(outDir, foldBaseName, sessionId);
+          evaluator.addObserver(fScoreCalculator);
+          evaluator.evaluate();
+          return fScoreCalculator.getFScoreCalculator();
+        }
+      } catch (IOException | RuntimeException e) {
+        LogUtils.logError(LOG, e);
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,205 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.utils.io.DirectoryReader;
+import com.joliciel.talismane.utils.io.DirectoryWriter;
+import com.joliciel.talismane.utils.io.SingleFileReader;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Analyses each file in a directory structure as a separate unit of work, with
+ * up to talismane.core.[sessionId].analysis.file-threads files being analysed
+ * at the same time, each by its own {@link Talismane} instance.<br>
+ * <br>
+ * If the directory structure is kept, each file is written to its own output
+ * file, as per {@link DirectoryWriter}. The output is first written to a file
+ * with a ".tmp" suffix, and only renamed once the analysis is complete. If
+ * analysis.skip-existing-output is true, files whose output exists and is at
+ * least as recent as the file itself are skipped, so that an interrupted run
+ * can be resumed.<br>
+ * <br>
+ * Otherwise, the outputs of all files are written to a single output file (or
+ * standard out), in the same order as {@link DirectoryReader}.<br>
+ * <br>
+ * Any additional outputs written to the outDir are written separately for each
+ * file, and will therefore overwrite each other.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class DirectoryAnalyser {
+  private static final Logger LOG = LoggerFactory.getLogger(DirectoryAnalyser.class);
+  private static final int PENDING_FILES_PER_THREAD = 2;
+
+  private final File inDir;
+  private final File outFile;
+  private final File outDir;
+  private final boolean keepDirectoryStructure;
+  private final String sessionId;
+  private final int threadCount;
+  private final boolean skipExistingOutput;
+
+  /**
+   * @param inDir
+   *          the directory to analyse
+   * @param outFile
+   *          the output directory if keepDirectoryStructure is true, otherwise
+   *          the output file, or null for standard out
+   * @param outDir
+   *          a directory for writing any additional output files specified in
+   *          the configuration
+   */
+  public DirectoryAnalyser(File inDir, File outFile, File outDir, boolean keepDirectoryStructure, String sessionId) {
+    this.inDir = inDir;
+    this.outFile = outFile;
+    this.outDir = outDir;
+    this.keepDirectoryStructure = keepDirectoryStructure && outFile != null;
+    this.sessionId = sessionId;
+
+    Config config = ConfigFactory.load();
+    Config analyseConfig = config.getConfig("talismane.core." + sessionId + ".analysis");
+    this.threadCount = OrderedTaskRunner.getThreadCount(analyseConfig.getInt("file-threads"));
+    this.skipExistingOutput = analyseConfig.getBoolean("skip-existing-output");
+  }
+
+  public void analyse() throws IOException, ReflectiveOperationException, TalismaneException {
+    TalismaneSession session = TalismaneSession.get(sessionId);
+    List<File> files = DirectoryReader.listFiles(inDir);
+
+    DirectoryWriter directoryWriter = null;
+    Writer concatenatedWriter = null;
+    if (keepDirectoryStructure) {
+      outFile.mkdirs();
+      directoryWriter = new DirectoryWriter(inDir, outFile, session.getSuffix(), session.getOutputCharset());
+    } else if (outFile == null) {
+      concatenatedWriter = new BufferedWriter(new OutputStreamWriter(System.out, session.getOutputCharset()));
+    } else {
+      File outFileDir = outFile.getParentFile();
+      if (outFileDir != null)
+        outFileDir.mkdirs();
+      concatenatedWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile, false), session.getOutputCharset()));
+    }
+
+    int analysedCount = 0;
+    int skippedCount = 0;
+    try (OrderedTaskRunner<String> runner = new OrderedTaskRunner<>(threadCount, threadCount * PENDING_FILES_PER_THREAD)) {
+      for (File file : files) {
+        FileAnalysis fileAnalysis = null;
+        if (directoryWriter != null) {
+          File outputFile = directoryWriter.getOutputFile(file);
+          if (skipExistingOutput && outputFile.exists() && outputFile.lastModified() >= file.lastModified()) {
+            LOG.info("Skipping " + file.getPath() + ", output already exists: " + outputFile.getPath());
+            skippedCount++;
+            continue;
+          }
+          File tempFile = new File(outputFile.getParentFile(), outputFile.getName() + ".tmp");
+          Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile, false), session.getOutputCharset()));
+          fileAnalysis = new FileAnalysis(file, writer, tempFile, outputFile);
+        } else {
+          fileAnalysis = new FileAnalysis(file, new StringWriter(), null, null);
+        }
+
+        // the models are read by the constructor, since their factories
+        // aren't thread-safe
+        fileAnalysis.talismane = new Talismane(fileAnalysis.writer, outDir, sessionId);
+        runner.submit(fileAnalysis::analyse);
+        analysedCount++;
+
+        while (runner.isFull())
+          this.onFileAnalysed(runner.next(), concatenatedWriter);
+      }
+      while (runner.hasNext())
+        this.onFileAnalysed(runner.next(), concatenatedWriter);
+    } finally {
+      if (concatenatedWriter != null) {
+        concatenatedWriter.flush();
+        concatenatedWriter.close();
+      }
+    }
+    LOG.info("Analysed " + analysedCount + " files" + (skippedCount > 0 ? ", skipped " + skippedCount + " files with existing output" : ""));
+  }
+
+  private void onFileAnalysed(String output, Writer concatenatedWriter) throws IOException {
+    if (concatenatedWriter != null) {
+      concatenatedWriter.write(output);
+      concatenatedWriter.flush();
+    }
+  }
+
+  private final class FileAnalysis {
+    private final File file;
+    private final Writer writer;
+    private final File tempFile;
+    private final File outputFile;
+    private Talismane talismane;
+
+    private FileAnalysis(File file, Writer writer, File tempFile, File outputFile) {
+      this.file = file;
+      this.writer = writer;
+      this.tempFile = tempFile;
+      this.outputFile = outputFile;
+    }
+
+    /**
+     * Analyse the file, and return its output if it isn't written to an
+     * output file.
+     */
+    private String analyse() throws IOException, ReflectiveOperationException, TalismaneException {
+      LOG.debug("Analysing " + file.getPath());
+      TalismaneSession session = TalismaneSession.get(sessionId);
+      Reader reader = null;
+      if (session.isMemoryMappedInput())
+        reader = new SingleFileReader(file, session.getInputCharset(), session.getBlockSize());
+      else
+        reader = new SingleFileReader(file, new InputStreamReader(new FileInputStream(file), session.getInputCharset()));
+      // closes both the reader and the writer
+      talismane.analyse(reader);
+
+      if (tempFile == null)
+        return writer.toString();
+
+      try {
+        Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs tasks on a fixed number of threads, and returns their results in the
+ * order in which the tasks were submitted, e.g. so that sentences can be
+ * analysed concurrently while observers still receive them in corpus
+ * order.<br>
+ * <br>
+ * The caller is expected to submit tasks while {@link #isFull()} is false, and
+ * to read results with {@link #next()} otherwise, so that at most max-pending
+ * tasks and results are held in memory at any one time. Submitting and
+ * reading results should be done by a single thread.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public final class OrderedTaskRunner<T> implements AutoCloseable {
+  private final ExecutorService executor;
+  private final int maxPending;
+  private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+  /**
+   * @param threadCount
+   *          the number of threads on which to run tasks
+   * @param maxPending
+   *          the number of tasks which can be submitted before the oldest
+   *          result has to be read
+   */
+  public OrderedTaskRunner(int threadCount, int maxPending) {
+    this.executor = Executors.newFixedThreadPool(threadCount);
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * The actual number of threads to use for a configured thread count, where
+   * 0 or less means one thread per available processor.
+   */
+  public static int getThreadCount(int threads) {
+    if (threads <= 0)
+      return Runtime.getRuntime().availableProcessors();
+    return threads;
+  }
+
+  public void submit(Callable<T> task) {
+    pending.add(executor.submit(task));
+  }
+
+  /**
+   * Whether max-pending results are waiting to be read.
+   */
+  public boolean isFull() {
+    return pending.size() >= maxPending;
+  }
+
+  /**
+   * Whether any results are waiting to be read.
+   */
+  public boolean hasNext() {
+    return !pending.isEmpty();
+  }
+
+  /**
+   * Wait for the oldest task still pending, and return its result. Any
+   * exception thrown by the task is thrown here.
+   */
+  public T next() throws TalismaneException, IOException {
+    Future<T> future = pending.poll();
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new TalismaneException("Task failed", cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TalismaneException("Interrupted while waiting for task", e);
+    }
+  }
+
+  /**
+   * Stops all threads, cancelling any tasks still pending.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -35,22 +35,25 @@ import com.joliciel.talismane.parser.NonDeterministicParser;
 import com.joliciel.talismane.parser.ParseConfiguration;
 import com.joliciel.talismane.parser.Parser;
 import com.joliciel.talismane.parser.Parsers;
+import com.joliciel.talismane.parser.output.AsyncParseConfigurationProcessor;
 import com.joliciel.talismane.parser.output.ParseConfigurationProcessor;
 import com.joliciel.talismane.posTagger.NonDeterministicPosTagger;
 import com.joliciel.talismane.posTagger.PosTagAnnotatedCorpusReader;
 import com.joliciel.talismane.posTagger.PosTagSequence;
 import com.joliciel.talismane.posTagger.PosTagger;
 import com.joliciel.talismane.posTagger.PosTaggers;
+import com.joliciel.talismane.posTagger.output.AsyncPosTagSequenceProcessor;
 import com.joliciel.talismane.posTagger.output.PosTagSequenceProcessor;
-import com.joliciel.talismane.rawText.RawTextAnnotator;
 import com.joliciel.talismane.rawText.RollingTextBlock;
 import com.joliciel.talismane.rawText.Sentence;
 import com.joliciel.talismane.sentenceAnnotators.SentenceAnnotator;
+import com.joliciel.talismane.sentenceDetector.AsyncSentenceProcessor;
 import com.joliciel.talismane.sentenceDetector.SentenceDetector;
 import com.joliciel.talismane.sentenceDetector.SentenceProcessor;
 import com.joliciel.talismane.tokeniser.TokenSequence;
 import com.joliciel.talismane.tokeniser.Tokeniser;
 import com.joliciel.talismane.tokeniser.TokeniserAnnotatedCorpusReader;
+import com.joliciel.talismane.tokeniser.output.AsyncTokenSequenceProcessor;
 import com.joliciel.talismane.tokeniser.output.TokenSequenceProcessor;
 import com.joliciel.talismane.utils.ArrayListNoNulls;
 import com.joliciel.talismane.utils.LogUtils;
@@ -120,7 +123,12 @@ public class Talismane {
     /**
      * Compare two annotated corpora.
      */
-    compare
+    compare,
+    /**
+     * Train and evaluate a model on each fold of an annotated corpus, and
+     * combine the evaluation results.
+     */
+    crossValidate
   }
 
   public enum ProcessingOption {
@@ -194,6 +202,7 @@ public class Talismane {
 
   private final int sentenceCount;
   private final Writer writer;
+  private final AsyncProcessingStage outputStage;
 
   private final SentenceDetector sentenceDetector;
   private final Tokeniser tokeniser;
@@ -262,6 +271,18 @@ public class Talismane {
       this.parseConfigurationProcessors = new ArrayList<>();
     }
 
+    Config asyncConfig = analyseConfig.getConfig("async-output");
+    if (asyncConfig.getBoolean("enabled")) {
+      this.outputStage = new AsyncProcessingStage(asyncConfig.getInt("buffer-size"),
+          AsyncProcessingStage.OverflowPolicy.valueOf(asyncConfig.getString("overflow-policy")), "talismane-output-" + sessionId);
+      this.sentenceProcessors.replaceAll(processor -> new AsyncSentenceProcessor(processor, outputStage));
+      this.tokenSequenceProcessors.replaceAll(processor -> new AsyncTokenSequenceProcessor(processor, outputStage));
+      this.posTagSequenceProcessors.replaceAll(processor -> new AsyncPosTagSequenceProcessor(processor, outputStage));
+      this.parseConfigurationProcessors.replaceAll(processor -> new AsyncParseConfigurationProcessor(processor, outputStage));
+    } else {
+      this.outputStage = null;
+    }
+
     if (this.needsSentenceDetector())
       sentenceDetector = SentenceDetector.getInstance(sessionId);
     else
@@ -399,11 +420,7 @@ public class Talismane {
             rollingTextBlock = rollingTextBlock.roll(nextText);
 
             // annotate block 3 with raw text filters
-            AnnotatedText rawTextBlock = rollingTextBlock.getRawTextBlock();
-
-            for (RawTextAnnotator textAnnotator : TalismaneSession.get(sessionId).getTextAnnotators()) {
-              textAnnotator.annotate(rawTextBlock);
-            }
+            rollingTextBlock.annotateRawTextBlock(TalismaneSession.get(sessionId).getTextAnnotators());
 
             // detect sentences in block 2 using the sentence
             // detector
@@ -463,8 +480,10 @@ public class Talismane {
               currentURI = sentence.getFileURI();
               currentFile = sentence.getFile();
               LOG.debug("Setting current file to " + currentFile.getPath());
-              if (writer instanceof CurrentFileObserver)
-                ((CurrentFileObserver) writer).onNextFile(currentFile);
+              if (writer instanceof CurrentFileObserver) {
+                File nextFile = currentFile;
+                this.writeOutput(() -> ((CurrentFileObserver) writer).onNextFile(nextFile));
+              }
               for (SentenceProcessor processor : sentenceProcessors)
                 if (processor instanceof CurrentFileObserver)
                   ((CurrentFileObserver) processor).onNextFile(currentFile);
@@ -480,7 +499,8 @@ public class Talismane {
             }
 
             if (sentence.getLeftoverOriginalText().length() > 0) {
-              writer.append(sentence.getLeftoverOriginalText() + "\n");
+              String leftoverText = sentence.getLeftoverOriginalText() + "\n";
+              this.writeOutput(() -> writer.append(leftoverText));
             }
 
             for (SentenceProcessor sentenceProcessor : sentenceProcessors) {
@@ -500,6 +520,8 @@ public class Talismane {
 
           List<PosTagSequence> posTagSequences = null;
           if (this.needsPosTagger()) {
+            if (sentence == null)
+              sentence = tokenSequence.getSentence();
             posTagSequence = null;
             if (tokenSequences == null) {
               tokenSequences = new ArrayListNoNulls<>();
@@ -522,6 +544,8 @@ public class Talismane {
           } // need to postag
 
           if (this.needsParser()) {
+            if (sentence == null)
+              sentence = posTagSequence.getTokenSequence().getSentence();
             if (posTagSequences == null) {
               posTagSequences = new ArrayListNoNulls<>();
               posTagSequences.add(posTagSequence);
@@ -549,6 +573,10 @@ public class Talismane {
             posTagSequence = null;
           } // need to parse
 
+          // the last module is done with this sentence's token features
+          if (sentence != null)
+            sentence.releaseTokenFeatureMemo();
+
           if (this.startModule.equals(Module.sentenceDetector) || this.startModule.equals(Module.tokeniser))
             needToProcess = !sentences.isEmpty();
           else if (this.startModule.equals(Module.posTagger))
@@ -559,28 +587,32 @@ public class Talismane {
       } // next character
 
       // Check if there's any leftover output to output!
-      if (rollingTextBlock.getLeftoverOriginalText().length() > 0)
-        writer.append(rollingTextBlock.getLeftoverOriginalText());
+      if (rollingTextBlock.getLeftoverOriginalText().length() > 0) {
+        String leftoverText = rollingTextBlock.getLeftoverOriginalText();
+        this.writeOutput(() -> writer.append(leftoverText));
+      }
     } finally {
-      IOException exception = null;
+      // a failing processor mustn't stop the others, the output stage or the
+      // writer from being closed
+      Exception exception = null;
       try {
         reader.close();
-        writer.flush();
-      } catch (IOException e) {
+        this.writeOutput(writer::flush);
+      } catch (IOException | RuntimeException e) {
         LogUtils.logError(LOG, e);
         exception = e;
       }
       for (SentenceProcessor processor : this.sentenceProcessors)
         try {
           processor.close();
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
           LogUtils.logError(LOG, e);
           exception = e;
         }
       for (TokenSequenceProcessor processor : this.tokenSequenceProcessors)
         try {
           processor.close();
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
           LogUtils.logError(LOG, e);
           exception = e;
         }
@@ -588,7 +620,7 @@ public class Talismane {
         try {
           processor.onCompleteAnalysis();
           processor.close();
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
           LogUtils.logError(LOG, e);
           exception = e;
         }
@@ -597,7 +629,15 @@ public class Talismane {
         try {
           processor.onCompleteParse();
           processor.close();
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
+          LogUtils.logError(LOG, e);
+          exception = e;
+        }
+      }
+      if (outputStage != null) {
+        try {
+          outputStage.close();
+        } catch (IOException | RuntimeException e) {
           LogUtils.logError(LOG, e);
           exception = e;
         }
@@ -608,16 +648,30 @@ public class Talismane {
 
       try {
         writer.close();
-      } catch (IOException e) {
+      } catch (IOException | RuntimeException e) {
         LogUtils.logError(LOG, e);
         exception = e;
       }
 
+      if (exception instanceof IOException)
+        throw (IOException) exception;
       if (exception != null)
-        throw exception;
+        throw (RuntimeException) exception;
     }
   }
 
+  /**
+   * Write directly to the main writer, via the output stage if output is
+   * asynchronous, so that the order with respect to the processors is
+   * retained.
+   */
+  private void writeOutput(AsyncProcessingStage.ProcessingTask task) throws IOException {
+    if (outputStage != null)
+      outputStage.submit(task);
+    else
+      task.process();
+  }
+
   /**
    * Does this instance of Talismane need a sentence detector to perform the
    * requested processing.
@@ -114,15 +114,18 @@ public class TalismaneMain {
   private final OptionSpecBuilder evaluateSpec = parser.accepts("evaluate", "evaluate annotated corpus").availableUnless("analyse", "train");
   private final OptionSpecBuilder compareSpec = parser.accepts("compare", "compare two annotated corpora").availableUnless("analyse", "train", "evaluate");
   private final OptionSpecBuilder processSpec = parser.accepts("process", "process annotated corpus").availableUnless("analyse", "train", "evaluate", "compare");
-  private final AbstractOptionSpec<Void> helpSpec = parser.acceptsAll(Arrays.asList("?", "help"), "show help").availableUnless("analyse", "train", "evaluate", "compare", "process").forHelp();
+  private final OptionSpecBuilder crossValidateSpec = parser.accepts("crossValidate", "train and evaluate each cross-validation fold of an annotated corpus")
+      .availableUnless("analyse", "train", "evaluate", "compare", "process");
+  private final AbstractOptionSpec<Void> helpSpec = parser.acceptsAll(Arrays.asList("?", "help"), "show help")
+      .availableUnless("analyse", "train", "evaluate", "compare", "process", "crossValidate").forHelp();
 
   private final OptionSpec<String> sessionIdOption = parser.accepts("sessionId", "the current session id - configuration read as talismane.core.[sessionId]")
-      .requiredIf("analyse", "train", "evaluate", "compare", "process").withRequiredArg().ofType(String.class);
+      .requiredIf("analyse", "train", "evaluate", "compare", "process", "crossValidate").withRequiredArg().ofType(String.class);
 
   private final OptionSpec<Module> moduleOption = parser.accepts("module", "training / evaluation / processing module: " + Arrays.toString(Module.values()))
-      .requiredIf("train", "process").availableIf("train", "evaluate", "compare", "process").withRequiredArg().ofType(Module.class);
+      .requiredIf("train", "process", "crossValidate").availableIf("train", "evaluate", "compare", "process", "crossValidate").withRequiredArg().ofType(Module.class);
   private final OptionSpec<Module> startModuleOption = parser.accepts("startModule", "where to start analysis (or evaluation): " + Arrays.toString(Module.values()))
-      .availableIf("analyse", "evaluate").withRequiredArg().ofType(Module.class);
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(Module.class);
   private final OptionSpec<Module> endModuleOption = parser.accepts("endModule", "where to end analysis: " + Arrays.toString(Module.values())).availableIf("analyse")
       .withRequiredArg().ofType(Module.class);
 
@@ -153,6 +156,9 @@ public class TalismaneMain {
   private final OptionSpec<String> encodingOption = parser.accepts("encoding", "encoding for input and output").withRequiredArg().ofType(String.class);
   private final OptionSpec<String> inputEncodingOption = parser.accepts("inputEncoding", "encoding for input").withRequiredArg().ofType(String.class);
   private final OptionSpec<String> outputEncodingOption = parser.accepts("outputEncoding", "encoding for output").withRequiredArg().ofType(String.class);
+  private final OptionSpec<Boolean> memoryMappedInputOption = parser
+      .accepts("memoryMappedInput", "if true, input files are memory-mapped and decoded directly, rather than read through an input stream").withRequiredArg()
+      .ofType(Boolean.class);
 
   private final OptionSpec<File> languageModelOption = parser.accepts("languageModel", "statistical model for language recognition").withRequiredArg().ofType(File.class);
   private final OptionSpec<File> sentenceModelOption = parser.accepts("sentenceModel", "statistical model for sentence detection").withRequiredArg().ofType(File.class);
@@ -183,13 +189,18 @@ public class TalismaneMain {
 
   private final OptionSpec<Integer> sentenceCountOption = parser.accepts("sentenceCount", "max sentences to process").withRequiredArg().ofType(Integer.class);
   private final OptionSpec<Integer> startSentenceOption = parser.accepts("startSentence", "first sentence index to process").withRequiredArg().ofType(Integer.class);
-  private final OptionSpec<Integer> crossValidationSizeOption = parser.accepts("crossValidationSize", "number of cross-validation folds").availableIf("train", "evaluate")
+  private final OptionSpec<Integer> crossValidationSizeOption = parser.accepts("crossValidationSize", "number of cross-validation folds").availableIf("train", "evaluate", "crossValidate")
       .withRequiredArg().ofType(Integer.class);
   private final OptionSpec<Integer> includeIndexOption = parser.accepts("includeIndex", "cross-validation index to include for evaluation").availableIf("evaluate")
       .withRequiredArg().ofType(Integer.class);
   private final OptionSpec<Integer> excludeIndexOption = parser.accepts("excludeIndex", "cross-validation index to exclude for training").availableIf("train")
       .withRequiredArg().ofType(Integer.class);
 
+  private final OptionSpec<Integer> threadsOption = parser
+      .accepts("threads",
+          "how many files (analyse a directory), sentences (evaluate) or cross-validation folds (crossValidate) to process at the same time, 0 for one per processor")
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(Integer.class);
+
   private final OptionSpec<BuiltInTemplate> builtInTemplateOption = parser
       .accepts("builtInTemplate", "pre-defined output template: " + Arrays.toString(BuiltInTemplate.values())).availableUnless("train").withRequiredArg()
       .ofType(BuiltInTemplate.class);
@@ -198,9 +209,9 @@ public class TalismaneMain {
       .withRequiredArg().ofType(File.class);
 
   private final OptionSpec<File> posTaggerRulesOption = parser.accepts("posTaggerRules", "semi-colon delimited list of files containing pos-tagger rules")
-      .availableIf("analyse", "evaluate").withRequiredArg().ofType(File.class).withValuesSeparatedBy(';');
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(File.class).withValuesSeparatedBy(';');
   private final OptionSpec<File> parserRulesOption = parser.accepts("parserRules", "semi-colon delimited list of files containing parser rules")
-      .availableIf("analyse", "evaluate").withRequiredArg().ofType(File.class).withValuesSeparatedBy(';');
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(File.class).withValuesSeparatedBy(';');
 
   private final OptionSpec<String> suffixOption = parser.accepts("suffix", "suffix to all output files").withRequiredArg().ofType(String.class);
   private final OptionSpec<String> outputDividerOption = parser
@@ -208,20 +219,20 @@ public class TalismaneMain {
           + " The String NEWLINE is interpreted as \"\n\". Otherwise, used literally.")
       .availableIf("analyse").withRequiredArg().ofType(String.class);
 
-  private final OptionSpec<Integer> beamWidthOption = parser.accepts("beamWidth", "beam width in pos-tagger and parser beam search").availableIf("analyse", "evaluate")
+  private final OptionSpec<Integer> beamWidthOption = parser.accepts("beamWidth", "beam width in pos-tagger and parser beam search").availableIf("analyse", "evaluate", "crossValidate")
       .withRequiredArg().ofType(Integer.class);
   private final OptionSpec<Integer> tokeniserBeamWidthOption = parser.accepts("tokeniserBeamWidth", "beam width in tokeniser beam search")
-      .availableIf("analyse", "evaluate").withRequiredArg().ofType(Integer.class);
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(Integer.class);
   private final OptionSpec<Boolean> propagateBeamOption = parser.accepts("propagateBeam", "should we propagate the pos-tagger beam to the parser")
-      .availableIf("analyse", "evaluate").withRequiredArg().ofType(Boolean.class);
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(Boolean.class);
 
   private final OptionSpec<Integer> maxParseAnalysisTimeOption = parser
-      .accepts("maxParseAnalysisTime", "how long we will attempt to parse a sentence before leaving the parse as is, in seconds")
-      .availableIf("analyse", "evaluate").withRequiredArg().ofType(Integer.class);
-  private final OptionSpec<Integer> minFreeMemoryOption = parser.accepts("minFreeMemory", "minimum amount of remaining free memory to continue a parse, in kilobytes")
-      .availableIf("analyse", "evaluate").withRequiredArg().ofType(Integer.class);
+      .accepts("maxParseAnalysisTime", "how long we will attempt to parse a sentence with the full beam before narrowing it, in seconds")
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(Integer.class);
+  private final OptionSpec<Integer> minFreeMemoryOption = parser.accepts("minFreeMemory", "minimum amount of remaining free memory to continue a parse with the full beam, in kilobytes")
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(Integer.class);
   private final OptionSpec<Boolean> earlyStopOption = parser.accepts("earlyStop", "stop as soon as the beam contains n terminal configurations")
-      .availableIf("analyse", "evaluate").withRequiredArg().ofType(Boolean.class);
+      .availableIf("analyse", "evaluate", "crossValidate").withRequiredArg().ofType(Boolean.class);
 
   private final OptionSpec<File> evalFileOption = parser.accepts("evalFile", "evaluation corpus file").availableIf("evaluate", "compare").withRequiredArg()
       .ofType(File.class);
@@ -233,13 +244,13 @@ public class TalismaneMain {
   private final OptionSpec<Boolean> includeUnknownWordResultsOption = parser
       .accepts("includeUnknownWordResults",
           "if true, will add files ending with \"_unknown.csv\" and \"_known.csv\" splitting pos-tagging f-scores into known and unknown words")
-      .availableIf("evaluate").withRequiredArg().ofType(Boolean.class);
+      .availableIf("evaluate", "crossValidate").withRequiredArg().ofType(Boolean.class);
   private final  OptionSpec<Boolean> includeLexiconCoverageOption = parser
       .accepts("includeUnknownWordResults", "if true, will add a file ending with \".lexiconCoverage.csv\" giving lexicon word coverage")
-      .availableIf("evaluate").withRequiredArg().ofType(Boolean.class);
+      .availableIf("evaluate", "crossValidate").withRequiredArg().ofType(Boolean.class);
 
   private final OptionSpec<Boolean> labeledEvaluationOption = parser
-      .accepts("labeledEvaluation", "if true, takes both governor and dependency label into account when determining errors").availableIf("evaluate")
+      .accepts("labeledEvaluation", "if true, takes both governor and dependency label into account when determining errors").availableIf("evaluate", "crossValidate")
       .withRequiredArg().ofType(Boolean.class);
 
   private final OptionSpec<ProcessingOption> processingOption = parser.accepts("option", "process command option: " + Arrays.toString(ProcessingOption.values()))
@@ -247,7 +258,7 @@ public class TalismaneMain {
   private final OptionSpec<File> lexicalEntryRegexOption = parser.accepts("lexicalEntryRegex", "file describing regex for reading lexical entries in the corpus")
       .withRequiredArg().ofType(File.class);
 
-  private final OptionSpec<File> featuresOption = parser.accepts("features", "a file containing the training feature descriptors").availableIf("train", "process")
+  private final OptionSpec<File> featuresOption = parser.accepts("features", "a file containing the training feature descriptors").availableIf("train", "process", "crossValidate")
       .withRequiredArg().ofType(File.class);
   private final OptionSpec<File> tokeniserPatternsOption = parser.accepts("tokeniserPatterns", "a file containing the patterns for tokeniser training")
       .availableIf("train", "process").withRequiredArg().ofType(File.class);
@@ -265,18 +276,18 @@ public class TalismaneMain {
       .withRequiredArg().ofType(String.class).withValuesSeparatedBy(',');
 
   private final OptionSpec<MachineLearningAlgorithm> algorithmOption = parser
-      .accepts("algorithm", "machine learning algorithm: " + Arrays.toString(MachineLearningAlgorithm.values())).availableIf("train").withRequiredArg()
+      .accepts("algorithm", "machine learning algorithm: " + Arrays.toString(MachineLearningAlgorithm.values())).availableIf("train", "crossValidate").withRequiredArg()
       .ofType(MachineLearningAlgorithm.class);
   private final OptionSpec<Integer> cutoffOption = parser.accepts("cutoff", "in how many distinct events should a feature appear in order to get included in the model?")
-      .availableIf("train").withRequiredArg().ofType(Integer.class);
+      .availableIf("train", "crossValidate").withRequiredArg().ofType(Integer.class);
   private final OptionSpec<Double> linearSVMEpsilonOption = parser.accepts("linearSVMEpsilon", "parameter epsilon, typical values are 0.01, 0.05, 0.1, 0.5")
-      .availableIf("train").withRequiredArg().ofType(Double.class);
+      .availableIf("train", "crossValidate").withRequiredArg().ofType(Double.class);
   private final OptionSpec<Double> linearSVMCostOption = parser.accepts("linearSVMCost", "parameter C, typical values are powers of 2, from 2^-5 to 2^5")
-      .availableIf("train").withRequiredArg().ofType(Double.class);
+      .availableIf("train", "crossValidate").withRequiredArg().ofType(Double.class);
   private final OptionSpec<Boolean> oneVsRestOption = parser
-      .accepts("oneVsRest", "should we treat each outcome explicity as one vs. rest, allowing for an event to have multiple outcomes?").availableIf("train")
+      .accepts("oneVsRest", "should we treat each outcome explicity as one vs. rest, allowing for an event to have multiple outcomes?").availableIf("train", "crossValidate")
       .withRequiredArg().ofType(Boolean.class);
-  private final OptionSpec<Integer> iterationsOption = parser.accepts("iterations", "the number of training iterations (MaxEnt, Perceptron)").availableIf("train")
+  private final OptionSpec<Integer> iterationsOption = parser.accepts("iterations", "the number of training iterations (MaxEnt, Perceptron)").availableIf("train", "crossValidate")
       .withRequiredArg().ofType(Integer.class);
 
   private final OptionSpec<File> logConfigFileSpec = parser.accepts("logConfigFile", "logback configuration file").withRequiredArg().ofType(File.class);
@@ -340,6 +351,8 @@ public class TalismaneMain {
       values.put("talismane.core." + sessionId + ".command", Command.compare.name());
     if (options.has("process"))
       values.put("talismane.core." + sessionId + ".command", Command.process.name());
+    if (options.has("crossValidate"))
+      values.put("talismane.core." + sessionId + ".command", Command.crossValidate.name());
     if (options.has(moduleOption))
       values.put("talismane.core." + sessionId + ".module", options.valueOf(moduleOption).name());
     if (options.has(startModuleOption)) {
@@ -362,6 +375,8 @@ public class TalismaneMain {
       values.put("talismane.core." + sessionId + ".input-encoding", options.valueOf(inputEncodingOption));
     if (options.has(outputEncodingOption))
       values.put("talismane.core." + sessionId + ".output-encoding", options.valueOf(outputEncodingOption));
+    if (options.has(memoryMappedInputOption))
+      values.put("talismane.core." + sessionId + ".memory-mapped-input", options.valueOf(memoryMappedInputOption));
     if (options.has(languageModelOption))
       values.put("talismane.core." + sessionId + ".language-detector.model", options.valueOf(languageModelOption).getPath());
     if (options.has(sentenceModelOption))
@@ -426,6 +441,13 @@ public class TalismaneMain {
       for (String inputLocation : inputLocations)
         values.put(inputLocation + ".cross-validation.exclude-index", options.valueOf(excludeIndexOption));
 
+    if (options.has(threadsOption)) {
+      values.put("talismane.core." + sessionId + ".analysis.file-threads", options.valueOf(threadsOption));
+      values.put("talismane.core." + sessionId + ".cross-validation.threads", options.valueOf(threadsOption));
+      values.put("talismane.core." + sessionId + ".pos-tagger.evaluate.threads", options.valueOf(threadsOption));
+      values.put("talismane.core." + sessionId + ".parser.evaluate.threads", options.valueOf(threadsOption));
+    }
+
     if (options.has(builtInTemplateOption))
       for (String outputLocation : outputLocations)
         values.put(outputLocation + ".built-in-template", options.valueOf(builtInTemplateOption).name());
@@ -661,6 +683,14 @@ public class TalismaneMain {
       case analyse: {
         Module startModule = Module.valueOf(config.getString("talismane.core." + sessionId + ".analysis.start-module"));
         Module endModule = Module.valueOf(config.getString("talismane.core." + sessionId + ".analysis.end-module"));
+        Mode mode = Mode.valueOf(config.getString("talismane.core." + sessionId + ".mode"));
+        int fileThreads = config.getInt("talismane.core." + sessionId + ".analysis.file-threads");
+        if (inFile != null && inFile.isDirectory() && fileThreads != 1 && startModule != Module.languageDetector && mode == Mode.normal) {
+          DirectoryAnalyser directoryAnalyser = new DirectoryAnalyser(inFile, outFile, outDir, keepDirectoryStructure, sessionId);
+          directoryAnalyser.analyse();
+          break;
+        }
+
         Reader reader = getReader(inFile, true, sessionId);
         Writer writer = getWriter(outFile, inFile, keepDirectoryStructure, reader, sessionId);
 
@@ -681,7 +711,6 @@ public class TalismaneMain {
             processor.onNextText(sentence, results);
           }
         } else {
-          Mode mode = Mode.valueOf(config.getString("talismane.core." + sessionId + ".mode"));
           switch (mode) {
           case normal:
             Talismane talismane = new Talismane(writer, outDir, sessionId);
@@ -756,6 +785,12 @@ public class TalismaneMain {
         }
         break;
       }
+      case crossValidate: {
+        Reader reader = getReader(inFile, false, sessionId);
+        CrossValidator crossValidator = new CrossValidator(reader, outDir, sessionId);
+        crossValidator.crossValidate();
+        break;
+      }
       case compare: {
         Reader reader = getReader(inFile, false, sessionId);
         Reader evalReader = getReader(evalFile, false, sessionId);
@@ -958,13 +993,17 @@ public class TalismaneMain {
     if (!file.exists())
       throw new FileNotFoundException("File does not exist: " + file.getPath());
 
+    TalismaneSession session = TalismaneSession.get(sessionId);
     if (file.isDirectory()) {
-      DirectoryReader directoryReader = new DirectoryReader(file, TalismaneSession.get(sessionId).getInputCharset());
+      DirectoryReader directoryReader = new DirectoryReader(file, session.getInputCharset(), session.isMemoryMappedInput(), session.getBlockSize());
       if (forAnalysis)
-        directoryReader.setEndOfFileString("\n" + TalismaneSession.get(sessionId).getEndBlockCharacter());
+        directoryReader.setEndOfFileString("\n" + session.getEndBlockCharacter());
       return directoryReader;
     }
 
+    if (session.isMemoryMappedInput())
+      return new SingleFileReader(file, session.getInputCharset(), session.getBlockSize());
+
     InputStream inFile = new FileInputStream(file);
     return new SingleFileReader(file, new InputStreamReader(inFile, TalismaneSession.get(sessionId).getInputCharset()));
   }
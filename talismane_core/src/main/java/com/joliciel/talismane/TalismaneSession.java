@@ -23,7 +23,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.ObjectInputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -42,21 +41,24 @@ import org.slf4j.LoggerFactory;
 
 import com.joliciel.talismane.Talismane.Command;
 import com.joliciel.talismane.Talismane.Module;
-import com.joliciel.talismane.lexicon.DefaultPosTagMapper;
+import com.joliciel.talismane.lexicon.CachingLexicon;
 import com.joliciel.talismane.lexicon.Diacriticizer;
 import com.joliciel.talismane.lexicon.EmptyLexicon;
 import com.joliciel.talismane.lexicon.LexiconChain;
+import com.joliciel.talismane.lexicon.LexiconFile;
 import com.joliciel.talismane.lexicon.LexiconReader;
 import com.joliciel.talismane.lexicon.PosTagMapper;
 import com.joliciel.talismane.lexicon.PosTaggerLexicon;
-import com.joliciel.talismane.lexicon.SimplePosTagMapper;
+import com.joliciel.talismane.lexicon.SuffixPosTagIndex;
 import com.joliciel.talismane.machineLearning.ExternalResourceFinder;
+import com.joliciel.talismane.machineLearning.MappedExternalResource;
 import com.joliciel.talismane.output.CoNLLFormatter;
 import com.joliciel.talismane.parser.ArcEagerTransitionSystem;
 import com.joliciel.talismane.parser.DependencyLabelSet;
 import com.joliciel.talismane.parser.ShiftReduceTransitionSystem;
 import com.joliciel.talismane.parser.TransitionSystem;
 import com.joliciel.talismane.posTagger.PosTagSet;
+import com.joliciel.talismane.rawText.CombinedRawTextAnnotator;
 import com.joliciel.talismane.rawText.DuplicateWhiteSpaceFilter;
 import com.joliciel.talismane.rawText.NewlineEndOfSentenceMarker;
 import com.joliciel.talismane.rawText.NewlineSpaceMarker;
@@ -90,6 +92,7 @@ public class TalismaneSession {
   // resource
   private static final Map<String, Diacriticizer> diacriticizerMap = new HashMap<>();
   private static final Map<String, List<PosTaggerLexicon>> lexiconMap = new HashMap<>();
+  private static final Map<String, SuffixPosTagIndex> suffixPosTagIndexMap = new HashMap<>();
 
   private final Config config;
   private final String sessionId;
@@ -101,6 +104,8 @@ public class TalismaneSession {
   private final Map<String, PosTagMapper> posTagMappers = new HashMap<>();
   private final List<PosTaggerLexicon> lexicons = new ArrayList<>();
   private final PosTaggerLexicon mergedLexicon;
+  private volatile SuffixPosTagIndex suffixPosTagIndex;
+  private final int suffixLength;
   private final TransitionSystem transitionSystem;
   private LinguisticRules linguisticRules;
   private Diacriticizer diacriticizer;
@@ -108,6 +113,7 @@ public class TalismaneSession {
   private final WordListFinder wordListFinder = new WordListFinder();
   private final ExternalResourceFinder externalResourceFinder = new ExternalResourceFinder();
   private final Charset inputCharset;
+  private final boolean memoryMappedInput;
   private final Charset outputCharset;
   private String baseName = null;
   private final String suffix;
@@ -118,6 +124,8 @@ public class TalismaneSession {
   private final int blockSize;
   private final RawTextMarkType newlineMarker;
   private final List<RawTextAnnotator> textAnnotators;
+  private final boolean incrementalTextAnnotation;
+  private final int textAnnotatorOverlap;
   private final List<SentenceAnnotator> sentenceAnnotators;
   private final List<List<String>> sentenceAnnotatorDescriptors;
   
@@ -176,6 +184,7 @@ public class TalismaneSession {
         outputCharset = Charset.defaultCharset();
       else
         outputCharset = Charset.forName(outputEncoding);
+      memoryMappedInput = talismaneConfig.getBoolean("memory-mapped-input");
   
       locale = Locale.forLanguageTag(talismaneConfig.getString("locale"));
   
@@ -222,14 +231,20 @@ public class TalismaneSession {
       List<String> lexiconPaths = config.getStringList(configPath);
       for (String lexiconPath : lexiconPaths) {
         List<PosTaggerLexicon> lexicons = lexiconMap.get(lexiconPath);
-        LexiconReader lexiconReader = new LexiconReader(sessionId);
+        LexiconReader lexiconReader = new LexiconReader(sessionId, OrderedTaskRunner.getThreadCount(config.getInt("talismane.core." + sessionId + ".lexicon-threads")));
   
         if (lexicons == null) {
           if (lexiconPath.endsWith(".zip")) {
-            InputStream lexiconFile = ConfigUtils.getFile(config, configPath, lexiconPath);
-  
-            lexicons = lexiconReader.deserializeLexicons(new ZipInputStream(lexiconFile));
+            File localLexiconFile = new File(lexiconPath);
+            if (talismaneConfig.getBoolean("lazy-lexicon-segments") && localLexiconFile.isFile()) {
+              lexicons = lexiconReader.deserializeLexicons(localLexiconFile, true);
+            } else {
+              InputStream lexiconFile = ConfigUtils.getFile(config, configPath, lexiconPath);
+              lexicons = lexiconReader.deserializeLexicons(new ZipInputStream(lexiconFile));
+            }
             lexiconMap.put(lexiconPath, lexicons);
+            if (lexiconReader.getSuffixPosTagIndex() != null)
+              suffixPosTagIndexMap.put(lexiconPath, lexiconReader.getSuffixPosTagIndex());
           } else {
             // assume it's a lexicon properties file
             File lexiconPropsFile = new File(lexiconPath);
@@ -240,22 +255,28 @@ public class TalismaneSession {
         for (PosTaggerLexicon oneLexicon : lexicons) {
           this.lexicons.add(oneLexicon);
           lexiconNames.add(oneLexicon.getName());
-          configPath = "talismane.core." + sessionId + ".pos-tagger.pos-tag-map." + oneLexicon.getName();
-          PosTagMapper posTagMapper = null;
-          if (config.hasPath(configPath)) {
-            InputStream posTagMapFile = ConfigUtils.getFileFromConfig(config, configPath);
-            try (Scanner posTagMapScanner = new Scanner(new BufferedReader(new InputStreamReader(posTagMapFile, "UTF-8")))) {
-              posTagMapper = new SimplePosTagMapper(posTagMapScanner, posTagSet);
-            }
-          } else {
-            if (LOG.isDebugEnabled())
-              LOG.debug("Using default pos-tag-mapper for lexicon: " + oneLexicon.getName());
-            posTagMapper = new DefaultPosTagMapper(posTagSet);
-          }
+          PosTagMapper posTagMapper = PosTagMapper.getPosTagMapper(config, sessionId, oneLexicon.getName(), posTagSet);
           this.posTagMappers.put(oneLexicon.getName(), posTagMapper);
+          if (oneLexicon instanceof LexiconFile)
+            ((LexiconFile) oneLexicon).indexPosTags(posTagMapper);
         }
       }
   
+      // an index serialized with the lexicons can only be used if it covers
+      // all of them
+      SuffixPosTagIndex suffixPosTagIndex = null;
+      if (lexiconPaths.size() == 1)
+        suffixPosTagIndex = suffixPosTagIndexMap.get(lexiconPaths.get(0));
+      this.suffixLength = talismaneConfig.getInt("lexicon-suffix-length");
+      if (suffixPosTagIndex != null && posTagSet != null && posTagSet.getName().equals(suffixPosTagIndex.getPosTagSetName())) {
+        if (suffixPosTagIndex.getMaxSuffixLength() < suffixLength)
+          LOG.warn("The suffix pos-tag index serialized with " + lexiconPaths.get(0) + " covers suffixes of up to " + suffixPosTagIndex.getMaxSuffixLength()
+              + " letters, but lexicon-suffix-length is " + suffixLength + ": features on longer suffixes will have no result."
+              + " Re-serialize the lexicons to index longer suffixes.");
+        this.suffixPosTagIndex = suffixPosTagIndex;
+      }
+
+      PosTaggerLexicon mergedLexicon = null;
       if (lexicons.size() == 0)
         mergedLexicon = new EmptyLexicon();
       else if (lexicons.size() == 1)
@@ -264,6 +285,10 @@ public class TalismaneSession {
         LexiconChain lexiconChain = new LexiconChain(lexicons);
         mergedLexicon = lexiconChain;
       }
+      int lexiconCacheSize = talismaneConfig.getInt("lexicon-cache.size");
+      if (lexicons.size() > 0 && lexiconCacheSize > 0)
+        mergedLexicon = new CachingLexicon(mergedLexicon, lexiconCacheSize, talismaneConfig.getInt("lexicon-cache.concurrency-level"));
+      this.mergedLexicon = mergedLexicon;
   
       configPath = "talismane.core." + sessionId + ".pos-tagger.pos-tag-map";
   
@@ -296,6 +321,12 @@ public class TalismaneSession {
           LOG.info("Reading external resources from " + path);
           List<FileObject> fileObjects = ConfigUtils.getFileObjects(path);
           for (FileObject fileObject : fileObjects) {
+            if (fileObject.getName().getBaseName().endsWith(MappedExternalResource.EXTENSION)) {
+              if (!"file".equals(fileObject.getName().getScheme()))
+                throw new TalismaneException("Mapped external resources must be local files: " + fileObject.getName().getURI());
+              externalResourceFinder.addMappedExternalResource(new File(fileObject.getName().getPath()));
+              continue;
+            }
             InputStream externalResourceFile = fileObject.getContent().getInputStream();
             try (Scanner scanner = new Scanner(externalResourceFile)) {
               externalResourceFinder.addExternalResource(fileObject.getName().getBaseName(), scanner);
@@ -331,9 +362,7 @@ public class TalismaneSession {
           LOG.info("Loading new diacriticizer from: " + diacriticizerPath);
           InputStream diacriticizerFile = ConfigUtils.getFileFromConfig(config, configPath);
           try (ZipInputStream zis = new ZipInputStream(diacriticizerFile)) {
-            zis.getNextEntry();
-            ObjectInputStream in = new ObjectInputStream(zis);
-            diacriticizer = (Diacriticizer) in.readObject();
+            diacriticizer = Diacriticizer.deserialize(zis);
             diacriticizerMap.put(diacriticizerPath, diacriticizer);
           }
         } else {
@@ -374,6 +403,10 @@ public class TalismaneSession {
       // text annotators
       LOG.debug("text-annotators");
       this.blockSize = talismaneConfig.getInt("block-size");
+      this.incrementalTextAnnotation = talismaneConfig.getBoolean("annotators.incremental-text-annotation");
+      this.textAnnotatorOverlap = talismaneConfig.getInt("annotators.text-annotator-overlap");
+      if (this.incrementalTextAnnotation && this.textAnnotatorOverlap <= 0)
+        throw new TalismaneException("text-annotator-overlap must be > 0 for incremental text annotation");
       this.textAnnotators = new ArrayList<>();
       // insert sentence breaks at end of block
       this.textAnnotators.add(new RawTextRegexAnnotator(Arrays.asList(new RawTextMarkType[] { RawTextMarkType.SKIP, RawTextMarkType.SENTENCE_BREAK }),
@@ -410,6 +443,16 @@ public class TalismaneSession {
           }
         }
       }
+
+      if (talismaneConfig.getBoolean("annotators.combine-text-annotators")) {
+        if (this.incrementalTextAnnotation) {
+          LOG.warn("Cannot combine text annotators in incremental text annotation mode, applying them separately");
+        } else {
+          RawTextAnnotator combinedAnnotator = new CombinedRawTextAnnotator(this.textAnnotators);
+          this.textAnnotators.clear();
+          this.textAnnotators.add(combinedAnnotator);
+        }
+      }
   
       // ##################################################################
       // sentence annotators
@@ -498,11 +541,36 @@ public class TalismaneSession {
    * Get a lexicon which merges all of the lexicons added, prioritised in the
    * order in which they were added.
    */
-  public synchronized PosTaggerLexicon getMergedLexicon() {
+  public PosTaggerLexicon getMergedLexicon() {
     return mergedLexicon;
   }
 
-  public Diacriticizer getDiacriticizer() {
+  /**
+   * An index of the pos-tags of word forms in the lexicons by suffix: the one
+   * serialized with the lexicons if it was built for the current pos-tag set,
+   * otherwise one built from the lexicons the first time it is requested,
+   * with suffixes of up to lexicon-suffix-length letters.
+   */
+  public SuffixPosTagIndex getSuffixPosTagIndex() {
+    SuffixPosTagIndex index = suffixPosTagIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = suffixPosTagIndex;
+        if (index == null) {
+          LOG.info("Building suffix pos-tag index for " + lexicons.size() + " lexicons");
+          index = SuffixPosTagIndex.build(lexicons, this::getPosTagMapper, posTagSet, suffixLength);
+          suffixPosTagIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  public void setSuffixPosTagIndex(SuffixPosTagIndex suffixPosTagIndex) {
+    this.suffixPosTagIndex = suffixPosTagIndex;
+  }
+
+  public synchronized Diacriticizer getDiacriticizer() {
     if (diacriticizer == null) {
       diacriticizer = new Diacriticizer(this.getMergedLexicon());
       diacriticizer.setLocale(this.getLocale());
@@ -558,6 +626,14 @@ public class TalismaneSession {
     return inputCharset;
   }
 
+  /**
+   * Whether input files should be memory-mapped and decoded directly, rather
+   * than read through an input stream.
+   */
+  public boolean isMemoryMappedInput() {
+    return memoryMappedInput;
+  }
+
   /**
    * Charset for all Talismane output.
    * 
@@ -646,6 +722,26 @@ public class TalismaneSession {
     return textAnnotators;
   }
 
+  /**
+   * If true, regex-based text annotators keep their match state from one
+   * rolled block to the next, and only scan newly rolled-in text, plus an
+   * overlap of {@link #getTextAnnotatorOverlap()} characters. If false, the
+   * entire right-hand context is rescanned by each annotator for each block.
+   */
+  public boolean isIncrementalTextAnnotation() {
+    return incrementalTextAnnotation;
+  }
+
+  /**
+   * In incremental text annotation, the number of characters at the end of a
+   * block which get rescanned when the next block is rolled in, in order to
+   * find matches crossing the block boundary. No text annotator match can be
+   * longer than this overlap.
+   */
+  public int getTextAnnotatorOverlap() {
+    return textAnnotatorOverlap;
+  }
+
   public List<SentenceAnnotator> getSentenceAnnotators() {
     return sentenceAnnotators;
   }
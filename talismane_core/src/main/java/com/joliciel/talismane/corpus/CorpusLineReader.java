@@ -18,6 +18,7 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.corpus;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -49,7 +50,13 @@ import com.joliciel.talismane.lexicon.WritableLexicalEntry;
  * <br>
  * Inside this regex, the placeholders will be replaced by
  * {@link CorpusElement#getReplacement()}, prior to applying the regex to each
- * line read.
+ * line read.<br>
+ * <br>
+ * If the regex is a plain tab-separated layout, in which each column is either
+ * a single placeholder, a wildcard (.* or .+) or a literal string, lines are
+ * split on tabs instead of applying the regex. The result is identical: any
+ * line which doesn't have the expected number of columns, or whose columns
+ * don't match their placeholder, is handed over to the regex.
  * 
  * @author Assaf Urieli
  *
@@ -65,6 +72,21 @@ public class CorpusLineReader {
   private final Map<CorpusElement, Integer> placeholderIndexMap = new HashMap<>();
   private final List<CorpusRule> corpusRules;
 
+  /**
+   * For a plain tab-separated layout, the element read from each column, or
+   * null if the column isn't read. Null if the layout isn't tab-separated.
+   */
+  private final CorpusElement[] columnElements;
+  /**
+   * For a plain tab-separated layout, the literal string expected in each
+   * column, or null if any string is accepted.
+   */
+  private final String[] columnLiterals;
+  /**
+   * For a plain tab-separated layout, whether each column has to be non-empty.
+   */
+  private final boolean[] columnNonEmpty;
+
   /**
    * 
    * @param regex
@@ -117,6 +139,86 @@ public class CorpusLineReader {
     }
 
     this.pattern = Pattern.compile(regexWithGroups, Pattern.UNICODE_CHARACTER_CLASS);
+
+    List<String> columns = splitTabSeparatedRegex(regex);
+    CorpusElement[] columnElements = null;
+    String[] columnLiterals = null;
+    boolean[] columnNonEmpty = null;
+    if (columns != null) {
+      columnElements = new CorpusElement[columns.size()];
+      columnLiterals = new String[columns.size()];
+      columnNonEmpty = new boolean[columns.size()];
+      Set<CorpusElement> elementsFound = new HashSet<>();
+      for (int j = 0; j < columns.size(); j++) {
+        String column = columns.get(j);
+        CorpusElement element = null;
+        if (column.length() > 2 && column.charAt(0) == '%' && column.charAt(column.length() - 1) == '%') {
+          try {
+            element = CorpusElement.valueOf(column.substring(1, column.length() - 1));
+          } catch (IllegalArgumentException e) {
+            // not a placeholder
+          }
+        }
+
+        if (element != null && elementsFound.add(element)) {
+          columnElements[j] = element;
+          columnNonEmpty[j] = !element.getReplacement().equals("(.*?)");
+        } else if (column.equals(".*")) {
+          // any string
+        } else if (column.equals(".+")) {
+          columnNonEmpty[j] = true;
+        } else if (isLiteral(column)) {
+          columnLiterals[j] = column;
+        } else {
+          columnElements = null;
+          break;
+        }
+      }
+    }
+    this.columnElements = columnElements;
+    this.columnLiterals = columnLiterals;
+    this.columnNonEmpty = columnNonEmpty;
+    if (LOG.isDebugEnabled())
+      LOG.debug("Tab-separated layout: " + this.isTabSeparated() + " for regex: " + regex);
+  }
+
+  /**
+   * Split the regex into columns if it only contains tab separators (either
+   * the tab character itself or the regex escape), and no other escapes,
+   * otherwise return null.
+   */
+  private static List<String> splitTabSeparatedRegex(String regex) {
+    List<String> columns = new ArrayList<>();
+    StringBuilder column = new StringBuilder();
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        if (i + 1 < regex.length() && regex.charAt(i + 1) == 't') {
+          c = '\t';
+          i++;
+        } else {
+          return null;
+        }
+      }
+      if (c == '\t') {
+        columns.add(column.toString());
+        column.setLength(0);
+      } else {
+        column.append(c);
+      }
+    }
+    columns.add(column.toString());
+    if (columns.size() < 2)
+      return null;
+    return columns;
+  }
+
+  private static boolean isLiteral(String column) {
+    for (int i = 0; i < column.length(); i++) {
+      if ("\\^$.|?*+()[]{}%".indexOf(column.charAt(i)) >= 0)
+        return false;
+    }
+    return true;
   }
 
   /**
@@ -130,26 +232,21 @@ public class CorpusLineReader {
    *           if the regex wasn't matched on a given line
    */
   public CorpusLine read(String line, int lineNumber) throws TalismaneException {
-    Matcher matcher = this.pattern.matcher(line);
-    if (!matcher.matches())
-      throw new TalismaneException(
-          "Didn't match pattern \"" + regex + "\". Compiled to: \"" + this.pattern.pattern() + "\". On line " + lineNumber + ": " + line);
+    CorpusLine corpusLine = null;
+    if (columnElements != null)
+      corpusLine = this.splitTabs(line, lineNumber);
 
-    CorpusLine corpusLine = new CorpusLine(line, lineNumber);
-    for (CorpusElement elementType : CorpusElement.values()) {
-      if (placeholderIndexMap.containsKey(elementType)) {
-        String value = matcher.group(placeholderIndexMap.get(elementType));
-        switch (elementType) {
-        case TOKEN:
-        case LEMMA:
-          value = TalismaneSession.get(sessionId).getCoNLLFormatter().fromCoNLL(value);
-          break;
-        default:
-          if ("_".equals(value))
-            value = "";
-          break;
+    if (corpusLine == null) {
+      Matcher matcher = this.pattern.matcher(line);
+      if (!matcher.matches())
+        throw new TalismaneException(
+            "Didn't match pattern \"" + regex + "\". Compiled to: \"" + this.pattern.pattern() + "\". On line " + lineNumber + ": " + line);
+
+      corpusLine = new CorpusLine(line, lineNumber);
+      for (CorpusElement elementType : CorpusElement.values()) {
+        if (placeholderIndexMap.containsKey(elementType)) {
+          this.setElement(corpusLine, elementType, matcher.group(placeholderIndexMap.get(elementType)));
         }
-        corpusLine.setElement(elementType, value);
       }
     }
 
@@ -174,6 +271,71 @@ public class CorpusLineReader {
     return corpusLine;
   }
 
+  /**
+   * Read a line by splitting it on tabs, or return null if it doesn't fit the
+   * tab-separated layout.
+   */
+  private CorpusLine splitTabs(String line, int lineNumber) {
+    int columnCount = columnElements.length;
+    int start = 0;
+    for (int i = 0; i < columnCount; i++) {
+      int end = line.indexOf('\t', start);
+      if (i == columnCount - 1) {
+        if (end >= 0)
+          return null;
+        end = line.length();
+      } else if (end < 0) {
+        return null;
+      }
+      if (columnNonEmpty[i] && end == start)
+        return null;
+      if (columnLiterals[i] != null && (end - start != columnLiterals[i].length() || !line.startsWith(columnLiterals[i], start)))
+        return null;
+      boolean digits = columnElements[i] != null && columnElements[i].getReplacement().equals("(\\d+)");
+      for (int j = start; j < end; j++) {
+        char c = line.charAt(j);
+        if (digits && !Character.isDigit(c))
+          return null;
+        // the regex dot doesn't match line terminators
+        if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029')
+          return null;
+      }
+      start = end + 1;
+    }
+
+    CorpusLine corpusLine = new CorpusLine(line, lineNumber);
+    start = 0;
+    for (int i = 0; i < columnCount; i++) {
+      int end = i == columnCount - 1 ? line.length() : line.indexOf('\t', start);
+      if (columnElements[i] != null)
+        this.setElement(corpusLine, columnElements[i], line.substring(start, end));
+      start = end + 1;
+    }
+    return corpusLine;
+  }
+
+  private void setElement(CorpusLine corpusLine, CorpusElement elementType, String value) {
+    switch (elementType) {
+    case TOKEN:
+    case LEMMA:
+      value = TalismaneSession.get(sessionId).getCoNLLFormatter().fromCoNLL(value);
+      break;
+    default:
+      if ("_".equals(value))
+        value = "";
+      break;
+    }
+    corpusLine.setElement(elementType, value);
+  }
+
+  /**
+   * Is the regex a plain tab-separated layout, in which case lines are split on
+   * tabs rather than matched against the regex.
+   */
+  public boolean isTabSeparated() {
+    return columnElements != null;
+  }
+
   /**
    * Does this reader know how to find a given element type.
    */
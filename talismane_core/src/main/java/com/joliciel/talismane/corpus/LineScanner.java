@@ -0,0 +1,95 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.corpus;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Scanner;
+
+/**
+ * Reads lines from a reader through a char[] buffer, splitting lines exactly as
+ * {@link Scanner#nextLine()} does (on \r\n, \n, \r, U+2028, U+2029 and
+ * U+0085), but without applying a regex to the input.
+ *
+ * @author Assaf Urieli
+ *
+ */
+final class LineScanner {
+  private final Reader reader;
+  private final char[] buffer = new char[8192];
+  private int pos = 0;
+  private int limit = 0;
+  private boolean endOfInput = false;
+  private final StringBuilder sb = new StringBuilder();
+
+  LineScanner(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Is there anything left to read, including an empty last line?
+   */
+  boolean hasNextLine() throws IOException {
+    return this.fill();
+  }
+
+  /**
+   * The next line, without its line separator.
+   */
+  String nextLine() throws IOException {
+    sb.setLength(0);
+    while (this.fill()) {
+      int start = pos;
+      while (pos < limit) {
+        char c = buffer[pos];
+        if (c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085') {
+          String line;
+          if (sb.length() == 0) {
+            line = new String(buffer, start, pos - start);
+          } else {
+            sb.append(buffer, start, pos - start);
+            line = sb.toString();
+          }
+          pos++;
+          if (c == '\r' && this.fill() && buffer[pos] == '\n')
+            pos++;
+          return line;
+        }
+        pos++;
+      }
+      sb.append(buffer, start, pos - start);
+    }
+    return sb.toString();
+  }
+
+  private boolean fill() throws IOException {
+    while (pos == limit) {
+      if (endOfInput)
+        return false;
+      int count = reader.read(buffer);
+      if (count < 0) {
+        endOfInput = true;
+        return false;
+      }
+      pos = 0;
+      limit = count;
+    }
+    return true;
+  }
+}
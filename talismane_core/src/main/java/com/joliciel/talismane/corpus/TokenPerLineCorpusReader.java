@@ -7,6 +7,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -40,7 +41,8 @@ import com.typesafe.config.Config;
 /**
  * A corpus reader that expects one token per line, and analyses the line
  * content based on a regex supplied during construction, via a
- * {@link CorpusLineReader}.
+ * {@link CorpusLineReader}. For plain tab-separated layouts such as CoNLL-X,
+ * the lines are split on tabs rather than matched against the regex.
  * 
  * @author Assaf Urieli
  *
@@ -53,7 +55,7 @@ public class TokenPerLineCorpusReader extends AbstractAnnotatedCorpusReader impl
   private int sentenceCount = 0;
 
   private final String regex;
-  private final Scanner scanner;
+  private final LineScanner lineScanner;
   private final CompactLexicalEntrySupport lexicalEntrySupport = new CompactLexicalEntrySupport("");
   private final CorpusLineReader corpusLineReader;
   private File currentFile;
@@ -83,7 +85,7 @@ public class TokenPerLineCorpusReader extends AbstractAnnotatedCorpusReader impl
   public TokenPerLineCorpusReader(Reader reader, Config config, String sessionId) throws IOException, TalismaneException {
     super(config, sessionId);
     this.regex = config.getString("input-pattern");
-    this.scanner = new Scanner(reader);
+    this.lineScanner = new LineScanner(reader);
 
     String configPath = "sentence-file";
     if (config.hasPath(configPath)) {
@@ -185,13 +187,17 @@ public class TokenPerLineCorpusReader extends AbstractAnnotatedCorpusReader impl
                 break;
               }
             }
-            List<CorpusSentenceRule> myRules = new ArrayList<>();
-            List<Matcher> myMatchers = new ArrayList<>();
+            List<CorpusSentenceRule> myRules = Collections.emptyList();
+            List<Matcher> myMatchers = Collections.emptyList();
             for (CorpusSentenceRule sentenceRule : sentenceRules) {
               Matcher matcher = sentenceRule.getPattern().matcher(line);
               if (matcher.matches()) {
                 if (LOG.isTraceEnabled())
                   LOG.trace("Matched rule: " + sentenceRule);
+                if (myRules.isEmpty()) {
+                  myRules = new ArrayList<>();
+                  myMatchers = new ArrayList<>();
+                }
                 myRules.add(sentenceRule);
                 myMatchers.add(matcher);
               }
@@ -350,18 +356,18 @@ public class TokenPerLineCorpusReader extends AbstractAnnotatedCorpusReader impl
     return (sentenceLines != null);
   }
 
-  private boolean hasNextLine() {
+  private boolean hasNextLine() throws IOException {
     if (needsToReturnBlankLine)
       return true;
-    return this.scanner.hasNextLine();
+    return this.lineScanner.hasNextLine();
   }
 
-  private String nextLine() {
+  private String nextLine() throws IOException {
     if (needsToReturnBlankLine) {
       needsToReturnBlankLine = false;
       return "";
     }
-    return this.scanner.nextLine();
+    return this.lineScanner.nextLine();
   }
 
   @Override
@@ -0,0 +1,188 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2014 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.lexicon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.posTagger.PosTag;
+import com.joliciel.talismane.utils.SegmentedLruCache;
+
+/**
+ * A lexicon which caches the results of word and lemma lookups in another
+ * lexicon, typically a {@link LexiconChain}, in a bounded
+ * {@link SegmentedLruCache}.<br>
+ * <br>
+ * The lists and sets returned are immutable, and shared by all threads looking
+ * up the same key.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class CachingLexicon implements PosTaggerLexicon {
+  private static final long serialVersionUID = 1L;
+
+  private enum LookupType {
+    entries,
+    entriesForLemma,
+    possiblePosTags,
+    entriesForPosTag,
+    entriesForLemmaAndPosTag
+  }
+
+  private final PosTaggerLexicon lexicon;
+  private final int capacity;
+  private final int concurrencyLevel;
+  private transient volatile SegmentedLruCache<LookupKey, Object> cache;
+
+  /**
+   * @param capacity
+   *          the maximum number of lookups to cache
+   * @param concurrencyLevel
+   *          the expected number of threads looking up words at the same time
+   */
+  public CachingLexicon(PosTaggerLexicon lexicon, int capacity, int concurrencyLevel) {
+    this.lexicon = lexicon;
+    this.capacity = capacity;
+    this.concurrencyLevel = concurrencyLevel;
+  }
+
+  @Override
+  public String getName() {
+    return lexicon.getName();
+  }
+
+  @Override
+  public List<LexicalEntry> getEntries(String word) {
+    return this.getEntryList(new LookupKey(LookupType.entries, word, null));
+  }
+
+  @Override
+  public List<LexicalEntry> getEntriesForLemma(String lemma) {
+    return this.getEntryList(new LookupKey(LookupType.entriesForLemma, lemma, null));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Set<PosTag> findPossiblePosTags(String word) throws TalismaneException {
+    return (Set<PosTag>) this.getCache().computeIfAbsent(new LookupKey(LookupType.possiblePosTags, word, null),
+        key -> Collections.unmodifiableSet(lexicon.findPossiblePosTags(key.text)));
+  }
+
+  @Override
+  public List<LexicalEntry> findLexicalEntries(String word, PosTag posTag) {
+    return this.getEntryList(new LookupKey(LookupType.entriesForPosTag, word, posTag));
+  }
+
+  @Override
+  public List<LexicalEntry> getEntriesForLemma(String lemma, PosTag posTag) {
+    return this.getEntryList(new LookupKey(LookupType.entriesForLemmaAndPosTag, lemma, posTag));
+  }
+
+  @Override
+  public List<LexicalEntry> getEntriesMatchingCriteria(LexicalEntry lexicalEntry, PosTag posTag, String gender, String number) {
+    return lexicon.getEntriesMatchingCriteria(lexicalEntry, posTag, gender, number);
+  }
+
+  @Override
+  public Iterator<LexicalEntry> getAllEntries() {
+    return lexicon.getAllEntries();
+  }
+
+  /**
+   * The lexicon whose lookups are cached.
+   */
+  public PosTaggerLexicon getLexicon() {
+    return lexicon;
+  }
+
+  /**
+   * The underlying cache, e.g. to monitor its hit rate.
+   */
+  public SegmentedLruCache<LookupKey, Object> getCache() {
+    SegmentedLruCache<LookupKey, Object> cache = this.cache;
+    if (cache == null) {
+      synchronized (this) {
+        cache = this.cache;
+        if (cache == null) {
+          cache = new SegmentedLruCache<>(capacity, concurrencyLevel);
+          this.cache = cache;
+        }
+      }
+    }
+    return cache;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<LexicalEntry> getEntryList(LookupKey lookupKey) {
+    return (List<LexicalEntry>) this.getCache().computeIfAbsent(lookupKey, key -> Collections.unmodifiableList(new ArrayList<>(this.lookup(key))));
+  }
+
+  private List<LexicalEntry> lookup(LookupKey key) {
+    switch (key.type) {
+    case entries:
+      return lexicon.getEntries(key.text);
+    case entriesForLemma:
+      return lexicon.getEntriesForLemma(key.text);
+    case entriesForPosTag:
+      return lexicon.findLexicalEntries(key.text, key.posTag);
+    case entriesForLemmaAndPosTag:
+      return lexicon.getEntriesForLemma(key.text, key.posTag);
+    default:
+      throw new IllegalArgumentException("Not a list lookup: " + key.type);
+    }
+  }
+
+  /**
+   * A single lookup: its type, the word or lemma, and the pos-tag if any.
+   */
+  public static final class LookupKey {
+    private final LookupType type;
+    private final String text;
+    private final PosTag posTag;
+    private final int hashCode;
+
+    private LookupKey(LookupType type, String text, PosTag posTag) {
+      this.type = type;
+      this.text = text;
+      this.posTag = posTag;
+      this.hashCode = Objects.hash(type, text, posTag);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof LookupKey))
+        return false;
+      LookupKey other = (LookupKey) obj;
+      return type == other.type && Objects.equals(text, other.text) && Objects.equals(posTag, other.posTag);
+    }
+  }
+}
@@ -51,6 +51,17 @@ public class CompactLexicalEntrySupport implements Serializable {
     this.name = name;
   }
 
+  /**
+   * A support sharing the attribute codes of another support.
+   */
+  protected CompactLexicalEntrySupport(CompactLexicalEntrySupport support) {
+    this.attributeStringToByteMap = support.attributeStringToByteMap;
+    this.attributeByteToStringMap = support.attributeByteToStringMap;
+    this.nameToAttributeMap = support.nameToAttributeMap;
+    this.otherAttributeIndex = support.otherAttributeIndex;
+    this.name = support.name;
+  }
+
   /**
    * Get or create a byte array used to uniquely represent this attribute value.
    * <br>
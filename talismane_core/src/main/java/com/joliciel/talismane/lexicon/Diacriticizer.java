@@ -18,15 +18,23 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.lexicon;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.Collator;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -58,6 +66,13 @@ import joptsimple.OptionSpec;
  * An interface for retrieving, for a given original word, assumed to be
  * uppercase without diacritics, the various lowercase possibilities which can
  * contain diacritics. Useful for converting text in ALL CAPS to possible words.
+ * <br>
+ * <br>
+ * Once the lexicons have been added, the words are frozen on first use into a
+ * compact index: the undecorated keys and their variants are packed in sorted
+ * character arrays with offsets, and looked up by binary search. The index is
+ * written in a binary format which can be read back with a few bulk buffer
+ * copies, rather than by deserializing a map of strings.
  * 
  * @author Assaf Urieli
  *
@@ -66,10 +81,32 @@ public class Diacriticizer implements Serializable {
   private static final Logger LOG = LoggerFactory.getLogger(Diacriticizer.class);
 
   private static final long serialVersionUID = 1L;
+  private static final String BINARY_ENTRY_NAME = "diacriticizer.bin";
+  private static final int BINARY_FORMAT_MAGIC = 0x44494143;
+  private static final int BINARY_FORMAT_VERSION = 1;
+
+  /**
+   * For each character up to the end of Latin Extended-B, the undecorated
+   * character, or 0 if it doesn't undecorate to a single character.
+   */
+  private static final char[] BASE_CHARS = new char[0x250];
+
+  static {
+    for (char c = 1; c < BASE_CHARS.length; c++) {
+      String base = DiacriticRemover.removeDiacritics(String.valueOf(c));
+      if (base.length() == 1)
+        BASE_CHARS[c] = base.charAt(0);
+    }
+  }
+
+  /**
+   * Words added since the index was last built, or null if none.
+   */
   private Map<String, Set<String>> map = new HashMap<String, Set<String>>();
-  private Set<String> emptySet = new HashSet<String>();
+  private volatile WordIndex index;
   private Map<String, String> lowercasePreferences = new HashMap<String, String>();
   private Locale locale;
+  private transient volatile Collator collator;
 
   public static void main(String[] args) throws IOException, SentenceAnnotatorLoadException, TalismaneException, ReflectiveOperationException {
     OptionParser parser = new OptionParser();
@@ -118,17 +155,11 @@ public class Diacriticizer implements Serializable {
       if (outDir != null)
         outDir.mkdirs();
 
-      FileOutputStream fos = new FileOutputStream(diacriticizerFile);
-      ZipOutputStream zos = new ZipOutputStream(fos);
-      zos.putNextEntry(new ZipEntry("diacriticizer.obj"));
-      ObjectOutputStream out = new ObjectOutputStream(zos);
-      try {
-        out.writeObject(diacriticizer);
-      } finally {
-        out.flush();
+      try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(diacriticizerFile))) {
+        zos.putNextEntry(new ZipEntry(BINARY_ENTRY_NAME));
+        diacriticizer.write(zos);
+        zos.closeEntry();
       }
-      zos.flush();
-      zos.close();
     } else if (options.has("testDiacriticizer")) {
       List<String> words = options.valuesOf(wordsOption);
 
@@ -171,41 +202,57 @@ public class Diacriticizer implements Serializable {
     // TODO: this code relies on usage of precomposed characters only
     // where there is a one-to-one equivalence in length between all
     // strings, whether decorated or not
-    // In order to make this function for the latin alphabet, we recompose
-    // any combining diacriticals
-    // However this is not an ideal solution, as many alphabets do not
-    // contain precomposed characters
-    originalWord = this.recompose(originalWord);
-
-    // in case there are any unattached diacritics left after recomposing, we
-    // remove them here
-    originalWord = DiacriticRemover.diacriticPattern.matcher(originalWord).replaceAll("");
-
-    String undecorated = DiacriticRemover.removeDiacritics(originalWord);
-    String key = undecorated.toLowerCase();
-    String lowercase = originalWord.toLowerCase();
-    Set<String> results = map.get(key);
-    if (results == null)
-      return emptySet;
-    Set<String> validResults = null;
-    if (locale != null)
-      validResults = new TreeSet<String>(Collator.getInstance(locale));
-    else
-      validResults = new TreeSet<String>();
-
-    for (String result : results) {
+    int length = originalWord.length();
+    char[] undecorated = new char[length];
+    for (int i = 0; i < length; i++) {
+      char c = originalWord.charAt(i);
+      char base = c < BASE_CHARS.length ? BASE_CHARS[c] : 0;
+      if (base == 0) {
+        undecorated = null;
+        break;
+      }
+      undecorated[i] = base;
+    }
+
+    if (undecorated == null) {
+      // In order to make this function for the latin alphabet, we recompose
+      // any combining diacriticals
+      // However this is not an ideal solution, as many alphabets do not
+      // contain precomposed characters
+      originalWord = this.recompose(originalWord);
+
+      // in case there are any unattached diacritics left after recomposing, we
+      // remove them here
+      originalWord = DiacriticRemover.diacriticPattern.matcher(originalWord).replaceAll("");
+      undecorated = DiacriticRemover.removeDiacritics(originalWord).toCharArray();
+      length = Math.min(originalWord.length(), undecorated.length);
+    }
+
+    char[] key = new char[undecorated.length];
+    for (int i = 0; i < key.length; i++)
+      key[i] = Character.toLowerCase(undecorated[i]);
+
+    WordIndex index = this.getIndex();
+    int keyIndex = index.find(key);
+    if (keyIndex < 0)
+      return Collections.emptySet();
+
+    List<String> validResults = new ArrayList<>(index.variantStarts[keyIndex + 1] - index.variantStarts[keyIndex]);
+    for (int v = index.variantStarts[keyIndex]; v < index.variantStarts[keyIndex + 1]; v++) {
+      int start = index.variantOffsets[v];
+      int end = index.variantOffsets[v + 1];
+      if (end - start < length)
+        continue;
       boolean validResult = true;
-      for (int i = 0; i < originalWord.length(); i++) {
+      for (int i = 0; i < length; i++) {
         char cO = originalWord.charAt(i);
-        char cR = result.charAt(i);
-        char cU = undecorated.charAt(i);
-        char cL = lowercase.charAt(i);
+        char cR = index.variantChars[start + i];
         if (Character.isUpperCase(cO)) {
-          if (cO == cU) {
+          if (cO == undecorated[i]) {
             // original is undecorated uppercase? anything goes.
             continue;
           }
-          if (cL == cR || cO == cR) {
+          if (Character.toLowerCase(cO) == cR || cO == cR) {
             // original is decorated uppercase, decorated lowercase
             // or uppercase version == result? Fine.
             continue;
@@ -224,7 +271,17 @@ public class Diacriticizer implements Serializable {
         }
       }
       if (validResult)
-        validResults.add(result);
+        validResults.add(new String(index.variantChars, start, end - start));
+    }
+
+    // variants are stored in their natural order
+    if (validResults.size() > 1 && locale != null) {
+      Collator collator = this.getCollator();
+      validResults.sort(collator);
+      for (int i = validResults.size() - 1; i > 0; i--) {
+        if (collator.compare(validResults.get(i - 1), validResults.get(i)) == 0)
+          validResults.remove(i);
+      }
     }
 
     String lowercasePreference = this.getLowercasePreferences().get(originalWord);
@@ -232,13 +289,45 @@ public class Diacriticizer implements Serializable {
       Set<String> orderedResults = new LinkedHashSet<String>();
       orderedResults.add(lowercasePreference);
       orderedResults.addAll(validResults);
-      validResults = orderedResults;
+      return orderedResults;
     }
 
-    return validResults;
+    if (validResults.size() == 0)
+      return Collections.emptySet();
+    if (validResults.size() == 1)
+      return Collections.singleton(validResults.get(0));
+    return new LinkedHashSet<>(validResults);
+  }
+
+  private Collator getCollator() {
+    Collator collator = this.collator;
+    if (collator == null) {
+      collator = Collator.getInstance(locale);
+      this.collator = collator;
+    }
+    return collator;
   }
 
-  public void addLexicon(Lexicon lexicon) {
+  private WordIndex getIndex() {
+    WordIndex index = this.index;
+    if (index == null) {
+      synchronized (this) {
+        index = this.index;
+        if (index == null) {
+          index = new WordIndex(map);
+          this.index = index;
+          map = null;
+        }
+      }
+    }
+    return index;
+  }
+
+  public synchronized void addLexicon(Lexicon lexicon) {
+    if (map == null) {
+      map = index.toMap();
+      index = null;
+    }
     Iterator<LexicalEntry> entries = lexicon.getAllEntries();
     while (entries.hasNext()) {
       LexicalEntry entry = entries.next();
@@ -324,17 +413,85 @@ public class Diacriticizer implements Serializable {
     return recomposed;
   }
 
-  public void serialize() {
+  /**
+   * Write this diacriticizer's index and locale in a compact binary format,
+   * which can be read back by {@link #read(InputStream)}. Lowercase preferences
+   * are not written.
+   */
+  public void write(OutputStream outputStream) throws IOException {
+    WordIndex index = this.getIndex();
+    DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(BINARY_FORMAT_MAGIC);
+    out.writeInt(BINARY_FORMAT_VERSION);
+    out.writeUTF(locale == null ? "" : locale.toLanguageTag());
+    out.writeInt(index.keyOffsets.length - 1);
+    out.writeInt(index.keyChars.length);
+    out.writeInt(index.variantOffsets.length - 1);
+    out.writeInt(index.variantChars.length);
+    ByteBuffer buffer = ByteBuffer.allocate(
+        (index.keyOffsets.length + index.variantStarts.length + index.variantOffsets.length) * Integer.BYTES
+            + (index.keyChars.length + index.variantChars.length) * Character.BYTES);
+    buffer.asIntBuffer().put(index.keyOffsets).put(index.variantStarts).put(index.variantOffsets);
+    buffer.position((index.keyOffsets.length + index.variantStarts.length + index.variantOffsets.length) * Integer.BYTES);
+    buffer.asCharBuffer().put(index.keyChars).put(index.variantChars);
+    out.write(buffer.array());
+    out.flush();
+  }
 
+  /**
+   * Read a diacriticizer written by {@link #write(OutputStream)}.
+   */
+  public static Diacriticizer read(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    inputStream.transferTo(bytes);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    if (buffer.getInt() != BINARY_FORMAT_MAGIC)
+      throw new IOException("Not a diacriticizer");
+    int version = buffer.getInt();
+    if (version != BINARY_FORMAT_VERSION)
+      throw new IOException("Unsupported diacriticizer version: " + version);
+    int localeLength = buffer.getShort() & 0xFFFF;
+    String localeTag = new String(buffer.array(), buffer.position(), localeLength, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + localeLength);
+    int keyCount = buffer.getInt();
+    int keyCharCount = buffer.getInt();
+    int variantCount = buffer.getInt();
+    int variantCharCount = buffer.getInt();
+
+    WordIndex index = new WordIndex(new int[keyCount + 1], new char[keyCharCount], new int[keyCount + 1], new int[variantCount + 1],
+        new char[variantCharCount]);
+    ByteBuffer data = buffer.slice();
+    data.asIntBuffer().get(index.keyOffsets).get(index.variantStarts).get(index.variantOffsets);
+    data.position((index.keyOffsets.length + index.variantStarts.length + index.variantOffsets.length) * Integer.BYTES);
+    data.asCharBuffer().get(index.keyChars).get(index.variantChars);
+
+    Diacriticizer diacriticizer = new Diacriticizer();
+    diacriticizer.map = null;
+    diacriticizer.index = index;
+    if (localeTag.length() > 0)
+      diacriticizer.setLocale(Locale.forLanguageTag(localeTag));
+    return diacriticizer;
   }
 
   public static Diacriticizer deserialize(File inFile) throws ClassNotFoundException, IOException {
-    FileInputStream fis = new FileInputStream(inFile);
-    ZipInputStream zis = new ZipInputStream(fis);
+    try (ZipInputStream zis = new ZipInputStream(new FileInputStream(inFile))) {
+      return deserialize(zis);
+    }
+  }
+
+  /**
+   * Read a diacriticizer from the first zip entry containing one, either in
+   * the binary format (.bin) or as a serialized object (.obj).
+   */
+  public static Diacriticizer deserialize(ZipInputStream zis) throws ClassNotFoundException, IOException {
     ZipEntry ze = null;
     Diacriticizer diacriticizer = null;
     while ((ze = zis.getNextEntry()) != null) {
-      if (ze.getName().endsWith(".obj")) {
+      if (ze.getName().endsWith(".bin")) {
+        LOG.debug("reading " + ze.getName());
+        diacriticizer = read(zis);
+        break;
+      } else if (ze.getName().endsWith(".obj")) {
         LOG.debug("deserializing " + ze.getName());
         @SuppressWarnings("resource")
         ObjectInputStream in = new ObjectInputStream(zis);
@@ -343,11 +500,15 @@ public class Diacriticizer implements Serializable {
         break;
       }
     }
-    zis.close();
 
     return diacriticizer;
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    this.getIndex();
+    out.defaultWriteObject();
+  }
+
   public Map<String, String> getLowercasePreferences() {
     return lowercasePreferences;
   }
@@ -362,6 +523,114 @@ public class Diacriticizer implements Serializable {
 
   public void setLocale(Locale locale) {
     this.locale = locale;
+    this.collator = null;
+  }
+
+  /**
+   * Undecorated lowercase keys and their variants, packed in sorted arrays:
+   * the characters of key i are found in keyChars between keyOffsets[i] and
+   * keyOffsets[i+1], and its variants are the variants variantStarts[i] to
+   * variantStarts[i+1]-1, whose characters are similarly found in
+   * variantChars.
+   */
+  private static final class WordIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int[] keyOffsets;
+    private final char[] keyChars;
+    private final int[] variantStarts;
+    private final int[] variantOffsets;
+    private final char[] variantChars;
+
+    private WordIndex(int[] keyOffsets, char[] keyChars, int[] variantStarts, int[] variantOffsets, char[] variantChars) {
+      this.keyOffsets = keyOffsets;
+      this.keyChars = keyChars;
+      this.variantStarts = variantStarts;
+      this.variantOffsets = variantOffsets;
+      this.variantChars = variantChars;
+    }
+
+    private WordIndex(Map<String, Set<String>> map) {
+      List<String> keys = new ArrayList<>(map.keySet());
+      Collections.sort(keys);
+      int keyCharCount = 0;
+      int variantCount = 0;
+      int variantCharCount = 0;
+      for (String key : keys) {
+        keyCharCount += key.length();
+        for (String variant : map.get(key)) {
+          variantCount++;
+          variantCharCount += variant.length();
+        }
+      }
+
+      keyOffsets = new int[keys.size() + 1];
+      keyChars = new char[keyCharCount];
+      variantStarts = new int[keys.size() + 1];
+      variantOffsets = new int[variantCount + 1];
+      variantChars = new char[variantCharCount];
+
+      int keyPos = 0;
+      int variantIndex = 0;
+      int variantPos = 0;
+      for (int i = 0; i < keys.size(); i++) {
+        String key = keys.get(i);
+        keyOffsets[i] = keyPos;
+        key.getChars(0, key.length(), keyChars, keyPos);
+        keyPos += key.length();
+
+        variantStarts[i] = variantIndex;
+        for (String variant : new TreeSet<>(map.get(key))) {
+          variantOffsets[variantIndex++] = variantPos;
+          variant.getChars(0, variant.length(), variantChars, variantPos);
+          variantPos += variant.length();
+        }
+      }
+      keyOffsets[keys.size()] = keyPos;
+      variantStarts[keys.size()] = variantIndex;
+      variantOffsets[variantCount] = variantPos;
+    }
+
+    /**
+     * The index of this key, or -1 if not found.
+     */
+    private int find(char[] key) {
+      int low = 0;
+      int high = keyOffsets.length - 2;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int comparison = this.compare(mid, key);
+        if (comparison < 0)
+          low = mid + 1;
+        else if (comparison > 0)
+          high = mid - 1;
+        else
+          return mid;
+      }
+      return -1;
+    }
+
+    private int compare(int keyIndex, char[] key) {
+      int start = keyOffsets[keyIndex];
+      int length = keyOffsets[keyIndex + 1] - start;
+      int minLength = Math.min(length, key.length);
+      for (int i = 0; i < minLength; i++) {
+        char c = keyChars[start + i];
+        if (c != key[i])
+          return c - key[i];
+      }
+      return length - key.length;
+    }
+
+    private Map<String, Set<String>> toMap() {
+      Map<String, Set<String>> map = new HashMap<>();
+      for (int i = 0; i < keyOffsets.length - 1; i++) {
+        Set<String> variants = new HashSet<>();
+        for (int v = variantStarts[i]; v < variantStarts[i + 1]; v++)
+          variants.add(new String(variantChars, variantOffsets[v], variantOffsets[v + 1] - variantOffsets[v]));
+        map.put(new String(keyChars, keyOffsets[i], keyOffsets[i + 1] - keyOffsets[i]), variants);
+      }
+      return map;
+    }
   }
 
 }
@@ -26,6 +26,7 @@ import java.util.TreeSet;
 
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.posTagger.PosTag;
+import com.joliciel.talismane.posTagger.PosTagSet;
 
 /**
  * A chain of lexicons that can be used to pool lexical information.
@@ -67,6 +68,22 @@ public class LexiconChain implements PosTaggerLexicon {
 
   @Override
   public Set<PosTag> findPossiblePosTags(String word) throws TalismaneException {
+    // if all lexicons have been indexed with the same pos-tag set, combine
+    // their bitsets
+    PosTagSet posTagSet = null;
+    long bits = 0L;
+    for (PosTaggerLexicon lexicon : lexicons) {
+      LexiconFile.PosTagIndex posTagIndex = lexicon instanceof LexiconFile ? ((LexiconFile) lexicon).getPosTagIndex() : null;
+      if (posTagIndex == null || (posTagSet != null && posTagSet != posTagIndex.getPosTagSet())) {
+        posTagSet = null;
+        break;
+      }
+      posTagSet = posTagIndex.getPosTagSet();
+      bits |= posTagIndex.getPossiblePosTagBits(word);
+    }
+    if (posTagSet != null)
+      return posTagSet.getPosTags(bits);
+
     // Using TreeSet as set must be ordered
     Set<PosTag> posTags = new TreeSet<PosTag>();
     for (PosTaggerLexicon lexicon : lexicons) {
@@ -1,24 +1,35 @@
 package com.joliciel.talismane.lexicon;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.collections4.trie.PatriciaTrie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.joliciel.talismane.NeedsSessionId;
+import com.joliciel.talismane.OrderedTaskRunner;
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.lexicon.RegexLexicalEntryReader.LexicalAttributeValue;
 import com.joliciel.talismane.posTagger.PosTag;
+import com.joliciel.talismane.posTagger.PosTagSet;
 
 /**
  * <p>
@@ -43,22 +54,44 @@ import com.joliciel.talismane.posTagger.PosTag;
 public class LexiconFile extends CompactLexicalEntrySupport implements PosTaggerLexicon, Serializable, NeedsSessionId {
   private static final long serialVersionUID = 6L;
   private static final Logger LOG = LoggerFactory.getLogger(LexiconFile.class);
+  private static final int LINES_PER_CHUNK = 5000;
+  private static final int PENDING_CHUNKS_PER_THREAD = 4;
   private Map<String, List<LexicalEntry>> entryMap = new PatriciaTrie<List<LexicalEntry>>();
   private Map<String, List<LexicalEntry>> lemmaEntryMap = new PatriciaTrie<List<LexicalEntry>>();
   private String sessionId;
-  private transient LexicalEntryReader reader = null;
+  private transient RegexLexicalEntryReader reader = null;
   private transient List<List<String>> exclusions;
   private transient List<String> exclusionAttributes;
   private transient Set<String> categories;
 
   private List<LexicalAttribute> uniqueKeyAttributes;
 
+  /**
+   * If greater than 0, the entries were serialized separately in this many
+   * segments.
+   */
+  private int segmentCount = 0;
+  private transient LexiconSegments segments;
+
   private transient Scanner lexiconScanner;
 
+  private transient volatile PosTagIndex posTagIndex;
+
   protected LexiconFile() {
     super();
   }
 
+  /**
+   * A copy of a lexicon without its entries, sharing its attribute codes, to
+   * be serialized ahead of the entry segments.
+   */
+  private LexiconFile(LexiconFile lexicon, int segmentCount) {
+    super(lexicon);
+    this.sessionId = lexicon.sessionId;
+    this.uniqueKeyAttributes = lexicon.uniqueKeyAttributes;
+    this.segmentCount = segmentCount;
+  }
+
   public LexiconFile(String name, Scanner lexiconScanner, RegexLexicalEntryReader reader, String sessionId) {
     super(name);
     this.lexiconScanner = lexiconScanner;
@@ -67,121 +100,191 @@ public class LexiconFile extends CompactLexicalEntrySupport implements PosTagger
   }
 
   public void load() throws TalismaneException {
-    Map<String, List<List<String>>> exclusionMap = null;
-    if (this.exclusions != null) {
-      exclusionMap = new HashMap<String, List<List<String>>>();
-      for (List<String> exclusion : exclusions) {
-        List<List<String>> myExclusions = exclusionMap.get(exclusion.get(0));
-        if (myExclusions == null) {
-          myExclusions = new ArrayList<List<String>>();
-          exclusionMap.put(exclusion.get(0), myExclusions);
+    this.load(1);
+  }
+
+  /**
+   * Load the lexicon from the scanner provided in the constructor. With more
+   * than one thread, the lines are read in chunks, whose attributes are
+   * extracted concurrently. The entries are still built and added one at a
+   * time in file order, so that duplicate handling, and the attribute codes
+   * assigned, are exactly as when loading on a single thread.
+   * 
+   * @param threadCount
+   *          the number of threads on which to extract attributes
+   */
+  public void load(int threadCount) throws TalismaneException {
+    this.load(threadCount, LINES_PER_CHUNK);
+  }
+
+  void load(int threadCount, int linesPerChunk) throws TalismaneException {
+    EntryLoader loader = new EntryLoader();
+    if (threadCount <= 1) {
+      while (lexiconScanner.hasNextLine()) {
+        String line = lexiconScanner.nextLine();
+        if (line.length() > 0 && !line.startsWith("#"))
+          loader.addEntry(reader.readAttributes(line));
+      }
+    } else {
+      try (OrderedTaskRunner<List<List<LexicalAttributeValue>>> runner = new OrderedTaskRunner<>(threadCount,
+          threadCount * PENDING_CHUNKS_PER_THREAD)) {
+        List<String> lines = new ArrayList<>(linesPerChunk);
+        while (lexiconScanner.hasNextLine()) {
+          String line = lexiconScanner.nextLine();
+          if (line.length() > 0 && !line.startsWith("#"))
+            lines.add(line);
+          if (lines.size() == linesPerChunk) {
+            List<String> chunk = lines;
+            runner.submit(() -> this.readAttributes(chunk));
+            lines = new ArrayList<>(linesPerChunk);
+            while (runner.isFull())
+              loader.addEntries(runner.next());
+          }
         }
-        myExclusions.add(exclusion);
+        List<String> lastChunk = lines;
+        if (lastChunk.size() > 0)
+          runner.submit(() -> this.readAttributes(lastChunk));
+        while (runner.hasNext())
+          loader.addEntries(runner.next());
+      } catch (IOException e) {
+        throw new TalismaneException(e.getMessage(), e);
       }
     }
-    int entryCount = 0;
-    int categoryExcludeCount = 0;
-    int exclusionCount = 0;
-    int duplicateCount = 0;
-    int addedCount = 0;
-    while (lexiconScanner.hasNextLine()) {
-      String line = lexiconScanner.nextLine();
-      if (line.length() > 0 && !line.startsWith("#")) {
-        WritableLexicalEntry lexicalEntry = new CompactLexicalEntry(this);
-        reader.readEntry(line, lexicalEntry);
-
-        entryCount++;
-
-        if (entryCount % 1000 == 0) {
-          LOG.debug("Read " + entryCount + " entries");
-        }
+    loader.finish();
+  }
 
-        if (this.categories != null) {
-          if (!this.categories.contains(lexicalEntry.getCategory())) {
-            categoryExcludeCount++;
-            continue;
+  private List<List<LexicalAttributeValue>> readAttributes(List<String> lines) throws TalismaneException {
+    List<List<LexicalAttributeValue>> chunk = new ArrayList<>(lines.size());
+    for (String line : lines)
+      chunk.add(reader.readAttributes(line));
+    return chunk;
+  }
+
+  /**
+   * Builds entries from their attributes, and groups them by word and by lemma
+   * in hash maps, before adding them to the tries in a single pass.
+   */
+  private final class EntryLoader {
+    private final Map<String, List<List<String>>> exclusionMap;
+    private final Map<String, List<LexicalEntry>> wordEntries = new HashMap<>();
+    private final Map<String, List<LexicalEntry>> lemmaEntries = new HashMap<>();
+    private final Set<List<String>> uniqueKeys = new HashSet<>();
+    private int entryCount = 0;
+    private int categoryExcludeCount = 0;
+    private int exclusionCount = 0;
+    private int duplicateCount = 0;
+    private int addedCount = 0;
+
+    private EntryLoader() {
+      if (exclusions != null) {
+        exclusionMap = new HashMap<String, List<List<String>>>();
+        for (List<String> exclusion : exclusions) {
+          List<List<String>> myExclusions = exclusionMap.get(exclusion.get(0));
+          if (myExclusions == null) {
+            myExclusions = new ArrayList<List<String>>();
+            exclusionMap.put(exclusion.get(0), myExclusions);
           }
+          myExclusions.add(exclusion);
         }
+      } else {
+        exclusionMap = null;
+      }
+    }
 
-        boolean exclude = false;
-        if (exclusionMap != null && this.exclusionAttributes != null) {
-          String firstAttribute = this.exclusionAttributes.get(0);
-          String myFirstAttribute = lexicalEntry.getAttribute(firstAttribute);
-          if (exclusionMap.containsKey(myFirstAttribute)) {
-            for (List<String> exclusion : exclusionMap.get(myFirstAttribute)) {
-              boolean foundExclusion = true;
-              for (int i = 1; i < this.exclusionAttributes.size(); i++) {
-                if (!exclusion.get(i).equals(lexicalEntry.getAttribute(this.exclusionAttributes.get(i)))) {
-                  foundExclusion = false;
-                  break;
-                }
-              } // next attribute in exclusion
-              if (foundExclusion) {
-                exclude = true;
-                break;
-              } // do we have a match
-            } // next exclusion
-          } // first attribute is on exclusion map
-        } // have exclusions
-
-        if (exclude) {
-          LOG.debug("Excluding " + lexicalEntry.toString());
-          exclusionCount++;
-          continue;
-        }
+    private void addEntries(List<List<LexicalAttributeValue>> chunk) {
+      for (List<LexicalAttributeValue> values : chunk)
+        this.addEntry(values);
+    }
+
+    private void addEntry(List<LexicalAttributeValue> values) {
+      WritableLexicalEntry lexicalEntry = new CompactLexicalEntry(LexiconFile.this);
+      reader.writeAttributes(values, lexicalEntry);
+
+      entryCount++;
+
+      if (entryCount % 1000 == 0) {
+        LOG.debug("Read " + entryCount + " entries");
+      }
 
-        List<LexicalEntry> entries = entryMap.get(lexicalEntry.getWord());
-        if (entries == null) {
-          entries = new ArrayList<LexicalEntry>();
-          entryMap.put(lexicalEntry.getWord(), entries);
+      if (categories != null) {
+        if (!categories.contains(lexicalEntry.getCategory())) {
+          categoryExcludeCount++;
+          return;
         }
+      }
 
-        boolean addEntry = true;
-        if (uniqueKeyAttributes != null) {
-          for (LexicalEntry lexicalEntry2 : entries) {
-            boolean fullMatch = true;
-            for (LexicalAttribute lexicalAttribute : uniqueKeyAttributes) {
-              boolean entry1Has = lexicalEntry.hasAttribute(lexicalAttribute);
-              boolean entry2Has = lexicalEntry2.hasAttribute(lexicalAttribute);
-              if ((!entry1Has && !entry2Has) || (entry1Has && entry2Has
-                  && lexicalEntry.getAttribute(lexicalAttribute.name()).equals(lexicalEntry2.getAttribute(lexicalAttribute.name())))) {
-                // do nothing, we have a match
-              } else {
-                fullMatch = false;
+      boolean exclude = false;
+      if (exclusionMap != null && exclusionAttributes != null) {
+        String firstAttribute = exclusionAttributes.get(0);
+        String myFirstAttribute = lexicalEntry.getAttribute(firstAttribute);
+        if (exclusionMap.containsKey(myFirstAttribute)) {
+          for (List<String> exclusion : exclusionMap.get(myFirstAttribute)) {
+            boolean foundExclusion = true;
+            for (int i = 1; i < exclusionAttributes.size(); i++) {
+              if (!exclusion.get(i).equals(lexicalEntry.getAttribute(exclusionAttributes.get(i)))) {
+                foundExclusion = false;
                 break;
               }
-            }
-            if (fullMatch) {
-              addEntry = false;
-              duplicateCount++;
+            } // next attribute in exclusion
+            if (foundExclusion) {
+              exclude = true;
               break;
-            }
-          }
-        }
+            } // do we have a match
+          } // next exclusion
+        } // first attribute is on exclusion map
+      } // have exclusions
+
+      if (exclude) {
+        LOG.debug("Excluding " + lexicalEntry.toString());
+        exclusionCount++;
+        return;
+      }
 
-        if (addEntry) {
-          addedCount++;
-          entries.add(lexicalEntry);
-          String key = lexicalEntry.getLemma();
-          List<LexicalEntry> entriesForLemma = lemmaEntryMap.get(key);
-          if (entriesForLemma == null) {
-            entriesForLemma = new ArrayList<LexicalEntry>();
-            lemmaEntryMap.put(key, entriesForLemma);
-          }
-          entriesForLemma.add(lexicalEntry);
+      if (uniqueKeyAttributes != null) {
+        // entries for the same word match if each unique key attribute is
+        // either absent from both, or present in both with the same value
+        String[] uniqueKey = new String[uniqueKeyAttributes.size() + 1];
+        uniqueKey[0] = lexicalEntry.getWord();
+        for (int i = 0; i < uniqueKeyAttributes.size(); i++) {
+          LexicalAttribute lexicalAttribute = uniqueKeyAttributes.get(i);
+          if (lexicalEntry.hasAttribute(lexicalAttribute))
+            uniqueKey[i + 1] = lexicalEntry.getAttribute(lexicalAttribute.name());
         }
-      } // valid line
-    } // next line
+        if (!uniqueKeys.add(Arrays.asList(uniqueKey))) {
+          duplicateCount++;
+          return;
+        }
+      }
+
+      addedCount++;
+      wordEntries.computeIfAbsent(lexicalEntry.getWord(), k -> new ArrayList<>(1)).add(lexicalEntry);
+      lemmaEntries.computeIfAbsent(lexicalEntry.getLemma(), k -> new ArrayList<>(1)).add(lexicalEntry);
+    }
+
+    private void finish() {
+      this.addAll(wordEntries, entryMap);
+      this.addAll(lemmaEntries, lemmaEntryMap);
 
-    LOG.debug("Read " + entryCount + " entries");
-    LOG.debug("Skipped " + categoryExcludeCount + " entries for categories");
-    LOG.debug("Skipped " + exclusionCount + " entries for exclusions");
-    LOG.debug("Skipped " + duplicateCount + " entries for duplicates");
-    LOG.debug("Added " + addedCount + " entries");
+      LOG.debug("Read " + entryCount + " entries");
+      LOG.debug("Skipped " + categoryExcludeCount + " entries for categories");
+      LOG.debug("Skipped " + exclusionCount + " entries for exclusions");
+      LOG.debug("Skipped " + duplicateCount + " entries for duplicates");
+      LOG.debug("Added " + addedCount + " entries");
+    }
+
+    private void addAll(Map<String, List<LexicalEntry>> entries, Map<String, List<LexicalEntry>> trie) {
+      for (Map.Entry<String, List<LexicalEntry>> keyEntries : entries.entrySet()) {
+        ArrayList<LexicalEntry> list = (ArrayList<LexicalEntry>) keyEntries.getValue();
+        list.trimToSize();
+        trie.put(keyEntries.getKey(), list);
+      }
+    }
   }
 
   @Override
   public List<LexicalEntry> getEntries(String word) {
+    if (segments != null)
+      return segments.getEntries(word);
     List<LexicalEntry> entries = this.entryMap.get(word);
     if (entries == null)
       entries = Collections.emptyList();
@@ -190,14 +293,71 @@ public class LexiconFile extends CompactLexicalEntrySupport implements PosTagger
 
   @Override
   public List<LexicalEntry> getEntriesForLemma(String lemma) {
+    if (segments != null)
+      return segments.getEntriesForLemma(lemma);
     List<LexicalEntry> entries = this.lemmaEntryMap.get(lemma);
     if (entries == null)
       entries = Collections.emptyList();
     return entries;
   }
 
+  /**
+   * Precompute, for each word form, a bitset of the pos-tags of each of its
+   * entries, and of all of them combined, as per {@link PosTagSet#getBit}.
+   * Once this is done, {@link #findPossiblePosTags(String)} and
+   * {@link #findLexicalEntries(String, PosTag)} no longer need to map each
+   * entry, as long as the session's pos-tag mapper for this lexicon is the one
+   * provided here.<br>
+   * <br>
+   * Does nothing if the pos-tag set is too large to be indexed, if the mapper
+   * returns pos-tags outside of the pos-tag set, or if the entries are loaded
+   * lazily by segment, since indexing would require loading them all.
+   */
+  public void indexPosTags(PosTagMapper posTagMapper) {
+    PosTagSet posTagSet = posTagMapper.getPosTagSet();
+    if (posTagSet == null || !posTagSet.isBitIndexable())
+      return;
+    if (segments != null) {
+      LOG.debug("Lexicon " + this.getName() + " is loaded lazily, not indexing pos-tags");
+      return;
+    }
+    Map<String, long[]> bitsMap = new HashMap<>(entryMap.size() * 4 / 3 + 1);
+    for (Map.Entry<String, List<LexicalEntry>> wordEntries : entryMap.entrySet()) {
+      List<LexicalEntry> entries = wordEntries.getValue();
+      long[] bits = new long[entries.size() + 1];
+      for (int i = 0; i < entries.size(); i++) {
+        for (PosTag posTag : posTagMapper.getPosTags(entries.get(i))) {
+          long bit = posTagSet.getBit(posTag);
+          if (bit == 0) {
+            LOG.debug("Pos-tag " + posTag.getCode() + " not in pos-tag set " + posTagSet.getName() + ", cannot index lexicon " + this.getName());
+            return;
+          }
+          bits[i + 1] |= bit;
+        }
+        bits[0] |= bits[i + 1];
+      }
+      bitsMap.put(wordEntries.getKey(), bits);
+    }
+    this.posTagIndex = new PosTagIndex(posTagMapper, bitsMap);
+  }
+
+  /**
+   * The pos-tag index built by {@link #indexPosTags(PosTagMapper)}, or null if
+   * there is none for the current session's pos-tag mapper.
+   */
+  PosTagIndex getPosTagIndex() {
+    PosTagIndex posTagIndex = this.posTagIndex;
+    if (posTagIndex == null || posTagIndex.posTagMapper != TalismaneSession.get(sessionId).getPosTagMapper(this))
+      return null;
+    return posTagIndex;
+  }
+
   @Override
   public Set<PosTag> findPossiblePosTags(String word) throws TalismaneException {
+    PosTagIndex posTagIndex = this.getPosTagIndex();
+    if (posTagIndex != null)
+      return posTagIndex.getPosTagSet().getPosTags(posTagIndex.getPossiblePosTagBits(word));
+
     // Using TreeSet as set must be ordered
     Set<PosTag> posTags = new TreeSet<PosTag>();
     List<LexicalEntry> entries = this.getEntries(word);
@@ -211,6 +371,19 @@ public class LexiconFile extends CompactLexicalEntrySupport implements PosTagger
   public List<LexicalEntry> findLexicalEntries(String word, PosTag posTag) {
     List<LexicalEntry> entries = this.getEntries(word);
     List<LexicalEntry> entriesForPosTag = new ArrayList<LexicalEntry>();
+    PosTagIndex posTagIndex = this.getPosTagIndex();
+    if (posTagIndex != null) {
+      long[] bits = posTagIndex.bitsMap.get(word);
+      long bit = posTagIndex.getPosTagSet().getBit(posTag);
+      if (bits != null && (bits[0] & bit) != 0) {
+        for (int i = 0; i < entries.size(); i++) {
+          if ((bits[i + 1] & bit) != 0)
+            entriesForPosTag.add(entries.get(i));
+        }
+      }
+      return entriesForPosTag;
+    }
+
     for (LexicalEntry entry : entries) {
       Set<PosTag> posTags = TalismaneSession.get(sessionId).getPosTagMapper(this).getPosTags(entry);
       if (posTags.contains(posTag))
@@ -303,8 +476,96 @@ public class LexiconFile extends CompactLexicalEntrySupport implements PosTagger
     this.uniqueKeyAttributes = uniqueKeyAttributes;
   }
 
+  /**
+   * Write this lexicon to a zip file, split into segments which can be loaded
+   * lazily: an entry named after the lexicon with an .obj extension, containing
+   * the lexicon without its entries, followed by one entry per segment,
+   * containing the entries for the words and lemmas assigned to it.
+   */
+  public void writeSegments(ZipOutputStream zos, int segmentCount) throws IOException {
+    List<Map<String, List<LexicalEntry>>> segmentWords = new ArrayList<>(segmentCount);
+    List<Map<String, List<LexicalEntry>>> segmentLemmas = new ArrayList<>(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      segmentWords.add(new HashMap<>());
+      segmentLemmas.add(new HashMap<>());
+    }
+    for (Map.Entry<String, List<LexicalEntry>> wordEntries : entryMap.entrySet())
+      segmentWords.get(LexiconSegments.getSegmentIndex(wordEntries.getKey(), segmentCount)).put(wordEntries.getKey(), wordEntries.getValue());
+    for (Map.Entry<String, List<LexicalEntry>> lemmaEntries : lemmaEntryMap.entrySet())
+      segmentLemmas.get(LexiconSegments.getSegmentIndex(lemmaEntries.getKey(), segmentCount)).put(lemmaEntries.getKey(), lemmaEntries.getValue());
+
+    zos.putNextEntry(new ZipEntry(this.getName() + ".obj"));
+    ObjectOutputStream out = new ObjectOutputStream(zos);
+    out.writeObject(new LexiconFile(this, segmentCount));
+    out.flush();
+    zos.closeEntry();
+
+    for (int i = 0; i < segmentCount; i++) {
+      zos.putNextEntry(new ZipEntry(LexiconSegments.getEntryName(this.getName(), i)));
+      LexiconSegments.write(zos, this, segmentWords.get(i), segmentLemmas.get(i));
+      zos.closeEntry();
+    }
+  }
+
+  /**
+   * If greater than 0, this lexicon was serialized by
+   * {@link #writeSegments(ZipOutputStream, int)}, and its entries still need to
+   * be read, either by adding each segment, or by reading them lazily.
+   */
+  int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * Add the entries of a segment read from a stream.
+   */
+  void addSegment(InputStream inputStream) throws IOException {
+    LexiconSegments.Segment segment = LexiconSegments.read(inputStream, this);
+    entryMap.putAll(segment.getWords());
+    lemmaEntryMap.putAll(segment.getLemmas());
+  }
+
+  /**
+   * Read the segments lazily from a zip file.
+   */
+  void setSegments(ZipFile zipFile) {
+    this.segments = new LexiconSegments(zipFile, this, segmentCount);
+  }
+
+  LexiconSegments getSegments() {
+    return segments;
+  }
+
+  /**
+   * The pos-tag bitsets of each word form, for a given pos-tag mapper.
+   */
+  static final class PosTagIndex {
+    private final PosTagMapper posTagMapper;
+    private final Map<String, long[]> bitsMap;
+
+    private PosTagIndex(PosTagMapper posTagMapper, Map<String, long[]> bitsMap) {
+      this.posTagMapper = posTagMapper;
+      this.bitsMap = bitsMap;
+    }
+
+    PosTagSet getPosTagSet() {
+      return posTagMapper.getPosTagSet();
+    }
+
+    /**
+     * The bitset of all pos-tags for a given word, 0 if it isn't in the
+     * lexicon.
+     */
+    long getPossiblePosTagBits(String word) {
+      long[] bits = bitsMap.get(word);
+      return bits == null ? 0L : bits[0];
+    }
+  }
+
   @Override
   public Iterator<LexicalEntry> getAllEntries() {
+    if (segments != null)
+      return segments.getAllEntries();
     return new Iterator<LexicalEntry>() {
       Iterator<String> keys = entryMap.keySet().iterator();
       Iterator<LexicalEntry> entries = null;
@@ -42,6 +42,7 @@ import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -49,9 +50,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.joliciel.talismane.NeedsSessionId;
+import com.joliciel.talismane.OrderedTaskRunner;
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.posTagger.PosTagSet;
 import com.joliciel.talismane.sentenceAnnotators.SentenceAnnotatorLoadException;
+import com.joliciel.talismane.utils.ConfigUtils;
 import com.joliciel.talismane.utils.StringUtils;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
@@ -108,6 +112,8 @@ public class LexiconReader {
   private static final Logger LOG = LoggerFactory.getLogger(LexiconReader.class);
 
   private final String sessionId;
+  private final int threadCount;
+  private SuffixPosTagIndex suffixPosTagIndex = null;
 
   public static void main(String[] args) throws IOException, TalismaneException {
     OptionParser parser = new OptionParser();
@@ -119,6 +125,15 @@ public class LexiconReader {
 
     OptionSpec<File> lexiconPropsFileOption = parser.accepts("lexiconProps", "the lexicon properties file").withRequiredArg().required().ofType(File.class);
     OptionSpec<File> outFileOption = parser.accepts("outFile", "where to write the lexicon").withRequiredArg().required().ofType(File.class);
+    OptionSpec<Integer> segmentsOption = parser
+        .accepts("segments", "if greater than 0, the number of segments in which to split each lexicon, so that they can be loaded lazily")
+        .withRequiredArg().ofType(Integer.class).defaultsTo(0);
+    OptionSpec<Integer> suffixLengthOption = parser
+        .accepts("suffixLength",
+            "if greater than 0, the length of the longest suffixes to index with their pos-tags, using the pos-tag set and pos-tag maps in the configuration")
+        .withRequiredArg().ofType(Integer.class).defaultsTo(0);
+    OptionSpec<Integer> threadsOption = parser.accepts("threads", "the number of threads on which to read each lexicon file, 0 for one per processor")
+        .withRequiredArg().ofType(Integer.class);
 
     if (args.length <= 1) {
       parser.printHelpOn(System.out);
@@ -133,13 +148,39 @@ public class LexiconReader {
     Config config = ConfigFactory.load();
     String sessionId = options.valueOf(sessionIdOption);
 
-    LexiconReader lexiconSerializer = new LexiconReader(sessionId);
+    int threads = config.getInt("talismane.core." + sessionId + ".lexicon-threads");
+    if (options.has(threadsOption))
+      threads = options.valueOf(threadsOption);
+
+    LexiconReader lexiconSerializer = new LexiconReader(sessionId, OrderedTaskRunner.getThreadCount(threads));
     List<PosTaggerLexicon> lexicons = lexiconSerializer.readLexicons(lexiconPropsFile);
-    lexiconSerializer.serializeLexicons(lexicons, outFile);
+    SuffixPosTagIndex suffixPosTagIndex = null;
+    int suffixLength = options.valueOf(suffixLengthOption);
+    if (suffixLength > 0) {
+      PosTagSet posTagSet = null;
+      try (Scanner posTagSetScanner = new Scanner(new BufferedReader(
+          new InputStreamReader(ConfigUtils.getFileFromConfig(config, "talismane.core." + sessionId + ".pos-tagger.pos-tag-set"), "UTF-8")))) {
+        posTagSet = new PosTagSet(posTagSetScanner);
+      }
+      Map<String, PosTagMapper> posTagMappers = new HashMap<>();
+      for (PosTaggerLexicon lexicon : lexicons)
+        posTagMappers.put(lexicon.getName(), PosTagMapper.getPosTagMapper(config, sessionId, lexicon.getName(), posTagSet));
+      suffixPosTagIndex = SuffixPosTagIndex.build(lexicons, lexicon -> posTagMappers.get(lexicon.getName()), posTagSet, suffixLength);
+    }
+    lexiconSerializer.serializeLexicons(lexicons, outFile, options.valueOf(segmentsOption), suffixPosTagIndex);
   }
 
   public LexiconReader(String sessionId) {
+    this(sessionId, 1);
+  }
+
+  /**
+   * @param threadCount
+   *          the number of threads on which to read each lexicon file
+   */
+  public LexiconReader(String sessionId, int threadCount) {
     this.sessionId = sessionId;
+    this.threadCount = threadCount;
   }
 
   /**
@@ -279,7 +320,7 @@ public class LexiconReader {
       if (uniqueAttributes != null)
         lexiconFile.setUniqueKeyAttributes(uniqueAttributes);
 
-      lexiconFile.load();
+      lexiconFile.load(threadCount);
       inputStream.close();
 
       lexicons.add(lexiconFile);
@@ -291,6 +332,31 @@ public class LexiconReader {
    * Serialize a set of lexicons in zip format.
    */
   public void serializeLexicons(List<PosTaggerLexicon> lexicons, File outFile) throws IOException {
+    this.serializeLexicons(lexicons, outFile, 0);
+  }
+
+  /**
+   * Serialize a set of lexicons in zip format, splitting the entries of each
+   * {@link LexiconFile} into segments which can be loaded lazily, as per
+   * {@link #deserializeLexicons(File, boolean)}.
+   * 
+   * @param segmentCount
+   *          the number of segments per lexicon, or 0 to serialize each
+   *          lexicon as a single object
+   */
+  public void serializeLexicons(List<PosTaggerLexicon> lexicons, File outFile, int segmentCount) throws IOException {
+    this.serializeLexicons(lexicons, outFile, segmentCount, null);
+  }
+
+  /**
+   * As per {@link #serializeLexicons(List, File, int)}, also serializing a
+   * suffix pos-tag index built from these lexicons, which can be retrieved
+   * after deserializing via {@link #getSuffixPosTagIndex()}.
+   * 
+   * @param suffixPosTagIndex
+   *          the index to serialize, or null if none
+   */
+  public void serializeLexicons(List<PosTaggerLexicon> lexicons, File outFile, int segmentCount, SuffixPosTagIndex suffixPosTagIndex) throws IOException {
     File outDir = outFile.getParentFile();
     if (outDir != null)
       outDir.mkdirs();
@@ -305,6 +371,10 @@ public class LexiconReader {
       zos.flush();
 
       for (PosTaggerLexicon lexicon : lexicons) {
+        if (segmentCount > 0 && lexicon instanceof LexiconFile) {
+          ((LexiconFile) lexicon).writeSegments(zos, segmentCount);
+          continue;
+        }
         zos.putNextEntry(new ZipEntry(lexicon.getName() + ".obj"));
         ObjectOutputStream out = new ObjectOutputStream(zos);
         try {
@@ -314,18 +384,79 @@ public class LexiconReader {
         }
         zos.flush();
       }
+
+      if (suffixPosTagIndex != null) {
+        zos.putNextEntry(new ZipEntry(SuffixPosTagIndex.ZIP_ENTRY_NAME));
+        suffixPosTagIndex.write(zos);
+        zos.flush();
+      }
     }
   }
 
   public List<PosTaggerLexicon> deserializeLexicons(File lexiconFile) throws ClassNotFoundException, UnsupportedEncodingException, IOException {
+    return this.deserializeLexicons(lexiconFile, false);
+  }
+
+  /**
+   * Deserialize a set of lexicons from a zip file.
+   * 
+   * @param lazySegments
+   *          if true, the entries of lexicons serialized in segments are only
+   *          read from the zip file when first looked up, and the zip file
+   *          is kept open for this purpose
+   */
+  public List<PosTaggerLexicon> deserializeLexicons(File lexiconFile, boolean lazySegments)
+      throws ClassNotFoundException, UnsupportedEncodingException, IOException {
+    suffixPosTagIndex = null;
     if (!lexiconFile.exists())
       throw new RuntimeException("LexiconFile does not exist: " + lexiconFile.getPath());
-    FileInputStream fis = new FileInputStream(lexiconFile);
-    ZipInputStream zis = new ZipInputStream(fis);
-    return this.deserializeLexicons(zis);
+    if (!lazySegments) {
+      try (ZipInputStream zis = new ZipInputStream(new FileInputStream(lexiconFile))) {
+        return this.deserializeLexicons(zis);
+      }
+    }
+
+    @SuppressWarnings("resource")
+    ZipFile zipFile = new ZipFile(lexiconFile);
+    List<String> lexiconNames = new ArrayList<>();
+    try (Scanner scanner = new Scanner(new BufferedReader(new InputStreamReader(zipFile.getInputStream(zipFile.getEntry("lexicons.txt")), "UTF-8")))) {
+      while (scanner.hasNextLine()) {
+        String line = scanner.nextLine();
+        if (line.length() > 0)
+          lexiconNames.add(line);
+      }
+    }
+
+    List<PosTaggerLexicon> lexicons = new ArrayList<PosTaggerLexicon>();
+    boolean hasSegments = false;
+    for (String lexiconName : lexiconNames) {
+      LOG.debug("deserializing " + lexiconName + ".obj");
+      PosTaggerLexicon lexicon = null;
+      try (ObjectInputStream in = new ObjectInputStream(zipFile.getInputStream(zipFile.getEntry(lexiconName + ".obj")))) {
+        lexicon = (PosTaggerLexicon) in.readObject();
+      }
+      if (lexicon instanceof LexiconFile && ((LexiconFile) lexicon).getSegmentCount() > 0) {
+        ((LexiconFile) lexicon).setSegments(zipFile);
+        hasSegments = true;
+      }
+      if (lexicon instanceof NeedsSessionId)
+        ((NeedsSessionId) lexicon).setSessionId(sessionId);
+      lexicons.add(lexicon);
+    }
+    ZipEntry suffixPosTagEntry = zipFile.getEntry(SuffixPosTagIndex.ZIP_ENTRY_NAME);
+    if (suffixPosTagEntry != null) {
+      try (InputStream inputStream = zipFile.getInputStream(suffixPosTagEntry)) {
+        suffixPosTagIndex = SuffixPosTagIndex.read(inputStream);
+      }
+    }
+    if (!hasSegments)
+      zipFile.close();
+
+    return lexicons;
   }
 
   public List<PosTaggerLexicon> deserializeLexicons(ZipInputStream zis) throws ClassNotFoundException, UnsupportedEncodingException, IOException {
+    suffixPosTagIndex = null;
     List<PosTaggerLexicon> lexicons = new ArrayList<PosTaggerLexicon>();
     Map<String, PosTaggerLexicon> lexiconMap = new HashMap<String, PosTaggerLexicon>();
     List<String> lexiconNames = new ArrayList<>();
@@ -338,6 +469,13 @@ public class LexiconReader {
         ObjectInputStream in = new ObjectInputStream(zis);
         PosTaggerLexicon lexicon = (PosTaggerLexicon) in.readObject();
         lexiconMap.put(lexicon.getName(), lexicon);
+      } else if (ze.getName().endsWith(".seg")) {
+        // segments follow the lexicon to which they belong
+        String lexiconName = ze.getName().substring(0, ze.getName().lastIndexOf('/'));
+        LOG.debug("adding segment " + ze.getName());
+        ((LexiconFile) lexiconMap.get(lexiconName)).addSegment(zis);
+      } else if (ze.getName().equals(SuffixPosTagIndex.ZIP_ENTRY_NAME)) {
+        suffixPosTagIndex = SuffixPosTagIndex.read(zis);
       } else if (ze.getName().equals("lexicons.txt")) {
         // this ensures the lexicons will be added in the correct
         // order
@@ -361,4 +499,12 @@ public class LexiconReader {
 
     return lexicons;
   }
+
+  /**
+   * The suffix pos-tag index serialized with the lexicons read by the last
+   * call to deserializeLexicons, or null if there was none.
+   */
+  public SuffixPosTagIndex getSuffixPosTagIndex() {
+    return suffixPosTagIndex;
+  }
 }
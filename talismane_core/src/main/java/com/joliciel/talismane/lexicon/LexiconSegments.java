@@ -0,0 +1,242 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.lexicon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.TalismaneException;
+
+/**
+ * The segments of a lexicon serialized by
+ * {@link LexiconFile#writeSegments(java.util.zip.ZipOutputStream, int)}, read
+ * from a zip file the first time a word or lemma in them is looked up.<br>
+ * <br>
+ * Words and lemmas are assigned to segments by hash. Loaded segments are only
+ * softly referenced, so that they can be released under memory pressure, in
+ * which case they are read again on the next lookup.
+ *
+ * @author Assaf Urieli
+ *
+ */
+final class LexiconSegments {
+  private static final Logger LOG = LoggerFactory.getLogger(LexiconSegments.class);
+
+  private final ZipFile zipFile;
+  private final LexiconFile lexicon;
+  private final int segmentCount;
+  private final AtomicReferenceArray<SoftReference<Segment>> segments;
+  private final Object[] locks;
+  private final AtomicInteger loadCount = new AtomicInteger();
+
+  LexiconSegments(ZipFile zipFile, LexiconFile lexicon, int segmentCount) {
+    this.zipFile = zipFile;
+    this.lexicon = lexicon;
+    this.segmentCount = segmentCount;
+    this.segments = new AtomicReferenceArray<>(segmentCount);
+    this.locks = new Object[segmentCount];
+    for (int i = 0; i < segmentCount; i++)
+      locks[i] = new Object();
+  }
+
+  static int getSegmentIndex(String key, int segmentCount) {
+    return Math.floorMod(key.hashCode(), segmentCount);
+  }
+
+  static String getEntryName(String lexiconName, int segmentIndex) {
+    return lexiconName + "/" + segmentIndex + ".seg";
+  }
+
+  List<LexicalEntry> getEntries(String word) {
+    List<LexicalEntry> entries = this.getSegment(getSegmentIndex(word, segmentCount)).words.get(word);
+    return entries == null ? Collections.emptyList() : entries;
+  }
+
+  List<LexicalEntry> getEntriesForLemma(String lemma) {
+    List<LexicalEntry> entries = this.getSegment(getSegmentIndex(lemma, segmentCount)).lemmas.get(lemma);
+    return entries == null ? Collections.emptyList() : entries;
+  }
+
+  /**
+   * Iterates through the entries of each segment in turn, loading them as
+   * required.
+   */
+  Iterator<LexicalEntry> getAllEntries() {
+    return IntStream.range(0, segmentCount).mapToObj(this::getSegment).flatMap(segment -> segment.words.values().stream()).flatMap(List::stream)
+        .iterator();
+  }
+
+  int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * The number of segments currently loaded.
+   */
+  int getLoadedSegmentCount() {
+    int count = 0;
+    for (int i = 0; i < segmentCount; i++) {
+      SoftReference<Segment> reference = segments.get(i);
+      if (reference != null && reference.get() != null)
+        count++;
+    }
+    return count;
+  }
+
+  /**
+   * The number of times a segment has been read from the zip file.
+   */
+  int getLoadCount() {
+    return loadCount.get();
+  }
+
+  private Segment getSegment(int segmentIndex) {
+    SoftReference<Segment> reference = segments.get(segmentIndex);
+    Segment segment = reference == null ? null : reference.get();
+    if (segment == null) {
+      synchronized (locks[segmentIndex]) {
+        reference = segments.get(segmentIndex);
+        segment = reference == null ? null : reference.get();
+        if (segment == null) {
+          String entryName = getEntryName(lexicon.getName(), segmentIndex);
+          if (LOG.isDebugEnabled())
+            LOG.debug("Loading lexicon segment " + entryName);
+          ZipEntry zipEntry = zipFile.getEntry(entryName);
+          if (zipEntry == null)
+            throw new TalismaneException("Missing lexicon segment " + entryName + " in " + zipFile.getName());
+          try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+            segment = read(inputStream, lexicon);
+          } catch (IOException e) {
+            throw new TalismaneException("Unable to read lexicon segment " + entryName, e);
+          }
+          segments.set(segmentIndex, new SoftReference<>(segment));
+          loadCount.incrementAndGet();
+        }
+      }
+    }
+    return segment;
+  }
+
+  /**
+   * Read a segment whose entries belong to the lexicon provided.
+   */
+  static Segment read(InputStream inputStream, LexiconFile lexicon) throws IOException {
+    try {
+      @SuppressWarnings("resource")
+      SegmentInputStream in = new SegmentInputStream(inputStream, lexicon);
+      @SuppressWarnings("unchecked")
+      Map<String, List<LexicalEntry>> words = (Map<String, List<LexicalEntry>>) in.readObject();
+      @SuppressWarnings("unchecked")
+      Map<String, List<LexicalEntry>> lemmas = (Map<String, List<LexicalEntry>>) in.readObject();
+      return new Segment(words, lemmas);
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Write a segment, without the lexicon to which its entries belong.
+   */
+  static void write(OutputStream outputStream, LexiconFile lexicon, Map<String, List<LexicalEntry>> words, Map<String, List<LexicalEntry>> lemmas)
+      throws IOException {
+    SegmentOutputStream out = new SegmentOutputStream(outputStream, lexicon);
+    out.writeObject(words);
+    out.writeObject(lemmas);
+    out.flush();
+  }
+
+  /**
+   * The entries of a single segment, by word and by lemma.
+   */
+  static final class Segment {
+    private final Map<String, List<LexicalEntry>> words;
+    private final Map<String, List<LexicalEntry>> lemmas;
+
+    private Segment(Map<String, List<LexicalEntry>> words, Map<String, List<LexicalEntry>> lemmas) {
+      this.words = words;
+      this.lemmas = lemmas;
+    }
+
+    Map<String, List<LexicalEntry>> getWords() {
+      return words;
+    }
+
+    Map<String, List<LexicalEntry>> getLemmas() {
+      return lemmas;
+    }
+  }
+
+  /**
+   * Stands in for the lexicon referenced by each entry, which is serialized
+   * separately.
+   */
+  private enum LexiconPlaceholder {
+    INSTANCE
+  }
+
+  private static final class SegmentOutputStream extends ObjectOutputStream {
+    private final LexiconFile lexicon;
+
+    private SegmentOutputStream(OutputStream outputStream, LexiconFile lexicon) throws IOException {
+      super(outputStream);
+      this.lexicon = lexicon;
+      this.enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) throws IOException {
+      if (obj == lexicon)
+        return LexiconPlaceholder.INSTANCE;
+      return obj;
+    }
+  }
+
+  private static final class SegmentInputStream extends ObjectInputStream {
+    private final LexiconFile lexicon;
+
+    private SegmentInputStream(InputStream inputStream, LexiconFile lexicon) throws IOException {
+      super(inputStream);
+      this.lexicon = lexicon;
+      this.enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+      if (obj == LexiconPlaceholder.INSTANCE)
+        return lexicon;
+      return obj;
+    }
+  }
+}
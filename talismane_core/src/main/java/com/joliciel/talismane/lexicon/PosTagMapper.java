@@ -18,10 +18,18 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.lexicon;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Scanner;
 import java.util.Set;
 
+import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.posTagger.PosTag;
 import com.joliciel.talismane.posTagger.PosTagSet;
+import com.joliciel.talismane.utils.ConfigUtils;
+import com.typesafe.config.Config;
 
 /**
  * Used to retrieve a set of pos-tags for a given lexical entry.
@@ -33,4 +41,23 @@ public interface PosTagMapper {
   public PosTagSet getPosTagSet();
 
   public Set<PosTag> getPosTags(LexicalEntry lexicalEntry);
+
+  /**
+   * The pos-tag mapper configured for a given lexicon at
+   * talismane.core.[sessionId].pos-tagger.pos-tag-map.[lexiconName], or a
+   * {@link DefaultPosTagMapper} if none is configured.
+   * 
+   * @throws TalismaneException
+   *           if the pos-tag map file is badly formatted
+   */
+  public static PosTagMapper getPosTagMapper(Config config, String sessionId, String lexiconName, PosTagSet posTagSet)
+      throws IOException, TalismaneException {
+    String configPath = "talismane.core." + sessionId + ".pos-tagger.pos-tag-map." + lexiconName;
+    if (!config.hasPath(configPath))
+      return new DefaultPosTagMapper(posTagSet);
+    InputStream posTagMapFile = ConfigUtils.getFileFromConfig(config, configPath);
+    try (Scanner posTagMapScanner = new Scanner(new BufferedReader(new InputStreamReader(posTagMapFile, "UTF-8")))) {
+      return new SimplePosTagMapper(posTagMapScanner, posTagSet);
+    }
+  }
 }
@@ -185,6 +185,20 @@ public class RegexLexicalEntryReader implements LexicalEntryReader {
 
   @Override
   public void readEntry(String text, WritableLexicalEntry lexicalEntry) throws TalismaneException {
+    this.writeAttributes(this.readAttributes(text), lexicalEntry);
+  }
+
+  /**
+   * Extract the attribute values from a block of text, without writing them to
+   * a lexical entry. Unlike writing, which may encode values on a shared
+   * {@link CompactLexicalEntrySupport}, this can safely be run on several
+   * threads at once.
+   * 
+   * @throws TalismaneException
+   *           if no Word was found in the lexical entry
+   */
+  public List<LexicalAttributeValue> readAttributes(String text) throws TalismaneException {
+    List<LexicalAttributeValue> values = new ArrayList<>();
     boolean foundWord = false;
     for (LexicalAttribute attribute : this.attributePatternMap.keySet()) {
       for (LexicalAttributePattern myPattern : this.attributePatternMap.get(attribute)) {
@@ -194,69 +208,9 @@ public class RegexLexicalEntryReader implements LexicalEntryReader {
           if (myPattern.getReplacement() != null)
             value = myPattern.getReplacement();
 
-          switch (attribute) {
-          case Word:
-            lexicalEntry.setWord(value);
+          values.add(new LexicalAttributeValue(attribute, null, value));
+          if (attribute == LexicalAttribute.Word)
             foundWord = true;
-            break;
-          case Lemma:
-            lexicalEntry.setLemma(value);
-            break;
-          case LemmaComplement:
-            lexicalEntry.setLemmaComplement(value);
-            break;
-          case Morphology:
-            lexicalEntry.setMorphology(value);
-            break;
-          case Category:
-            lexicalEntry.setCategory(value);
-            break;
-          case SubCategory:
-            lexicalEntry.setSubCategory(value);
-            break;
-          case Case:
-            lexicalEntry.addCase(value);
-            break;
-          case Gender:
-            lexicalEntry.addGender(value);
-            break;
-          case Number:
-            lexicalEntry.addNumber(value);
-            break;
-          case Person:
-            lexicalEntry.addPerson(value);
-            break;
-          case PossessorNumber:
-            lexicalEntry.addPossessorNumber(value);
-            break;
-          case Tense:
-            lexicalEntry.addTense(value);
-            break;
-          case Aspect:
-            lexicalEntry.addAspect(value);
-            break;
-          case Mood:
-            lexicalEntry.addMood(value);
-            break;
-          case OtherAttribute1:
-            break;
-          case OtherAttribute2:
-            break;
-          case OtherAttribute3:
-            break;
-          case OtherAttribute4:
-            break;
-          case OtherAttribute5:
-            break;
-          case OtherAttribute6:
-            break;
-          case OtherAttribute7:
-            break;
-          case OtherAttribute8:
-            break;
-          default:
-            break;
-          }
 
           if (myPattern.isStop())
             break;
@@ -269,7 +223,7 @@ public class RegexLexicalEntryReader implements LexicalEntryReader {
         Matcher matcher = myPattern.getPattern().matcher(text);
         if (matcher.find()) {
           String value = matcher.group(myPattern.getGroup());
-          lexicalEntry.setAttribute(otherAttribute, value);
+          values.add(new LexicalAttributeValue(null, otherAttribute, value));
 
           if (myPattern.isStop())
             break;
@@ -279,6 +233,111 @@ public class RegexLexicalEntryReader implements LexicalEntryReader {
 
     if (!foundWord)
       throw new TalismaneException("No Word found in lexical entry: " + text);
+    return values;
+  }
+
+  /**
+   * Write attribute values returned by {@link #readAttributes(String)} to a
+   * lexical entry, in the order in which they were read.
+   */
+  public void writeAttributes(List<LexicalAttributeValue> values, WritableLexicalEntry lexicalEntry) {
+    for (LexicalAttributeValue attributeValue : values) {
+      String value = attributeValue.value;
+      if (attributeValue.attribute == null) {
+        lexicalEntry.setAttribute(attributeValue.otherAttribute, value);
+        continue;
+      }
+      switch (attributeValue.attribute) {
+      case Word:
+        lexicalEntry.setWord(value);
+        break;
+      case Lemma:
+        lexicalEntry.setLemma(value);
+        break;
+      case LemmaComplement:
+        lexicalEntry.setLemmaComplement(value);
+        break;
+      case Morphology:
+        lexicalEntry.setMorphology(value);
+        break;
+      case Category:
+        lexicalEntry.setCategory(value);
+        break;
+      case SubCategory:
+        lexicalEntry.setSubCategory(value);
+        break;
+      case Case:
+        lexicalEntry.addCase(value);
+        break;
+      case Gender:
+        lexicalEntry.addGender(value);
+        break;
+      case Number:
+        lexicalEntry.addNumber(value);
+        break;
+      case Person:
+        lexicalEntry.addPerson(value);
+        break;
+      case PossessorNumber:
+        lexicalEntry.addPossessorNumber(value);
+        break;
+      case Tense:
+        lexicalEntry.addTense(value);
+        break;
+      case Aspect:
+        lexicalEntry.addAspect(value);
+        break;
+      case Mood:
+        lexicalEntry.addMood(value);
+        break;
+      case OtherAttribute1:
+        break;
+      case OtherAttribute2:
+        break;
+      case OtherAttribute3:
+        break;
+      case OtherAttribute4:
+        break;
+      case OtherAttribute5:
+        break;
+      case OtherAttribute6:
+        break;
+      case OtherAttribute7:
+        break;
+      case OtherAttribute8:
+        break;
+      default:
+        break;
+      }
+    }
+  }
+
+  /**
+   * A single attribute value read from a lexical entry: either a
+   * {@link LexicalAttribute}, or the name of an additional attribute.
+   */
+  public static final class LexicalAttributeValue {
+    private final LexicalAttribute attribute;
+    private final String otherAttribute;
+    private final String value;
+
+    private LexicalAttributeValue(LexicalAttribute attribute, String otherAttribute, String value) {
+      this.attribute = attribute;
+      this.otherAttribute = otherAttribute;
+      this.value = value;
+    }
+
+    public LexicalAttribute getAttribute() {
+      return attribute;
+    }
+
+    public String getOtherAttribute() {
+      return otherAttribute;
+    }
+
+    public String getValue() {
+      return value;
+    }
   }
 
   private static final class LexicalAttributePattern {
@@ -0,0 +1,350 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.lexicon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.posTagger.PosTag;
+import com.joliciel.talismane.posTagger.PosTagSet;
+
+/**
+ * For each suffix of up to a given length found among the word forms of a set
+ * of lexicons, the number of word forms ending with this suffix, and how many
+ * of them can take each pos-tag. Typically used to guess the pos-tag of
+ * unknown words.<br>
+ * <br>
+ * The suffixes are stored in a trie, read from the last letter backwards, and
+ * packed into arrays. A suffix is found using {@link #findSuffix(CharSequence, int)},
+ * which returns a node whose counts can then be read: none of these methods
+ * allocate any objects. Pos-tags are stored by code, so that the index can be
+ * serialized along with the lexicons, as per
+ * {@link LexiconReader#serializeLexicons(List, java.io.File, int, SuffixPosTagIndex)}.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class SuffixPosTagIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(SuffixPosTagIndex.class);
+
+  /**
+   * The name of the zip entry containing this index in a serialized lexicon.
+   */
+  public static final String ZIP_ENTRY_NAME = "suffixPosTags.bin";
+
+  private static final int MAGIC = 0x53554658;
+  private static final int VERSION = 1;
+
+  private final String posTagSetName;
+  private final int maxSuffixLength;
+  private final String[] posTagCodes;
+  private final Map<String, Integer> posTagIds = new HashMap<>();
+  // the character leading to each node from its parent, the root being node 0
+  private final char[] nodeChars;
+  // the children of node i are the nodes firstChild[i] to firstChild[i+1]-1,
+  // sorted by character
+  private final int[] firstChild;
+  private final int[] wordCounts;
+  // the pos-tag counts of node i are at tagStarts[i] to tagStarts[i+1]-1
+  private final int[] tagStarts;
+  private final int[] tagIds;
+  private final int[] tagCounts;
+
+  private SuffixPosTagIndex(String posTagSetName, int maxSuffixLength, String[] posTagCodes, char[] nodeChars, int[] firstChild, int[] wordCounts,
+      int[] tagStarts, int[] tagIds, int[] tagCounts) {
+    this.posTagSetName = posTagSetName;
+    this.maxSuffixLength = maxSuffixLength;
+    this.posTagCodes = posTagCodes;
+    for (int i = 0; i < posTagCodes.length; i++)
+      posTagIds.put(posTagCodes[i], i);
+    this.nodeChars = nodeChars;
+    this.firstChild = firstChild;
+    this.wordCounts = wordCounts;
+    this.tagStarts = tagStarts;
+    this.tagIds = tagIds;
+    this.tagCounts = tagCounts;
+  }
+
+  /**
+   * Build an index of the word forms in a set of lexicons. A word form found
+   * in several lexicons is only counted once, with the union of its pos-tags.
+   * 
+   * @param posTagMappers
+   *          gives the pos-tag mapper to use for each lexicon
+   * @param maxSuffixLength
+   *          the length of the longest suffixes to index
+   */
+  public static SuffixPosTagIndex build(List<PosTaggerLexicon> lexicons, Function<PosTaggerLexicon, PosTagMapper> posTagMappers, PosTagSet posTagSet,
+      int maxSuffixLength) {
+    String[] posTagCodes = new String[posTagSet.getTags().size()];
+    for (PosTag posTag : posTagSet.getTags())
+      posTagCodes[posTagSet.getId(posTag)] = posTag.getCode();
+
+    Map<String, BitSet> wordPosTags = new HashMap<>();
+    for (PosTaggerLexicon lexicon : lexicons) {
+      PosTagMapper posTagMapper = posTagMappers.apply(lexicon);
+      Iterator<LexicalEntry> entries = lexicon.getAllEntries();
+      while (entries.hasNext()) {
+        LexicalEntry entry = entries.next();
+        BitSet posTags = wordPosTags.computeIfAbsent(entry.getWord(), k -> new BitSet(posTagCodes.length));
+        for (PosTag posTag : posTagMapper.getPosTags(entry)) {
+          int id = posTagSet.getId(posTag);
+          if (id >= 0)
+            posTags.set(id);
+        }
+      }
+    }
+
+    Node root = new Node('\0', posTagCodes.length);
+    for (Map.Entry<String, BitSet> wordEntry : wordPosTags.entrySet()) {
+      String word = wordEntry.getKey();
+      BitSet posTags = wordEntry.getValue();
+      Node node = root;
+      node.add(posTags);
+      for (int i = 1; i <= maxSuffixLength && i <= word.length(); i++) {
+        node = node.children.computeIfAbsent(word.charAt(word.length() - i), c -> new Node(c, posTagCodes.length));
+        node.add(posTags);
+      }
+    }
+
+    // number the nodes breadth-first, so that the children of each node are
+    // contiguous
+    List<Node> nodes = new ArrayList<>();
+    nodes.add(root);
+    int tagCountSize = 0;
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      node.firstChild = nodes.size();
+      nodes.addAll(node.children.values());
+      for (int count : node.tagCounts)
+        if (count > 0)
+          tagCountSize++;
+    }
+
+    int nodeCount = nodes.size();
+    char[] nodeChars = new char[nodeCount];
+    int[] firstChild = new int[nodeCount + 1];
+    int[] wordCounts = new int[nodeCount];
+    int[] tagStarts = new int[nodeCount + 1];
+    int[] tagIds = new int[tagCountSize];
+    int[] tagCounts = new int[tagCountSize];
+    int t = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      Node node = nodes.get(i);
+      nodeChars[i] = node.c;
+      firstChild[i] = node.firstChild;
+      wordCounts[i] = node.wordCount;
+      tagStarts[i] = t;
+      for (int j = 0; j < node.tagCounts.length; j++) {
+        if (node.tagCounts[j] > 0) {
+          tagIds[t] = j;
+          tagCounts[t] = node.tagCounts[j];
+          t++;
+        }
+      }
+    }
+    firstChild[nodeCount] = nodeCount;
+    tagStarts[nodeCount] = t;
+
+    if (LOG.isDebugEnabled())
+      LOG.debug("Indexed suffixes of " + wordPosTags.size() + " words in " + nodeCount + " nodes");
+    return new SuffixPosTagIndex(posTagSet.getName(), maxSuffixLength, posTagCodes, nodeChars, firstChild, wordCounts, tagStarts, tagIds, tagCounts);
+  }
+
+  /**
+   * The node for the last n characters of a word, or -1 if no word form in
+   * the lexicons ends with these characters, or if n is longer than the word
+   * or than {@link #getMaxSuffixLength()}. Node 0 covers all word forms.
+   */
+  public int findSuffix(CharSequence word, int n) {
+    return this.findSuffix(word, word.length(), n);
+  }
+
+  /**
+   * As per {@link #findSuffix(CharSequence, int)}, for the n characters of the
+   * text preceding the end index, so that a word within a longer text can be
+   * looked up without extracting it.
+   */
+  public int findSuffix(CharSequence text, int end, int n) {
+    if (n < 0 || n > maxSuffixLength || n > end)
+      return -1;
+    int node = 0;
+    for (int i = 1; i <= n; i++) {
+      char c = text.charAt(end - i);
+      int low = firstChild[node];
+      int high = firstChild[node + 1] - 1;
+      node = -1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (nodeChars[mid] < c)
+          low = mid + 1;
+        else if (nodeChars[mid] > c)
+          high = mid - 1;
+        else {
+          node = mid;
+          break;
+        }
+      }
+      if (node < 0)
+        return -1;
+    }
+    return node;
+  }
+
+  /**
+   * The number of word forms with the suffix of the node provided.
+   */
+  public int getWordCount(int node) {
+    return wordCounts[node];
+  }
+
+  /**
+   * The number of word forms with the suffix of the node provided which can
+   * take this pos-tag.
+   */
+  public int getCount(int node, PosTag posTag) {
+    Integer id = posTagIds.get(posTag.getCode());
+    if (id == null)
+      return 0;
+    for (int i = tagStarts[node]; i < tagStarts[node + 1]; i++) {
+      if (tagIds[i] == id)
+        return tagCounts[i];
+    }
+    return 0;
+  }
+
+  /**
+   * The proportion of word forms with the suffix of the node provided which
+   * can take this pos-tag.
+   */
+  public double getProbability(int node, PosTag posTag) {
+    int wordCount = wordCounts[node];
+    return wordCount == 0 ? 0.0 : (double) this.getCount(node, posTag) / wordCount;
+  }
+
+  public int getMaxSuffixLength() {
+    return maxSuffixLength;
+  }
+
+  /**
+   * The name of the pos-tag set used to build this index.
+   */
+  public String getPosTagSetName() {
+    return posTagSetName;
+  }
+
+  public int getNodeCount() {
+    return wordCounts.length;
+  }
+
+  public void write(OutputStream outputStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeUTF(posTagSetName == null ? "" : posTagSetName);
+    out.writeInt(maxSuffixLength);
+    out.writeInt(posTagCodes.length);
+    for (String posTagCode : posTagCodes)
+      out.writeUTF(posTagCode);
+    int nodeCount = wordCounts.length;
+    out.writeInt(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      out.writeChar(nodeChars[i]);
+      out.writeInt(firstChild[i]);
+      out.writeInt(wordCounts[i]);
+      out.writeInt(tagStarts[i]);
+    }
+    out.writeInt(tagIds.length);
+    for (int i = 0; i < tagIds.length; i++) {
+      out.writeShort(tagIds[i]);
+      out.writeInt(tagCounts[i]);
+    }
+    out.flush();
+  }
+
+  public static SuffixPosTagIndex read(InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+    if (in.readInt() != MAGIC)
+      throw new IOException("Not a suffix pos-tag index");
+    int version = in.readInt();
+    if (version != VERSION)
+      throw new IOException("Unsupported suffix pos-tag index version: " + version);
+    String posTagSetName = in.readUTF();
+    int maxSuffixLength = in.readInt();
+    String[] posTagCodes = new String[in.readInt()];
+    for (int i = 0; i < posTagCodes.length; i++)
+      posTagCodes[i] = in.readUTF();
+    int nodeCount = in.readInt();
+    char[] nodeChars = new char[nodeCount];
+    int[] firstChild = new int[nodeCount + 1];
+    int[] wordCounts = new int[nodeCount];
+    int[] tagStarts = new int[nodeCount + 1];
+    for (int i = 0; i < nodeCount; i++) {
+      nodeChars[i] = in.readChar();
+      firstChild[i] = in.readInt();
+      wordCounts[i] = in.readInt();
+      tagStarts[i] = in.readInt();
+    }
+    int tagCountSize = in.readInt();
+    int[] tagIds = new int[tagCountSize];
+    int[] tagCounts = new int[tagCountSize];
+    for (int i = 0; i < tagCountSize; i++) {
+      tagIds[i] = in.readShort();
+      tagCounts[i] = in.readInt();
+    }
+    firstChild[nodeCount] = nodeCount;
+    tagStarts[nodeCount] = tagCountSize;
+    return new SuffixPosTagIndex(posTagSetName, maxSuffixLength, posTagCodes, nodeChars, firstChild, wordCounts, tagStarts, tagIds, tagCounts);
+  }
+
+  private static final class Node {
+    private final char c;
+    private final TreeMap<Character, Node> children = new TreeMap<>();
+    private final int[] tagCounts;
+    private int wordCount = 0;
+    private int firstChild;
+
+    private Node(char c, int tagCount) {
+      this.c = c;
+      this.tagCounts = new int[tagCount];
+    }
+
+    private void add(BitSet posTags) {
+      wordCount++;
+      for (int i = posTags.nextSetBit(0); i >= 0; i = posTags.nextSetBit(i + 1))
+        tagCounts[i]++;
+    }
+  }
+}
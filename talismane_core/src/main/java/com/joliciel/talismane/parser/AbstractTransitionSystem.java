@@ -19,11 +19,22 @@
 package com.joliciel.talismane.parser;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Shares a single instance of each transition, created the first time its code
+ * is requested, so that transitions can be looked up by code without being
+ * parsed again.
+ * 
+ * @author Assaf Urieli
+ *
+ */
 abstract class AbstractTransitionSystem implements TransitionSystem {
   private DependencyLabelSet dependencyLabelSet;
   private Set<String> dependencyLabels = Collections.emptySet();
+  private final Map<String, Transition> transitionsByCode = new ConcurrentHashMap<>();
 
   @Override
   public Set<String> getDependencyLabels() {
@@ -39,6 +50,47 @@ abstract class AbstractTransitionSystem implements TransitionSystem {
   public void setDependencyLabelSet(DependencyLabelSet dependencyLabelSet) {
     this.dependencyLabelSet = dependencyLabelSet;
     this.dependencyLabels = dependencyLabelSet.getDependencyLabels();
+    this.transitionsByCode.clear();
+    this.clearTransitions();
   }
 
+  @Override
+  public Transition getTransitionForCode(String code) throws UnknownDependencyLabelException, UnknownTransitionException {
+    Transition transition = transitionsByCode.get(code);
+    if (transition == null)
+      transition = this.intern(code, this.createTransition(code));
+    return transition;
+  }
+
+  /**
+   * Check that the label found in a transition code is in the dependency label
+   * set, if there is one.
+   * 
+   * @throws UnknownDependencyLabelException
+   *           if the label isn't in the dependency label set
+   */
+  protected String checkLabel(String label) throws UnknownDependencyLabelException {
+    if (dependencyLabels.size() > 0 && !dependencyLabels.contains(label))
+      throw new UnknownDependencyLabelException(label);
+    return label;
+  }
+
+  /**
+   * Create a new transition corresponding to a particular code.
+   */
+  protected abstract AbstractTransition createTransition(String code) throws UnknownDependencyLabelException, UnknownTransitionException;
+
+  /**
+   * Clear any transitions cached by the subclass, when the dependency labels
+   * change.
+   */
+  protected abstract void clearTransitions();
+
+  private Transition intern(String code, Transition transition) {
+    Transition existing = transitionsByCode.putIfAbsent(transition.getCode(), transition);
+    if (existing == null)
+      existing = transition;
+    transitionsByCode.putIfAbsent(code, existing);
+    return existing;
+  }
 }
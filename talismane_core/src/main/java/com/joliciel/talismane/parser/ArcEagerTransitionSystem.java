@@ -42,7 +42,7 @@ import com.joliciel.talismane.posTagger.PosTaggedToken;
  */
 public class ArcEagerTransitionSystem extends AbstractTransitionSystem implements TransitionSystem {
   private static final Logger LOG = LoggerFactory.getLogger(ArcEagerTransitionSystem.class);
-  private transient Set<Transition> transitions = null;
+  private volatile Set<Transition> transitions = null;
 
   @Override
   public void predictTransitions(ParseConfiguration configuration, Set<DependencyArc> targetDependencies)
@@ -169,14 +169,11 @@ public class ArcEagerTransitionSystem extends AbstractTransitionSystem implement
   }
 
   @Override
-  public Transition getTransitionForCode(String code) throws UnknownDependencyLabelException, UnknownTransitionException {
+  protected AbstractTransition createTransition(String code) throws UnknownDependencyLabelException, UnknownTransitionException {
     AbstractTransition transition = null;
     String label = null;
     if (code.indexOf('[') >= 0) {
-      label = code.substring(code.indexOf('[') + 1, (code.indexOf(']')));
-      if (this.getDependencyLabels().size() > 0 && !this.getDependencyLabels().contains(label)) {
-        throw new UnknownDependencyLabelException(label);
-      }
+      label = this.checkLabel(code.substring(code.indexOf('[') + 1, (code.indexOf(']'))));
     }
     if (code.startsWith("LeftArc")) {
       transition = new LeftArcEagerTransition(label);
@@ -197,6 +194,7 @@ public class ArcEagerTransitionSystem extends AbstractTransitionSystem implement
 
   @Override
   public Set<Transition> getTransitions() {
+    Set<Transition> transitions = this.transitions;
     if (transitions == null) {
       transitions = new TreeSet<Transition>();
       try {
@@ -212,8 +210,14 @@ public class ArcEagerTransitionSystem extends AbstractTransitionSystem implement
         LOG.error(e.getMessage(), e);
         throw new RuntimeException(e);
       }
+      this.transitions = transitions;
     }
     return transitions;
   }
 
+  @Override
+  protected void clearTransitions() {
+    this.transitions = null;
+  }
+
 }
@@ -0,0 +1,84 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser;
+
+import com.joliciel.talismane.parser.output.BinaryParseWriter;
+
+/**
+ * Constants describing the compact binary parse format, written by
+ * {@link BinaryParseWriter} and read by {@link ParserBinaryCorpusReader}.<br>
+ * <br>
+ * The stream is a sequence of bytes. All integers are unsigned variable-length
+ * integers (7 bits per byte, least significant group first, high bit set on all
+ * bytes but the last), and all strings are a length in bytes followed by the
+ * string in UTF-8.<br>
+ * <br>
+ * A stream starts with a header: the bytes {@link #HEADER} followed by the
+ * {@link #VERSION}. It then contains one record per sentence, beginning with
+ * the byte {@link #SENTENCE}, followed by:
+ * <ul>
+ * <li>the number of strings added to the string table, followed by the strings
+ * themselves. The string table is shared by all sentences in the stream: the
+ * first string added gets the id 1, and the id 0 stands for a missing
+ * value.</li>
+ * <li>the sentence text</li>
+ * <li>the number of tokens n, excluding the root</li>
+ * <li>n string ids for the token forms</li>
+ * <li>n string ids for the lemmas</li>
+ * <li>n string ids for the pos-tag codes</li>
+ * <li>n string ids for the morphology, in CoNLL format</li>
+ * <li>n token start offsets, each one relative to the previous token's end
+ * offset</li>
+ * <li>n token lengths</li>
+ * <li>n governor indexes plus one, where 0 means the token is unattached, and 1
+ * means it is attached to the root</li>
+ * <li>n string ids for the dependency labels</li>
+ * <li>n non-projective governor indexes plus one</li>
+ * <li>n string ids for the non-projective dependency labels</li>
+ * </ul>
+ * A header may be repeated between records, in which case the string table is
+ * reset, so that several streams can simply be concatenated.<br>
+ * <br>
+ * Since Talismane reads and writes character streams, each byte is transported
+ * as a character from U+0000 to U+00FF. With the encoding ISO-8859-1, the file
+ * contains exactly the bytes described above. Other encodings, such as UTF-8,
+ * will also work as long as the same encoding is used for writing and reading.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public final class BinaryParseFormat {
+  /**
+   * The bytes at the start of each stream.
+   */
+  public static final byte[] HEADER = { 'T', 'P', 'B' };
+
+  /**
+   * The current format version, following the header.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * The byte starting each sentence record.
+   */
+  public static final int SENTENCE = 'S';
+
+  private BinaryParseFormat() {
+  }
+}
@@ -0,0 +1,399 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.corpus.AbstractAnnotatedCorpusReader;
+import com.joliciel.talismane.lexicon.LexicalAttribute;
+import com.joliciel.talismane.lexicon.LexicalEntry;
+import com.joliciel.talismane.posTagger.PosTagAnnotatedCorpusReader;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.posTagger.PosTaggedToken;
+import com.joliciel.talismane.rawText.Sentence;
+import com.joliciel.talismane.tokeniser.Token;
+import com.joliciel.talismane.tokeniser.TokenAttribute;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValueFactory;
+
+/**
+ * An annotated corpus read once into memory, so that it can be served any
+ * number of times without re-reading or re-parsing the original corpus, e.g.
+ * for several training and evaluation runs, or for each fold of a
+ * cross-validation.<br>
+ * <br>
+ * Each sentence is stored as its text and a varint-packed record in the
+ * layout produced by {@link ParseRecordEncoder}, with all strings in a single
+ * string table. Anything else read by the corpus reader for each token (its
+ * lexical entries, attributes, original lemma, morphology and category, and
+ * pos-tag comment) is stored alongside, and interned when the snapshot is
+ * loaded, so that all tokens with the same details share a single copy,
+ * including the same lexical entry objects. Tokens for which the corpus reader
+ * didn't set any lexical entries look them up in the lexicon, as they would
+ * when read directly. Sentences are rebuilt on demand by a
+ * {@link ParseRecordDecoder} which doesn't build lexical entries, so that
+ * nothing shared is modified while reading.<br>
+ * <br>
+ * The corpus should be loaded in full, with a source reader built from
+ * {@link #getFullCorpusConfig(Config)}: the sentence-count, start-sentence
+ * and cross-validation settings are then applied by each reader returned by
+ * {@link #getReader(Config)}, by selecting sentence indexes.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public final class ParseCorpusSnapshot {
+  private static final Logger LOG = LoggerFactory.getLogger(ParseCorpusSnapshot.class);
+
+  private final String[] texts;
+  private final byte[][] records;
+  private final TokenDetails[][] details;
+  private final boolean hasDependencies;
+  private final Map<String, String> characteristics;
+  private final List<String> strings;
+  private final String sessionId;
+  private final ParseRecordDecoder decoder;
+  private final ParseRecordDecoder transitionDecoder;
+
+  private ParseCorpusSnapshot(List<String> texts, List<byte[]> records, List<TokenDetails[]> details, boolean hasDependencies,
+      Map<String, String> characteristics, List<String> strings, String sessionId) {
+    this.texts = texts.toArray(new String[texts.size()]);
+    this.records = records.toArray(new byte[records.size()][]);
+    this.details = details.toArray(new TokenDetails[details.size()][]);
+    this.hasDependencies = hasDependencies;
+    this.characteristics = characteristics;
+    this.strings = Collections.unmodifiableList(new ArrayList<>(strings));
+    this.sessionId = sessionId;
+    this.decoder = new ParseRecordDecoder(this.strings, false, false, sessionId);
+    this.transitionDecoder = new ParseRecordDecoder(this.strings, true, false, sessionId);
+  }
+
+  /**
+   * Read all of the sentences from a corpus reader into a new snapshot. If the
+   * reader is a {@link ParserAnnotatedCorpusReader}, dependencies are read as
+   * well.
+   */
+  public static ParseCorpusSnapshot load(PosTagAnnotatedCorpusReader corpusReader, String sessionId) throws TalismaneException, IOException {
+    boolean hasDependencies = corpusReader instanceof ParserAnnotatedCorpusReader;
+    ParseRecordEncoder encoder = new ParseRecordEncoder();
+    List<String> texts = new ArrayList<>();
+    List<byte[]> records = new ArrayList<>();
+    List<TokenDetails[]> details = new ArrayList<>();
+    Map<List<String>, LexicalEntry> lexicalEntries = new HashMap<>();
+    Map<TokenDetails, TokenDetails> tokenDetails = new HashMap<>();
+    while (corpusReader.hasNextSentence()) {
+      ParseConfiguration configuration = null;
+      PosTagSequence posTagSequence;
+      if (hasDependencies) {
+        configuration = ((ParserAnnotatedCorpusReader) corpusReader).nextConfiguration();
+        posTagSequence = configuration.getPosTagSequence();
+      } else {
+        posTagSequence = corpusReader.nextPosTagSequence();
+      }
+      // read the details first, since encoding the lemmas looks up any
+      // missing lexical entries
+      details.add(getDetails(posTagSequence, lexicalEntries, tokenDetails));
+      int[] values = encoder.encode(posTagSequence, configuration);
+      texts.add(posTagSequence.getTokenSequence().getSentence().getText().toString());
+      records.add(pack(values));
+    }
+    LOG.debug("Loaded " + texts.size() + " sentences, with " + encoder.getStrings().size() + " distinct strings");
+
+    Map<String, String> characteristics = corpusReader.getCharacteristics();
+    return new ParseCorpusSnapshot(texts, records, details, hasDependencies, characteristics, encoder.getStrings(), sessionId);
+  }
+
+  /**
+   * The interned details of each token in a pos-tag sequence, skipping any
+   * root.
+   */
+  private static TokenDetails[] getDetails(PosTagSequence posTagSequence, Map<List<String>, LexicalEntry> lexicalEntries,
+      Map<TokenDetails, TokenDetails> tokenDetails) {
+    List<TokenDetails> sentenceDetails = new ArrayList<>(posTagSequence.size());
+    for (PosTaggedToken posTaggedToken : posTagSequence) {
+      if (posTaggedToken.isRoot())
+        continue;
+      List<LexicalEntry> tokenLexicalEntries = null;
+      if (posTaggedToken.hasLexicalEntries()) {
+        tokenLexicalEntries = new ArrayList<>(posTaggedToken.getLexicalEntries().size());
+        for (LexicalEntry lexicalEntry : posTaggedToken.getLexicalEntries())
+          tokenLexicalEntries.add(lexicalEntries.computeIfAbsent(getKey(lexicalEntry), k -> lexicalEntry));
+        tokenLexicalEntries = Collections.unmodifiableList(tokenLexicalEntries);
+      }
+      Token token = posTaggedToken.getToken();
+      TokenDetails details = new TokenDetails(tokenLexicalEntries, token.getAttributes(), token.getOriginalLemma(), token.getOriginalMorphology(),
+          token.getOriginalCategory(), posTaggedToken.getComment());
+      sentenceDetails.add(tokenDetails.computeIfAbsent(details, k -> details));
+    }
+    return sentenceDetails.toArray(new TokenDetails[sentenceDetails.size()]);
+  }
+
+  /**
+   * All of a lexical entry's attributes, so that entries with the same
+   * attributes can be interned.
+   */
+  private static List<String> getKey(LexicalEntry lexicalEntry) {
+    List<String> key = new ArrayList<>(LexicalAttribute.values().length + 1);
+    key.add(lexicalEntry.getLexiconName());
+    for (LexicalAttribute attribute : LexicalAttribute.values())
+      key.add(lexicalEntry.getAttribute(attribute.name()));
+    return key;
+  }
+
+  /**
+   * Returns a copy of a corpus reader's local config which reads the full
+   * corpus, ignoring sentence-count, start-sentence and cross-validation.
+   */
+  public static Config getFullCorpusConfig(Config config) {
+    return config.withValue("sentence-count", ConfigValueFactory.fromAnyRef(0)).withValue("start-sentence", ConfigValueFactory.fromAnyRef(0))
+        .withValue("cross-validation.fold-count", ConfigValueFactory.fromAnyRef(0))
+        .withValue("cross-validation.include-index", ConfigValueFactory.fromAnyRef(-1))
+        .withValue("cross-validation.exclude-index", ConfigValueFactory.fromAnyRef(-1));
+  }
+
+  /**
+   * The number of sentences in this snapshot.
+   */
+  public int size() {
+    return texts.length;
+  }
+
+  /**
+   * Whether dependencies were read, in which case readers can return parse
+   * configurations.
+   */
+  public boolean hasDependencies() {
+    return hasDependencies;
+  }
+
+  /**
+   * A new reader for the sentences in this snapshot, selected as specified in
+   * {@link AbstractAnnotatedCorpusReader#AbstractAnnotatedCorpusReader(Config, String)}
+   * , and in addition:<br>
+   * - predict-transitions (optional, default false): whether or not an attempt
+   * should be made to predict transitions<br>
+   * <br>
+   * Several readers can read from the same snapshot concurrently: the
+   * snapshot's decoders don't build lexical entries, and the lexical entries
+   * and attributes shared between readers are never modified. Each reader,
+   * however, should only be used by one thread at a time.
+   *
+   * @param config
+   *          the local config for the corpus reader (local namespace)
+   */
+  public ParserAnnotatedCorpusReader getReader(Config config) {
+    return new SnapshotCorpusReader(config);
+  }
+
+  private static byte[] pack(int[] values) {
+    byte[] bytes = new byte[values.length * 5];
+    int length = 0;
+    for (int value : values) {
+      while ((value & ~0x7F) != 0) {
+        bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[length++] = (byte) value;
+    }
+    return Arrays.copyOf(bytes, length);
+  }
+
+  private static int[] unpack(byte[] bytes) {
+    int count = 0;
+    for (byte b : bytes) {
+      if ((b & 0x80) == 0)
+        count++;
+    }
+    int[] values = new int[count];
+    int pos = 0;
+    for (int i = 0; i < count; i++) {
+      int value = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = bytes[pos++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      values[i] = value;
+    }
+    return values;
+  }
+
+  private final class SnapshotCorpusReader extends AbstractAnnotatedCorpusReader implements ParserAnnotatedCorpusReader {
+    private final int[] sentenceIndexes;
+    private final ParseRecordDecoder readerDecoder;
+    private int position = 0;
+
+    private SnapshotCorpusReader(Config config) {
+      super(config, ParseCorpusSnapshot.this.sessionId);
+      boolean predictTransitions = config.hasPath("predict-transitions") && config.getBoolean("predict-transitions");
+      this.readerDecoder = predictTransitions ? transitionDecoder : decoder;
+
+      int end = texts.length;
+      if (this.getMaxSentenceCount() > 0 && this.getMaxSentenceCount() < end)
+        end = this.getMaxSentenceCount();
+      int start = Math.max(0, this.getStartSentence());
+      int[] indexes = new int[Math.max(0, end - start)];
+      int count = 0;
+      for (int i = start; i < end; i++) {
+        if (this.getCrossValidationSize() > 0) {
+          if (this.getIncludeIndex() >= 0) {
+            if (i % this.getCrossValidationSize() != this.getIncludeIndex())
+              continue;
+          } else if (this.getExcludeIndex() >= 0) {
+            if (i % this.getCrossValidationSize() == this.getExcludeIndex())
+              continue;
+          }
+        }
+        indexes[count++] = i;
+      }
+      this.sentenceIndexes = Arrays.copyOf(indexes, count);
+    }
+
+    @Override
+    public boolean hasNextSentence() {
+      return position < sentenceIndexes.length;
+    }
+
+    @Override
+    public ParseConfiguration nextConfiguration() throws TalismaneException, IOException {
+      if (!hasDependencies)
+        throw new TalismaneException("Cannot read parse configurations from a corpus snapshot without dependencies");
+      if (!this.hasNextSentence())
+        return null;
+      int index = sentenceIndexes[position++];
+      ParseConfiguration configuration = readerDecoder.decodeConfiguration(texts[index], unpack(records[index]), index + 1);
+      this.setDetails(configuration.getPosTagSequence(), details[index]);
+      return configuration;
+    }
+
+    @Override
+    public PosTagSequence nextPosTagSequence() throws TalismaneException, IOException {
+      if (hasDependencies) {
+        ParseConfiguration configuration = this.nextConfiguration();
+        return configuration == null ? null : configuration.getPosTagSequence();
+      }
+      if (!this.hasNextSentence())
+        return null;
+      int index = sentenceIndexes[position++];
+      PosTagSequence posTagSequence = readerDecoder.decodePosTagSequence(texts[index], unpack(records[index]), index + 1);
+      this.setDetails(posTagSequence, details[index]);
+      return posTagSequence;
+    }
+
+    private void setDetails(PosTagSequence posTagSequence, TokenDetails[] sentenceDetails) {
+      int i = 0;
+      for (PosTaggedToken posTaggedToken : posTagSequence) {
+        if (posTaggedToken.isRoot())
+          continue;
+        TokenDetails tokenDetails = sentenceDetails[i++];
+        if (tokenDetails.lexicalEntries != null)
+          posTaggedToken.setLexicalEntries(tokenDetails.lexicalEntries);
+        posTaggedToken.setComment(tokenDetails.comment);
+        Token token = posTaggedToken.getToken();
+        for (Map.Entry<String, TokenAttribute<?>> attribute : tokenDetails.attributes.entrySet()) {
+          if (!token.getAttributes().containsKey(attribute.getKey()))
+            token.getAttributes().put(attribute.getKey(), attribute.getValue());
+        }
+        token.setOriginalLemma(tokenDetails.originalLemma);
+        token.setOriginalMorphology(tokenDetails.originalMorphology);
+        token.setOriginalCategory(tokenDetails.originalCategory);
+      }
+    }
+
+    @Override
+    public TokenSequence nextTokenSequence() throws TalismaneException, IOException {
+      PosTagSequence posTagSequence = this.nextPosTagSequence();
+      return posTagSequence == null ? null : posTagSequence.getTokenSequence();
+    }
+
+    @Override
+    public Sentence nextSentence() throws TalismaneException, IOException {
+      TokenSequence tokenSequence = this.nextTokenSequence();
+      return tokenSequence == null ? null : tokenSequence.getSentence();
+    }
+
+    @Override
+    public boolean isNewParagraph() {
+      return false;
+    }
+
+    @Override
+    public Map<String, String> getCharacteristics() {
+      Map<String, String> attributes = super.getCharacteristics();
+      for (String key : characteristics.keySet()) {
+        if (!attributes.containsKey(key))
+          attributes.put(key, characteristics.get(key));
+      }
+      attributes.put("tagset", TalismaneSession.get(sessionId).getPosTagSet().getName());
+      return attributes;
+    }
+  }
+
+  /**
+   * The details of a single token which aren't stored in its record.
+   */
+  private static final class TokenDetails {
+    private final List<LexicalEntry> lexicalEntries;
+    private final Map<String, TokenAttribute<?>> attributes;
+    private final String originalLemma;
+    private final String originalMorphology;
+    private final String originalCategory;
+    private final String comment;
+
+    private TokenDetails(List<LexicalEntry> lexicalEntries, Map<String, TokenAttribute<?>> attributes, String originalLemma, String originalMorphology,
+        String originalCategory, String comment) {
+      this.lexicalEntries = lexicalEntries;
+      this.attributes = attributes.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(attributes));
+      this.originalLemma = originalLemma;
+      this.originalMorphology = originalMorphology;
+      this.originalCategory = originalCategory;
+      this.comment = comment;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(lexicalEntries, attributes, originalLemma, originalMorphology, originalCategory, comment);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof TokenDetails))
+        return false;
+      TokenDetails other = (TokenDetails) obj;
+      return Objects.equals(lexicalEntries, other.lexicalEntries) && attributes.equals(other.attributes) && Objects.equals(originalLemma, other.originalLemma)
+          && Objects.equals(originalMorphology, other.originalMorphology) && Objects.equals(originalCategory, other.originalCategory)
+          && Objects.equals(comment, other.comment);
+    }
+  }
+}
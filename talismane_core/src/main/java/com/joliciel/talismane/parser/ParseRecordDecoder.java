@@ -0,0 +1,297 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.lexicon.CompactLexicalEntry;
+import com.joliciel.talismane.lexicon.CompactLexicalEntrySupport;
+import com.joliciel.talismane.lexicon.LexicalEntry;
+import com.joliciel.talismane.machineLearning.Decision;
+import com.joliciel.talismane.posTagger.PosTag;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.posTagger.PosTagSet;
+import com.joliciel.talismane.posTagger.PosTaggedToken;
+import com.joliciel.talismane.posTagger.UnknownPosTagException;
+import com.joliciel.talismane.rawText.Sentence;
+import com.joliciel.talismane.sentenceAnnotators.SentenceAnnotator;
+import com.joliciel.talismane.tokeniser.PretokenisedSequence;
+import com.joliciel.talismane.tokeniser.Token;
+
+/**
+ * Builds annotated sentences out of the int arrays produced by
+ * {@link ParseRecordEncoder}. Each call returns new objects, but lexical
+ * entries are interned, so that all tokens with the same form, lemma, pos-tag
+ * and morphology share a single lexical entry.<br>
+ * <br>
+ * Unless constructed with buildLexicalEntries=false, lemmas and morphology are
+ * restored via a lexical entry for each token, morphology being read from its
+ * CoNLL representation.<br>
+ * <br>
+ * A decoder which builds lexical entries should only be used by one thread at
+ * a time, since all of its entries share a single
+ * {@link CompactLexicalEntrySupport}, which is modified whenever a new entry is
+ * built. A decoder which doesn't build lexical entries is thread-safe as long
+ * as the string table isn't modified while decoding.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public final class ParseRecordDecoder {
+  private static final Logger LOG = LoggerFactory.getLogger(ParseRecordDecoder.class);
+  private final List<String> strings;
+  private final boolean predictTransitions;
+  private final String sessionId;
+  private final boolean buildLexicalEntries;
+  private final CompactLexicalEntrySupport lexicalEntrySupport = new CompactLexicalEntrySupport("");
+  private final Map<LexicalEntryKey, LexicalEntry> lexicalEntries = new ConcurrentHashMap<>();
+
+  /**
+   * @param strings
+   *          the string table, where the string with id i is at index i-1
+   * @param predictTransitions
+   *          whether or not to predict the transitions leading to each parse
+   *          configuration
+   */
+  public ParseRecordDecoder(List<String> strings, boolean predictTransitions, String sessionId) {
+    this(strings, predictTransitions, true, sessionId);
+  }
+
+  /**
+   * @param strings
+   *          the string table, where the string with id i is at index i-1
+   * @param predictTransitions
+   *          whether or not to predict the transitions leading to each parse
+   *          configuration
+   * @param buildLexicalEntries
+   *          whether or not to build a lexical entry for each token from its
+   *          lemma and morphology - if not, the caller is responsible for
+   *          setting any lexical entries
+   */
+  public ParseRecordDecoder(List<String> strings, boolean predictTransitions, boolean buildLexicalEntries, String sessionId) {
+    this.strings = strings;
+    this.predictTransitions = predictTransitions;
+    this.buildLexicalEntries = buildLexicalEntries;
+    this.sessionId = sessionId;
+  }
+
+  /**
+   * Build the pos-tag sequence for an encoded sentence, without a root.
+   *
+   * @param sentenceIndex
+   *          the sentence index, for error messages
+   */
+  public PosTagSequence decodePosTagSequence(String text, int[] values, int sentenceIndex) throws TalismaneException, IOException {
+    int n = values.length / ParseRecordEncoder.VALUES_PER_TOKEN;
+    Sentence sentence = new Sentence(text, sessionId);
+    for (SentenceAnnotator sentenceAnnotator : TalismaneSession.get(sessionId).getSentenceAnnotators()) {
+      sentenceAnnotator.annotate(sentence);
+    }
+
+    PretokenisedSequence tokenSequence = new PretokenisedSequence(sentence, sessionId);
+    int end = 0;
+    for (int i = 0; i < n; i++) {
+      int start = end + values[4 * n + i];
+      end = start + values[5 * n + i];
+      Token token = start == end ? tokenSequence.addEmptyToken(start) : tokenSequence.addToken(start, end);
+      String form = this.getString(values[i]);
+      if (form != null && !form.equals(token.getOriginalText()))
+        token.setText(form);
+    }
+    tokenSequence.cleanSlate();
+
+    PosTagSet posTagSet = TalismaneSession.get(sessionId).getPosTagSet();
+    PosTagSequence posTagSequence = new PosTagSequence(tokenSequence);
+    for (int i = 0; i < n; i++) {
+      Token token = tokenSequence.get(i);
+      String posTagCode = this.getString(values[2 * n + i]);
+      PosTag posTag = null;
+      try {
+        posTag = posTagSet.getPosTag(posTagCode);
+      } catch (UnknownPosTagException e) {
+        throw new TalismaneException("Unknown posTag in sentence " + sentenceIndex + ": " + posTagCode);
+      }
+      PosTaggedToken posTaggedToken = new PosTaggedToken(token, new Decision(posTag.getCode()), sessionId);
+
+      int lemmaId = values[n + i];
+      int morphologyId = values[3 * n + i];
+      if (buildLexicalEntries && (lemmaId != 0 || morphologyId != 0)) {
+        LexicalEntryKey key = new LexicalEntryKey(values[i], lemmaId, values[2 * n + i], morphologyId);
+        String lemma = this.getString(lemmaId);
+        String morphology = this.getString(morphologyId);
+        String category = posTag.getCode();
+        LexicalEntry lexicalEntry = lexicalEntries.computeIfAbsent(key, k -> this.buildLexicalEntry(token.getText(), lemma, category, morphology));
+        List<LexicalEntry> tokenLexicalEntries = new ArrayList<>(1);
+        tokenLexicalEntries.add(lexicalEntry);
+        posTaggedToken.setLexicalEntries(tokenLexicalEntries);
+      }
+      posTagSequence.addPosTaggedToken(posTaggedToken);
+    }
+    return posTagSequence;
+  }
+
+  /**
+   * Build the parse configuration for an encoded sentence, including the
+   * manual non-projective dependencies.
+   *
+   * @param sentenceIndex
+   *          the sentence index, for error messages
+   */
+  public ParseConfiguration decodeConfiguration(String text, int[] values, int sentenceIndex) throws TalismaneException, IOException {
+    int n = values.length / ParseRecordEncoder.VALUES_PER_TOKEN;
+    PosTagSequence posTagSequence = this.decodePosTagSequence(text, values, sentenceIndex);
+    posTagSequence.prependRoot();
+
+    TransitionSystem transitionSystem = TalismaneSession.get(sessionId).getTransitionSystem();
+    Set<DependencyArc> dependencies = new TreeSet<>();
+    for (int i = 0; i < n; i++) {
+      int governor = values[6 * n + i];
+      if (governor > 0) {
+        String label = this.getString(values[7 * n + i]);
+        if (label != null && transitionSystem.getDependencyLabels().size() > 1 && label.length() > 0
+            && !transitionSystem.getDependencyLabels().contains(label))
+          throw new UnknownDependencyLabelException("", sentenceIndex, label);
+        dependencies.add(new DependencyArc(posTagSequence.get(governor - 1), posTagSequence.get(i + 1), label));
+      }
+    }
+
+    ParseConfiguration configuration = new ParseConfiguration(posTagSequence);
+    if (this.predictTransitions) {
+      transitionSystem.predictTransitions(configuration, dependencies);
+    } else {
+      for (DependencyArc arc : dependencies) {
+        configuration.addDependency(arc.getHead(), arc.getDependent(), arc.getLabel(), null);
+      }
+    }
+
+    Set<DependencyArc> nonProjDeps = new TreeSet<>();
+    for (int i = 0; i < n; i++) {
+      int governor = values[8 * n + i];
+      if (governor > 0)
+        nonProjDeps.add(new DependencyArc(posTagSequence.get(governor - 1), posTagSequence.get(i + 1), this.getString(values[9 * n + i])));
+    }
+    for (DependencyArc nonProjArc : nonProjDeps) {
+      configuration.addManualNonProjectiveDependency(nonProjArc.getHead(), nonProjArc.getDependent(), nonProjArc.getLabel());
+    }
+    return configuration;
+  }
+
+  private synchronized LexicalEntry buildLexicalEntry(String word, String lemma, String category, String morphology) {
+    CompactLexicalEntry lexicalEntry = new CompactLexicalEntry(lexicalEntrySupport);
+    lexicalEntry.setWord(word);
+    lexicalEntry.setCategory(category);
+    if (lemma != null)
+      lexicalEntry.setLemma(lemma);
+    if (morphology != null)
+      this.readMorphology(morphology, lexicalEntry);
+    return lexicalEntry;
+  }
+
+  /**
+   * Read morphology in the format produced by
+   * {@link PosTaggedToken#getMorphologyForCoNLL()}.
+   */
+  private void readMorphology(String morphology, CompactLexicalEntry lexicalEntry) {
+    for (String item : morphology.split("\\|")) {
+      int equals = item.indexOf('=');
+      if (equals < 0)
+        continue;
+      String key = item.substring(0, equals);
+      for (String value : item.substring(equals + 1).split(",")) {
+        switch (key) {
+        case "s":
+          lexicalEntry.setSubCategory(value);
+          break;
+        case "c":
+          lexicalEntry.addCase(value);
+          break;
+        case "n":
+          lexicalEntry.addNumber(value);
+          break;
+        case "g":
+          lexicalEntry.addGender(value);
+          break;
+        case "t":
+          lexicalEntry.addTense(value);
+          break;
+        case "m":
+          lexicalEntry.addMood(value);
+          break;
+        case "a":
+          lexicalEntry.addAspect(value);
+          break;
+        case "p":
+          lexicalEntry.addPerson(value);
+          break;
+        case "poss":
+          lexicalEntry.addPossessorNumber(value);
+          break;
+        default:
+          LOG.debug("Unknown morphology key: " + key);
+        }
+      }
+    }
+  }
+
+  private String getString(int id) throws TalismaneException {
+    if (id == 0)
+      return null;
+    if (id > strings.size())
+      throw new TalismaneException("Unknown string id: " + id);
+    return strings.get(id - 1);
+  }
+
+  private static final class LexicalEntryKey {
+    private final int form;
+    private final int lemma;
+    private final int posTag;
+    private final int morphology;
+
+    private LexicalEntryKey(int form, int lemma, int posTag, int morphology) {
+      this.form = form;
+      this.lemma = lemma;
+      this.posTag = posTag;
+      this.morphology = morphology;
+    }
+
+    @Override
+    public int hashCode() {
+      return ((form * 31 + lemma) * 31 + posTag) * 31 + morphology;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof LexicalEntryKey))
+        return false;
+      LexicalEntryKey other = (LexicalEntryKey) obj;
+      return form == other.form && lemma == other.lemma && posTag == other.posTag && morphology == other.morphology;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.posTagger.PosTaggedToken;
+import com.joliciel.talismane.tokeniser.Token;
+
+/**
+ * Encodes annotated sentences as arrays of ints, in the token layout described
+ * in {@link BinaryParseFormat}, with all strings replaced by ids in a string
+ * table shared by all sentences encoded by this encoder.<br>
+ * Use {@link ParseRecordDecoder} to get the sentences back.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public final class ParseRecordEncoder {
+  /**
+   * The number of ints per token in an encoded sentence.
+   */
+  public static final int VALUES_PER_TOKEN = 10;
+
+  private final Map<String, Integer> stringIds = new HashMap<>();
+  private final List<String> strings = new ArrayList<>();
+  private int newStringStart = 0;
+
+  /**
+   * Encode a parse configuration, including its dependencies.
+   */
+  public int[] encode(ParseConfiguration configuration) {
+    return this.encode(configuration.getPosTagSequence(), configuration);
+  }
+
+  /**
+   * Encode a pos-tag sequence, with the dependencies from a given parse
+   * configuration, or without dependencies if the configuration is null. Any
+   * root token is skipped.
+   */
+  public int[] encode(PosTagSequence posTagSequence, ParseConfiguration configuration) {
+    List<PosTaggedToken> posTaggedTokens = new ArrayList<>(posTagSequence.size());
+    for (PosTaggedToken posTaggedToken : posTagSequence) {
+      if (!posTaggedToken.isRoot())
+        posTaggedTokens.add(posTaggedToken);
+    }
+    int n = posTaggedTokens.size();
+    int[] values = new int[n * VALUES_PER_TOKEN];
+    int previousEnd = 0;
+    for (int i = 0; i < n; i++) {
+      PosTaggedToken posTaggedToken = posTaggedTokens.get(i);
+      Token token = posTaggedToken.getToken();
+      String morphology = posTaggedToken.getMorphologyForCoNLL();
+      values[i] = this.getStringId(token.getText());
+      values[n + i] = this.getStringId(posTaggedToken.getLemma());
+      values[2 * n + i] = this.getStringId(posTaggedToken.getTag().getCode());
+      values[3 * n + i] = this.getStringId(morphology == null || morphology.length() == 0 ? null : morphology);
+      values[4 * n + i] = token.getStartIndex() - previousEnd;
+      values[5 * n + i] = token.getEndIndex() - token.getStartIndex();
+      previousEnd = token.getEndIndex();
+      if (configuration != null) {
+        DependencyArc arc = configuration.getGoverningDependency(posTaggedToken, true);
+        DependencyArc nonProjectiveArc = configuration.getGoverningDependency(posTaggedToken, false);
+        values[6 * n + i] = arc == null ? 0 : arc.getHead().getToken().getIndex() + 1;
+        values[7 * n + i] = this.getStringId(arc == null ? null : arc.getLabel());
+        values[8 * n + i] = nonProjectiveArc == null ? 0 : nonProjectiveArc.getHead().getToken().getIndex() + 1;
+        values[9 * n + i] = this.getStringId(nonProjectiveArc == null ? null : nonProjectiveArc.getLabel());
+      }
+    }
+    return values;
+  }
+
+  private int getStringId(String string) {
+    if (string == null)
+      return 0;
+    Integer id = stringIds.get(string);
+    if (id == null) {
+      strings.add(string);
+      id = strings.size();
+      stringIds.put(string, id);
+    }
+    return id;
+  }
+
+  /**
+   * The strings added to the string table since the last call to this method,
+   * in id order.
+   */
+  public List<String> takeNewStrings() {
+    List<String> newStrings = strings.subList(newStringStart, strings.size());
+    newStringStart = strings.size();
+    return newStrings;
+  }
+
+  /**
+   * The full string table, where the string with id i is at index i-1.
+   */
+  public List<String> getStrings() {
+    return strings;
+  }
+}
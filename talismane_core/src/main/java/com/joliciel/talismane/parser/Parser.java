@@ -97,18 +97,19 @@ public interface Parser {
   public TransitionSystem getTransitionSystem();
 
   /**
-   * The maximum time alloted per sentence for parse tree analysis, in seconds.
-   * Will be ignored if set to 0. If analysis jumps out because of time-out,
-   * there will be a parse-forest instead of a parse-tree, with several nodes
-   * left unattached.
+   * The maximum time alloted per sentence for parse tree analysis with the
+   * full beam, in seconds. Will be ignored if set to 0. Once this time is
+   * exceeded, the beam is progressively narrowed down to a width of 1.
    */
   public int getMaxAnalysisTimePerSentence();
 
   /**
-   * The minimum amount of remaining free memory to continue a parse, in
-   * kilobytes. Will be ignored is set to 0. If analysis jumps out because of
-   * free memory descends below this limit, there will be a parse-forest instead
-   * of a parse-tree, with several nodes left unattached.
+   * The minimum amount of remaining free memory to continue a parse with the
+   * full beam, in kilobytes. Will be ignored is set to 0. Below this limit, the
+   * beam is progressively narrowed down to a width of 1. If analysis jumps out
+   * because free memory is still below this limit with a width of 1, there will
+   * be a parse-forest instead of a parse-tree, with several nodes left
+   * unattached.
    */
   public int getMinFreeMemory();
 
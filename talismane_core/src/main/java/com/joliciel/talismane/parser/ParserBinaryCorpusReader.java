@@ -0,0 +1,246 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.corpus.AbstractAnnotatedCorpusReader;
+import com.joliciel.talismane.parser.output.BinaryParseWriter;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.rawText.Sentence;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.typesafe.config.Config;
+
+/**
+ * A corpus reader for the compact binary format described in
+ * {@link BinaryParseFormat}, as written by {@link BinaryParseWriter}.<br>
+ * <br>
+ * Since sentences, token offsets, pos-tags and dependencies are read directly
+ * from the stream, no input-pattern, corpus rules or token filters are
+ * applied. Sentences are built by a {@link ParseRecordDecoder}. The
+ * non-projective dependencies are always read.<br>
+ * <br>
+ * The input encoding must be the encoding with which the stream was written,
+ * typically ISO-8859-1.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class ParserBinaryCorpusReader extends AbstractAnnotatedCorpusReader implements ParserAnnotatedCorpusReader {
+  private static final Logger LOG = LoggerFactory.getLogger(ParserBinaryCorpusReader.class);
+
+  private final Reader reader;
+  private final boolean predictTransitions;
+  private ParseRecordDecoder decoder;
+
+  private final char[] buffer = new char[8192];
+  private int bufferPos = 0;
+  private int bufferLength = 0;
+  private byte[] stringBytes = new byte[256];
+
+  private List<String> strings = new ArrayList<>();
+  private int sentenceCount = 0;
+  private ParseConfiguration configuration = null;
+
+  /**
+   * Reads the values described in
+   * {@link AbstractAnnotatedCorpusReader#AbstractAnnotatedCorpusReader(Config, String)}
+   * , and in addition:<br>
+   * - predict-transitions: whether or not an attempt should be made to predict
+   * transitions<br>
+   */
+  public ParserBinaryCorpusReader(Reader reader, Config config, String sessionId) {
+    super(config, sessionId);
+    this.reader = reader;
+    this.predictTransitions = config.getBoolean("predict-transitions");
+    this.decoder = new ParseRecordDecoder(strings, predictTransitions, sessionId);
+  }
+
+  @Override
+  public boolean hasNextSentence() throws TalismaneException, IOException {
+    if (this.getMaxSentenceCount() > 0 && sentenceCount >= this.getMaxSentenceCount()) {
+      // we've reached the end, do nothing
+    } else {
+      while (configuration == null) {
+        int recordType = this.readByte();
+        if (recordType < 0)
+          break;
+
+        if (recordType == BinaryParseFormat.HEADER[0]) {
+          this.readHeader();
+          continue;
+        }
+        if (recordType != BinaryParseFormat.SENTENCE)
+          throw new TalismaneException("Unexpected record type " + recordType + " in binary parse stream");
+
+        int newStringCount = this.readVarInt();
+        for (int i = 0; i < newStringCount; i++)
+          strings.add(this.readString());
+
+        String text = this.readString();
+        int n = this.readVarInt();
+        int[] values = new int[n * ParseRecordEncoder.VALUES_PER_TOKEN];
+        for (int i = 0; i < values.length; i++)
+          values[i] = this.readVarInt();
+
+        boolean includeMe = true;
+
+        // check cross-validation
+        if (this.getCrossValidationSize() > 0) {
+          if (this.getIncludeIndex() >= 0) {
+            if (sentenceCount % this.getCrossValidationSize() != this.getIncludeIndex()) {
+              includeMe = false;
+            }
+          } else if (this.getExcludeIndex() >= 0) {
+            if (sentenceCount % this.getCrossValidationSize() == this.getExcludeIndex()) {
+              includeMe = false;
+            }
+          }
+        }
+
+        if (this.getStartSentence() > sentenceCount) {
+          includeMe = false;
+        }
+
+        sentenceCount++;
+        LOG.debug("sentenceCount: " + sentenceCount);
+
+        if (includeMe)
+          configuration = decoder.decodeConfiguration(text, values, sentenceCount);
+      }
+    }
+    return configuration != null;
+  }
+
+  private void readHeader() throws TalismaneException, IOException {
+    for (int i = 1; i < BinaryParseFormat.HEADER.length; i++) {
+      if (this.readByte() != BinaryParseFormat.HEADER[i])
+        throw new TalismaneException("Not a binary parse stream");
+    }
+    int version = this.readVarInt();
+    if (version != BinaryParseFormat.VERSION)
+      throw new TalismaneException("Unsupported binary parse format version: " + version);
+    // a new string table: interned lexical entries can't be reused
+    strings = new ArrayList<>();
+    decoder = new ParseRecordDecoder(strings, predictTransitions, sessionId);
+  }
+
+  private String readString() throws TalismaneException, IOException {
+    int length = this.readVarInt();
+    if (stringBytes.length < length)
+      stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+    for (int i = 0; i < length; i++)
+      stringBytes[i] = (byte) this.readRequiredByte();
+    return new String(stringBytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private int readVarInt() throws TalismaneException, IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = this.readRequiredByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return value;
+    }
+    throw new TalismaneException("Malformed integer in binary parse stream");
+  }
+
+  private int readRequiredByte() throws TalismaneException, IOException {
+    int b = this.readByte();
+    if (b < 0)
+      throw new TalismaneException("Unexpected end of binary parse stream");
+    return b;
+  }
+
+  private int readByte() throws TalismaneException, IOException {
+    if (bufferPos == bufferLength) {
+      bufferLength = reader.read(buffer);
+      bufferPos = 0;
+      if (bufferLength <= 0) {
+        bufferLength = 0;
+        return -1;
+      }
+    }
+    char c = buffer[bufferPos++];
+    if (c > 0xFF)
+      throw new TalismaneException("Character U+" + Integer.toHexString(c).toUpperCase()
+          + " in binary parse stream: the input encoding must be the one with which the stream was written, typically ISO-8859-1");
+    return c;
+  }
+
+  @Override
+  public ParseConfiguration nextConfiguration() throws TalismaneException, IOException {
+    ParseConfiguration nextConfiguration = null;
+    if (this.hasNextSentence()) {
+      nextConfiguration = configuration;
+      configuration = null;
+    }
+    return nextConfiguration;
+  }
+
+  @Override
+  public PosTagSequence nextPosTagSequence() throws TalismaneException, IOException {
+    ParseConfiguration nextConfiguration = this.nextConfiguration();
+    return nextConfiguration == null ? null : nextConfiguration.getPosTagSequence();
+  }
+
+  @Override
+  public TokenSequence nextTokenSequence() throws TalismaneException, IOException {
+    PosTagSequence posTagSequence = this.nextPosTagSequence();
+    return posTagSequence == null ? null : posTagSequence.getTokenSequence();
+  }
+
+  @Override
+  public Sentence nextSentence() throws TalismaneException, IOException {
+    TokenSequence tokenSequence = this.nextTokenSequence();
+    return tokenSequence == null ? null : tokenSequence.getSentence();
+  }
+
+  @Override
+  public boolean isNewParagraph() {
+    return false;
+  }
+
+  @Override
+  public Map<String, String> getCharacteristics() {
+    Map<String, String> attributes = super.getCharacteristics();
+    attributes.put("tagset", TalismaneSession.get(sessionId).getPosTagSet().getName());
+    attributes.put("transitionSystem", TalismaneSession.get(sessionId).getTransitionSystem().getClass().getSimpleName());
+    return attributes;
+  }
+
+  /**
+   * Should an attempt be made to the predict the transitions that led to this
+   * configuration, or should dependencies simply be added with null
+   * transitions.
+   */
+  public boolean isPredictTransitions() {
+    return predictTransitions;
+  }
+}
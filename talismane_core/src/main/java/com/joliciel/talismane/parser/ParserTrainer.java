@@ -65,6 +65,14 @@ public class ParserTrainer {
   private final Map<String, List<String>> descriptors;
 
   public ParserTrainer(Reader reader, String sessionId) throws IOException, ClassNotFoundException, ReflectiveOperationException {
+    this(ParserAnnotatedCorpusReader.getCorpusReader(reader, ConfigFactory.load().getConfig("talismane.core." + sessionId + ".parser.train"), sessionId), sessionId);
+  }
+
+  /**
+   * Train from an existing corpus reader, e.g. one read from a
+   * {@link ParseCorpusSnapshot}.
+   */
+  public ParserTrainer(ParserAnnotatedCorpusReader corpusReader, String sessionId) throws IOException {
     Config config = ConfigFactory.load();
     this.parserConfig = config.getConfig("talismane.core." + sessionId + ".parser");
     this.sessionId = sessionId;
@@ -83,7 +91,6 @@ public class ParserTrainer {
       }
     }
     descriptors.put(MachineLearningModel.FEATURE_DESCRIPTOR_KEY, featureDescriptors);
-    ParserAnnotatedCorpusReader corpusReader = ParserAnnotatedCorpusReader.getCorpusReader(reader, parserConfig.getConfig("train"), sessionId);
 
     // add descriptors for various filters
     // these are for reference purpose only, as we no longer read filters
@@ -100,12 +107,11 @@ public class ParserTrainer {
     eventStream = new ParseEventStream(corpusReader, features, skipImpossibleSentences);
   }
 
+  /**
+   * Train the model and write it to the configured model file.
+   */
   public ClassificationModel train() throws TalismaneException, IOException {
-    ModelTrainerFactory factory = new ModelTrainerFactory();
-    ClassificationModelTrainer trainer = factory.constructTrainer(parserConfig.getConfig("train.machine-learning"));
-
-    ClassificationModel model = trainer.trainModel(eventStream, descriptors);
-    model.setExternalResources(TalismaneSession.get(sessionId).getExternalResourceFinder().getExternalResources());
+    ClassificationModel model = this.trainModel();
 
     File modelDir = modelFile.getParentFile();
     if (modelDir != null)
@@ -113,4 +119,16 @@ public class ParserTrainer {
     model.persist(modelFile);
     return model;
   }
+
+  /**
+   * Train the model, without writing it anywhere.
+   */
+  public ClassificationModel trainModel() throws TalismaneException, IOException {
+    ModelTrainerFactory factory = new ModelTrainerFactory();
+    ClassificationModelTrainer trainer = factory.constructTrainer(parserConfig.getConfig("train.machine-learning"));
+
+    ClassificationModel model = trainer.trainModel(eventStream, descriptors);
+    model.setExternalResources(TalismaneSession.get(sessionId).getExternalResourceFinder().getExternalResources());
+    return model;
+  }
 }
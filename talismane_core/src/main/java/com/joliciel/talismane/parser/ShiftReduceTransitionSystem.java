@@ -40,7 +40,7 @@ import com.joliciel.talismane.posTagger.PosTaggedToken;
  */
 public class ShiftReduceTransitionSystem extends AbstractTransitionSystem {
   private static final Logger LOG = LoggerFactory.getLogger(ShiftReduceTransitionSystem.class);
-  private transient Set<Transition> transitions = null;
+  private volatile Set<Transition> transitions = null;
 
   @Override
   public void predictTransitions(ParseConfiguration configuration, Set<DependencyArc> targetDependencies)
@@ -158,14 +158,11 @@ public class ShiftReduceTransitionSystem extends AbstractTransitionSystem {
   }
 
   @Override
-  public Transition getTransitionForCode(String code) throws UnknownDependencyLabelException, UnknownTransitionException {
+  protected AbstractTransition createTransition(String code) throws UnknownDependencyLabelException, UnknownTransitionException {
     AbstractTransition transition = null;
     String label = null;
     if (code.indexOf('[') >= 0) {
-      label = code.substring(code.indexOf('[') + 1, (code.indexOf(']')));
-      if (this.getDependencyLabels().size() > 0 && !this.getDependencyLabels().contains(label)) {
-        throw new UnknownDependencyLabelException(label);
-      }
+      label = this.checkLabel(code.substring(code.indexOf('[') + 1, (code.indexOf(']'))));
     }
     if (code.startsWith("LeftArc")) {
       transition = new LeftArcTransition(label);
@@ -184,6 +181,7 @@ public class ShiftReduceTransitionSystem extends AbstractTransitionSystem {
 
   @Override
   public Set<Transition> getTransitions() {
+    Set<Transition> transitions = this.transitions;
     if (transitions == null) {
       try {
         transitions = new TreeSet<Transition>();
@@ -197,8 +195,14 @@ public class ShiftReduceTransitionSystem extends AbstractTransitionSystem {
         LOG.error(e.getMessage(), e);
         throw new RuntimeException(e);
       }
+      this.transitions = transitions;
     }
     return transitions;
   }
 
+  @Override
+  protected void clearTransitions() {
+    this.transitions = null;
+  }
+
 }
@@ -42,6 +42,8 @@ import com.typesafe.config.ConfigFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.talismane.AdaptiveBeam;
+import com.joliciel.talismane.AnalysisBudget;
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.machineLearning.ClassificationModel;
@@ -91,6 +93,8 @@ public class TransitionBasedParser implements NonDeterministicParser {
   private final List<ClassificationObserver> observers;
   private final int maxAnalysisTimePerSentence;
   private final int minFreeMemory;
+  private final AnalysisBudget analysisBudget;
+  private final AdaptiveBeam adaptiveBeam;
   private static final int KILOBYTE = 1024;
 
   private List<ParserRule> parserRules;
@@ -98,9 +102,11 @@ public class TransitionBasedParser implements NonDeterministicParser {
   private List<ParserRule> parserNegativeRules;
 
   public TransitionBasedParser(String sessionId) throws IOException, ClassNotFoundException, TalismaneException {
-    Config config = ConfigFactory.load();
-    Config parserConfig = config.getConfig("talismane.core." + sessionId + ".parser");
+    this(getModel(sessionId), sessionId);
+  }
 
+  private static ClassificationModel getModel(String sessionId) throws IOException, ClassNotFoundException {
+    Config config = ConfigFactory.load();
     String configPath = "talismane.core." + sessionId + ".parser.model";
     String modelFilePath = config.getString(configPath);
     LOG.debug("Getting parser model from " + modelFilePath);
@@ -111,6 +117,16 @@ public class TransitionBasedParser implements NonDeterministicParser {
       model = factory.getClassificationModel(new ZipInputStream(tokeniserModelFile));
       modelMap.put(modelFilePath, model);
     }
+    return model;
+  }
+
+  /**
+   * Build a parser for a model which was not read from the configuration,
+   * e.g. a model which was just trained.
+   */
+  public TransitionBasedParser(ClassificationModel model, String sessionId) throws IOException, TalismaneException {
+    Config config = ConfigFactory.load();
+    Config parserConfig = config.getConfig("talismane.core." + sessionId + ".parser");
 
     int beamWidth = parserConfig.getInt("beam-width");
     boolean propagatePosTaggerBeam = parserConfig.getBoolean("propagate-pos-tagger-beam");
@@ -127,6 +143,8 @@ public class TransitionBasedParser implements NonDeterministicParser {
     this.parseComparisonStrategy = parseComparisonStrategy;
     this.maxAnalysisTimePerSentence = maxAnalysisTimePerSentence;
     this.minFreeMemory = minFreeMemory;
+    this.analysisBudget = new AnalysisBudget(parserConfig);
+    this.adaptiveBeam = new AdaptiveBeam(parserConfig);
     this.transitionSystem = TransitionSystem.getTransitionSystem(model);
     this.decisionMaker = model.getDecisionMaker();
 
@@ -155,7 +173,7 @@ public class TransitionBasedParser implements NonDeterministicParser {
     List<ParserRule> parserRules = new ArrayList<>();
     ParserFeatureParser featureParser = new ParserFeatureParser(sessionId);
 
-    configPath = "talismane.core." + sessionId + ".parser.rules";
+    String configPath = "talismane.core." + sessionId + ".parser.rules";
     List<String> textFilterPaths = config.getStringList(configPath);
     for (String path : textFilterPaths) {
       LOG.debug("From: " + path);
@@ -178,7 +196,7 @@ public class TransitionBasedParser implements NonDeterministicParser {
 
   TransitionBasedParser(DecisionMaker decisionMaker, TransitionSystem transitionSystem, Set<ParseConfigurationFeature<?>> parseFeatures, int beamWidth,
       boolean propagatePosTaggerBeam, ParseComparisonStrategy parseComparisonStrategy, int maxAnalysisTimePerSentence, int minFreeMemory,
-      String sessionId) {
+      AdaptiveBeam adaptiveBeam, String sessionId) {
     this.decisionMaker = decisionMaker;
     this.transitionSystem = transitionSystem;
     this.parseFeatures = parseFeatures;
@@ -187,6 +205,8 @@ public class TransitionBasedParser implements NonDeterministicParser {
     this.parseComparisonStrategy = parseComparisonStrategy;
     this.maxAnalysisTimePerSentence = maxAnalysisTimePerSentence;
     this.minFreeMemory = minFreeMemory;
+    this.analysisBudget = new AnalysisBudget(maxAnalysisTimePerSentence * 1000L, minFreeMemory * (long) KILOBYTE);
+    this.adaptiveBeam = adaptiveBeam;
     this.sessionId = sessionId;
     this.observers = new ArrayList<>();
   }
@@ -207,6 +227,8 @@ public class TransitionBasedParser implements NonDeterministicParser {
 
     this.maxAnalysisTimePerSentence = parser.maxAnalysisTimePerSentence;
     this.minFreeMemory = parser.minFreeMemory;
+    this.analysisBudget = parser.analysisBudget;
+    this.adaptiveBeam = parser.adaptiveBeam;
   }
 
   @Override
@@ -228,11 +250,9 @@ public class TransitionBasedParser implements NonDeterministicParser {
       posTagSequences.add(input.get(0));
     }
 
-    long startTime = System.currentTimeMillis();
-    int maxAnalysisTimeMilliseconds = maxAnalysisTimePerSentence * 1000;
-    int minFreeMemoryBytes = minFreeMemory * KILOBYTE;
-
     TokenSequence tokenSequence = posTagSequences.get(0).getTokenSequence();
+    AnalysisBudget.SentenceBudget sentenceBudget = analysisBudget.start(tokenSequence.getSentence());
+    AdaptiveBeam.Search<Integer> adaptiveSearch = adaptiveBeam.start();
 
     TreeMap<Integer, PriorityQueue<ParseConfiguration>> heaps = new TreeMap<>();
 
@@ -266,7 +286,7 @@ public class TransitionBasedParser implements NonDeterministicParser {
       backupHeap = new PriorityQueue<>();
 
       // we jump out when either (a) all tokens have been attached or
-      // (b) we go over the max alloted time
+      // (b) we run out of memory even with a beam width of 1
       ParseConfiguration topConf = currentHeap.peek();
       if (topConf.isTerminal()) {
         LOG.trace("Exiting with terminal heap: " + heapEntry.getKey() + ", size: " + heapEntry.getValue().size());
@@ -279,29 +299,21 @@ public class TransitionBasedParser implements NonDeterministicParser {
         finished = true;
       }
 
-      long analysisTime = System.currentTimeMillis() - startTime;
-      if (maxAnalysisTimePerSentence > 0 && analysisTime > maxAnalysisTimeMilliseconds) {
-        LOG.info("Parse tree analysis took too long for sentence: " + tokenSequence.getSentence().getText());
-        LOG.info("Breaking out after " + maxAnalysisTimePerSentence + " seconds.");
+      // adapt the beam to the decision confidence, and narrow it if we go
+      // over the max alloted time or memory
+      int currentBeamWidth = sentenceBudget.getBeamWidth(adaptiveSearch.getBeamWidth(currentHeapIndex, this.beamWidth));
+      if (sentenceBudget.isExhausted()) {
+        LOG.info("Breaking out of parse, leaving a parse forest for sentence: " + tokenSequence.getSentence().getText());
         finished = true;
       }
 
-      if (minFreeMemory > 0) {
-        long freeMemory = Runtime.getRuntime().freeMemory();
-        if (freeMemory < minFreeMemoryBytes) {
-          LOG.info("Not enough memory left to parse sentence: " + tokenSequence.getSentence().getText());
-          LOG.info("Min free memory (bytes):" + minFreeMemoryBytes);
-          LOG.info("Current free memory (bytes): " + freeMemory);
-          finished = true;
-        }
-      }
-
       if (finished) {
         break;
       }
 
       // limit the breadth to K
-      int maxSequences = currentHeap.size() > this.beamWidth ? this.beamWidth : currentHeap.size();
+      int maxSequences = currentHeap.size() > currentBeamWidth ? currentBeamWidth : currentHeap.size();
+      adaptiveSearch.explored(maxSequences);
 
       int j = 0;
       while (currentHeap.size() > 0) {
@@ -405,9 +417,31 @@ public class TransitionBasedParser implements NonDeterministicParser {
           }
         } // has a positive rule been applied?
 
-        boolean transitionApplied = false;
         TransitionSystem transitionSystem = TalismaneSession.get(sessionId).getTransitionSystem();
 
+        // only keep the transitions which can be applied to this
+        // configuration, so that pruning the beam below always keeps the
+        // best valid transition
+        List<Decision> applicableDecisions = new ArrayList<>(decisions.size());
+        for (Decision decision : decisions) {
+          Transition transition = transitionSystem.getTransitionForCode(decision.getOutcome());
+          if (transition.checkPreconditions(history)) {
+            applicableDecisions.add(decision);
+          } else if (LOG.isTraceEnabled()) {
+            LOG.trace("Cannot apply transition " + transition.getCode() + ": doesn't meet pre-conditions");
+          }
+        }
+        if (applicableDecisions.isEmpty()) {
+          // just in case we run out of both heaps and analyses, we build
+          // this backup heap
+          backupHeap.add(history);
+        }
+
+        double topProbability = AdaptiveBeam.getTopProbability(applicableDecisions);
+        decisions = adaptiveBeam.prune(applicableDecisions);
+
+        boolean transitionApplied = false;
+
         // add new configuration to the heap, one for each valid
         // transition
 
@@ -425,44 +459,37 @@ public class TransitionBasedParser implements NonDeterministicParser {
           if (LOG.isTraceEnabled())
             LOG.trace("Outcome: " + transition.getCode() + ", " + decision.getProbability());
 
-          if (transition.checkPreconditions(history)) {
-            transitionApplied = true;
-            ParseConfiguration configuration = new ParseConfiguration(history);
-            if (decision.isStatistical())
-              configuration.addDecision(decision);
-            transition.apply(configuration);
-
-            int nextHeapIndex = parseComparisonStrategy.getComparisonIndex(configuration) * 1000;
-            if (configuration.isTerminal()) {
-              nextHeapIndex = Integer.MAX_VALUE;
-            } else {
-              while (nextHeapIndex <= currentHeapIndex)
-                nextHeapIndex++;
-            }
-
-            PriorityQueue<ParseConfiguration> nextHeap = heaps.get(nextHeapIndex);
-            if (nextHeap == null) {
-              if (configuration.isTerminal())
-                nextHeap = terminalHeap;
-              else
-                nextHeap = new PriorityQueue<>();
-              heaps.put(nextHeapIndex, nextHeap);
-              if (LOG.isTraceEnabled())
-                LOG.trace("Created heap with index: " + nextHeapIndex);
-            }
-            nextHeap.add(configuration);
-            if (LOG.isTraceEnabled()) {
-              LOG.trace("Added configuration with score " + configuration.getScore() + " to heap: " + nextHeapIndex + ", total size: " + nextHeap.size());
-            }
+          transitionApplied = true;
+          ParseConfiguration configuration = new ParseConfiguration(history);
+          if (decision.isStatistical())
+            configuration.addDecision(decision);
+          transition.apply(configuration);
 
-            configuration.clearMemory();
+          int nextHeapIndex = parseComparisonStrategy.getComparisonIndex(configuration) * 1000;
+          if (configuration.isTerminal()) {
+            nextHeapIndex = Integer.MAX_VALUE;
           } else {
+            while (nextHeapIndex <= currentHeapIndex)
+              nextHeapIndex++;
+          }
+
+          PriorityQueue<ParseConfiguration> nextHeap = heaps.get(nextHeapIndex);
+          if (nextHeap == null) {
+            if (configuration.isTerminal())
+              nextHeap = terminalHeap;
+            else
+              nextHeap = new PriorityQueue<>();
+            heaps.put(nextHeapIndex, nextHeap);
             if (LOG.isTraceEnabled())
-              LOG.trace("Cannot apply transition: doesn't meet pre-conditions");
-            // just in case the we run out of both heaps and
-            // analyses, we build this backup heap
-            backupHeap.add(history);
-          } // does transition meet pre-conditions?
+              LOG.trace("Created heap with index: " + nextHeapIndex);
+          }
+          nextHeap.add(configuration);
+          adaptiveSearch.record(nextHeapIndex, topProbability);
+          if (LOG.isTraceEnabled()) {
+            LOG.trace("Added configuration with score " + configuration.getScore() + " to heap: " + nextHeapIndex + ", total size: " + nextHeap.size());
+          }
+
+          configuration.clearMemory();
         } // next transition
 
         if (transitionApplied) {
@@ -534,6 +561,13 @@ public class TransitionBasedParser implements NonDeterministicParser {
     return beamWidth;
   }
 
+  /**
+   * The adaptive beam settings and statistics for this parser.
+   */
+  public AdaptiveBeam getAdaptiveBeam() {
+    return adaptiveBeam;
+  }
+
   @Override
   public void addObserver(ClassificationObserver observer) {
     this.observers.add(observer);
@@ -47,7 +47,8 @@ public interface TransitionSystem {
       throws UnknownDependencyLabelException, NonPredictableParseTreeException, CircularDependencyException;
 
   /**
-   * Get the transition corresponding to a particular code.
+   * Get the transition corresponding to a particular code. The same instance
+   * is returned each time for a given code.
    * 
    * @throws UnknownDependencyLabelException
    *           if the code includes an unknown dependency label
@@ -53,6 +53,21 @@ public interface ParseEvaluationObserver {
    */
   public void onParseEnd(ParseConfiguration realConfiguration, List<ParseConfiguration> guessedConfigurations) throws TalismaneException, IOException;
 
+  /**
+   * Called instead of {@link #onParseEnd(ParseConfiguration, List)} when
+   * sentences are parsed concurrently, in which case
+   * {@link #onParseStart(ParseConfiguration, List)} is called just before this
+   * method, once parsing is already complete. Sentences are still observed in
+   * corpus order.
+   * 
+   * @param parseTime
+   *          the time spent parsing this sentence, in milliseconds
+   */
+  public default void onParseEnd(ParseConfiguration realConfiguration, List<ParseConfiguration> guessedConfigurations, long parseTime)
+      throws TalismaneException, IOException {
+    this.onParseEnd(realConfiguration, guessedConfigurations);
+  }
+
   /**
    * Called when full evaluation has completed.
    * 
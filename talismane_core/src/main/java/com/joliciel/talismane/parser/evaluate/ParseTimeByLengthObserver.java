@@ -43,6 +43,11 @@ public class ParseTimeByLengthObserver implements ParseEvaluationObserver {
   @Override
   public void onParseEnd(ParseConfiguration realConfiguration, List<ParseConfiguration> guessedConfigurations) {
     long totalTime = System.currentTimeMillis() - startTime;
+    this.onParseEnd(realConfiguration, guessedConfigurations, totalTime);
+  }
+
+  @Override
+  public void onParseEnd(ParseConfiguration realConfiguration, List<ParseConfiguration> guessedConfigurations, long totalTime) {
     int length = realConfiguration.getPosTagSequence().size();
     DescriptiveStatistics stats = timeStatsPerLength.get(length);
     if (stats == null) {
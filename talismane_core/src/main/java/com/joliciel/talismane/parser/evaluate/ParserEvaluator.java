@@ -18,9 +18,14 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.parser.evaluate;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,6 +33,8 @@ import com.typesafe.config.ConfigFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.talismane.AdaptiveBeam;
+import com.joliciel.talismane.OrderedTaskRunner;
 import com.joliciel.talismane.Talismane.Module;
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.TalismaneSession;
@@ -36,6 +43,8 @@ import com.joliciel.talismane.parser.ParseConfiguration;
 import com.joliciel.talismane.parser.Parser;
 import com.joliciel.talismane.parser.ParserAnnotatedCorpusReader;
 import com.joliciel.talismane.parser.Parsers;
+import com.joliciel.talismane.parser.TransitionBasedParser;
+import com.joliciel.talismane.posTagger.ForwardStatisticalPosTagger;
 import com.joliciel.talismane.posTagger.NonDeterministicPosTagger;
 import com.joliciel.talismane.posTagger.PosTagSequence;
 import com.joliciel.talismane.posTagger.PosTagger;
@@ -44,16 +53,28 @@ import com.joliciel.talismane.rawText.Sentence;
 import com.joliciel.talismane.sentenceAnnotators.SentenceAnnotator;
 import com.joliciel.talismane.tokeniser.TokenSequence;
 import com.joliciel.talismane.tokeniser.Tokeniser;
+import com.joliciel.talismane.utils.CSVFormatter;
 import com.typesafe.config.Config;
 
 /**
- * Evaluate a parser.
+ * Evaluate a parser.<br>
+ * <br>
+ * Besides the evaluation observers, the throughput (sentences and tokens per
+ * second) and the average beam width actually explored are reported at the end
+ * of evaluation, so that the accuracy/throughput trade-off of different beam
+ * settings (including the adaptive beam) can be compared.<br>
+ * <br>
+ * Sentences can be analysed on several threads, as configured in
+ * talismane.core.[sessionId].parser.evaluate.threads, in which case observers
+ * still receive the sentences in corpus order.
  * 
  * @author Assaf Urieli
  *
  */
 public class ParserEvaluator {
   private static final Logger LOG = LoggerFactory.getLogger(ParserEvaluator.class);
+  private static final CSVFormatter CSV = new CSVFormatter();
+  private static final int PENDING_SENTENCES_PER_THREAD = 4;
   private final ParserAnnotatedCorpusReader corpusReader;
   private final Parser parser;
   private final PosTagger posTagger;
@@ -61,10 +82,13 @@ public class ParserEvaluator {
 
   private final List<ParseEvaluationObserver> observers;
   private final String sessionId;
+  private final File outDir;
+  private int threadCount = 1;
 
   public ParserEvaluator(Reader evalReader, File outDir, String sessionId)
       throws ClassNotFoundException, IOException, ReflectiveOperationException, TalismaneException {
     this.sessionId = sessionId;
+    this.outDir = outDir;
     Config config = ConfigFactory.load();
     Config parserConfig = config.getConfig("talismane.core." + sessionId + ".parser");
     Config evalConfig = parserConfig.getConfig("evaluate");
@@ -73,6 +97,7 @@ public class ParserEvaluator {
     this.corpusReader = ParserAnnotatedCorpusReader.getCorpusReader(evalReader, parserConfig.getConfig("input"), sessionId);
 
     this.parser = Parsers.getParser(sessionId);
+    this.threadCount = OrderedTaskRunner.getThreadCount(evalConfig.getInt("threads"));
 
     Module startModule = Module.valueOf(evalConfig.getString("start-module"));
     if (startModule == Module.tokeniser) {
@@ -95,6 +120,7 @@ public class ParserEvaluator {
     this.posTagger = posTagger;
     this.tokeniser = tokeniser;
     this.observers = new ArrayList<>();
+    this.outDir = null;
   }
 
   /**
@@ -105,72 +131,181 @@ public class ParserEvaluator {
    * @throws IOException
    */
   public void evaluate() throws TalismaneException, IOException {
-    while (corpusReader.hasNextSentence()) {
-      ParseConfiguration realConfiguration = corpusReader.nextConfiguration();
-
-      List<PosTagSequence> posTagSequences = null;
-      List<TokenSequence> tokenSequences = null;
-      if (tokeniser != null) {
-        if (posTagger == null)
-          throw new TalismaneException("Cannot evaluate with tokeniser but no pos-tagger");
-
-        Sentence sentence = realConfiguration.getPosTagSequence().getTokenSequence().getSentence();
-
-        // annotate the sentence for pre token filters
-        for (SentenceAnnotator annotator : TalismaneSession.get(sessionId).getSentenceAnnotators()) {
-          annotator.annotate(sentence);
-          if (LOG.isTraceEnabled()) {
-            LOG.trace("TokenFilter: " + annotator);
-            LOG.trace("annotations: " + sentence.getAnnotations());
-          }
+    if (tokeniser != null && posTagger == null)
+      throw new TalismaneException("Cannot evaluate with tokeniser but no pos-tagger");
+
+    long startTime = System.currentTimeMillis();
+    int sentenceCount = 0;
+    int tokenCount = 0;
+    if (threadCount <= 1) {
+      while (corpusReader.hasNextSentence()) {
+        ParseConfiguration realConfiguration = corpusReader.nextConfiguration();
+        sentenceCount++;
+        // don't count the root
+        tokenCount += realConfiguration.getPosTagSequence().size() - 1;
+
+        List<PosTagSequence> posTagSequences = this.tagSentence(realConfiguration, tokeniser, posTagger);
+
+        for (ParseEvaluationObserver observer : this.observers) {
+          observer.onParseStart(realConfiguration, posTagSequences);
         }
 
-        tokenSequences = tokeniser.tokenise(sentence);
-      } else {
-        tokenSequences = new ArrayList<TokenSequence>();
-        PosTagSequence posTagSequence = realConfiguration.getPosTagSequence().clonePosTagSequence();
-        posTagSequence.removeRoot();
-        tokenSequences.add(posTagSequence.getTokenSequence());
+        List<ParseConfiguration> guessedConfigurations = this.parseSentence(parser, posTagSequences);
+
+        for (ParseEvaluationObserver observer : this.observers) {
+          observer.onParseEnd(realConfiguration, guessedConfigurations);
+        }
+      } // next sentence
+    } else {
+      // each thread analyses with its own clones, sharing the models
+      ThreadLocal<Parser> parsers = ThreadLocal.withInitial(() -> parser.cloneParser());
+      ThreadLocal<PosTagger> posTaggers = ThreadLocal.withInitial(() -> posTagger == null ? null : posTagger.clonePosTagger());
+      ThreadLocal<Tokeniser> tokenisers = ThreadLocal.withInitial(() -> tokeniser == null ? null : tokeniser.cloneTokeniser());
+
+      try (OrderedTaskRunner<ParseResult> runner = new OrderedTaskRunner<>(threadCount, threadCount * PENDING_SENTENCES_PER_THREAD)) {
+        while (corpusReader.hasNextSentence()) {
+          ParseConfiguration realConfiguration = corpusReader.nextConfiguration();
+          sentenceCount++;
+          tokenCount += realConfiguration.getPosTagSequence().size() - 1;
+
+          runner.submit(() -> {
+            List<PosTagSequence> posTagSequences = this.tagSentence(realConfiguration, tokenisers.get(), posTaggers.get());
+            long parseStart = System.currentTimeMillis();
+            List<ParseConfiguration> guessedConfigurations = this.parseSentence(parsers.get(), posTagSequences);
+            long parseTime = System.currentTimeMillis() - parseStart;
+            return new ParseResult(realConfiguration, posTagSequences, guessedConfigurations, parseTime);
+          });
+
+          while (runner.isFull())
+            this.notifyObservers(runner.next());
+        } // next sentence
+
+        while (runner.hasNext())
+          this.notifyObservers(runner.next());
       }
+    }
 
-      if (posTagger != null) {
-        if (posTagger instanceof NonDeterministicPosTagger) {
-          NonDeterministicPosTagger nonDeterministicPosTagger = (NonDeterministicPosTagger) posTagger;
-          posTagSequences = nonDeterministicPosTagger.tagSentence(tokenSequences);
-        } else {
-          posTagSequences = new ArrayList<PosTagSequence>();
-          PosTagSequence posTagSequence = null;
-          posTagSequence = posTagger.tagSentence(tokenSequences.get(0));
-          posTagSequences.add(posTagSequence);
+    long totalTime = System.currentTimeMillis() - startTime;
+
+    for (ParseEvaluationObserver observer : this.observers) {
+      observer.onEvaluationComplete();
+    }
+
+    this.writeThroughput(sentenceCount, tokenCount, totalTime);
+  }
+
+  private List<PosTagSequence> tagSentence(ParseConfiguration realConfiguration, Tokeniser tokeniser, PosTagger posTagger)
+      throws TalismaneException, IOException {
+    List<TokenSequence> tokenSequences = null;
+    if (tokeniser != null) {
+      Sentence sentence = realConfiguration.getPosTagSequence().getTokenSequence().getSentence();
+
+      // annotate the sentence for pre token filters
+      for (SentenceAnnotator annotator : TalismaneSession.get(sessionId).getSentenceAnnotators()) {
+        annotator.annotate(sentence);
+        if (LOG.isTraceEnabled()) {
+          LOG.trace("TokenFilter: " + annotator);
+          LOG.trace("annotations: " + sentence.getAnnotations());
         }
+      }
+
+      tokenSequences = tokeniser.tokenise(sentence);
+    } else {
+      tokenSequences = new ArrayList<TokenSequence>();
+      PosTagSequence posTagSequence = realConfiguration.getPosTagSequence().clonePosTagSequence();
+      posTagSequence.removeRoot();
+      tokenSequences.add(posTagSequence.getTokenSequence());
+    }
+
+    List<PosTagSequence> posTagSequences = null;
+    if (posTagger != null) {
+      if (posTagger instanceof NonDeterministicPosTagger) {
+        NonDeterministicPosTagger nonDeterministicPosTagger = (NonDeterministicPosTagger) posTagger;
+        posTagSequences = nonDeterministicPosTagger.tagSentence(tokenSequences);
       } else {
-        PosTagSequence posTagSequence = realConfiguration.getPosTagSequence();
         posTagSequences = new ArrayList<PosTagSequence>();
+        PosTagSequence posTagSequence = null;
+        posTagSequence = posTagger.tagSentence(tokenSequences.get(0));
         posTagSequences.add(posTagSequence);
       }
+    } else {
+      PosTagSequence posTagSequence = realConfiguration.getPosTagSequence();
+      posTagSequences = new ArrayList<PosTagSequence>();
+      posTagSequences.add(posTagSequence);
+    }
+    return posTagSequences;
+  }
 
-      for (ParseEvaluationObserver observer : this.observers) {
-        observer.onParseStart(realConfiguration, posTagSequences);
-      }
+  private List<ParseConfiguration> parseSentence(Parser parser, List<PosTagSequence> posTagSequences) throws TalismaneException, IOException {
+    List<ParseConfiguration> guessedConfigurations = null;
+    if (parser instanceof NonDeterministicParser) {
+      NonDeterministicParser nonDeterministicParser = (NonDeterministicParser) parser;
+      guessedConfigurations = nonDeterministicParser.parseSentence(posTagSequences);
+    } else {
+      ParseConfiguration bestGuess = parser.parseSentence(posTagSequences.get(0));
+      guessedConfigurations = new ArrayList<ParseConfiguration>();
+      guessedConfigurations.add(bestGuess);
+    }
+    return guessedConfigurations;
+  }
 
-      List<ParseConfiguration> guessedConfigurations = null;
-      if (parser instanceof NonDeterministicParser) {
-        NonDeterministicParser nonDeterministicParser = (NonDeterministicParser) parser;
-        guessedConfigurations = nonDeterministicParser.parseSentence(posTagSequences);
-      } else {
-        ParseConfiguration bestGuess = parser.parseSentence(posTagSequences.get(0));
-        guessedConfigurations = new ArrayList<ParseConfiguration>();
-        guessedConfigurations.add(bestGuess);
-      }
+  private void notifyObservers(ParseResult result) throws TalismaneException, IOException {
+    for (ParseEvaluationObserver observer : this.observers) {
+      observer.onParseStart(result.realConfiguration, result.posTagSequences);
+    }
+    for (ParseEvaluationObserver observer : this.observers) {
+      observer.onParseEnd(result.realConfiguration, result.guessedConfigurations, result.parseTime);
+    }
+  }
+
+  private void writeThroughput(int sentenceCount, int tokenCount, long totalTime) throws IOException {
+    double seconds = totalTime / 1000.0;
+    double sentencesPerSecond = seconds > 0 ? sentenceCount / seconds : 0.0;
+    double tokensPerSecond = seconds > 0 ? tokenCount / seconds : 0.0;
+
+    DecimalFormat df = new DecimalFormat("0.00");
+    LOG.info("##################");
+    LOG.info("Throughput: " + sentenceCount + " sentences, " + tokenCount + " tokens in " + df.format(seconds) + " seconds");
+    LOG.info("Sentences per second: " + df.format(sentencesPerSecond) + ", tokens per second: " + df.format(tokensPerSecond));
 
-      for (ParseEvaluationObserver observer : this.observers) {
-        observer.onParseEnd(realConfiguration, guessedConfigurations);
+    if (outDir != null) {
+      File throughputFile = new File(outDir, TalismaneSession.get(sessionId).getBaseName() + ".throughput.csv");
+      try (Writer writer = new BufferedWriter(
+          new OutputStreamWriter(new FileOutputStream(throughputFile, false), TalismaneSession.get(sessionId).getCsvCharset()))) {
+        writer.write(CSV.format("module") + CSV.format("beamWidth") + CSV.format("adaptive") + CSV.format("avgBeamWidth") + CSV.format("sentences")
+            + CSV.format("tokens") + CSV.format("seconds") + CSV.format("sentencesPerSecond") + CSV.format("tokensPerSecond") + "\n");
+        this.writeThroughput(writer, sentenceCount, tokenCount, seconds, sentencesPerSecond, tokensPerSecond);
       }
-    } // next sentence
+    } else {
+      this.writeThroughput(null, sentenceCount, tokenCount, seconds, sentencesPerSecond, tokensPerSecond);
+    }
+    LOG.info("##################");
+  }
 
-    for (ParseEvaluationObserver observer : this.observers) {
-      observer.onEvaluationComplete();
+  private void writeThroughput(Writer writer, int sentenceCount, int tokenCount, double seconds, double sentencesPerSecond, double tokensPerSecond)
+      throws IOException {
+    if (posTagger instanceof ForwardStatisticalPosTagger) {
+      ForwardStatisticalPosTagger statisticalPosTagger = (ForwardStatisticalPosTagger) posTagger;
+      this.writeThroughput(writer, "posTagger", statisticalPosTagger.getBeamWidth(), statisticalPosTagger.getAdaptiveBeam(), sentenceCount, tokenCount, seconds, sentencesPerSecond,
+          tokensPerSecond);
     }
+    int parserBeamWidth = 1;
+    if (parser instanceof NonDeterministicParser)
+      parserBeamWidth = ((NonDeterministicParser) parser).getBeamWidth();
+    AdaptiveBeam adaptiveBeam = null;
+    if (parser instanceof TransitionBasedParser)
+      adaptiveBeam = ((TransitionBasedParser) parser).getAdaptiveBeam();
+    this.writeThroughput(writer, "parser", parserBeamWidth, adaptiveBeam, sentenceCount, tokenCount, seconds, sentencesPerSecond, tokensPerSecond);
+  }
+
+  private void writeThroughput(Writer writer, String module, int beamWidth, AdaptiveBeam adaptiveBeam, int sentenceCount, int tokenCount, double seconds,
+      double sentencesPerSecond, double tokensPerSecond) throws IOException {
+    boolean adaptive = adaptiveBeam != null && adaptiveBeam.isEnabled();
+    double averageBeamWidth = adaptiveBeam != null ? adaptiveBeam.getAverageBeamWidth() : beamWidth;
+    LOG.info(module + " beam width: " + beamWidth + ", adaptive: " + adaptive + ", average beam width explored: " + new DecimalFormat("0.00").format(averageBeamWidth));
+    if (writer != null)
+      writer.write(CSV.format(module) + CSV.format(beamWidth) + CSV.format(adaptive) + CSV.format(averageBeamWidth) + CSV.format(sentenceCount)
+          + CSV.format(tokenCount) + CSV.format(seconds) + CSV.format(sentencesPerSecond) + CSV.format(tokensPerSecond) + "\n");
   }
 
   public Parser getParser() {
@@ -200,4 +335,33 @@ public class ParserEvaluator {
     this.observers.add(observer);
   }
 
+  /**
+   * The number of threads on which sentences are analysed. If more than one,
+   * the parser, pos-tagger and tokeniser are cloned for each thread, and
+   * observers are notified in corpus order by the thread calling
+   * {@link #evaluate()}.
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public void setThreadCount(int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  private static final class ParseResult {
+    private final ParseConfiguration realConfiguration;
+    private final List<PosTagSequence> posTagSequences;
+    private final List<ParseConfiguration> guessedConfigurations;
+    private final long parseTime;
+
+    private ParseResult(ParseConfiguration realConfiguration, List<PosTagSequence> posTagSequences, List<ParseConfiguration> guessedConfigurations,
+        long parseTime) {
+      this.realConfiguration = realConfiguration;
+      this.posTagSequences = posTagSequences;
+      this.guessedConfigurations = guessedConfigurations;
+      this.parseTime = parseTime;
+    }
+  }
+
 }
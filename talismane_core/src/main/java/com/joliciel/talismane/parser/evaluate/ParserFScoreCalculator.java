@@ -54,13 +54,21 @@ public class ParserFScoreCalculator implements ParseEvaluationObserver {
   private final boolean projective;
 
   public ParserFScoreCalculator(File outDir, String sessionId) throws IOException {
+    this(outDir, TalismaneSession.get(sessionId).getBaseName(), sessionId);
+  }
+
+  /**
+   * @param baseName
+   *          the f-scores are written to [baseName].fscores.csv
+   */
+  public ParserFScoreCalculator(File outDir, String baseName, String sessionId) throws IOException {
     Config config = ConfigFactory.load();
     Config parserConfig = config.getConfig("talismane.core." + sessionId+ ".parser");
     Config evalConfig = parserConfig.getConfig("evaluate");
     this.projective = evalConfig.getBoolean("projective");
     this.labeledEvaluation = evalConfig.getBoolean("labeled-evaluation");
 
-    File fscoreFile = new File(outDir, TalismaneSession.get(sessionId).getBaseName() + ".fscores.csv");
+    File fscoreFile = new File(outDir, baseName + ".fscores.csv");
     this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fscoreFile, false), TalismaneSession.get(sessionId).getCsvCharset()));
   }
 
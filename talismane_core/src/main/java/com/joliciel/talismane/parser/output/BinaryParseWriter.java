@@ -0,0 +1,183 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser.output;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.parser.BinaryParseFormat;
+import com.joliciel.talismane.parser.ParseConfiguration;
+import com.joliciel.talismane.parser.ParseRecordEncoder;
+import com.joliciel.talismane.parser.ParserBinaryCorpusReader;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Writes parser output in the compact binary format described in
+ * {@link BinaryParseFormat}, which can be read back without any regex parsing
+ * by {@link ParserBinaryCorpusReader}.<br>
+ * The writer is flushed every
+ * talismane.core.[sessionId].parser.output.flush-interval sentences.<br>
+ * If no writer is specified, will write the raw bytes to a file with the suffix
+ * "_dep.bin". Otherwise, the output encoding should be ISO-8859-1 to get the
+ * raw bytes, see {@link BinaryParseFormat}.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class BinaryParseWriter implements ParseConfigurationProcessor {
+  private static final Logger LOG = LoggerFactory.getLogger(BinaryParseWriter.class);
+  private final Writer writer;
+  private final int flushInterval;
+  private final ParseRecordEncoder encoder = new ParseRecordEncoder();
+  private boolean headerWritten = false;
+  private int unflushedCount = 0;
+
+  private byte[] bytes = new byte[1024];
+  private int length = 0;
+  private char[] chars = new char[1024];
+
+  public BinaryParseWriter(File outDir, String sessionId) throws IOException {
+    this(new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(new File(outDir, TalismaneSession.get(sessionId).getBaseName() + "_dep.bin"), false), StandardCharsets.ISO_8859_1)),
+        getFlushInterval(sessionId));
+  }
+
+  /**
+   * @throws TalismaneException
+   *           if the output encoding cannot represent the characters U+0000 to
+   *           U+00FF
+   */
+  public BinaryParseWriter(Writer writer, String sessionId) throws TalismaneException {
+    this(writer, getFlushInterval(sessionId));
+    Charset outputCharset = TalismaneSession.get(sessionId).getOutputCharset();
+    CharsetEncoder encoder = outputCharset.newEncoder();
+    for (char c = 0; c <= 0xFF; c++) {
+      if (!encoder.canEncode(c))
+        throw new TalismaneException(BinaryParseWriter.class.getSimpleName() + " cannot write to the output encoding " + outputCharset.name());
+    }
+    if (!outputCharset.equals(StandardCharsets.ISO_8859_1))
+      LOG.info(BinaryParseWriter.class.getSimpleName() + " writing with output encoding " + outputCharset.name()
+          + ": use ISO-8859-1 to write the raw bytes, and read back with the same encoding");
+  }
+
+  /**
+   * @param flushInterval
+   *          how many sentences to write before flushing the writer, or 0 to
+   *          only flush when parsing is complete
+   */
+  public BinaryParseWriter(Writer writer, int flushInterval) {
+    this.writer = writer;
+    this.flushInterval = flushInterval;
+  }
+
+  private static int getFlushInterval(String sessionId) {
+    Config config = ConfigFactory.load();
+    return config.getInt("talismane.core." + sessionId + ".parser.output.flush-interval");
+  }
+
+  @Override
+  public void onNextParseConfiguration(ParseConfiguration parseConfiguration) throws IOException {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Outputting: " + parseConfiguration.toString());
+    }
+    length = 0;
+    if (!headerWritten) {
+      for (byte b : BinaryParseFormat.HEADER)
+        this.writeByte(b);
+      this.writeVarInt(BinaryParseFormat.VERSION);
+      headerWritten = true;
+    }
+
+    int[] values = encoder.encode(parseConfiguration);
+    List<String> newStrings = encoder.takeNewStrings();
+    this.writeByte(BinaryParseFormat.SENTENCE);
+    this.writeVarInt(newStrings.size());
+    for (String newString : newStrings)
+      this.writeString(newString);
+    this.writeString(parseConfiguration.getPosTagSequence().getTokenSequence().getSentence().getText().toString());
+    this.writeVarInt(values.length / ParseRecordEncoder.VALUES_PER_TOKEN);
+    for (int value : values)
+      this.writeVarInt(value);
+
+    if (chars.length < length)
+      chars = new char[Math.max(length, chars.length * 2)];
+    for (int i = 0; i < length; i++)
+      chars[i] = (char) (bytes[i] & 0xFF);
+    writer.write(chars, 0, length);
+
+    unflushedCount++;
+    if (flushInterval > 0 && unflushedCount >= flushInterval) {
+      writer.flush();
+      unflushedCount = 0;
+    }
+  }
+
+  private void writeString(String string) {
+    byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+    this.writeVarInt(utf8.length);
+    this.ensureCapacity(utf8.length);
+    System.arraycopy(utf8, 0, bytes, length, utf8.length);
+    length += utf8.length;
+  }
+
+  private void writeVarInt(int value) {
+    this.ensureCapacity(5);
+    while ((value & ~0x7F) != 0) {
+      bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[length++] = (byte) value;
+  }
+
+  private void writeByte(int value) {
+    this.ensureCapacity(1);
+    bytes[length++] = (byte) value;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > bytes.length)
+      bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+  }
+
+  @Override
+  public void onCompleteParse() throws IOException {
+    writer.flush();
+    unflushedCount = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.writer.close();
+  }
+}
@@ -0,0 +1,201 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser.output;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.Talismane.BuiltInTemplate;
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.parser.DependencyArc;
+import com.joliciel.talismane.parser.ParseConfiguration;
+import com.joliciel.talismane.posTagger.PosTaggedToken;
+import com.joliciel.talismane.tokeniser.Token;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Writes parser output in CoNLL format directly, without going through a
+ * freemarker template. The output is identical to the built-in templates
+ * "standard" and "with_prob" (selected via
+ * talismane.core.[sessionId].parser.output.built-in-template), but each
+ * sentence is formatted into a single reusable buffer, and the writer is only
+ * flushed every talismane.core.[sessionId].parser.output.flush-interval
+ * sentences.<br>
+ * If no writer is specified, will write to a file with the suffix "_dep.txt".
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class CoNLLParseWriter implements ParseConfigurationProcessor {
+  private static final Logger LOG = LoggerFactory.getLogger(CoNLLParseWriter.class);
+  private final Writer writer;
+  private final boolean withProb;
+  private final int flushInterval;
+  private final StringBuilder sb = new StringBuilder(1024);
+  private final DecimalFormat df = new DecimalFormat("0.00");
+  private char[] chars = new char[1024];
+  private int unflushedCount = 0;
+
+  public CoNLLParseWriter(File outDir, String sessionId) throws IOException {
+    this(new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(new File(outDir, TalismaneSession.get(sessionId).getBaseName() + "_dep.txt"), false),
+            TalismaneSession.get(sessionId).getOutputCharset())),
+        sessionId);
+  }
+
+  /**
+   * @throws TalismaneException
+   *           if the built-in template is neither standard nor with_prob, or
+   *           if a custom template has been specified
+   */
+  public CoNLLParseWriter(Writer writer, String sessionId) throws TalismaneException {
+    Config config = ConfigFactory.load();
+    Config parserConfig = config.getConfig("talismane.core." + sessionId + ".parser");
+    if (parserConfig.hasPath("output.template"))
+      throw new TalismaneException(CoNLLParseWriter.class.getSimpleName() + " cannot be used with a custom template");
+    BuiltInTemplate builtInTemplate = BuiltInTemplate.valueOf(parserConfig.getString("output.built-in-template"));
+    if (!isSupported(builtInTemplate))
+      throw new TalismaneException(CoNLLParseWriter.class.getSimpleName() + " does not support the built-in template " + builtInTemplate.name());
+
+    this.writer = writer;
+    this.withProb = builtInTemplate == BuiltInTemplate.with_prob;
+    this.flushInterval = parserConfig.getInt("output.flush-interval");
+  }
+
+  /**
+   * @param withProb
+   *          if true, equivalent to the "with_prob" built-in template,
+   *          otherwise to the "standard" template
+   * @param flushInterval
+   *          how many sentences to write before flushing the writer, or 0 to
+   *          only flush when parsing is complete
+   */
+  public CoNLLParseWriter(Writer writer, boolean withProb, int flushInterval) {
+    this.writer = writer;
+    this.withProb = withProb;
+    this.flushInterval = flushInterval;
+  }
+
+  /**
+   * Can this writer replace the freemarker template for a given built-in
+   * template?
+   */
+  public static boolean isSupported(BuiltInTemplate builtInTemplate) {
+    return builtInTemplate == BuiltInTemplate.standard || builtInTemplate == BuiltInTemplate.with_prob;
+  }
+
+  @Override
+  public void onNextParseConfiguration(ParseConfiguration parseConfiguration) throws IOException {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Outputting: " + parseConfiguration.toString());
+    }
+    sb.setLength(0);
+    for (PosTaggedToken posTaggedToken : parseConfiguration.getPosTagSequence()) {
+      Token token = posTaggedToken.getToken();
+      String precedingRawOutput = token.getPrecedingRawOutput();
+      if (precedingRawOutput != null)
+        sb.append(precedingRawOutput).append('\n');
+
+      if (token.getIndex() > 0) {
+        DependencyArc arc = parseConfiguration.getGoverningDependency(posTaggedToken, true);
+        DependencyArc nonProjectiveArc = parseConfiguration.getGoverningDependency(posTaggedToken, false);
+        String morphology = posTaggedToken.getMorphologyForCoNLL();
+
+        sb.append(token.getIndex()).append('\t');
+        sb.append(token.getTextForCoNLL()).append('\t');
+        sb.append(posTaggedToken.getLemmaForCoNLL()).append('\t');
+        sb.append(posTaggedToken.getTag().getCode()).append('\t');
+        sb.append(posTaggedToken.getTag().getCode()).append('\t');
+        sb.append(morphology == null ? "_" : morphology).append('\t');
+        this.appendArc(nonProjectiveArc);
+        sb.append('\t');
+        this.appendArc(arc);
+        if (withProb) {
+          sb.append('\t');
+          this.appendPercentage(token.getProbability());
+          sb.append('\t');
+          this.appendPercentage(posTaggedToken.getProbability());
+          sb.append('\t');
+          if (arc != null)
+            this.appendPercentage(arc.getProbability());
+          else
+            sb.append('_');
+        }
+        sb.append('\n');
+      }
+
+      String trailingRawOutput = token.getTrailingRawOutput();
+      if (trailingRawOutput != null)
+        sb.append(trailingRawOutput).append('\n');
+    }
+    sb.append('\n');
+
+    int length = sb.length();
+    if (chars.length < length)
+      chars = new char[Math.max(length, chars.length * 2)];
+    sb.getChars(0, length, chars, 0);
+    writer.write(chars, 0, length);
+
+    unflushedCount++;
+    if (flushInterval > 0 && unflushedCount >= flushInterval) {
+      writer.flush();
+      unflushedCount = 0;
+    }
+  }
+
+  private void appendArc(DependencyArc arc) {
+    if (arc == null) {
+      sb.append("0\t_");
+    } else {
+      sb.append(arc.getHead().getToken().getIndex()).append('\t');
+      sb.append(arc.getLabel() == null ? "_" : arc.getLabel());
+    }
+  }
+
+  /**
+   * Formats the probability as a percentage with two decimals, rounding
+   * exactly as the freemarker templates do (decimal arithmetic with half-even
+   * rounding), so that the output is identical.
+   */
+  private void appendPercentage(double probability) {
+    sb.append(df.format(new BigDecimal(Double.toString(probability)).movePointRight(2)));
+  }
+
+  @Override
+  public void onCompleteParse() throws IOException {
+    writer.flush();
+    unflushedCount = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.writer.close();
+  }
+}
@@ -56,6 +56,12 @@ import freemarker.template.Version;
  * the built-in template specified in
  * talismane.core.[sessionId].parser.output.built-in-template, or any other
  * template specified in talismane.core.[sessionId].parser.output.template.<br>
+ * For the built-in templates "standard" and "with_prob", if
+ * talismane.core.[sessionId].parser.output.direct-conll-writer is true, the
+ * output is delegated to a {@link CoNLLParseWriter}, which produces identical
+ * output without the overhead of freemarker.<br>
+ * The writer is flushed every
+ * talismane.core.[sessionId].parser.output.flush-interval sentences.<br>
  * If no writer is specified, will write to a file with the suffix "_dep.txt".
  * 
  * @author Assaf Urieli
@@ -64,7 +70,10 @@ import freemarker.template.Version;
 public class FreemarkerParseWriter implements ParseConfigurationProcessor {
   private static final Logger LOG = LoggerFactory.getLogger(FreemarkerParseWriter.class);
   private final Template template;
+  private final CoNLLParseWriter conllWriter;
   private final Writer writer;
+  private final int flushInterval;
+  private int unflushedCount = 0;
   private int sentenceCount = 0;
   private int tokenCount = 0;
   private int relationCount = 0;
@@ -81,6 +90,7 @@ public class FreemarkerParseWriter implements ParseConfigurationProcessor {
     Config parserConfig = config.getConfig("talismane.core." + sessionId + ".parser");
 
     this.writer = writer;
+    this.flushInterval = parserConfig.getInt("output.flush-interval");
 
     Reader templateReader = null;
     String configPath = "talismane.core." + sessionId + ".parser.output.template";
@@ -89,6 +99,11 @@ public class FreemarkerParseWriter implements ParseConfigurationProcessor {
     } else {
       String templateName = null;
       BuiltInTemplate builtInTemplate = BuiltInTemplate.valueOf(parserConfig.getString("output.built-in-template"));
+      if (parserConfig.getBoolean("output.direct-conll-writer") && CoNLLParseWriter.isSupported(builtInTemplate)) {
+        this.conllWriter = new CoNLLParseWriter(writer, builtInTemplate == BuiltInTemplate.with_prob, flushInterval);
+        this.template = null;
+        return;
+      }
       switch (builtInTemplate) {
       case standard:
         templateName = "parser_conll_template.ftl";
@@ -116,11 +131,14 @@ public class FreemarkerParseWriter implements ParseConfigurationProcessor {
       templateReader = new BufferedReader(new InputStreamReader(inputStream));
     }
 
+    this.conllWriter = null;
     this.template = this.getTemplate(templateReader);
   }
 
   public FreemarkerParseWriter(Reader templateReader, Writer writer, String sessionId) throws IOException, TalismaneException {
     this.writer = writer;
+    this.conllWriter = null;
+    this.flushInterval = 1;
     this.template = this.getTemplate(templateReader);
   }
 
@@ -134,7 +152,11 @@ public class FreemarkerParseWriter implements ParseConfigurationProcessor {
   void process(Map<String, Object> model) throws IOException {
     try {
       template.process(model, writer);
-      writer.flush();
+      unflushedCount++;
+      if (flushInterval > 0 && unflushedCount >= flushInterval) {
+        writer.flush();
+        unflushedCount = 0;
+      }
     } catch (TemplateException te) {
       LogUtils.logError(LOG, te);
       throw new RuntimeException(te);
@@ -143,6 +165,10 @@ public class FreemarkerParseWriter implements ParseConfigurationProcessor {
 
   @Override
   public void onNextParseConfiguration(ParseConfiguration parseConfiguration) throws IOException {
+    if (conllWriter != null) {
+      conllWriter.onNextParseConfiguration(parseConfiguration);
+      return;
+    }
     if (LOG.isTraceEnabled()) {
       LOG.trace("Outputting: " + parseConfiguration.toString());
     }
@@ -164,8 +190,9 @@ public class FreemarkerParseWriter implements ParseConfigurationProcessor {
   }
 
   @Override
-  public void onCompleteParse() {
-    // nothing to do here
+  public void onCompleteParse() throws IOException {
+    this.writer.flush();
+    unflushedCount = 0;
   }
 
   @Override
@@ -42,6 +42,8 @@ import com.typesafe.config.ConfigFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.talismane.AdaptiveBeam;
+import com.joliciel.talismane.AnalysisBudget;
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.machineLearning.ClassificationModel;
@@ -86,15 +88,17 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
   private final DecisionMaker decisionMaker;
   private final int beamWidth;
   private final boolean propagateTokeniserBeam;
+  private final AnalysisBudget analysisBudget;
+  private final AdaptiveBeam adaptiveBeam;
 
   private final String sessionId;
 
   public ForwardStatisticalPosTagger(String sessionId) throws IOException, ClassNotFoundException, TalismaneException {
-    Config config = ConfigFactory.load();
-    Config posTaggerConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger");
-    int beamWidth = posTaggerConfig.getInt("beam-width");
-    boolean propagateTokeniserBeam = posTaggerConfig.getBoolean("propagate-tokeniser-beam");
+    this(getModel(sessionId), sessionId);
+  }
 
+  private static ClassificationModel getModel(String sessionId) throws IOException, ClassNotFoundException {
+    Config config = ConfigFactory.load();
     String configPath = "talismane.core." + sessionId + ".pos-tagger.model";
     String modelFilePath = config.getString(configPath);
     LOG.debug("Getting pos-tagger model from " + modelFilePath);
@@ -105,6 +109,18 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
       model = factory.getClassificationModel(new ZipInputStream(tokeniserModelFile));
       modelMap.put(modelFilePath, model);
     }
+    return model;
+  }
+
+  /**
+   * Build a pos-tagger for a model which was not read from the configuration,
+   * e.g. a model which was just trained.
+   */
+  public ForwardStatisticalPosTagger(ClassificationModel model, String sessionId) throws IOException, TalismaneException {
+    Config config = ConfigFactory.load();
+    Config posTaggerConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger");
+    int beamWidth = posTaggerConfig.getInt("beam-width");
+    boolean propagateTokeniserBeam = posTaggerConfig.getBoolean("propagate-tokeniser-beam");
 
     PosTaggerFeatureParser featureParser = new PosTaggerFeatureParser(sessionId);
     Collection<ExternalResource<?>> externalResources = model.getExternalResources();
@@ -118,6 +134,8 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
     this.posTaggerFeatures = posTaggerFeatures;
     this.beamWidth = beamWidth;
     this.propagateTokeniserBeam = propagateTokeniserBeam;
+    this.analysisBudget = new AnalysisBudget(posTaggerConfig);
+    this.adaptiveBeam = new AdaptiveBeam(posTaggerConfig);
     this.decisionMaker = model.getDecisionMaker();
     this.sessionId = sessionId;
     this.observers = new ArrayList<>();
@@ -133,7 +151,7 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
 
     List<PosTaggerRule> posTaggerRules = new ArrayList<>();
 
-    configPath = "talismane.core." + sessionId + ".pos-tagger.rules";
+    String configPath = "talismane.core." + sessionId + ".pos-tagger.rules";
     List<String> textFilterPaths = config.getStringList(configPath);
     for (String path : textFilterPaths) {
       LOG.debug("From: " + path);
@@ -158,6 +176,8 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
     this.posTaggerFeatures = new HashSet<>(posTagger.posTaggerFeatures);
     this.beamWidth = posTagger.beamWidth;
     this.propagateTokeniserBeam = posTagger.propagateTokeniserBeam;
+    this.analysisBudget = posTagger.analysisBudget;
+    this.adaptiveBeam = posTagger.adaptiveBeam;
     this.decisionMaker = posTagger.decisionMaker;
     this.sessionId = posTagger.sessionId;
     this.observers = posTagger.observers;
@@ -177,6 +197,8 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
     }
 
     int sentenceLength = tokenSequences.get(0).getSentence().getText().length();
+    AnalysisBudget.SentenceBudget sentenceBudget = analysisBudget.start(tokenSequences.get(0).getSentence());
+    AdaptiveBeam.Search<Double> adaptiveSearch = adaptiveBeam.start();
 
     TreeMap<Double, PriorityQueue<PosTagSequence>> heaps = new TreeMap<Double, PriorityQueue<PosTagSequence>>();
 
@@ -201,8 +223,11 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
       }
       PriorityQueue<PosTagSequence> previousHeap = heapEntry.getValue();
 
-      // limit the breadth to K
-      int maxSequences = previousHeap.size() > this.beamWidth ? this.beamWidth : previousHeap.size();
+      // limit the breadth to K, adapting it to the decision confidence, and
+      // narrowing it if we go over the max alloted time or memory
+      int beamWidth = sentenceBudget.getBeamWidth(adaptiveSearch.getBeamWidth(heapEntry.getKey(), this.beamWidth));
+      int maxSequences = previousHeap.size() > beamWidth ? beamWidth : previousHeap.size();
+      adaptiveSearch.explored(maxSequences);
 
       for (int j = 0; j < maxSequences; j++) {
         PosTagSequence history = previousHeap.poll();
@@ -342,6 +367,9 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
           }
         } // has a rule been applied?
 
+        double topProbability = AdaptiveBeam.getTopProbability(decisions);
+        decisions = adaptiveBeam.prune(decisions);
+
         // add new TaggedTokenSequences to the heap, one for each
         // outcome provided by MaxEnt
         for (Decision decision : decisions) {
@@ -373,6 +401,7 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
             heaps.put(heapIndex, heap);
           }
           heap.add(sequence);
+          adaptiveSearch.record(heapIndex, topProbability);
         } // next outcome for this token
       } // next history
     } // next atomic index
@@ -415,6 +444,13 @@ public class ForwardStatisticalPosTagger implements PosTagger, NonDeterministicP
     return decisionMaker;
   }
 
+  /**
+   * The adaptive beam settings and statistics for this pos-tagger.
+   */
+  public AdaptiveBeam getAdaptiveBeam() {
+    return adaptiveBeam;
+  }
+
   @Override
   public int getBeamWidth() {
     return beamWidth;
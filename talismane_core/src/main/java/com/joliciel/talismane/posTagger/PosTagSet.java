@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -32,10 +33,13 @@ import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.talismane.TalismaneException;
+
 /**
  * A tag set to be used for pos tagging. The default format for reading a
  * PosTagSet from a file is as follows:
@@ -76,7 +80,7 @@ public class PosTagSet implements Serializable {
   private String name;
   private Locale locale;
   private Set<PosTag> tags = new TreeSet<>();
-  private Map<String, PosTag> tagMap = null;
+  private transient volatile TagIndex tagIndex = null;
 
   /**
    * Loads a PosTagSet from a file or list of strings. The file has the
@@ -174,20 +178,105 @@ public class PosTagSet implements Serializable {
    * @throws UnknownPosTagException
    */
   public PosTag getPosTag(String code) throws UnknownPosTagException {
-    if (tagMap == null) {
-      tagMap = new HashMap<>();
-      for (PosTag posTag : this.getTags()) {
-        tagMap.put(posTag.getCode(), posTag);
-      }
-      tagMap.put(PosTag.ROOT_POS_TAG_CODE, PosTag.ROOT_POS_TAG);
-    }
-    PosTag posTag = tagMap.get(code);
+    PosTag posTag = this.getTagIndex().tagMap.get(code);
     if (posTag == null) {
       throw new UnknownPosTagException("Unknown PosTag: " + code);
     }
     return posTag;
   }
 
+  /**
+   * A dense id for this pos-tag, from 0 to the size of {@link #getTags()}-1 in
+   * the order of {@link #getTags()}, or -1 if the pos-tag isn't in the tag set.
+   */
+  public int getId(PosTag posTag) {
+    Integer id = this.getTagIndex().ids.get(posTag);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * The pos-tag corresponding to an id returned by {@link #getId(PosTag)}.
+   */
+  public PosTag getPosTag(int id) {
+    return this.getTagIndex().tags[id];
+  }
+
+  /**
+   * Whether each pos-tag in this set can be represented by a single bit in a
+   * long, as per {@link #getBit(PosTag)}.
+   */
+  public boolean isBitIndexable() {
+    return tags.size() <= Long.SIZE;
+  }
+
+  /**
+   * A long with a single bit set, representing this pos-tag's position in the
+   * tag set, or 0 if the pos-tag isn't in the tag set. The bits of several
+   * pos-tags can be combined to form a bitset which is read back using
+   * {@link #getPosTags(long)}.
+   * 
+   * @throws TalismaneException
+   *           if this tag set contains too many pos-tags to be indexed.
+   */
+  public long getBit(PosTag posTag) {
+    this.checkBitIndexable();
+    int id = this.getId(posTag);
+    return id < 0 ? 0L : 1L << id;
+  }
+
+  /**
+   * The pos-tags corresponding to a bitset built using
+   * {@link #getBit(PosTag)}, as an immutable set ordered like
+   * {@link #getTags()}. The same set instance is returned for each bitset.
+   * 
+   * @throws TalismaneException
+   *           if this tag set contains too many pos-tags to be indexed.
+   */
+  public Set<PosTag> getPosTags(long bits) {
+    this.checkBitIndexable();
+    TagIndex tagIndex = this.getTagIndex();
+    Set<PosTag> posTags = tagIndex.posTagSets.get(bits);
+    if (posTags == null) {
+      Set<PosTag> newPosTags = new TreeSet<>();
+      for (int i = 0; i < tagIndex.tags.length; i++) {
+        if ((bits & (1L << i)) != 0)
+          newPosTags.add(tagIndex.tags[i]);
+      }
+      posTags = tagIndex.posTagSets.computeIfAbsent(bits, k -> Collections.unmodifiableSet(newPosTags));
+    }
+    return posTags;
+  }
+
+  private void checkBitIndexable() {
+    if (!this.isBitIndexable())
+      throw new TalismaneException("Cannot index PosTagSet " + name + " with " + tags.size() + " pos-tags as bits: maximum is " + Long.SIZE);
+  }
+
+  private TagIndex getTagIndex() {
+    TagIndex tagIndex = this.tagIndex;
+    if (tagIndex == null) {
+      tagIndex = new TagIndex(tags);
+      this.tagIndex = tagIndex;
+    }
+    return tagIndex;
+  }
+
+  private static final class TagIndex {
+    private final PosTag[] tags;
+    private final Map<PosTag, Integer> ids = new HashMap<>();
+    private final Map<String, PosTag> tagMap = new HashMap<>();
+    private final Map<Long, Set<PosTag>> posTagSets = new ConcurrentHashMap<>();
+
+    private TagIndex(Set<PosTag> tagSet) {
+      this.tags = tagSet.toArray(new PosTag[0]);
+      for (int i = 0; i < tags.length; i++) {
+        ids.put(tags[i], i);
+        tagMap.put(tags[i].getCode(), tags[i]);
+      }
+      tagMap.put(PosTag.ROOT_POS_TAG_CODE, PosTag.ROOT_POS_TAG);
+    }
+  }
+
   @Override
   public int hashCode() {
     return name.hashCode();
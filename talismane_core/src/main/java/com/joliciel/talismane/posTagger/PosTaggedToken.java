@@ -35,9 +35,11 @@ import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.HasFeatureCache;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
 import com.joliciel.talismane.posTagger.features.PosTaggedTokenWrapper;
+import com.joliciel.talismane.rawText.Sentence;
 import com.joliciel.talismane.tokeniser.StringAttribute;
 import com.joliciel.talismane.tokeniser.TaggedToken;
 import com.joliciel.talismane.tokeniser.Token;
+import com.joliciel.talismane.tokeniser.TokenFeatureMemo;
 
 /**
  * A token with a postag tagged onto it.<br>
@@ -90,10 +92,20 @@ public class PosTaggedToken extends TaggedToken<PosTag> implements PosTaggedToke
    */
   public List<LexicalEntry> getLexicalEntries() {
     if (lexicalEntries == null) {
-      lexicalEntries = TalismaneSession.get(sessionId).getMergedLexicon().findLexicalEntries(this.getToken().getText(), this.getTag());
-      if (lexicalEntries.size() == 0) {
-        lexicalEntries = TalismaneSession.get(sessionId).getMergedLexicon().findLexicalEntries(this.getToken().getText().toLowerCase(TalismaneSession.get(sessionId).getLocale()),
-            this.getTag());
+      Sentence sentence = this.getToken().getTokenSequence() == null ? null : this.getToken().getTokenSequence().getSentence();
+      TokenFeatureMemo memo = sentence == null ? null : sentence.getTokenFeatureMemo();
+      if (memo == null) {
+        lexicalEntries = TalismaneSession.get(sessionId).getMergedLexicon().findLexicalEntries(this.getToken().getText(), this.getTag());
+        if (lexicalEntries.size() == 0) {
+          lexicalEntries = TalismaneSession.get(sessionId).getMergedLexicon()
+              .findLexicalEntries(this.getToken().getText().toLowerCase(TalismaneSession.get(sessionId).getLocale()), this.getTag());
+        }
+      } else {
+        // shared with any other copies of this token in the sentence
+        TokenFeatureMemo.Word word = memo.getWord(this.getToken().getText());
+        lexicalEntries = word.getLexicalEntries(this.getTag());
+        if (lexicalEntries.size() == 0)
+          lexicalEntries = memo.getWord(word.getLowercase()).getLexicalEntries(this.getTag());
       }
     }
     return lexicalEntries;
@@ -103,6 +115,15 @@ public class PosTaggedToken extends TaggedToken<PosTag> implements PosTaggedToke
     this.lexicalEntries = lexicalEntries;
   }
 
+  /**
+   * Whether lexical entries have already been set for this token, or looked
+   * up in the lexicon, so that {@link #getLexicalEntries()} won't perform a
+   * lookup.
+   */
+  public boolean hasLexicalEntries() {
+    return lexicalEntries != null;
+  }
+
   @Override
   public String toString() {
     return this.getToken().getText() + "|" + this.getTag() + "|" + this.getToken().getIndex();
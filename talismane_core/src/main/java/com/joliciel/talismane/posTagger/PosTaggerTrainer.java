@@ -65,6 +65,14 @@ public class PosTaggerTrainer {
   private final Map<String, List<String>> descriptors;
 
   public PosTaggerTrainer(Reader reader, String sessionId) throws IOException, ClassNotFoundException, ReflectiveOperationException {
+    this(PosTagAnnotatedCorpusReader.getCorpusReader(reader, ConfigFactory.load().getConfig("talismane.core." + sessionId + ".pos-tagger.train"), sessionId), sessionId);
+  }
+
+  /**
+   * Train from an existing corpus reader, e.g. one read from a
+   * {@link com.joliciel.talismane.parser.ParseCorpusSnapshot}.
+   */
+  public PosTaggerTrainer(PosTagAnnotatedCorpusReader corpusReader, String sessionId) throws IOException {
     Config config = ConfigFactory.load();
     this.posTaggerConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger");
     this.sessionId = sessionId;
@@ -83,7 +91,6 @@ public class PosTaggerTrainer {
       }
     }
     descriptors.put(MachineLearningModel.FEATURE_DESCRIPTOR_KEY, featureDescriptors);
-    PosTagAnnotatedCorpusReader corpusReader = PosTagAnnotatedCorpusReader.getCorpusReader(reader, posTaggerConfig.getConfig("train"), sessionId);
 
     // add descriptors for various filters
     // these are for reference purpose only, as we no longer read filters
@@ -98,12 +105,11 @@ public class PosTaggerTrainer {
     eventStream = new PosTagEventStream(corpusReader, features);
   }
 
+  /**
+   * Train the model and write it to the configured model file.
+   */
   public ClassificationModel train() throws TalismaneException, IOException {
-    ModelTrainerFactory factory = new ModelTrainerFactory();
-    ClassificationModelTrainer trainer = factory.constructTrainer(posTaggerConfig.getConfig("train.machine-learning"));
-
-    ClassificationModel model = trainer.trainModel(eventStream, descriptors);
-    model.setExternalResources(TalismaneSession.get(sessionId).getExternalResourceFinder().getExternalResources());
+    ClassificationModel model = this.trainModel();
 
     File modelDir = modelFile.getParentFile();
     if (modelDir != null)
@@ -111,4 +117,16 @@ public class PosTaggerTrainer {
     model.persist(modelFile);
     return model;
   }
+
+  /**
+   * Train the model, without writing it anywhere.
+   */
+  public ClassificationModel trainModel() throws TalismaneException, IOException {
+    ModelTrainerFactory factory = new ModelTrainerFactory();
+    ClassificationModelTrainer trainer = factory.constructTrainer(posTaggerConfig.getConfig("train.machine-learning"));
+
+    ClassificationModel model = trainer.trainModel(eventStream, descriptors);
+    model.setExternalResources(TalismaneSession.get(sessionId).getExternalResourceFinder().getExternalResources());
+    return model;
+  }
 }
@@ -51,15 +51,23 @@ public class PosTagFScoreCalculator implements PosTagEvaluationObserver {
   private final File fScoreKnownInLexiconFile;
 
   public PosTagFScoreCalculator(File outDir, String sessionId) {
+    this(outDir, TalismaneSession.get(sessionId).getBaseName(), sessionId);
+  }
+
+  /**
+   * @param baseName
+   *          the f-scores are written to [baseName]_fscores.csv
+   */
+  public PosTagFScoreCalculator(File outDir, String baseName, String sessionId) {
     Config config = ConfigFactory.load();
     Config posTaggerConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger");
     Config evalConfig = posTaggerConfig.getConfig("evaluate");
 
-    this.fScoreFile = new File(outDir, TalismaneSession.get(sessionId).getBaseName() + "_fscores.csv");
+    this.fScoreFile = new File(outDir, baseName + "_fscores.csv");
 
     if (evalConfig.getBoolean("include-unknown-word-results")) {
-      this.fScoreUnknownInLexiconFile = new File(outDir, TalismaneSession.get(sessionId).getBaseName() + "_unknown.csv");
-      this.fScoreKnownInLexiconFile = new File(outDir, TalismaneSession.get(sessionId).getBaseName() + "_known.csv");
+      this.fScoreUnknownInLexiconFile = new File(outDir, baseName + "_unknown.csv");
+      this.fScoreKnownInLexiconFile = new File(outDir, baseName + "_known.csv");
     } else {
       this.fScoreUnknownInLexiconFile = null;
       this.fScoreKnownInLexiconFile = null;
@@ -18,9 +18,14 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.posTagger.evaluate;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -30,10 +35,13 @@ import com.typesafe.config.ConfigFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.talismane.AdaptiveBeam;
+import com.joliciel.talismane.OrderedTaskRunner;
 import com.joliciel.talismane.Talismane.Module;
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.lexicon.LexicalEntry;
+import com.joliciel.talismane.posTagger.ForwardStatisticalPosTagger;
 import com.joliciel.talismane.posTagger.NonDeterministicPosTagger;
 import com.joliciel.talismane.posTagger.PosTagAnnotatedCorpusReader;
 import com.joliciel.talismane.posTagger.PosTagSequence;
@@ -43,26 +51,43 @@ import com.joliciel.talismane.posTagger.PosTaggers;
 import com.joliciel.talismane.rawText.Sentence;
 import com.joliciel.talismane.tokeniser.TokenSequence;
 import com.joliciel.talismane.tokeniser.Tokeniser;
+import com.joliciel.talismane.utils.CSVFormatter;
 import com.typesafe.config.Config;
 
 /**
- * An interface for evaluating a given pos tagger.
+ * An interface for evaluating a given pos tagger.<br>
+ * <br>
+ * Besides the evaluation observers, the throughput (sentences and tokens per
+ * second) and the average beam width actually explored are reported at the end
+ * of evaluation, so that the accuracy/throughput trade-off of different beam
+ * settings (including the adaptive beam) can be compared.<br>
+ * <br>
+ * Sentences can be analysed on several threads, as configured in
+ * talismane.core.[sessionId].pos-tagger.evaluate.threads, in which case
+ * observers still receive the sentences in corpus order.
  * 
  * @author Assaf Urieli
  *
  */
 public class PosTaggerEvaluator {
   private static final Logger LOG = LoggerFactory.getLogger(PosTaggerEvaluator.class);
+  private static final CSVFormatter CSV = new CSVFormatter();
+  private static final int PENDING_SENTENCES_PER_THREAD = 4;
 
   private final PosTagger posTagger;
   private final PosTagAnnotatedCorpusReader corpusReader;
   private final Tokeniser tokeniser;
+  private final String sessionId;
+  private final File outDir;
+  private int threadCount = 1;
 
   private List<PosTagEvaluationObserver> observers = new ArrayList<PosTagEvaluationObserver>();
 
   public PosTaggerEvaluator(Reader evalReader, File outDir, String sessionId)
       throws IOException, ClassNotFoundException, ReflectiveOperationException, TalismaneException {
     Config config = ConfigFactory.load();
+    this.sessionId = sessionId;
+    this.outDir = outDir;
     this.observers = PosTagEvaluationObserver.getObservers(outDir, sessionId);
 
     Config posTaggerConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger");
@@ -70,6 +95,7 @@ public class PosTaggerEvaluator {
     this.corpusReader = PosTagAnnotatedCorpusReader.getCorpusReader(evalReader, posTaggerConfig.getConfig("input"), sessionId);
 
     this.posTagger = PosTaggers.getPosTagger(sessionId);
+    this.threadCount = OrderedTaskRunner.getThreadCount(posTaggerConfig.getInt("evaluate.threads"));
 
     Module startModule = Module.valueOf(posTaggerConfig.getString("evaluate.start-module"));
     if (startModule == Module.tokeniser)
@@ -91,6 +117,8 @@ public class PosTaggerEvaluator {
     this.posTagger = posTagger;
     this.corpusReader = corpusReader;
     this.tokeniser = tokeniser;
+    this.sessionId = sessionId;
+    this.outDir = null;
   }
 
   /**
@@ -101,68 +129,144 @@ public class PosTaggerEvaluator {
    * 
    */
   public void evaluate() throws TalismaneException, IOException {
-    while (corpusReader.hasNextSentence()) {
-      PosTagSequence realPosTagSequence = corpusReader.nextPosTagSequence();
+    long startTime = System.currentTimeMillis();
+    int sentenceCount = 0;
+    int tokenCount = 0;
+    if (threadCount <= 1) {
+      while (corpusReader.hasNextSentence()) {
+        PosTagSequence realPosTagSequence = corpusReader.nextPosTagSequence();
+        sentenceCount++;
+        tokenCount += realPosTagSequence.size();
 
-      List<TokenSequence> tokenSequences = null;
-      List<PosTagSequence> guessedSequences = null;
+        List<PosTagSequence> guessedSequences = this.tagSentence(realPosTagSequence, tokeniser, posTagger);
 
-      TokenSequence tokenSequence = realPosTagSequence.getTokenSequence();
-      PosTagSequence guessedSequence = null;
+        for (PosTagEvaluationObserver observer : this.observers) {
+          observer.onNextPosTagSequence(realPosTagSequence, guessedSequences);
+        }
+      } // next sentence
+    } else {
+      // each thread analyses with its own clones, sharing the models
+      ThreadLocal<PosTagger> posTaggers = ThreadLocal.withInitial(() -> posTagger.clonePosTagger());
+      ThreadLocal<Tokeniser> tokenisers = ThreadLocal.withInitial(() -> tokeniser == null ? null : tokeniser.cloneTokeniser());
 
-      if (this.tokeniser != null) {
-        Sentence sentence = tokenSequence.getSentence();
+      try (OrderedTaskRunner<PosTagResult> runner = new OrderedTaskRunner<>(threadCount, threadCount * PENDING_SENTENCES_PER_THREAD)) {
+        while (corpusReader.hasNextSentence()) {
+          PosTagSequence realPosTagSequence = corpusReader.nextPosTagSequence();
+          sentenceCount++;
+          tokenCount += realPosTagSequence.size();
 
-        tokenSequences = tokeniser.tokenise(sentence);
-        tokenSequence = tokenSequences.get(0);
-      } else {
-        tokenSequences = new ArrayList<TokenSequence>();
-        tokenSequences.add(tokenSequence);
-      }
+          runner.submit(() -> new PosTagResult(realPosTagSequence, this.tagSentence(realPosTagSequence, tokenisers.get(), posTaggers.get())));
+
+          while (runner.isFull())
+            this.notifyObservers(runner.next());
+        } // next sentence
 
-      if (posTagger instanceof NonDeterministicPosTagger) {
-        NonDeterministicPosTagger nonDeterministicPosTagger = (NonDeterministicPosTagger) posTagger;
-        guessedSequences = nonDeterministicPosTagger.tagSentence(tokenSequences);
-        guessedSequence = guessedSequences.get(0);
-      } else {
-        guessedSequence = posTagger.tagSentence(tokenSequence);
+        while (runner.hasNext())
+          this.notifyObservers(runner.next());
       }
+    }
+
+    long totalTime = System.currentTimeMillis() - startTime;
+
+    for (PosTagEvaluationObserver observer : this.observers) {
+      observer.onEvaluationComplete();
+    }
+
+    this.writeThroughput(sentenceCount, tokenCount, totalTime);
+  }
 
-      if (LOG.isDebugEnabled()) {
-        StringBuilder stringBuilder = new StringBuilder();
-        for (PosTaggedToken posTaggedToken : guessedSequence) {
-          Set<String> lemmas = new TreeSet<String>();
-          stringBuilder.append(posTaggedToken.getToken().getOriginalText());
-          stringBuilder.append("[" + posTaggedToken.getTag());
-
-          List<LexicalEntry> entries = posTaggedToken.getLexicalEntries();
-          boolean dropCurrentWord = false;
-          if (entries.size() > 1)
-            dropCurrentWord = true;
-          for (LexicalEntry entry : posTaggedToken.getLexicalEntries()) {
-            if (!lemmas.contains(entry.getLemma())) {
-              if (dropCurrentWord && posTaggedToken.getToken().getText().equals(entry.getLemma())) {
-                dropCurrentWord = false;
-                continue;
-              }
-              stringBuilder.append("|" + entry.getLemma());
-              // stringBuilder.append("/" + entry.getCategory());
-              stringBuilder.append("/" + entry.getMorphology());
-              lemmas.add(entry.getLemma());
+  private List<PosTagSequence> tagSentence(PosTagSequence realPosTagSequence, Tokeniser tokeniser, PosTagger posTagger)
+      throws TalismaneException, IOException {
+    List<TokenSequence> tokenSequences = null;
+    List<PosTagSequence> guessedSequences = null;
+
+    TokenSequence tokenSequence = realPosTagSequence.getTokenSequence();
+    PosTagSequence guessedSequence = null;
+
+    if (tokeniser != null) {
+      Sentence sentence = tokenSequence.getSentence();
+
+      tokenSequences = tokeniser.tokenise(sentence);
+      tokenSequence = tokenSequences.get(0);
+    } else {
+      tokenSequences = new ArrayList<TokenSequence>();
+      tokenSequences.add(tokenSequence);
+    }
+
+    if (posTagger instanceof NonDeterministicPosTagger) {
+      NonDeterministicPosTagger nonDeterministicPosTagger = (NonDeterministicPosTagger) posTagger;
+      guessedSequences = nonDeterministicPosTagger.tagSentence(tokenSequences);
+      guessedSequence = guessedSequences.get(0);
+    } else {
+      guessedSequence = posTagger.tagSentence(tokenSequence);
+    }
+
+    if (LOG.isDebugEnabled()) {
+      StringBuilder stringBuilder = new StringBuilder();
+      for (PosTaggedToken posTaggedToken : guessedSequence) {
+        Set<String> lemmas = new TreeSet<String>();
+        stringBuilder.append(posTaggedToken.getToken().getOriginalText());
+        stringBuilder.append("[" + posTaggedToken.getTag());
+
+        List<LexicalEntry> entries = posTaggedToken.getLexicalEntries();
+        boolean dropCurrentWord = false;
+        if (entries.size() > 1)
+          dropCurrentWord = true;
+        for (LexicalEntry entry : posTaggedToken.getLexicalEntries()) {
+          if (!lemmas.contains(entry.getLemma())) {
+            if (dropCurrentWord && posTaggedToken.getToken().getText().equals(entry.getLemma())) {
+              dropCurrentWord = false;
+              continue;
             }
+            stringBuilder.append("|" + entry.getLemma());
+            // stringBuilder.append("/" + entry.getCategory());
+            stringBuilder.append("/" + entry.getMorphology());
+            lemmas.add(entry.getLemma());
           }
-          stringBuilder.append("] ");
         }
-        LOG.debug(stringBuilder.toString());
-      }
-
-      for (PosTagEvaluationObserver observer : this.observers) {
-        observer.onNextPosTagSequence(realPosTagSequence, guessedSequences);
+        stringBuilder.append("] ");
       }
-    } // next sentence
+      LOG.debug(stringBuilder.toString());
+    }
+    return guessedSequences;
+  }
 
+  private void notifyObservers(PosTagResult result) throws TalismaneException, IOException {
     for (PosTagEvaluationObserver observer : this.observers) {
-      observer.onEvaluationComplete();
+      observer.onNextPosTagSequence(result.realPosTagSequence, result.guessedSequences);
+    }
+  }
+
+  private void writeThroughput(int sentenceCount, int tokenCount, long totalTime) throws IOException {
+    double seconds = totalTime / 1000.0;
+    double sentencesPerSecond = seconds > 0 ? sentenceCount / seconds : 0.0;
+    double tokensPerSecond = seconds > 0 ? tokenCount / seconds : 0.0;
+
+    int beamWidth = 1;
+    if (posTagger instanceof NonDeterministicPosTagger)
+      beamWidth = ((NonDeterministicPosTagger) posTagger).getBeamWidth();
+    AdaptiveBeam adaptiveBeam = null;
+    if (posTagger instanceof ForwardStatisticalPosTagger)
+      adaptiveBeam = ((ForwardStatisticalPosTagger) posTagger).getAdaptiveBeam();
+    boolean adaptive = adaptiveBeam != null && adaptiveBeam.isEnabled();
+    double averageBeamWidth = adaptiveBeam != null ? adaptiveBeam.getAverageBeamWidth() : beamWidth;
+
+    DecimalFormat df = new DecimalFormat("0.00");
+    LOG.info("##################");
+    LOG.info("Throughput: " + sentenceCount + " sentences, " + tokenCount + " tokens in " + df.format(seconds) + " seconds");
+    LOG.info("Sentences per second: " + df.format(sentencesPerSecond) + ", tokens per second: " + df.format(tokensPerSecond));
+    LOG.info("Beam width: " + beamWidth + ", adaptive: " + adaptive + ", average beam width explored: " + df.format(averageBeamWidth));
+    LOG.info("##################");
+
+    if (outDir != null) {
+      File throughputFile = new File(outDir, TalismaneSession.get(sessionId).getBaseName() + ".throughput.csv");
+      try (Writer writer = new BufferedWriter(
+          new OutputStreamWriter(new FileOutputStream(throughputFile, false), TalismaneSession.get(sessionId).getCsvCharset()))) {
+        writer.write(CSV.format("beamWidth") + CSV.format("adaptive") + CSV.format("avgBeamWidth") + CSV.format("sentences") + CSV.format("tokens")
+            + CSV.format("seconds") + CSV.format("sentencesPerSecond") + CSV.format("tokensPerSecond") + "\n");
+        writer.write(CSV.format(beamWidth) + CSV.format(adaptive) + CSV.format(averageBeamWidth) + CSV.format(sentenceCount) + CSV.format(tokenCount)
+            + CSV.format(seconds) + CSV.format(sentencesPerSecond) + CSV.format(tokensPerSecond) + "\n");
+      }
     }
   }
 
@@ -190,4 +294,27 @@ public class PosTaggerEvaluator {
     this.observers.add(observer);
   }
 
+  /**
+   * The number of threads on which sentences are analysed. If more than one,
+   * the pos-tagger and tokeniser are cloned for each thread, and observers are
+   * notified in corpus order by the thread calling {@link #evaluate()}.
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public void setThreadCount(int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  private static final class PosTagResult {
+    private final PosTagSequence realPosTagSequence;
+    private final List<PosTagSequence> guessedSequences;
+
+    private PosTagResult(PosTagSequence realPosTagSequence, List<PosTagSequence> guessedSequences) {
+      this.realPosTagSequence = realPosTagSequence;
+      this.guessedSequences = guessedSequences;
+    }
+  }
+
 }
@@ -0,0 +1,78 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2014 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.posTagger.output;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.joliciel.talismane.AsyncProcessingStage;
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.utils.io.CurrentFileObserver;
+
+/**
+ * Passes pos-tag sequences to a wrapped processor on the writer thread of an
+ * {@link AsyncProcessingStage}.<br>
+ * <br>
+ * Since the parser prepends a root to the pos-tag sequence it parses, the
+ * wrapped processor receives a clone.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class AsyncPosTagSequenceProcessor implements PosTagSequenceProcessor, CurrentFileObserver {
+  private final PosTagSequenceProcessor processor;
+  private final AsyncProcessingStage stage;
+
+  public AsyncPosTagSequenceProcessor(PosTagSequenceProcessor processor, AsyncProcessingStage stage) {
+    this.processor = processor;
+    this.stage = stage;
+  }
+
+  @Override
+  public void onNextPosTagSequence(PosTagSequence posTagSequence) throws TalismaneException, IOException {
+    PosTagSequence clone = posTagSequence.clonePosTagSequence();
+    stage.submit(() -> processor.onNextPosTagSequence(clone));
+  }
+
+  @Override
+  public void onCompleteAnalysis() throws IOException {
+    stage.submit(processor::onCompleteAnalysis);
+  }
+
+  @Override
+  public void onNextFile(File file) {
+    if (processor instanceof CurrentFileObserver) {
+      try {
+        stage.submit(() -> ((CurrentFileObserver) processor).onNextFile(file));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    stage.submit(processor::close);
+  }
+
+  public PosTagSequenceProcessor getProcessor() {
+    return processor;
+  }
+}
@@ -0,0 +1,211 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.rawText;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.AnnotatedText;
+import com.joliciel.talismane.Annotation;
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.tokeniser.TokenAttribute;
+
+/**
+ * Applies a list of raw text annotators in a single scan of the text, rather
+ * than one scan per annotator.<br>
+ * <br>
+ * The patterns of all {@link RawTextRegexAnnotator}s are merged into a single
+ * alternation of look-aheads, each followed by an empty marker group, e.g.
+ * <code>(?=regex1)()|(?=regex2)()</code>. This combined pattern only stops at
+ * positions where at least one of the annotators matches, and the marker groups
+ * indicate which one. Subsequent annotators are then tested at the same
+ * position, since they may also match there.<br>
+ * <br>
+ * The results are identical to applying each annotator in turn: for each
+ * annotator, a match is only accepted if it begins after the end of that
+ * annotator's previous match, and the annotations are added to the text in the
+ * original annotator order, so that ties between annotations on the same span
+ * are resolved as before.<br>
+ * <br>
+ * Patterns which cannot be safely embedded in a larger pattern (numbered or
+ * named back-references, named groups, or the \G boundary), and annotators
+ * which are not regex-based, are applied separately, at their original
+ * position in the list.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class CombinedRawTextAnnotator implements RawTextAnnotator {
+  private static final Logger LOG = LoggerFactory.getLogger(CombinedRawTextAnnotator.class);
+  private static final Pattern NON_COMBINABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\\\G|\\(\\?<[a-zA-Z]");
+
+  private final List<RawTextAnnotator> annotators;
+  private final List<RawTextRegexAnnotator> combinedAnnotators = new ArrayList<>();
+  private final int[] combinedIndexes;
+  private final int[] markerGroups;
+  private final Pattern pattern;
+  private final int blockSize;
+
+  public CombinedRawTextAnnotator(List<RawTextAnnotator> annotators) {
+    this.annotators = Collections.unmodifiableList(new ArrayList<>(annotators));
+    this.combinedIndexes = new int[annotators.size()];
+
+    StringBuilder sb = new StringBuilder();
+    List<Integer> markerGroupList = new ArrayList<>();
+    int groupCount = 0;
+    int maxBlockSize = 0;
+    for (int i = 0; i < annotators.size(); i++) {
+      RawTextAnnotator annotator = annotators.get(i);
+      if (annotator.getBlockSize() > maxBlockSize)
+        maxBlockSize = annotator.getBlockSize();
+      combinedIndexes[i] = -1;
+      if (!(annotator instanceof RawTextRegexAnnotator))
+        continue;
+      RawTextRegexAnnotator regexAnnotator = (RawTextRegexAnnotator) annotator;
+      if (NON_COMBINABLE.matcher(regexAnnotator.getFind()).find()) {
+        if (LOG.isDebugEnabled())
+          LOG.debug("Cannot combine, will apply separately: " + regexAnnotator);
+        continue;
+      }
+
+      if (sb.length() > 0)
+        sb.append('|');
+      sb.append("(?=").append(regexAnnotator.getFind()).append(")()");
+      groupCount += regexAnnotator.getPattern().matcher("").groupCount() + 1;
+      markerGroupList.add(groupCount);
+      combinedIndexes[i] = combinedAnnotators.size();
+      combinedAnnotators.add(regexAnnotator);
+    }
+    this.blockSize = maxBlockSize;
+    this.markerGroups = new int[markerGroupList.size()];
+    for (int i = 0; i < markerGroups.length; i++)
+      markerGroups[i] = markerGroupList.get(i);
+    this.pattern = combinedAnnotators.size() > 0 ? Pattern.compile(sb.toString(), Pattern.UNICODE_CHARACTER_CLASS) : null;
+
+    if (LOG.isDebugEnabled())
+      LOG.debug("Combined " + combinedAnnotators.size() + " out of " + annotators.size() + " text annotators");
+  }
+
+  @Override
+  public void annotate(AnnotatedText textBlock, String... labels) throws TalismaneException, IOException {
+    int combinedCount = combinedAnnotators.size();
+    List<List<Annotation<RawTextMarker>>> rawTextMarkers = new ArrayList<>(combinedCount);
+    List<List<Annotation<TokenAttribute<?>>>> tokenAttributes = new ArrayList<>(combinedCount);
+    for (int k = 0; k < combinedCount; k++) {
+      rawTextMarkers.add(new ArrayList<>());
+      tokenAttributes.add(new ArrayList<>());
+    }
+
+    if (pattern != null) {
+      Matcher[] regionMatchers = new Matcher[combinedCount];
+      int[] nextStarts = new int[combinedCount];
+
+      Matcher matcher = pattern.matcher(textBlock.getText());
+      while (matcher.find()) {
+        int position = matcher.start();
+        int first = 0;
+        while (first < combinedCount && matcher.start(markerGroups[first]) < 0)
+          first++;
+
+        // annotators before the first one didn't match here, annotators after
+        // it have to be tested separately
+        for (int k = first; k < combinedCount; k++) {
+          if (position < nextStarts[k])
+            continue;
+          if (regionMatchers[k] == null)
+            regionMatchers[k] = combinedAnnotators.get(k).getRegionMatcher(textBlock.getText());
+          int nextStart = combinedAnnotators.get(k).annotateAt(textBlock, regionMatchers[k], position, rawTextMarkers.get(k), tokenAttributes.get(k),
+              labels);
+          if (nextStart >= 0)
+            nextStarts[k] = nextStart;
+        }
+      }
+    }
+
+    // add annotations in the original annotator order
+    for (int i = 0; i < annotators.size(); i++) {
+      int k = combinedIndexes[i];
+      if (k < 0) {
+        annotators.get(i).annotate(textBlock, labels);
+      } else {
+        if (LOG.isDebugEnabled() && rawTextMarkers.get(k).size() > 0) {
+          LOG.debug("For regex: " + combinedAnnotators.get(k).getFind().replace('\n', '¶').replace('\r', '¶'));
+          LOG.debug("Added annotations: " + rawTextMarkers.get(k));
+        }
+        if (rawTextMarkers.get(k).size() > 0)
+          textBlock.addAnnotations(rawTextMarkers.get(k));
+        if (tokenAttributes.get(k).size() > 0)
+          textBlock.addAnnotations(tokenAttributes.get(k));
+      }
+    }
+  }
+
+  /**
+   * The annotators combined by this annotator, in their original order.
+   */
+  public List<RawTextAnnotator> getAnnotators() {
+    return annotators;
+  }
+
+  /**
+   * Not applicable: each combined annotator has its own replacement.
+   */
+  @Override
+  public String getReplacement() {
+    return null;
+  }
+
+  @Override
+  public void setReplacement(String replacement) {
+    throw new TalismaneException("Cannot set replacement on " + CombinedRawTextAnnotator.class.getSimpleName());
+  }
+
+  /**
+   * The largest block size among the combined annotators.
+   */
+  @Override
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Not applicable: each combined annotator has its own attribute.
+   */
+  @Override
+  public TokenAttribute<?> getAttribute() {
+    return null;
+  }
+
+  @Override
+  public void setAttribute(TokenAttribute<?> attribute) {
+    throw new TalismaneException("Cannot set attribute on " + CombinedRawTextAnnotator.class.getSimpleName());
+  }
+
+  @Override
+  public String toString() {
+    return "CombinedRawTextAnnotator [annotators=" + annotators + "]";
+  }
+}
@@ -0,0 +1,74 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.rawText;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.joliciel.talismane.Annotation;
+import com.joliciel.talismane.tokeniser.TokenAttribute;
+
+/**
+ * The match state of a single {@link RawTextRegexAnnotator} across successive
+ * blocks of the same text stream, when annotating in incremental mode (see
+ * {@link RawTextRegexAnnotator#annotate(com.joliciel.talismane.AnnotatedText, RawTextMatchState, String...)}).
+ * <br>
+ * <br>
+ * All positions are relative to the start of the next block to be annotated,
+ * which is the analysis end of the previous block. Not thread-safe: a new state
+ * is required for each text stream.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class RawTextMatchState {
+  private final int overlap;
+  private int resumeIndex = 0;
+  final List<Annotation<RawTextMarker>> pendingRawTextMarkers = new ArrayList<>();
+  final List<Annotation<TokenAttribute<?>>> pendingTokenAttributes = new ArrayList<>();
+
+  /**
+   * @param overlap
+   *          the maximum number of characters at the end of a block which can
+   *          begin a match that is only completed by the following block, and
+   *          which therefore need to be rescanned. Should be at least as large
+   *          as the longest expected match.
+   */
+  public RawTextMatchState(int overlap) {
+    this.overlap = overlap;
+  }
+
+  /**
+   * See {@link #RawTextMatchState(int)}.
+   */
+  public int getOverlap() {
+    return overlap;
+  }
+
+  /**
+   * The position in the next block at which scanning should resume.
+   */
+  public int getResumeIndex() {
+    return resumeIndex;
+  }
+
+  void setResumeIndex(int resumeIndex) {
+    this.resumeIndex = resumeIndex;
+  }
+}
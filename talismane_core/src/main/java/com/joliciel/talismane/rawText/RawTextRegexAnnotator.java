@@ -101,65 +101,14 @@ public class RawTextRegexAnnotator implements RawTextAnnotator {
             + ", analysisStart=" + textBlock.getAnalysisStart() + ", analysisEnd=" + textBlock.getAnalysisEnd());
       }
 
-      if (blockSize > 0 && matcherEnd - matcherStart > blockSize) {
-        String errorString = "Match size (" + (matcherEnd - matcherStart) + ") bigger than block size (" + blockSize + "). "
-            + "Increase blockSize or change filter. " + "Maybe you need to change a greedy quantifier (e.g. .*) to a reluctant quantifier (e.g. .*?)? "
-            + "Regex: " + regex + ". Text: " + matchText;
-        throw new MatchTooLargeException(errorString);
-      }
+      this.checkMatchSize(textBlock.getText(), matcher, matcherStart, matcherEnd);
 
       if (matcherStart >= textBlock.getAnalysisStart() && matcherStart < textBlock.getAnalysisEnd()) {
         if (LOG.isTraceEnabled()) {
           LOG.trace("Start in range: analysisStart " + textBlock.getAnalysisStart() + ">= matcherStart [[" + matcherStart + "]] < analysisEnd "
               + textBlock.getAnalysisEnd());
         }
-
-        for (RawTextMarkType filterType : filterTypes) {
-
-          switch (filterType) {
-          case REPLACE: {
-            String insertionText = RegexUtils.getReplacement(replacement, textBlock.getText(), matcher);
-            if (LOG.isTraceEnabled()) {
-              LOG.trace("Setting replacement to: " + insertionText);
-            }
-            RawTextMarker marker = new RawTextReplaceMarker(this.toString(), insertionText);
-            Annotation<RawTextMarker> annotation = new Annotation<>(matcherStart, matcherEnd, marker, labels);
-            rawTextMarkers.add(annotation);
-            break;
-          }
-          case SENTENCE_BREAK: {
-            RawTextMarker marker = new RawTextSentenceBreakMarker(this.toString());
-            Annotation<RawTextMarker> annotation = new Annotation<>(matcherStart, matcherEnd, marker, labels);
-            rawTextMarkers.add(annotation);
-            break;
-          }
-          case NO_SENTENCE_BREAK: {
-            RawTextMarker marker = new RawTextNoSentenceBreakMarker(this.toString());
-            Annotation<RawTextMarker> annotation = new Annotation<>(matcherStart, matcherEnd, marker, labels);
-            rawTextMarkers.add(annotation);
-            break;
-
-          }
-          case SKIP: {
-            RawTextMarker marker = new RawTextSkipMarker(this.toString());
-            Annotation<RawTextMarker> annotation = new Annotation<>(matcherStart, matcherEnd, marker, labels);
-            rawTextMarkers.add(annotation);
-            break;
-          }
-          case TAG: {
-            Annotation<TokenAttribute<?>> annotation = new Annotation<TokenAttribute<?>>(matcherStart, matcherEnd, this.attribute, labels);
-            tokenAttributes.add(annotation);
-            break;
-          }
-          default: {
-            RawTextMarker marker = new RawTextMarker(filterType, this.toString());
-            Annotation<RawTextMarker> annotation = new Annotation<>(matcherStart, matcherEnd, marker, labels);
-            rawTextMarkers.add(annotation);
-            break;
-          }
-          }
-
-        }
+        this.addMarkers(textBlock.getText(), matcher, matcherStart, matcherEnd, 0, rawTextMarkers, tokenAttributes, labels);
       } else {
         if (LOG.isTraceEnabled()) {
           LOG.trace("Start out of range: analysisStart " + textBlock.getAnalysisStart() + ">= matcherStart [[" + matcherStart + "]] < analysisEnd "
@@ -181,6 +130,200 @@ public class RawTextRegexAnnotator implements RawTextAnnotator {
       textBlock.addAnnotations(tokenAttributes);
   }
 
+  /**
+   * Annotates a block in incremental mode: rather than rescanning the entire
+   * right-hand context on each call, the scan resumes where the previous call
+   * on the same text stream left off. Matches found in the right-hand context
+   * whose outcome could not have been changed by further input (see
+   * {@link Matcher#hitEnd()}) are retained in the state and added on the next
+   * call, once they fall within the analysis range. Only the last
+   * {@link RawTextMatchState#getOverlap()} characters of the right-hand context
+   * without any confirmed match are rescanned on the next call.<br>
+   * <br>
+   * It is assumed that each call's text begins exactly at the previous call's
+   * analysis end, as is the case for
+   * {@link RollingTextBlock#getRawTextBlock()}.
+   * 
+   * @param textBlock
+   *          the block to annotate
+   * @param state
+   *          the match state for the current text stream, updated by this call
+   * @throws MatchTooLargeException
+   *           if a match is larger than the block size, or larger than the
+   *           state's overlap
+   */
+  public void annotate(AnnotatedText textBlock, RawTextMatchState state, String... labels) throws MatchTooLargeException {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Incrementally matching " + regex.replace('\n', '¶').replace('\r', '¶') + " from " + state.getResumeIndex());
+    }
+
+    CharSequence text = textBlock.getText();
+    int analysisEnd = textBlock.getAnalysisEnd();
+
+    List<Annotation<RawTextMarker>> rawTextMarkers = new ArrayList<>(state.pendingRawTextMarkers);
+    List<Annotation<TokenAttribute<?>>> tokenAttributes = new ArrayList<>(state.pendingTokenAttributes);
+    state.pendingRawTextMarkers.clear();
+    state.pendingTokenAttributes.clear();
+
+    int from = Math.min(state.getResumeIndex(), text.length());
+    int resumeIndex = -1;
+
+    Matcher matcher = this.getRegionMatcher(text);
+    matcher.region(from, text.length());
+
+    while (matcher.find()) {
+      int matcherStart = groupIndex == 0 ? matcher.start() : matcher.start(groupIndex);
+      int matcherEnd = groupIndex == 0 ? matcher.end() : matcher.end(groupIndex);
+
+      this.checkMatchSize(text, matcher, matcherStart, matcherEnd);
+      if (state.getOverlap() > 0 && matcher.end() - matcher.start() > state.getOverlap()) {
+        throw new MatchTooLargeException("Match size (" + (matcher.end() - matcher.start()) + ") bigger than incremental annotation overlap ("
+            + state.getOverlap() + "). Increase the overlap or change filter. Regex: " + regex + ". Text: " + text.subSequence(matcher.start(), matcher.end()));
+      }
+
+      if (matcherStart < analysisEnd) {
+        if (matcherStart >= textBlock.getAnalysisStart())
+          this.addMarkers(text, matcher, matcherStart, matcherEnd, 0, rawTextMarkers, tokenAttributes, labels);
+      } else if (!matcher.hitEnd()) {
+        // this match cannot be changed by further input: keep it for the next
+        // block, in which it will be inside the analysis range
+        this.addMarkers(text, matcher, matcherStart, matcherEnd, analysisEnd, state.pendingRawTextMarkers, state.pendingTokenAttributes, labels);
+      } else {
+        // the match might change once more text is available - only positions
+        // which can still begin a match no longer than the overlap get
+        // rescanned
+        resumeIndex = Math.max(from, Math.min(matcher.start(), text.length() - state.getOverlap()));
+        break;
+      }
+
+      from = matcher.end() == matcher.start() ? matcher.end() + 1 : matcher.end();
+    }
+
+    if (resumeIndex < 0)
+      resumeIndex = Math.max(from, text.length() - state.getOverlap());
+    resumeIndex = Math.max(resumeIndex, analysisEnd);
+    state.setResumeIndex(resumeIndex - analysisEnd);
+
+    if (LOG.isDebugEnabled() && rawTextMarkers.size() > 0) {
+      LOG.debug("For regex: " + this.regex.replace('\n', '¶').replace('\r', '¶'));
+      LOG.debug("Added annotations: " + rawTextMarkers);
+    }
+
+    if (rawTextMarkers.size() > 0)
+      textBlock.addAnnotations(rawTextMarkers);
+    if (tokenAttributes.size() > 0)
+      textBlock.addAnnotations(tokenAttributes);
+  }
+
+  /**
+   * Adds the markers for a match of this annotator's pattern beginning exactly
+   * at the position provided, exactly as if it had been found by
+   * {@link #annotate(AnnotatedText, String...)}. Used when another component
+   * has already located the match start, e.g. {@link CombinedRawTextAnnotator}.
+   * 
+   * @param matcher
+   *          a matcher for this annotator's pattern on the text block, with
+   *          transparent and non-anchoring bounds
+   * @return the position at which this annotator's next match can begin, or -1
+   *         if the pattern does not match at this position
+   */
+  int annotateAt(AnnotatedText textBlock, Matcher matcher, int position, List<Annotation<RawTextMarker>> rawTextMarkers,
+      List<Annotation<TokenAttribute<?>>> tokenAttributes, String... labels) throws MatchTooLargeException {
+    matcher.region(position, textBlock.getText().length());
+    if (!matcher.lookingAt())
+      return -1;
+
+    int matcherStart = groupIndex == 0 ? matcher.start() : matcher.start(groupIndex);
+    int matcherEnd = groupIndex == 0 ? matcher.end() : matcher.end(groupIndex);
+
+    this.checkMatchSize(textBlock.getText(), matcher, matcherStart, matcherEnd);
+
+    if (matcherStart >= textBlock.getAnalysisStart() && matcherStart < textBlock.getAnalysisEnd())
+      this.addMarkers(textBlock.getText(), matcher, matcherStart, matcherEnd, 0, rawTextMarkers, tokenAttributes, labels);
+
+    return matcher.end() == matcher.start() ? matcher.end() + 1 : matcher.end();
+  }
+
+  /**
+   * A matcher for this annotator's pattern, with transparent and non-anchoring
+   * bounds, so that matching within a region behaves exactly as matching
+   * against the whole text.
+   */
+  Matcher getRegionMatcher(CharSequence text) {
+    Matcher matcher = pattern.matcher(text);
+    matcher.useTransparentBounds(true);
+    matcher.useAnchoringBounds(false);
+    return matcher;
+  }
+
+  Pattern getPattern() {
+    return pattern;
+  }
+
+  private void checkMatchSize(CharSequence text, Matcher matcher, int matcherStart, int matcherEnd) throws MatchTooLargeException {
+    if (blockSize > 0 && matcherEnd - matcherStart > blockSize) {
+      CharSequence matchText = text.subSequence(matcher.start(), matcher.end());
+      String errorString = "Match size (" + (matcherEnd - matcherStart) + ") bigger than block size (" + blockSize + "). "
+          + "Increase blockSize or change filter. " + "Maybe you need to change a greedy quantifier (e.g. .*) to a reluctant quantifier (e.g. .*?)? "
+          + "Regex: " + regex + ". Text: " + matchText;
+      throw new MatchTooLargeException(errorString);
+    }
+  }
+
+  /**
+   * Add the markers corresponding to the current match to the lists provided,
+   * shifting them leftwards by the offset provided.
+   */
+  private void addMarkers(CharSequence text, Matcher matcher, int matcherStart, int matcherEnd, int offset, List<Annotation<RawTextMarker>> rawTextMarkers,
+      List<Annotation<TokenAttribute<?>>> tokenAttributes, String... labels) {
+    int start = matcherStart - offset;
+    int end = matcherEnd - offset;
+    for (RawTextMarkType filterType : filterTypes) {
+      switch (filterType) {
+      case REPLACE: {
+        String insertionText = RegexUtils.getReplacement(replacement, text, matcher);
+        if (LOG.isTraceEnabled()) {
+          LOG.trace("Setting replacement to: " + insertionText);
+        }
+        RawTextMarker marker = new RawTextReplaceMarker(this.toString(), insertionText);
+        Annotation<RawTextMarker> annotation = new Annotation<>(start, end, marker, labels);
+        rawTextMarkers.add(annotation);
+        break;
+      }
+      case SENTENCE_BREAK: {
+        RawTextMarker marker = new RawTextSentenceBreakMarker(this.toString());
+        Annotation<RawTextMarker> annotation = new Annotation<>(start, end, marker, labels);
+        rawTextMarkers.add(annotation);
+        break;
+      }
+      case NO_SENTENCE_BREAK: {
+        RawTextMarker marker = new RawTextNoSentenceBreakMarker(this.toString());
+        Annotation<RawTextMarker> annotation = new Annotation<>(start, end, marker, labels);
+        rawTextMarkers.add(annotation);
+        break;
+
+      }
+      case SKIP: {
+        RawTextMarker marker = new RawTextSkipMarker(this.toString());
+        Annotation<RawTextMarker> annotation = new Annotation<>(start, end, marker, labels);
+        rawTextMarkers.add(annotation);
+        break;
+      }
+      case TAG: {
+        Annotation<TokenAttribute<?>> annotation = new Annotation<TokenAttribute<?>>(start, end, this.attribute, labels);
+        tokenAttributes.add(annotation);
+        break;
+      }
+      default: {
+        RawTextMarker marker = new RawTextMarker(filterType, this.toString());
+        Annotation<RawTextMarker> annotation = new Annotation<>(start, end, marker, labels);
+        rawTextMarkers.add(annotation);
+        break;
+      }
+      }
+    }
+  }
+
   public String getFind() {
     return regex;
   }
@@ -19,9 +19,12 @@
 package com.joliciel.talismane.rawText;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +32,7 @@ import org.slf4j.LoggerFactory;
 import com.joliciel.talismane.AnnotatedText;
 import com.joliciel.talismane.Annotation;
 import com.joliciel.talismane.AnnotationObserver;
+import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.utils.io.CurrentFileObserver;
 import com.joliciel.talismane.utils.io.CurrentFileProvider;
@@ -84,11 +88,7 @@ import com.joliciel.talismane.utils.io.CurrentFileProvider;
  *   rollingTextBlock = rollingTextBlock.roll(segment);
  * 
  *   // annotate block 3 with raw text filters
- *   AnnotatedText rawTextBlock = rollingTextBlock.getRawTextBlock();
- * 
- *   for (RawTextAnnotator annotator : session.getTextAnnotators()) {
- *     annotator.annotate(rawTextBlock);
- *   }
+ *   rollingTextBlock.annotateRawTextBlock(session.getTextAnnotators());
  * 
  *   // detect sentences in block 2 using the sentence detector
  *   AnnotatedText processedText = rollingTextBlock.getProcessedText();
@@ -102,6 +102,12 @@ import com.joliciel.talismane.utils.io.CurrentFileProvider;
  * }
  * </pre>
  * 
+ * When incremental text annotation is configured, regex-based annotators do
+ * not rescan block 4 in its entirety each time it is used as context: the
+ * match state of each annotator is carried from one roll to the next, so that
+ * each character is scanned roughly once. See
+ * {@link #annotateRawTextBlock(List)}.
+ * 
  * @author Assaf Urieli
  *
  */
@@ -121,6 +127,7 @@ public class RollingTextBlock extends RawTextProcessor {
   private SentenceHolder sentenceHolder3 = null;
 
   private final String sessionId;
+  private final Map<RawTextAnnotator, RawTextMatchState> matchStates;
 
   /**
    * Creates a new RollingTextBlock with prev, current and next all set to empty
@@ -133,6 +140,7 @@ public class RollingTextBlock extends RawTextProcessor {
     this.block2 = "";
     this.block3 = "";
     this.block4 = "";
+    this.matchStates = new IdentityHashMap<>();
 
     this.sentenceHolder1 = new SentenceHolder(0, true, sessionId);
     this.sentenceHolder1.setProcessedText("");
@@ -157,6 +165,7 @@ public class RollingTextBlock extends RawTextProcessor {
     this.block4 = nextText;
 
     this.sessionId = predecessor.sessionId;
+    this.matchStates = predecessor.matchStates;
 
     this.file = predecessor.file;
     this.provider = predecessor.provider;
@@ -262,6 +271,37 @@ public class RollingTextBlock extends RawTextProcessor {
     return rawTextBlock;
   }
 
+  /**
+   * Annotate block 3 with the annotators provided, using block 4 as the
+   * right-hand context, as per {@link #getRawTextBlock()}.<br>
+   * <br>
+   * If incremental text annotation is configured, any
+   * {@link RawTextRegexAnnotator} resumes scanning from where it stopped in
+   * the previous block, based on a {@link RawTextMatchState} which is kept
+   * for the lifetime of this text stream. This requires this method to be
+   * called exactly once after each roll. Other annotators are applied to the
+   * whole raw text block.
+   * 
+   * @throws TalismaneException
+   *           if an annotator fails
+   */
+  public void annotateRawTextBlock(List<RawTextAnnotator> annotators) throws TalismaneException, IOException {
+    TalismaneSession session = TalismaneSession.get(sessionId);
+    AnnotatedText rawTextBlock = this.getRawTextBlock();
+    for (RawTextAnnotator annotator : annotators) {
+      if (session.isIncrementalTextAnnotation() && annotator instanceof RawTextRegexAnnotator) {
+        RawTextMatchState matchState = matchStates.get(annotator);
+        if (matchState == null) {
+          matchState = new RawTextMatchState(session.getTextAnnotatorOverlap());
+          matchStates.put(annotator, matchState);
+        }
+        ((RawTextRegexAnnotator) annotator).annotate(rawTextBlock, matchState);
+      } else {
+        annotator.annotate(rawTextBlock);
+      }
+    }
+  }
+
   /**
    * Processes the current text based on annotations added to block 3, and
    * returns a SentenceHolder.
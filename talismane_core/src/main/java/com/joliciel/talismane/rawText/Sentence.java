@@ -29,6 +29,7 @@ import org.slf4j.LoggerFactory;
 
 import com.joliciel.talismane.AnnotatedText;
 import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.tokeniser.TokenFeatureMemo;
 
 /**
  * A sentence detected by the sentence detector, including information about the
@@ -55,6 +56,10 @@ public class Sentence extends AnnotatedText implements Serializable {
   private transient File file;
   private int startLineNumber = -1;
   private String leftoverOriginalText = "";
+  private transient volatile TokenFeatureMemo tokenFeatureMemo;
+  private transient volatile boolean tokenFeatureMemoReleased = false;
+  private transient boolean analysisStarted = false;
+  private transient long analysisStartTime;
 
   protected final String sessionId;
 
@@ -84,6 +89,49 @@ public class Sentence extends AnnotatedText implements Serializable {
     this(text, null, sessionId);
   }
 
+  /**
+   * The memo of context-free token features shared by all modules analysing
+   * this sentence, created the first time it is requested, or null once it
+   * has been released, in which case callers compute features without it.
+   */
+  public TokenFeatureMemo getTokenFeatureMemo() {
+    TokenFeatureMemo tokenFeatureMemo = this.tokenFeatureMemo;
+    if (tokenFeatureMemo == null && !tokenFeatureMemoReleased) {
+      synchronized (this) {
+        tokenFeatureMemo = this.tokenFeatureMemo;
+        if (tokenFeatureMemo == null && !tokenFeatureMemoReleased) {
+          TalismaneSession session = TalismaneSession.get(sessionId);
+          tokenFeatureMemo = new TokenFeatureMemo(session.getMergedLexicon(), session.getLocale());
+          this.tokenFeatureMemo = tokenFeatureMemo;
+        }
+      }
+    }
+    return tokenFeatureMemo;
+  }
+
+  /**
+   * Release the memo of token features, once the sentence has been processed
+   * by the last module. Features requested later on, e.g. by an output
+   * writer, are computed without a memo rather than building a new one.
+   */
+  public synchronized void releaseTokenFeatureMemo() {
+    this.tokenFeatureMemoReleased = true;
+    this.tokenFeatureMemo = null;
+  }
+
+  /**
+   * The {@link System#nanoTime()} at which the analysis of this sentence
+   * started, i.e. the first time any module asked for it, so that all modules
+   * share a single time budget for the sentence.
+   */
+  public synchronized long getAnalysisStartTime() {
+    if (!analysisStarted) {
+      analysisStartTime = System.nanoTime();
+      analysisStarted = true;
+    }
+    return analysisStartTime;
+  }
+
   /**
    * Get the original text index of any character index within this sentence.
    */
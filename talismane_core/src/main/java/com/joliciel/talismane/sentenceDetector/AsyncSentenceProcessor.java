@@ -0,0 +1,68 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2014 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.sentenceDetector;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.joliciel.talismane.AsyncProcessingStage;
+import com.joliciel.talismane.rawText.Sentence;
+import com.joliciel.talismane.utils.io.CurrentFileObserver;
+
+/**
+ * Passes sentences to a wrapped processor on the writer thread of an
+ * {@link AsyncProcessingStage}.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class AsyncSentenceProcessor implements SentenceProcessor, CurrentFileObserver {
+  private final SentenceProcessor processor;
+  private final AsyncProcessingStage stage;
+
+  public AsyncSentenceProcessor(SentenceProcessor processor, AsyncProcessingStage stage) {
+    this.processor = processor;
+    this.stage = stage;
+  }
+
+  @Override
+  public void onNextSentence(Sentence sentence) throws IOException {
+    stage.submit(() -> processor.onNextSentence(sentence));
+  }
+
+  @Override
+  public void onNextFile(File file) {
+    if (processor instanceof CurrentFileObserver) {
+      try {
+        stage.submit(() -> ((CurrentFileObserver) processor).onNextFile(file));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    stage.submit(processor::close);
+  }
+
+  public SentenceProcessor getProcessor() {
+    return processor;
+  }
+}
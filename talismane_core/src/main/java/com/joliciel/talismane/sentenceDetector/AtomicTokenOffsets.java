@@ -0,0 +1,205 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.sentenceDetector;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.joliciel.talismane.tokeniser.Token;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+
+/**
+ * A compact, read-only representation of the default atomic tokens of a text,
+ * including white-space, as found by {@link TokenSequence#findDefaultTokens()}
+ * when there are no placeholders. Tokens are represented by their offsets only,
+ * so that a single instance can be shared by all of the possible sentence
+ * boundaries in a text block without creating any {@link Token} objects.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public final class AtomicTokenOffsets implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final CharSequence text;
+  private final int[] starts;
+  private final boolean[] separators;
+  private final boolean[] whiteSpaces;
+  private final int size;
+
+  /**
+   * Tokenise the text, using the token separators provided.
+   */
+  public AtomicTokenOffsets(CharSequence text, Pattern separatorPattern) {
+    this.text = text;
+    int capacity = 16;
+    int[] starts = new int[capacity];
+    boolean[] separators = new boolean[capacity];
+    int size = 0;
+
+    Matcher matcher = separatorPattern.matcher(text);
+    int currentPos = 0;
+    while (matcher.find()) {
+      int i = matcher.start();
+      if (i < currentPos)
+        continue;
+      if (size + 2 >= capacity) {
+        capacity *= 2;
+        starts = Arrays.copyOf(starts, capacity);
+        separators = Arrays.copyOf(separators, capacity);
+      }
+      if (i > currentPos)
+        starts[size++] = currentPos;
+      separators[size] = true;
+      starts[size++] = i;
+      currentPos = i + 1;
+    }
+    if (currentPos < text.length()) {
+      if (size + 1 >= capacity) {
+        starts = Arrays.copyOf(starts, capacity + 1);
+        separators = Arrays.copyOf(separators, capacity + 1);
+      }
+      starts[size++] = currentPos;
+    }
+
+    this.size = size;
+    this.starts = Arrays.copyOf(starts, size + 1);
+    this.starts[size] = text.length();
+    this.separators = Arrays.copyOf(separators, size);
+    this.whiteSpaces = new boolean[size];
+    for (int i = 0; i < size; i++)
+      this.whiteSpaces[i] = Token.isWhiteSpace(text.subSequence(this.starts[i], this.starts[i + 1]));
+  }
+
+  /**
+   * Build the offsets from an existing token sequence's tokens, including
+   * white-space.
+   */
+  public AtomicTokenOffsets(TokenSequence tokenSequence) {
+    tokenSequence.findDefaultTokens();
+    List<Token> tokens = tokenSequence.listWithWhiteSpace();
+    this.text = tokenSequence.getSentence().getText();
+    this.size = tokens.size();
+    this.starts = new int[size + 1];
+    this.separators = new boolean[size];
+    this.whiteSpaces = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      Token token = tokens.get(i);
+      starts[i] = token.getStartIndex();
+      separators[i] = token.isSeparator();
+      whiteSpaces[i] = token.isWhiteSpace();
+    }
+    starts[size] = size == 0 ? 0 : tokens.get(size - 1).getEndIndex();
+  }
+
+  /**
+   * The text which was tokenised.
+   */
+  public CharSequence getText() {
+    return text;
+  }
+
+  /**
+   * The number of tokens, including white-space.
+   */
+  public int size() {
+    return size;
+  }
+
+  public int getStart(int i) {
+    return starts[i];
+  }
+
+  public int getEnd(int i) {
+    return starts[i + 1];
+  }
+
+  public int length(int i) {
+    return starts[i + 1] - starts[i];
+  }
+
+  /**
+   * The first character of the i-th token.
+   */
+  public char firstChar(int i) {
+    return text.charAt(starts[i]);
+  }
+
+  public boolean isSeparator(int i) {
+    return separators[i];
+  }
+
+  public boolean isWhiteSpace(int i) {
+    return whiteSpaces[i];
+  }
+
+  /**
+   * Is the i-th token's text identical to the string provided.
+   */
+  public boolean textEquals(int i, String string) {
+    int start = starts[i];
+    int length = starts[i + 1] - start;
+    if (length != string.length())
+      return false;
+    for (int j = 0; j < length; j++) {
+      if (text.charAt(start + j) != string.charAt(j))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Append the i-th token's text to a string builder, without creating an
+   * intermediate string.
+   */
+  public void appendText(int i, StringBuilder sb) {
+    sb.append(text, starts[i], starts[i + 1]);
+  }
+
+  /**
+   * The i-th token's text.
+   */
+  public String getText(int i) {
+    return text.subSequence(starts[i], starts[i + 1]).toString();
+  }
+
+  /**
+   * The index of the token containing the character position provided, or -1
+   * if the position is outside of the text.
+   */
+  public int indexOf(int position) {
+    if (position < 0 || position >= starts[size])
+      return -1;
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (starts[mid + 1] <= position)
+        low = mid + 1;
+      else if (starts[mid] > position)
+        high = mid - 1;
+      else
+        return mid;
+    }
+    return -1;
+  }
+}
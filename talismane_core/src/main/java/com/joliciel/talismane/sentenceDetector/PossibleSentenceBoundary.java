@@ -19,12 +19,10 @@
 package com.joliciel.talismane.sentenceDetector;
 
 import java.io.Serializable;
-import java.util.List;
 
-import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.rawText.Sentence;
-import com.joliciel.talismane.tokeniser.Token;
 import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.joliciel.talismane.tokeniser.Tokeniser;
 import com.joliciel.talismane.utils.StringUtils;
 
 public class PossibleSentenceBoundary implements Serializable {
@@ -32,10 +30,24 @@ public class PossibleSentenceBoundary implements Serializable {
   private static final int NUM_CHARS = 30;
   private final CharSequence text;
   private final int index;
-  private final TokenSequence tokenSequence;
+  private final AtomicTokenOffsets tokenOffsets;
+  private final String sessionId;
+  private TokenSequence tokenSequence;
   private String string;
   private int tokenIndex = -1;
 
+  /**
+   * Build a possible sentence boundary from a shared tokenisation of the text,
+   * thus enabling us to re-use the same tokens for multiple possible sentence
+   * boundaries.
+   */
+  public PossibleSentenceBoundary(AtomicTokenOffsets tokenOffsets, int index, String sessionId) {
+    this.tokenOffsets = tokenOffsets;
+    this.text = tokenOffsets.getText();
+    this.index = index;
+    this.sessionId = sessionId;
+  }
+
   /**
    * Build a possible sentence boundary from a token sequence, thus enabling us
    * to re-use the same token sequence for multiple possible sentence
@@ -43,21 +55,18 @@ public class PossibleSentenceBoundary implements Serializable {
    */
   public PossibleSentenceBoundary(TokenSequence tokenSequence, int index) {
     this.tokenSequence = tokenSequence;
-    this.tokenSequence.findDefaultTokens();
+    this.tokenOffsets = new AtomicTokenOffsets(tokenSequence);
     this.text = tokenSequence.getSentence().getText();
     this.index = index;
+    this.sessionId = tokenSequence.getSessionId();
   }
 
   /**
-   * Build a possible sentence boundary for a given text, which means token
-   * sequences will be re-generated for each possible sentence boundary.
+   * Build a possible sentence boundary for a given text, which means the text
+   * will be re-tokenised for each possible sentence boundary.
    */
   public PossibleSentenceBoundary(CharSequence text, int index, String sessionId) {
-    this.text = text;
-    Sentence sentence = new Sentence(text.toString(), sessionId);
-    this.tokenSequence = new TokenSequence(sentence, sessionId);
-    this.tokenSequence.findDefaultTokens();
-    this.index = index;
+    this(new AtomicTokenOffsets(text, Tokeniser.getTokenSeparators(sessionId)), index, sessionId);
   }
 
   /**
@@ -77,9 +86,24 @@ public class PossibleSentenceBoundary implements Serializable {
   }
 
   /**
-   * A token sequence representing the text.
+   * The default atomic tokens of the text, including white-space, shared
+   * read-only by all boundaries in the same text.
+   */
+  public AtomicTokenOffsets getTokenOffsets() {
+    return tokenOffsets;
+  }
+
+  /**
+   * A token sequence representing the text. Features should prefer
+   * {@link #getTokenOffsets()}, since the token sequence is only constructed on
+   * demand.
    */
   public TokenSequence getTokenSequence() {
+    if (tokenSequence == null) {
+      Sentence sentence = new Sentence(text.toString(), sessionId);
+      tokenSequence = new TokenSequence(sentence, sessionId);
+      tokenSequence.findDefaultTokens();
+    }
     return tokenSequence;
   }
 
@@ -95,29 +119,9 @@ public class PossibleSentenceBoundary implements Serializable {
    */
   public int getTokenIndexWithWhitespace() {
     if (tokenIndex < 0) {
-      // perform binary search to find token index quickly
-      List<Token> tokens = this.getTokenSequence().listWithWhiteSpace();
-      int current = tokens.size() / 2;
-      int step = current;
-      while (tokenIndex < 0) {
-        Token token = tokens.get(current);
-        if (token.getStartIndex() <= index && index < token.getEndIndex()) {
-          tokenIndex = token.getIndexWithWhiteSpace();
-          break;
-        }
-        step = step / 2;
-        if (step < 1)
-          step = 1;
-
-        if (token.getStartIndex() <= index) {
-          current += step;
-        } else if (token.getStartIndex() > index) {
-          current -= step;
-        }
-        if (current < 0 || current >= tokens.size()) {
-          throw new RuntimeException("Binary search failed. Current = " + current + ", Size = " + tokens.size());
-        }
-      }
+      tokenIndex = tokenOffsets.indexOf(index);
+      if (tokenIndex < 0)
+        throw new RuntimeException("No token found at index " + index + ", text length = " + text.length());
     }
     return tokenIndex;
   }
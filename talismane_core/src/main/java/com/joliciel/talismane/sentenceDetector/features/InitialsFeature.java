@@ -22,8 +22,8 @@ import com.joliciel.talismane.NeedsSessionId;
 import com.joliciel.talismane.machineLearning.features.BooleanFeature;
 import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
+import com.joliciel.talismane.sentenceDetector.AtomicTokenOffsets;
 import com.joliciel.talismane.sentenceDetector.PossibleSentenceBoundary;
-import com.joliciel.talismane.tokeniser.Token;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -41,17 +41,14 @@ public final class InitialsFeature extends AbstractSentenceDetectorFeature<Boole
   public FeatureResult<Boolean> checkInternal(PossibleSentenceBoundary context, RuntimeEnvironment env) {
     FeatureResult<Boolean> result = null;
 
-    if (context.getBoundaryString().equals(".")) {
+    if (context.getText().charAt(context.getIndex()) == '.') {
       int tokenIndex = context.getTokenIndexWithWhitespace();
-
-      Token previousToken = null;
-      if (tokenIndex > 0)
-        previousToken = context.getTokenSequence().listWithWhiteSpace().get(tokenIndex - 1);
+      AtomicTokenOffsets tokens = context.getTokenOffsets();
 
       String isInitial = null;
 
-      if (previousToken != null && (!languageHasUppercaseLetters || Character.isUpperCase(previousToken.getOriginalText().charAt(0)))) {
-        if (previousToken.getOriginalText().length() == 1)
+      if (tokenIndex > 0 && (!languageHasUppercaseLetters || Character.isUpperCase(tokens.firstChar(tokenIndex - 1)))) {
+        if (tokens.length(tokenIndex - 1) == 1)
           isInitial = "true";
       }
 
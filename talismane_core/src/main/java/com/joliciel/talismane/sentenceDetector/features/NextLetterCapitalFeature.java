@@ -21,8 +21,8 @@ package com.joliciel.talismane.sentenceDetector.features;
 import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
 import com.joliciel.talismane.machineLearning.features.StringFeature;
+import com.joliciel.talismane.sentenceDetector.AtomicTokenOffsets;
 import com.joliciel.talismane.sentenceDetector.PossibleSentenceBoundary;
-import com.joliciel.talismane.tokeniser.Token;
 
 /**
  * In the following descriptions, the current boundary is surrounded by square
@@ -45,15 +45,12 @@ public final class NextLetterCapitalFeature extends AbstractSentenceDetectorFeat
     FeatureResult<String> result = null;
 
     int tokenIndex = context.getTokenIndexWithWhitespace();
+    AtomicTokenOffsets tokens = context.getTokenOffsets();
 
     boolean isInitial = false;
-    if (context.getBoundaryString().equals(".")) {
-      Token previousToken = null;
-      if (tokenIndex > 0)
-        previousToken = context.getTokenSequence().listWithWhiteSpace().get(tokenIndex - 1);
-
-      if (previousToken != null && Character.isUpperCase(previousToken.getOriginalText().charAt(0))) {
-        if (previousToken.getOriginalText().length() < 2)
+    if (context.getText().charAt(context.getIndex()) == '.') {
+      if (tokenIndex > 0 && Character.isUpperCase(tokens.firstChar(tokenIndex - 1))) {
+        if (tokens.length(tokenIndex - 1) < 2)
           isInitial = true;
       }
     }
@@ -63,24 +60,23 @@ public final class NextLetterCapitalFeature extends AbstractSentenceDetectorFeat
     boolean hasDash = false;
     boolean nextLetterCapital = false;
     if (tokenIndex >= 0) {
-      for (int i = tokenIndex + 1; i < context.getTokenSequence().listWithWhiteSpace().size(); i++) {
-        Token token = context.getTokenSequence().listWithWhiteSpace().get(i);
-        if (token.isWhiteSpace()) {
+      for (int i = tokenIndex + 1; i < tokens.size(); i++) {
+        if (tokens.isWhiteSpace(i)) {
           hasWhiteSpace = true;
-        } else if (token.getText().equals("\"") || token.getText().equals("“") || token.getText().equals("„") || token.getText().equals("‟")
-            || token.getText().equals("″")) {
+        } else if (tokens.textEquals(i, "\"") || tokens.textEquals(i, "“") || tokens.textEquals(i, "„") || tokens.textEquals(i, "‟")
+            || tokens.textEquals(i, "″")) {
           hasQuote = true;
           if (hasDash)
             break;
-        } else if (token.getText().equals("-")) {
+        } else if (tokens.textEquals(i, "-")) {
           hasDash = true;
           if (hasQuote)
             break;
-        } else if (token.isSeparator()) {
+        } else if (tokens.isSeparator(i)) {
           nextLetterCapital = false;
           break;
         } else {
-          nextLetterCapital = (Character.isUpperCase(token.getOriginalText().charAt(0)));
+          nextLetterCapital = (Character.isUpperCase(tokens.firstChar(i)));
           break;
         }
       }
@@ -23,8 +23,8 @@ import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.IntegerFeature;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
 import com.joliciel.talismane.machineLearning.features.StringFeature;
+import com.joliciel.talismane.sentenceDetector.AtomicTokenOffsets;
 import com.joliciel.talismane.sentenceDetector.PossibleSentenceBoundary;
-import com.joliciel.talismane.tokeniser.Token;
 
 /**
  * Returns the <i>n</i> atomic tokens immediately following the current
@@ -49,17 +49,17 @@ public final class NextTokensFeature extends AbstractSentenceDetectorFeature<Str
     if (nResult != null) {
       int n = nResult.getOutcome();
       int tokenIndex = context.getTokenIndexWithWhitespace();
-      String tokenString = "";
+      AtomicTokenOffsets tokens = context.getTokenOffsets();
+      StringBuilder sb = new StringBuilder();
       for (int i = 0; i <= n; i++) {
         int relativeIndex = tokenIndex + i;
-        if (relativeIndex < context.getTokenSequence().listWithWhiteSpace().size()) {
-          Token token = context.getTokenSequence().listWithWhiteSpace().get(relativeIndex);
-          tokenString = tokenString + token.getOriginalText();
+        if (relativeIndex < tokens.size()) {
+          tokens.appendText(relativeIndex, sb);
         } else {
-          tokenString = tokenString + "[[END]]";
+          sb.append("[[END]]");
         }
       }
-      result = this.generateResult(tokenString);
+      result = this.generateResult(sb.toString());
     } // have n
 
     return result;
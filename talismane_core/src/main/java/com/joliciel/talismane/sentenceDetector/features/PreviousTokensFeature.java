@@ -23,8 +23,8 @@ import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.IntegerFeature;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
 import com.joliciel.talismane.machineLearning.features.StringFeature;
+import com.joliciel.talismane.sentenceDetector.AtomicTokenOffsets;
 import com.joliciel.talismane.sentenceDetector.PossibleSentenceBoundary;
-import com.joliciel.talismane.tokeniser.Token;
 
 public final class PreviousTokensFeature extends AbstractSentenceDetectorFeature<String> implements StringFeature<PossibleSentenceBoundary> {
   IntegerFeature<PossibleSentenceBoundary> nFeature;
@@ -42,17 +42,17 @@ public final class PreviousTokensFeature extends AbstractSentenceDetectorFeature
     if (nResult != null) {
       int n = nResult.getOutcome();
       int tokenIndex = context.getTokenIndexWithWhitespace();
-      String tokenString = "";
-      for (int i = 0; i <= n; i++) {
+      AtomicTokenOffsets tokens = context.getTokenOffsets();
+      StringBuilder sb = new StringBuilder();
+      for (int i = n; i >= 0; i--) {
         int relativeIndex = tokenIndex - i;
         if (relativeIndex >= 0) {
-          Token token = context.getTokenSequence().listWithWhiteSpace().get(relativeIndex);
-          tokenString = token.getOriginalText() + tokenString;
+          tokens.appendText(relativeIndex, sb);
         } else {
-          tokenString = "[[START]]" + tokenString;
+          sb.append("[[START]]");
         }
       }
-      result = this.generateResult(tokenString);
+      result = this.generateResult(sb.toString());
     } // have n
 
     return result;
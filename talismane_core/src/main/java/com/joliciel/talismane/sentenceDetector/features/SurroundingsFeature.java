@@ -18,16 +18,14 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.sentenceDetector.features;
 
-import java.util.regex.Pattern;
-
 import com.joliciel.talismane.NeedsSessionId;
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.IntegerFeature;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
 import com.joliciel.talismane.machineLearning.features.StringFeature;
+import com.joliciel.talismane.sentenceDetector.AtomicTokenOffsets;
 import com.joliciel.talismane.sentenceDetector.PossibleSentenceBoundary;
-import com.joliciel.talismane.tokeniser.Token;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -44,7 +42,6 @@ import com.typesafe.config.ConfigFactory;
  *
  */
 public final class SurroundingsFeature extends AbstractSentenceDetectorFeature<String> implements StringFeature<PossibleSentenceBoundary>, NeedsSessionId {
-  Pattern number = Pattern.compile("\\d+");
   IntegerFeature<PossibleSentenceBoundary> nFeature;
   private boolean languageHasUppercaseLetters;
 
@@ -62,14 +59,13 @@ public final class SurroundingsFeature extends AbstractSentenceDetectorFeature<S
       int n = nResult.getOutcome();
 
       int tokenIndex = context.getTokenIndexWithWhitespace();
-      String tokenString = "";
-      int maxToken = context.getTokenSequence().listWithWhiteSpace().size();
+      AtomicTokenOffsets tokens = context.getTokenOffsets();
+      StringBuilder sb = new StringBuilder();
+      int maxToken = tokens.size();
       for (int i = tokenIndex - n; i <= tokenIndex + n; i++) {
-        Token token = null;
         String categoryString = null;
         if (i >= 0 && i < maxToken) {
-          token = context.getTokenSequence().listWithWhiteSpace().get(i);
-          categoryString = this.getCategoryString(token);
+          categoryString = this.getCategoryString(tokens, i);
         } else {
           if (i == -1 || i == maxToken) {
             categoryString = " ";
@@ -85,30 +81,27 @@ public final class SurroundingsFeature extends AbstractSentenceDetectorFeature<S
             categoryString = " ";
           }
         }
-        tokenString += categoryString;
+        sb.append(categoryString);
       }
 
-      String resultString = tokenString;
-      result = this.generateResult(resultString);
+      result = this.generateResult(sb.toString());
     } // have n
 
     return result;
   }
 
-  private String getCategoryString(Token token) {
+  private String getCategoryString(AtomicTokenOffsets tokens, int i) {
     String categoryString = "";
-    if (token == null)
-      categoryString = " ";
-    else if (token.isWhiteSpace())
+    if (tokens.isWhiteSpace(i))
       categoryString = " ";
-    else if (token.isSeparator())
-      categoryString = token.getOriginalText();
-    else if (number.matcher(token.getText()).matches())
+    else if (tokens.isSeparator(i))
+      categoryString = tokens.getText(i);
+    else if (this.isNumber(tokens, i))
       categoryString = "1";
-    else if (!languageHasUppercaseLetters || Character.isUpperCase(token.getOriginalText().charAt(0))) {
-      if (token.getOriginalText().length() == 1)
+    else if (!languageHasUppercaseLetters || Character.isUpperCase(tokens.firstChar(i))) {
+      if (tokens.length(i) == 1)
         categoryString = "W";
-      else if (token.getOriginalText().length() == 2)
+      else if (tokens.length(i) == 2)
         categoryString = "Wo";
       else
         categoryString = "Word";
@@ -117,6 +110,17 @@ public final class SurroundingsFeature extends AbstractSentenceDetectorFeature<S
     return categoryString;
   }
 
+  private boolean isNumber(AtomicTokenOffsets tokens, int i) {
+    int start = tokens.getStart(i);
+    int end = tokens.getEnd(i);
+    for (int j = start; j < end; j++) {
+      char c = tokens.getText().charAt(j);
+      if (c < '0' || c > '9')
+        return false;
+    }
+    return end > start;
+  }
+
   @Override
   public void setSessionId(String sessionId) {
     String sentenceDetectorPath = "talismane.core." + sessionId + ".sentence-detector";
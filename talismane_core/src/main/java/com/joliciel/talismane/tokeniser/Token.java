@@ -76,6 +76,7 @@ public class Token implements TokenWrapper, Serializable {
   private int indexWithWhiteSpace;
   private TokenSequence tokenSequence;
   private transient Set<PosTag> possiblePosTags;
+  private transient TokenFeatureMemo.Word featureMemo;
   private transient Map<PosTag, Integer> frequencies;
   private transient Map<String, FeatureResult<?>> featureResults = new HashMap<String, FeatureResult<?>>();
   private boolean separator;
@@ -135,17 +136,21 @@ public class Token implements TokenWrapper, Serializable {
     this.index = index;
     this.startIndex = startIndex;
     this.endIndex = endIndex;
+    this.whiteSpace = isWhiteSpace(text);
+  }
+
+  /**
+   * Whether the text provided would be considered a white-space token.
+   */
+  public static boolean isWhiteSpace(CharSequence text) {
     if (text.length() == 0)
-      this.whiteSpace = false;
+      return false;
     // next two checks are to increase performance only
-    else if (" ".equals(text))
-      this.whiteSpace = true;
-    else if (!Character.isWhitespace(text.charAt(0)))
-      this.whiteSpace = false;
-    else if (whiteSpacePattern.matcher(text).matches())
-      this.whiteSpace = true;
-    else
-      this.whiteSpace = false;
+    if (text.length() == 1 && text.charAt(0) == ' ')
+      return true;
+    if (!Character.isWhitespace(text.charAt(0)))
+      return false;
+    return whiteSpacePattern.matcher(text).matches();
   }
 
   /**
@@ -245,12 +250,31 @@ public class Token implements TokenWrapper, Serializable {
    */
   public Set<PosTag> getPossiblePosTags() throws TalismaneException {
     if (possiblePosTags == null) {
-      possiblePosTags = TalismaneSession.get(sessionId).getMergedLexicon().findPossiblePosTags(this.getAnalyisText());
+      possiblePosTags = this.getFeatureMemo().getPossiblePosTags();
     }
 
     return possiblePosTags;
   }
 
+  /**
+   * The context-free features of this token's analysis text, memoised for the
+   * whole sentence, and shared by all modules. If the token has no sentence,
+   * or the sentence's memo has been released, they are memoised for this token
+   * only.
+   */
+  public TokenFeatureMemo.Word getFeatureMemo() {
+    Sentence sentence = tokenSequence == null ? null : tokenSequence.getSentence();
+    TokenFeatureMemo memo = sentence == null ? null : sentence.getTokenFeatureMemo();
+    if (memo != null)
+      return memo.getWord(this.getAnalyisText());
+
+    if (featureMemo == null || !featureMemo.getText().equals(this.getAnalyisText())) {
+      TalismaneSession session = TalismaneSession.get(sessionId);
+      featureMemo = new TokenFeatureMemo(session.getMergedLexicon(), session.getLocale()).getWord(this.getAnalyisText());
+    }
+    return featureMemo;
+  }
+
   /**
    * A list of postags and counts for this token in a training corpus (assigned
    * externally by a statistics service).
@@ -0,0 +1,244 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.tokeniser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.lexicon.LexicalEntry;
+import com.joliciel.talismane.lexicon.PosTaggerLexicon;
+import com.joliciel.talismane.posTagger.PosTag;
+import com.joliciel.talismane.utils.WeightedOutcome;
+
+/**
+ * A memo of the context-free features of the words in a single sentence: those
+ * which only depend on the word form, such as its lowercase form, its prefixes
+ * and suffixes, and its pos-tags in the lexicon. Each is calculated the first
+ * time it is requested for a given word form, whichever module or token
+ * requests it, and is then shared by the tokeniser, pos-tagger and parser
+ * features for the rest of the sentence.<br>
+ * <br>
+ * The memo is held by the {@link com.joliciel.talismane.rawText.Sentence}, and
+ * released once the sentence has been processed by the last module. It can be
+ * read by several threads at once: a value calculated by two threads at the
+ * same time is simply calculated twice.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class TokenFeatureMemo {
+  private final PosTaggerLexicon lexicon;
+  private final Locale locale;
+  private final Map<String, Word> words = new ConcurrentHashMap<>();
+
+  public TokenFeatureMemo(PosTaggerLexicon lexicon, Locale locale) {
+    this.lexicon = lexicon;
+    this.locale = locale;
+  }
+
+  /**
+   * The memoised features of a given word form.
+   */
+  public Word getWord(String text) {
+    Word word = words.get(text);
+    if (word == null)
+      word = words.computeIfAbsent(text, Word::new);
+    return word;
+  }
+
+  /**
+   * The number of distinct word forms memoised so far.
+   */
+  public int size() {
+    return words.size();
+  }
+
+  /**
+   * The context-free features of a single word form.
+   */
+  public final class Word {
+    private final String text;
+    private volatile String lowercase;
+    private volatile String firstWord;
+    private volatile String lastWord;
+    private volatile String[] prefixes;
+    private volatile String[] suffixes;
+    private volatile Set<PosTag> possiblePosTags;
+    private volatile List<WeightedOutcome<String>> posTagOutcomes;
+    private volatile String posTagCodes;
+    private final Map<PosTag, List<LexicalEntry>> lexicalEntries = new ConcurrentHashMap<>();
+
+    private Word(String text) {
+      this.text = text;
+    }
+
+    public String getText() {
+      return text;
+    }
+
+    /**
+     * The word form in lowercase, for the session's locale.
+     */
+    public String getLowercase() {
+      String lowercase = this.lowercase;
+      if (lowercase == null) {
+        lowercase = text.toLowerCase(locale);
+        this.lowercase = lowercase;
+      }
+      return lowercase;
+    }
+
+    /**
+     * The first word in a compound word form, or the whole word form if it
+     * isn't compound.
+     */
+    public String getFirstWord() {
+      String firstWord = this.firstWord;
+      if (firstWord == null) {
+        firstWord = text.trim();
+        if (firstWord.indexOf(' ') >= 0)
+          firstWord = firstWord.substring(0, firstWord.indexOf(' '));
+        this.firstWord = firstWord;
+      }
+      return firstWord;
+    }
+
+    /**
+     * The last word in a compound word form, or the whole word form if it
+     * isn't compound.
+     */
+    public String getLastWord() {
+      String lastWord = this.lastWord;
+      if (lastWord == null) {
+        lastWord = text.trim();
+        if (lastWord.indexOf(' ') >= 0)
+          lastWord = lastWord.substring(lastWord.lastIndexOf(' ') + 1);
+        this.lastWord = lastWord;
+      }
+      return lastWord;
+    }
+
+    /**
+     * The first n letters of the first word, or null unless n &lt; the length
+     * of the first word.
+     */
+    public String getPrefix(int n) {
+      String firstWord = this.getFirstWord();
+      if (n < 0 || firstWord.length() <= n)
+        return null;
+      String[] prefixes = this.prefixes;
+      if (prefixes == null) {
+        prefixes = new String[firstWord.length()];
+        this.prefixes = prefixes;
+      }
+      String prefix = prefixes[n];
+      if (prefix == null) {
+        prefix = firstWord.substring(0, n);
+        prefixes[n] = prefix;
+      }
+      return prefix;
+    }
+
+    /**
+     * The last n letters of the last word, or null unless n &lt; the length of
+     * the last word.
+     */
+    public String getSuffix(int n) {
+      String lastWord = this.getLastWord();
+      if (n < 0 || lastWord.length() <= n)
+        return null;
+      String[] suffixes = this.suffixes;
+      if (suffixes == null) {
+        suffixes = new String[lastWord.length()];
+        this.suffixes = suffixes;
+      }
+      String suffix = suffixes[n];
+      if (suffix == null) {
+        suffix = lastWord.substring(lastWord.length() - n);
+        suffixes[n] = suffix;
+      }
+      return suffix;
+    }
+
+    /**
+     * The pos-tags this word form can take in the lexicon.
+     */
+    public Set<PosTag> getPossiblePosTags() throws TalismaneException {
+      Set<PosTag> possiblePosTags = this.possiblePosTags;
+      if (possiblePosTags == null) {
+        possiblePosTags = lexicon.findPossiblePosTags(text);
+        this.possiblePosTags = possiblePosTags;
+      }
+      return possiblePosTags;
+    }
+
+    /**
+     * The codes of the pos-tags this word form can take in the lexicon, each
+     * with a weight of 1.
+     */
+    public List<WeightedOutcome<String>> getPosTagOutcomes() throws TalismaneException {
+      List<WeightedOutcome<String>> posTagOutcomes = this.posTagOutcomes;
+      if (posTagOutcomes == null) {
+        List<WeightedOutcome<String>> outcomes = new ArrayList<>();
+        for (PosTag posTag : this.getPossiblePosTags())
+          outcomes.add(new WeightedOutcome<String>(posTag.getCode(), 1.0));
+        posTagOutcomes = Collections.unmodifiableList(outcomes);
+        this.posTagOutcomes = posTagOutcomes;
+      }
+      return posTagOutcomes;
+    }
+
+    /**
+     * The codes of the pos-tags this word form can take in the lexicon,
+     * separated by commas.
+     */
+    public String getPosTagCodes() throws TalismaneException {
+      String posTagCodes = this.posTagCodes;
+      if (posTagCodes == null) {
+        StringBuilder sb = new StringBuilder();
+        for (PosTag posTag : this.getPossiblePosTags()) {
+          if (sb.length() > 0)
+            sb.append(',');
+          sb.append(posTag.getCode());
+        }
+        posTagCodes = sb.toString();
+        this.posTagCodes = posTagCodes;
+      }
+      return posTagCodes;
+    }
+
+    /**
+     * The lexical entries for this word form and a given pos-tag.
+     */
+    public List<LexicalEntry> getLexicalEntries(PosTag posTag) {
+      List<LexicalEntry> entries = lexicalEntries.get(posTag);
+      if (entries == null) {
+        entries = lexicon.findLexicalEntries(text, posTag);
+        lexicalEntries.put(posTag, entries);
+      }
+      return entries;
+    }
+  }
+}
@@ -2,7 +2,6 @@ package com.joliciel.talismane.tokeniser;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -18,7 +17,7 @@ import com.joliciel.talismane.corpus.CorpusLineReader;
 import com.joliciel.talismane.corpus.TokenPerLineCorpusReader;
 import com.joliciel.talismane.lexicon.RegexLexicalEntryReader;
 import com.joliciel.talismane.rawText.Sentence;
-import com.joliciel.talismane.tokeniser.filters.TokenFilter;
+import com.joliciel.talismane.tokeniser.filters.TokenFilterChain;
 import com.joliciel.talismane.utils.io.CurrentFileObserver;
 import com.typesafe.config.Config;
 
@@ -47,7 +46,7 @@ public class TokenRegexBasedCorpusReader extends TokenPerLineCorpusReader implem
   private static final Logger LOG = LoggerFactory.getLogger(TokenRegexBasedCorpusReader.class);
 
   protected PretokenisedSequence tokenSequence = null;
-  private final List<TokenFilter> filters;
+  private final TokenFilterChain filters;
 
   /**
    * Add attributes as specified in the config to the corpus reader. Recognises
@@ -69,14 +68,9 @@ public class TokenRegexBasedCorpusReader extends TokenPerLineCorpusReader implem
 
     Config topLevelConfig = ConfigFactory.load();
 
-    this.filters = new ArrayList<>();
-
     String configPath = "talismane.core." + sessionId + ".tokeniser.filters";
     List<String> filterDescriptors = topLevelConfig.getStringList(configPath);
-    for (String descriptor : filterDescriptors) {
-      TokenFilter filter = TokenFilter.loadFilter(descriptor, sessionId);
-      this.filters.add(filter);
-    }
+    this.filters = TokenFilterChain.loadFilters(filterDescriptors, sessionId);
   }
 
   @Override
@@ -93,8 +87,7 @@ public class TokenRegexBasedCorpusReader extends TokenPerLineCorpusReader implem
         this.convertToToken(tokenSequence, corpusLine);
       }
 
-      for (TokenFilter filter : filters)
-        filter.apply(tokenSequence);
+      filters.apply(tokenSequence);
 
       tokenSequence.cleanSlate();
     } catch (TalismaneException e) {
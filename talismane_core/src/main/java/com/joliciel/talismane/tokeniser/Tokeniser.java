@@ -38,7 +38,7 @@ import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.machineLearning.ClassificationObserver;
 import com.joliciel.talismane.rawText.Sentence;
 import com.joliciel.talismane.sentenceAnnotators.TokenPlaceholder;
-import com.joliciel.talismane.tokeniser.filters.TokenFilter;
+import com.joliciel.talismane.tokeniser.filters.TokenFilterChain;
 import com.typesafe.config.Config;
 
 import gnu.trove.set.TIntSet;
@@ -68,21 +68,16 @@ public abstract class Tokeniser implements Annotator<Sentence> {
   private static final Map<String, Pattern> tokenSeparatorMap = new HashMap<>();
 
   private final String sessionId;
-  private final List<TokenFilter> filters;
+  private final TokenFilterChain filters;
 
   public Tokeniser(String sessionId) throws IOException, TalismaneException, ReflectiveOperationException {
     this.sessionId = sessionId;
 
     Config config = ConfigFactory.load();
 
-    this.filters = new ArrayList<>();
-
     String configPath = "talismane.core." + sessionId + ".tokeniser.filters";
     List<String> filterDescriptors = config.getStringList(configPath);
-    for (String descriptor : filterDescriptors) {
-      TokenFilter filter = TokenFilter.loadFilter(descriptor, sessionId);
-      this.filters.add(filter);
-    }
+    this.filters = TokenFilterChain.loadFilters(filterDescriptors, sessionId);
   }
 
   protected Tokeniser(Tokeniser tokeniser) {
@@ -187,8 +182,7 @@ public abstract class Tokeniser implements Annotator<Sentence> {
     for (TokenisedAtomicTokenSequence sequence : sequences) {
       TokenSequence newTokenSequence = sequence.inferTokenSequence();
 
-      for (TokenFilter filter : filters)
-        filter.apply(newTokenSequence);
+      filters.apply(newTokenSequence);
 
       if (j == 1) {
         // add annotations for the very first token sequence
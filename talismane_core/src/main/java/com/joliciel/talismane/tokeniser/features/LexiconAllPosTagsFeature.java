@@ -22,7 +22,6 @@ import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
 import com.joliciel.talismane.machineLearning.features.StringFeature;
-import com.joliciel.talismane.posTagger.PosTag;
 import com.joliciel.talismane.tokeniser.Token;
 
 /**
@@ -52,17 +51,9 @@ public final class LexiconAllPosTagsFeature extends AbstractTokenFeature<String>
     Token token = innerWrapper.getToken();
     FeatureResult<String> result = null;
 
-    if (token.getPossiblePosTags().size() > 0) {
-      StringBuilder sb = new StringBuilder();
-      boolean firstPosTag = true;
-      for (PosTag posTag : token.getPossiblePosTags()) {
-        if (!firstPosTag)
-          sb.append(',');
-        firstPosTag = false;
-        sb.append(posTag.getCode());
-      }
-      result = this.generateResult(sb.toString());
-    }
+    String posTagCodes = token.getFeatureMemo().getPosTagCodes();
+    if (posTagCodes.length() > 0)
+      result = this.generateResult(posTagCodes);
 
     return result;
   }
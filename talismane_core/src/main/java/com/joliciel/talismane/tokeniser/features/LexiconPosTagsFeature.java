@@ -18,7 +18,6 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.tokeniser.features;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -29,7 +28,6 @@ import com.joliciel.talismane.machineLearning.features.Feature;
 import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
 import com.joliciel.talismane.machineLearning.features.StringCollectionFeature;
-import com.joliciel.talismane.posTagger.PosTag;
 import com.joliciel.talismane.tokeniser.Token;
 import com.joliciel.talismane.utils.WeightedOutcome;
 
@@ -58,11 +56,7 @@ public final class LexiconPosTagsFeature extends AbstractTokenFeature<List<Weigh
       return null;
     Token token = innerWrapper.getToken();
     FeatureResult<List<WeightedOutcome<String>>> result = null;
-    List<WeightedOutcome<String>> resultList = new ArrayList<WeightedOutcome<String>>();
-
-    for (PosTag posTag : token.getPossiblePosTags()) {
-      resultList.add(new WeightedOutcome<String>(posTag.getCode(), 1.0));
-    }
+    List<WeightedOutcome<String>> resultList = token.getFeatureMemo().getPosTagOutcomes();
     if (resultList.size() > 0)
       result = this.generateResult(resultList);
 
@@ -55,17 +55,9 @@ public final class NLetterPrefixFeature extends AbstractTokenFeature<String> imp
 
     FeatureResult<Integer> nResult = nFeature.check(innerWrapper, env);
     if (nResult != null) {
-      int n = nResult.getOutcome();
-
-      String firstWord = token.getAnalyisText().trim();
-      if (firstWord.indexOf(' ') >= 0) {
-        firstWord = firstWord.substring(0, firstWord.indexOf(' '));
-      }
-
-      if (firstWord.length() > n) {
-        String prefix = firstWord.substring(0, n);
+      String prefix = token.getFeatureMemo().getPrefix(nResult.getOutcome());
+      if (prefix != null)
         result = this.generateResult(prefix);
-      }
     }
     return result;
   }
@@ -52,19 +52,12 @@ public final class NLetterSuffixFeature extends AbstractTokenFeature<String> imp
       return null;
     Token token = innerWrapper.getToken();
     FeatureResult<String> result = null;
-    String lastWord = token.getAnalyisText().trim();
-    if (lastWord.indexOf(' ') >= 0) {
-      int lastSpace = lastWord.lastIndexOf(' ');
-      lastWord = lastWord.substring(lastSpace + 1);
-    }
 
     FeatureResult<Integer> nResult = nFeature.check(innerWrapper, env);
     if (nResult != null) {
-      int n = nResult.getOutcome();
-      if (lastWord.length() > n) {
-        String suffix = lastWord.substring(lastWord.length() - n);
+      String suffix = token.getFeatureMemo().getSuffix(nResult.getOutcome());
+      if (suffix != null)
         result = this.generateResult(suffix);
-      }
     }
     return result;
   }
@@ -0,0 +1,113 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.tokeniser.features;
+
+import com.joliciel.talismane.NeedsSessionId;
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.lexicon.SuffixPosTagIndex;
+import com.joliciel.talismane.machineLearning.features.DoubleFeature;
+import com.joliciel.talismane.machineLearning.features.FeatureResult;
+import com.joliciel.talismane.machineLearning.features.IntegerFeature;
+import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
+import com.joliciel.talismane.machineLearning.features.StringFeature;
+import com.joliciel.talismane.posTagger.PosTag;
+import com.joliciel.talismane.posTagger.PosTagSet;
+import com.joliciel.talismane.posTagger.UnknownPosTagException;
+
+/**
+ * Of the word forms in the lexicon which end with the same last N letters as
+ * the last word in the current token, the proportion which can take the
+ * pos-tag provided, as long as N &lt; the length of the last word, and at least
+ * one word form in the lexicon has this suffix. Returns null if the pos-tag
+ * isn't in the current pos-tag set. See {@link SuffixPosTagIndex}.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class SuffixPosTagProbabilityFeature extends AbstractTokenFeature<Double> implements DoubleFeature<TokenWrapper>, NeedsSessionId {
+  private final IntegerFeature<TokenWrapper> nFeature;
+  private final StringFeature<TokenWrapper> posTagFeature;
+  private String sessionId;
+  // looked up from the session on first use, rather than on each check
+  private volatile PosTagSet posTagSet;
+  private volatile SuffixPosTagIndex suffixPosTagIndex;
+
+  public SuffixPosTagProbabilityFeature(IntegerFeature<TokenWrapper> nFeature, StringFeature<TokenWrapper> posTagFeature) {
+    this.nFeature = nFeature;
+    this.posTagFeature = posTagFeature;
+    this.setName(super.getName() + "(" + this.nFeature.getName() + "," + this.posTagFeature.getName() + ")");
+  }
+
+  public SuffixPosTagProbabilityFeature(TokenAddressFunction<TokenWrapper> addressFunction, IntegerFeature<TokenWrapper> nFeature,
+      StringFeature<TokenWrapper> posTagFeature) {
+    this(nFeature, posTagFeature);
+    this.setAddressFunction(addressFunction);
+  }
+
+  @Override
+  public FeatureResult<Double> checkInternal(TokenWrapper tokenWrapper, RuntimeEnvironment env) throws TalismaneException {
+    TokenWrapper innerWrapper = this.getToken(tokenWrapper, env);
+    if (innerWrapper == null)
+      return null;
+
+    FeatureResult<Integer> nResult = nFeature.check(innerWrapper, env);
+    if (nResult == null)
+      return null;
+    FeatureResult<String> posTagResult = posTagFeature.check(innerWrapper, env);
+    if (posTagResult == null)
+      return null;
+
+    // find the last word without extracting it
+    String text = innerWrapper.getToken().getAnalyisText();
+    int end = text.length();
+    while (end > 0 && text.charAt(end - 1) <= ' ')
+      end--;
+    int start = text.lastIndexOf(' ', end - 1) + 1;
+
+    int n = nResult.getOutcome();
+    if (end - start <= n)
+      return null;
+
+    SuffixPosTagIndex suffixPosTagIndex = this.suffixPosTagIndex;
+    if (suffixPosTagIndex == null) {
+      TalismaneSession session = TalismaneSession.get(sessionId);
+      this.posTagSet = session.getPosTagSet();
+      suffixPosTagIndex = session.getSuffixPosTagIndex();
+      this.suffixPosTagIndex = suffixPosTagIndex;
+    }
+    int node = suffixPosTagIndex.findSuffix(text, end, n);
+    if (node < 0)
+      return null;
+    PosTag posTag = null;
+    try {
+      posTag = posTagSet.getPosTag(posTagResult.getOutcome());
+    } catch (UnknownPosTagException e) {
+      return null;
+    }
+    return this.generateResult(suffixPosTagIndex.getProbability(node, posTag));
+  }
+
+  @Override
+  public void setSessionId(String sessionId) {
+    this.sessionId = sessionId;
+    this.posTagSet = null;
+    this.suffixPosTagIndex = null;
+  }
+}
@@ -87,6 +87,7 @@ public class TokenFeatureParser {
     container.addFeatureClass("OrRange", OrRangeFeature.class);
     container.addFeatureClass("PosTagSet", PosTagSetFeature.class);
     container.addFeatureClass("Regex", RegexFeature.class);
+    container.addFeatureClass("SuffixPosTagProbability", SuffixPosTagProbabilityFeature.class);
     container.addFeatureClass("TokenAt", TokenAtAddressFunction.class);
     container.addFeatureClass("TokenIndex", TokenIndexFeature.class);
     container.addFeatureClass("UnknownWord", UnknownWordFeature.class);
@@ -20,6 +20,7 @@ package com.joliciel.talismane.tokeniser.filters;
 
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import com.joliciel.talismane.TalismaneSession;
@@ -32,17 +33,18 @@ import com.joliciel.talismane.tokeniser.TokenSequence;
  * @author Assaf Urieli
  *
  */
-public class DiacriticRemover implements TokenFilter {
+public class DiacriticRemover implements StreamingTokenFilter {
   public static Pattern diacriticPattern = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
 
   public DiacriticRemover(String sessionId) {
   }
 
   @Override
-  public void apply(TokenSequence tokenSequence) {
-    for (Token token : tokenSequence) {
+  public TokenProcessor start(TokenSequence tokenSequence, KnownWordLookup knownWords, Consumer<Token> downstream) {
+    return token -> {
       token.setText(removeDiacritics(token.getText()));
-    }
+      downstream.accept(token);
+    };
   }
 
   public static String removeDiacritics(String string) {
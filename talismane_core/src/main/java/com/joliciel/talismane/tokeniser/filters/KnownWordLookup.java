@@ -0,0 +1,68 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.tokeniser.filters;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.lexicon.Diacriticizer;
+
+/**
+ * Finds the known lower-case forms of words using the session's
+ * {@link Diacriticizer}, remembering each result for the duration of a single
+ * pass over a token sequence, so that filters looking up the same word share a
+ * single lookup. Each pass has its own instance, which isn't thread-safe.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class KnownWordLookup {
+  private final String sessionId;
+  private final Map<String, Set<String>> knownWords = new HashMap<>();
+  private Diacriticizer diacriticizer;
+  private int lookupCount = 0;
+
+  public KnownWordLookup(String sessionId) {
+    this.sessionId = sessionId;
+  }
+
+  /**
+   * The result of {@link Diacriticizer#diacriticize(String)} for this word.
+   */
+  public Set<String> diacriticize(String word) {
+    Set<String> forms = knownWords.get(word);
+    if (forms == null) {
+      if (diacriticizer == null)
+        diacriticizer = TalismaneSession.get(sessionId).getDiacriticizer();
+      forms = diacriticizer.diacriticize(word);
+      knownWords.put(word, forms);
+      lookupCount++;
+    }
+    return forms;
+  }
+
+  /**
+   * The number of times the diacriticizer was actually called.
+   */
+  public int getLookupCount() {
+    return lookupCount;
+  }
+}
@@ -18,6 +18,9 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.tokeniser.filters;
 
+import java.util.Locale;
+import java.util.function.Consumer;
+
 import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.tokeniser.Token;
 import com.joliciel.talismane.tokeniser.TokenSequence;
@@ -28,7 +31,7 @@ import com.joliciel.talismane.tokeniser.TokenSequence;
  * @author Assaf Urieli
  *
  */
-public class LowercaseFilter implements TokenFilter {
+public class LowercaseFilter implements StreamingTokenFilter {
   private final String sessionId;
 
   public LowercaseFilter(String sessionId) {
@@ -36,10 +39,12 @@ public class LowercaseFilter implements TokenFilter {
   }
 
   @Override
-  public void apply(TokenSequence tokenSequence) {
-    for (Token token : tokenSequence) {
-      token.setText(token.getText().toLowerCase(TalismaneSession.get(sessionId).getLocale()));
-    }
+  public TokenProcessor start(TokenSequence tokenSequence, KnownWordLookup knownWords, Consumer<Token> downstream) {
+    Locale locale = TalismaneSession.get(sessionId).getLocale();
+    return token -> {
+      token.setText(token.getText().toLowerCase(locale));
+      downstream.accept(token);
+    };
   }
 
 }
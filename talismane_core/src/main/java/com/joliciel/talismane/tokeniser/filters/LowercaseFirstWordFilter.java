@@ -1,9 +1,9 @@
 package com.joliciel.talismane.tokeniser.filters;
 
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
-import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.tokeniser.Token;
 import com.joliciel.talismane.tokeniser.TokenSequence;
 
@@ -11,33 +11,35 @@ import com.joliciel.talismane.tokeniser.TokenSequence;
  * Systematically lowercase the first alphabetic word of a sentence, unless it
  * is in all caps.
  */
-public class LowercaseFirstWordFilter implements TokenFilter {
-  private final String sessionId;
-
+public class LowercaseFirstWordFilter implements StreamingTokenFilter {
   private static final Pattern alphaPattern = Pattern.compile("\\p{L}.*", Pattern.UNICODE_CHARACTER_CLASS);
   private static final Pattern punctuation = Pattern.compile("[:;]", Pattern.UNICODE_CHARACTER_CLASS);
 
   public LowercaseFirstWordFilter(String sessionId) {
-    this.sessionId = sessionId;
   }
 
   @Override
-  public void apply(TokenSequence tokenSequence) {
-    boolean lowerNextWord = true;
-    for (Token token : tokenSequence) {
-      String word = token.getText();
-      if (lowerNextWord && alphaPattern.matcher(word).matches()) {
-        if (Character.isUpperCase(word.charAt(0)) && (word.length() == 1 || !word.equals(word.toUpperCase()))) {
-          Set<String> possibleWords = TalismaneSession.get(sessionId).getDiacriticizer().diacriticize(word);
-          if (possibleWords.size() > 0)
-            token.setText(possibleWords.iterator().next());
-          else
-            token.setText(word.toLowerCase());
+  public TokenProcessor start(TokenSequence tokenSequence, KnownWordLookup knownWords, Consumer<Token> downstream) {
+    return new TokenProcessor() {
+      boolean lowerNextWord = true;
+
+      @Override
+      public void process(Token token) {
+        String word = token.getText();
+        if (lowerNextWord && alphaPattern.matcher(word).matches()) {
+          if (Character.isUpperCase(word.charAt(0)) && (word.length() == 1 || !word.equals(word.toUpperCase()))) {
+            Set<String> possibleWords = knownWords.diacriticize(word);
+            if (possibleWords.size() > 0)
+              token.setText(possibleWords.iterator().next());
+            else
+              token.setText(word.toLowerCase());
+          }
+          lowerNextWord = false;
+        } else if (punctuation.matcher(word).matches()) {
+          lowerNextWord = true;
         }
-        lowerNextWord = false;
-      } else if (punctuation.matcher(word).matches()) {
-        lowerNextWord = true;
+        downstream.accept(token);
       }
-    } // next token
+    };
   }
 }
@@ -19,9 +19,9 @@
 package com.joliciel.talismane.tokeniser.filters;
 
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
-import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.tokeniser.Token;
 import com.joliciel.talismane.tokeniser.TokenSequence;
 import com.joliciel.talismane.tokeniser.Tokeniser;
@@ -34,7 +34,7 @@ import com.joliciel.talismane.tokeniser.Tokeniser;
  * @author Assaf Urieli
  *
  */
-public class LowercaseKnownFirstWordFilter implements TokenFilter {
+public class LowercaseKnownFirstWordFilter implements StreamingTokenFilter {
   public static final String noUppercasePunctuationRegex = "[,]";
 
   private static final Pattern noUppercasePunctuation = Pattern.compile(noUppercasePunctuationRegex);
@@ -45,34 +45,34 @@ public class LowercaseKnownFirstWordFilter implements TokenFilter {
   }
 
   @Override
-  public void apply(TokenSequence tokenSequence) {
-    int startIndex = 0;
-    if (tokenSequence.isWithRoot())
-      startIndex += 1;
+  public TokenProcessor start(TokenSequence tokenSequence, KnownWordLookup knownWords, Consumer<Token> downstream) {
+    int startIndex = tokenSequence.isWithRoot() ? 1 : 0;
+    Pattern tokenSeparators = Tokeniser.getTokenSeparators(sessionId);
 
-    boolean lowerCaseNextWord = true;
-    int index = -1;
-    for (Token token : tokenSequence) {
-      index++;
-      if (index < startIndex)
-        continue;
+    return new TokenProcessor() {
+      boolean lowerCaseNextWord = true;
+      int index = -1;
 
-      if (token.getText().length() == 0)
-        continue;
-
-      if (lowerCaseNextWord) {
-        char firstChar = token.getText().charAt(0);
-        if (Character.isUpperCase(firstChar)) {
-          Set<String> possibleWords = TalismaneSession.get(sessionId).getDiacriticizer().diacriticize(token.getText());
-          if (possibleWords.size() > 0)
-            token.setText(possibleWords.iterator().next());
-        } // next word starts with an upper-case
-        lowerCaseNextWord = false;
-      } // should we lower-case the next word?
-      if (Tokeniser.getTokenSeparators(sessionId).matcher(token.getText()).matches() && !noUppercasePunctuation.matcher(token.getText()).matches()) {
-        lowerCaseNextWord = true;
+      @Override
+      public void process(Token token) {
+        index++;
+        if (index >= startIndex && token.getText().length() > 0) {
+          if (lowerCaseNextWord) {
+            char firstChar = token.getText().charAt(0);
+            if (Character.isUpperCase(firstChar)) {
+              Set<String> possibleWords = knownWords.diacriticize(token.getText());
+              if (possibleWords.size() > 0)
+                token.setText(possibleWords.iterator().next());
+            } // next word starts with an upper-case
+            lowerCaseNextWord = false;
+          } // should we lower-case the next word?
+          if (tokenSeparators.matcher(token.getText()).matches() && !noUppercasePunctuation.matcher(token.getText()).matches()) {
+            lowerCaseNextWord = true;
+          }
+        }
+        downstream.accept(token);
       }
-    } // next token
+    };
   }
 
 }
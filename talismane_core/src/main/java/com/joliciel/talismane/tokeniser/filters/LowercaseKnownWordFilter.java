@@ -19,8 +19,8 @@
 package com.joliciel.talismane.tokeniser.filters;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
-import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.tokeniser.Token;
 import com.joliciel.talismane.tokeniser.TokenSequence;
 
@@ -31,22 +31,20 @@ import com.joliciel.talismane.tokeniser.TokenSequence;
  * @author Assaf Urieli
  *
  */
-public class LowercaseKnownWordFilter implements TokenFilter {
-  private final String sessionId;
-
+public class LowercaseKnownWordFilter implements StreamingTokenFilter {
   public LowercaseKnownWordFilter(String sessionId) {
-    this.sessionId = sessionId;
   }
 
   @Override
-  public void apply(TokenSequence tokenSequence) {
-    for (Token token : tokenSequence) {
+  public TokenProcessor start(TokenSequence tokenSequence, KnownWordLookup knownWords, Consumer<Token> downstream) {
+    return token -> {
       String word = token.getText();
       if (word.length() > 0 && Character.isUpperCase(word.charAt(0))) {
-        Set<String> possibleWords = TalismaneSession.get(sessionId).getDiacriticizer().diacriticize(word);
+        Set<String> possibleWords = knownWords.diacriticize(word);
         if (possibleWords.size() > 0)
           token.setText(possibleWords.iterator().next());
       }
-    } // next token
+      downstream.accept(token);
+    };
   }
 }
@@ -18,6 +18,7 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.tokeniser.filters;
 
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import com.joliciel.talismane.TalismaneSession;
@@ -32,7 +33,7 @@ import com.joliciel.talismane.tokeniser.TokenSequence;
  * @author Assaf Urieli
  *
  */
-public class QuoteNormaliser implements TokenFilter {
+public class QuoteNormaliser implements StreamingTokenFilter {
   Pattern doubleQuotes = Pattern.compile("[“”„‟″‴«»]");
   Pattern singleQuotes = Pattern.compile("[‘’]");
   Pattern dashes = Pattern.compile("[‒–—―]");
@@ -41,12 +42,13 @@ public class QuoteNormaliser implements TokenFilter {
   }
 
   @Override
-  public void apply(TokenSequence tokenSequence) {
-    for (Token token : tokenSequence) {
+  public TokenProcessor start(TokenSequence tokenSequence, KnownWordLookup knownWords, Consumer<Token> downstream) {
+    return token -> {
       token.setText(doubleQuotes.matcher(token.getText()).replaceAll("\""));
       token.setText(singleQuotes.matcher(token.getText()).replaceAll("'"));
       token.setText(dashes.matcher(token.getText()).replaceAll("-"));
-    }
+      downstream.accept(token);
+    };
   }
 
 }
@@ -0,0 +1,73 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.tokeniser.filters;
+
+import java.util.function.Consumer;
+
+import com.joliciel.talismane.tokeniser.Token;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+
+/**
+ * A {@link TokenFilter} which can process a token sequence one token at a
+ * time, so that several such filters can be fused into a single pass over the
+ * sequence by a {@link TokenFilterChain}. Streaming filters may change the text
+ * of tokens, but may not add or remove tokens.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public interface StreamingTokenFilter extends TokenFilter {
+  /**
+   * Processes the tokens of a single sequence.
+   */
+  @FunctionalInterface
+  public interface TokenProcessor {
+    /**
+     * Process the next token in the sequence.
+     */
+    public void process(Token token);
+
+    /**
+     * Called after the last token in the sequence has been processed.
+     */
+    public default void end() {
+    }
+  }
+
+  /**
+   * Start filtering a new token sequence. Each token must be passed on to the
+   * downstream consumer exactly once, in sequence order, as soon as the filter
+   * is done with it: this may be after later tokens have been processed, but
+   * no later than {@link TokenProcessor#end()}.
+   * 
+   * @param knownWords
+   *          the lookup of known words to use for this sequence, shared with
+   *          the other filters in the same pass
+   */
+  public TokenProcessor start(TokenSequence tokenSequence, KnownWordLookup knownWords, Consumer<Token> downstream);
+
+  @Override
+  public default void apply(TokenSequence tokenSequence) {
+    TokenProcessor processor = this.start(tokenSequence, new KnownWordLookup(tokenSequence.getSessionId()), token -> {
+    });
+    for (Token token : tokenSequence)
+      processor.process(token);
+    processor.end();
+  }
+}
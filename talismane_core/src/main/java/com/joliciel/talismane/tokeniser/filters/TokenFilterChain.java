@@ -0,0 +1,116 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.tokeniser.filters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.tokeniser.Token;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.joliciel.talismane.tokeniser.filters.StreamingTokenFilter.TokenProcessor;
+
+/**
+ * Applies a list of token filters in order, giving the same result as applying
+ * each filter in turn to the whole sequence.<br>
+ * <br>
+ * Consecutive {@link StreamingTokenFilter}s are fused into a single pass over
+ * the sequence: each token is passed through all of the fused filters before
+ * moving on to the next one, and the filters share a single
+ * {@link KnownWordLookup}, so that a word is only looked up once per sequence.
+ * Any other filter is applied to the whole sequence on its own, between the
+ * passes for the filters before and after it.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class TokenFilterChain implements TokenFilter {
+  private final List<TokenFilter> filters;
+  private final List<List<TokenFilter>> stages = new ArrayList<>();
+
+  public TokenFilterChain(List<TokenFilter> filters) {
+    this.filters = Collections.unmodifiableList(new ArrayList<>(filters));
+    List<TokenFilter> stage = null;
+    for (TokenFilter filter : filters) {
+      if (stage == null || !(filter instanceof StreamingTokenFilter) || !(stage.get(0) instanceof StreamingTokenFilter)) {
+        stage = new ArrayList<>();
+        stages.add(stage);
+      }
+      stage.add(filter);
+    }
+  }
+
+  /**
+   * Load the filters from a list of class names, as per
+   * {@link TokenFilter#loadFilter(String, String)}.
+   */
+  public static TokenFilterChain loadFilters(List<String> classNames, String sessionId)
+      throws IOException, TalismaneException, ReflectiveOperationException {
+    List<TokenFilter> filters = new ArrayList<>();
+    for (String className : classNames)
+      filters.add(TokenFilter.loadFilter(className, sessionId));
+    return new TokenFilterChain(filters);
+  }
+
+  @Override
+  public void apply(TokenSequence tokenSequence) {
+    KnownWordLookup knownWords = null;
+    for (List<TokenFilter> stage : stages) {
+      if (!(stage.get(0) instanceof StreamingTokenFilter)) {
+        stage.get(0).apply(tokenSequence);
+        continue;
+      }
+      if (knownWords == null)
+        knownWords = new KnownWordLookup(tokenSequence.getSessionId());
+
+      // build the processors from last to first, so that each can be given
+      // the next one as its downstream
+      TokenProcessor[] processors = new TokenProcessor[stage.size()];
+      Consumer<Token> downstream = token -> {
+      };
+      for (int i = stage.size() - 1; i >= 0; i--) {
+        processors[i] = ((StreamingTokenFilter) stage.get(i)).start(tokenSequence, knownWords, downstream);
+        downstream = processors[i]::process;
+      }
+
+      for (Token token : tokenSequence)
+        processors[0].process(token);
+      // tokens held back by a filter are released by its end()
+      for (TokenProcessor processor : processors)
+        processor.end();
+    }
+  }
+
+  /**
+   * The filters in this chain, in the order in which they are applied.
+   */
+  public List<TokenFilter> getFilters() {
+    return filters;
+  }
+
+  /**
+   * The number of passes made over each token sequence.
+   */
+  public int getPassCount() {
+    return stages.size();
+  }
+}
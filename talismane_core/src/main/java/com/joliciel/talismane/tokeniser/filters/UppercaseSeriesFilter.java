@@ -20,10 +20,11 @@ package com.joliciel.talismane.tokeniser.filters;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.joliciel.talismane.TalismaneSession;
-import com.joliciel.talismane.lexicon.Diacriticizer;
 import com.joliciel.talismane.tokeniser.Token;
 import com.joliciel.talismane.tokeniser.TokenSequence;
 
@@ -34,70 +35,94 @@ import com.joliciel.talismane.tokeniser.TokenSequence;
  * @author Assaf Urieli
  *
  */
-public class UppercaseSeriesFilter implements TokenFilter {
+public class UppercaseSeriesFilter implements StreamingTokenFilter {
   private final String sessionId;
 
   public UppercaseSeriesFilter(String sessionId) {
     this.sessionId = sessionId;
   }
 
+  /**
+   * Tokens following the start of an upper-case series are held back until we
+   * know whether the series is long enough to be transformed.
+   */
   @Override
-  public void apply(TokenSequence tokenSequence) {
-    List<Token> upperCaseSequence = new ArrayList<Token>();
-    for (Token token : tokenSequence) {
-      String word = token.getText();
+  public TokenProcessor start(TokenSequence tokenSequence, KnownWordLookup knownWords, Consumer<Token> downstream) {
+    Locale locale = TalismaneSession.get(sessionId).getLocale();
+    return new TokenProcessor() {
+      final List<Token> upperCaseSequence = new ArrayList<Token>();
+      final List<Token> heldTokens = new ArrayList<Token>();
 
-      if (word.length() == 0)
-        continue;
+      @Override
+      public void process(Token token) {
+        String word = token.getText();
 
-      boolean hasLowerCase = false;
-      boolean hasUpperCase = false;
-      for (int i = 0; i < word.length(); i++) {
-        char c = word.charAt(i);
-        if (Character.isUpperCase(c)) {
-          hasUpperCase = true;
+        boolean hasLowerCase = false;
+        boolean hasUpperCase = false;
+        for (int i = 0; i < word.length(); i++) {
+          char c = word.charAt(i);
+          if (Character.isUpperCase(c)) {
+            hasUpperCase = true;
+          }
+          if (Character.isLowerCase(c)) {
+            hasLowerCase = true;
+            break;
+          }
         }
-        if (Character.isLowerCase(c)) {
-          hasLowerCase = true;
-          break;
+
+        if (hasUpperCase && !hasLowerCase) {
+          upperCaseSequence.add(token);
+          heldTokens.add(token);
+        } else if (!hasLowerCase) {
+          // do nothing, might be punctuation or number in middle of upper case
+          // sequence
+          if (heldTokens.size() > 0)
+            heldTokens.add(token);
+          else
+            downstream.accept(token);
+        } else {
+          this.end();
+          downstream.accept(token);
         }
       }
 
-      if (hasUpperCase && !hasLowerCase) {
-        upperCaseSequence.add(token);
-      } else if (!hasLowerCase) {
-        // do nothing, might be punctuation or number in middle of upper case
-        // sequence
-      } else {
+      @Override
+      public void end() {
         if (upperCaseSequence.size() > 1) {
-          this.checkSequence(upperCaseSequence);
+          checkSequence(upperCaseSequence, knownWords, locale);
         }
         upperCaseSequence.clear();
+        heldTokens.forEach(downstream);
+        heldTokens.clear();
       }
-    } // next token
-    if (upperCaseSequence.size() > 1) {
-      this.checkSequence(upperCaseSequence);
-    }
+    };
   }
 
-  void checkSequence(List<Token> upperCaseSequence) {
+  void checkSequence(List<Token> upperCaseSequence, KnownWordLookup knownWords, Locale locale) {
     for (Token token : upperCaseSequence) {
-      token.setText(getKnownWord(this.sessionId, token.getText()));
+      token.setText(getKnownWord(knownWords, locale, token.getText()));
     }
   }
 
   public static String getKnownWord(String sessionId, String word) {
+    return getKnownWord(new KnownWordLookup(sessionId), TalismaneSession.get(sessionId).getLocale(), word);
+  }
+
+  /**
+   * The first known lower-case form of this word if there is one, otherwise
+   * the word with all letters after the first in lower-case.
+   */
+  public static String getKnownWord(KnownWordLookup knownWords, Locale locale, String word) {
     String knownWord = word;
     boolean foundWord = false;
-    Diacriticizer diacriticizer = TalismaneSession.get(sessionId).getDiacriticizer();
-    Set<String> lowercaseForms = diacriticizer.diacriticize(word);
+    Set<String> lowercaseForms = knownWords.diacriticize(word);
     if (lowercaseForms.size() > 0) {
       knownWord = lowercaseForms.iterator().next();
       foundWord = true;
     }
     if (!foundWord) {
       if (word.length() > 0) {
-        knownWord = word.substring(0, 1) + word.substring(1).toLowerCase(TalismaneSession.get(sessionId).getLocale());
+        knownWord = word.substring(0, 1) + word.substring(1).toLowerCase(locale);
       }
     }
     return knownWord;
@@ -0,0 +1,72 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2014 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.tokeniser.output;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.joliciel.talismane.AsyncProcessingStage;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.joliciel.talismane.utils.io.CurrentFileObserver;
+
+/**
+ * Passes token sequences to a wrapped processor on the writer thread of an
+ * {@link AsyncProcessingStage}.<br>
+ * <br>
+ * Since later modules may add tokens to a token sequence (e.g. the parser's
+ * root), the wrapped processor receives a clone.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class AsyncTokenSequenceProcessor implements TokenSequenceProcessor, CurrentFileObserver {
+  private final TokenSequenceProcessor processor;
+  private final AsyncProcessingStage stage;
+
+  public AsyncTokenSequenceProcessor(TokenSequenceProcessor processor, AsyncProcessingStage stage) {
+    this.processor = processor;
+    this.stage = stage;
+  }
+
+  @Override
+  public void onNextTokenSequence(TokenSequence tokenSequence) throws IOException {
+    TokenSequence clone = tokenSequence.cloneTokenSequence();
+    stage.submit(() -> processor.onNextTokenSequence(clone));
+  }
+
+  @Override
+  public void onNextFile(File file) {
+    if (processor instanceof CurrentFileObserver) {
+      try {
+        stage.submit(() -> ((CurrentFileObserver) processor).onNextFile(file));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    stage.submit(processor::close);
+  }
+
+  public TokenSequenceProcessor getProcessor() {
+    return processor;
+  }
+}
@@ -38,6 +38,7 @@ import com.typesafe.config.ConfigFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.talismane.AnalysisBudget;
 import com.joliciel.talismane.TalismaneException;
 import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.machineLearning.ClassificationModel;
@@ -90,6 +91,7 @@ public class PatternTokeniser extends Tokeniser {
   private final TokeniserPatternManager tokeniserPatternManager;
   private final DecisionMaker decisionMaker;
   private final int beamWidth;
+  private final AnalysisBudget analysisBudget;
   private final Set<TokenPatternMatchFeature<?>> features;
 
   private final List<ClassificationObserver> observers;
@@ -99,6 +101,7 @@ public class PatternTokeniser extends Tokeniser {
     Config config = ConfigFactory.load();
     Config tokeniserConfig = config.getConfig("talismane.core." + sessionId + ".tokeniser");
     this.beamWidth = tokeniserConfig.getInt("beam-width");
+    this.analysisBudget = new AnalysisBudget(tokeniserConfig);
 
     String configPath = "talismane.core." + sessionId + ".tokeniser.model";
     String modelFilePath = config.getString(configPath);
@@ -139,6 +142,7 @@ public class PatternTokeniser extends Tokeniser {
     super(sessionId);
     this.decisionMaker = decisionMaker;
     this.beamWidth = beamWidth;
+    this.analysisBudget = new AnalysisBudget(0, 0);
     this.features = features;
     this.tokeniserPatternManager = tokeniserPatternManager;
     this.observers = new ArrayList<>();
@@ -148,6 +152,7 @@ public class PatternTokeniser extends Tokeniser {
     super(tokeniser);
     this.decisionMaker = tokeniser.decisionMaker;
     this.beamWidth = tokeniser.beamWidth;
+    this.analysisBudget = tokeniser.analysisBudget;
     this.tokeniserPatternManager = tokeniser.tokeniserPatternManager;
     this.features = new HashSet<>(tokeniser.features);
     this.observers = new ArrayList<>(tokeniser.observers);
@@ -296,6 +301,7 @@ public class PatternTokeniser extends Tokeniser {
       }
 
       // initially create a heap with a single, empty sequence
+      AnalysisBudget.SentenceBudget sentenceBudget = analysisBudget.start(sentence);
       PriorityQueue<TokenisedAtomicTokenSequence> heap = new PriorityQueue<TokenisedAtomicTokenSequence>();
       TokenisedAtomicTokenSequence emptySequence = new TokenisedAtomicTokenSequence(sentence, 0, this.getSessionId());
       heap.add(emptySequence);
@@ -324,8 +330,10 @@ public class PatternTokeniser extends Tokeniser {
           continue;
         }
 
-        // limit the heap breadth to K
-        int maxSequences = previousHeap.size() > this.getBeamWidth() ? this.getBeamWidth() : previousHeap.size();
+        // limit the heap breadth to K, narrowing it if we go over the max
+        // alloted time or memory
+        int beamWidth = sentenceBudget.getBeamWidth(this.getBeamWidth());
+        int maxSequences = previousHeap.size() > beamWidth ? beamWidth : previousHeap.size();
         for (int j = 0; j < maxSequences; j++) {
           TokenisedAtomicTokenSequence history = previousHeap.poll();
 
@@ -0,0 +1,66 @@
+package com.joliciel.talismane;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.machineLearning.Decision;
+
+public class AdaptiveBeamTest {
+
+  @Test
+  public void testBeamWidth() throws Exception {
+    AdaptiveBeam adaptiveBeam = new AdaptiveBeam(true, 0.99, 0.5, 1, 8);
+    AdaptiveBeam.Search<Integer> search = adaptiveBeam.start();
+
+    search.record(1, 0.995);
+    search.record(1, 0.999);
+    search.record(2, 0.995);
+    search.record(2, 0.7);
+    search.record(3, 0.995);
+    search.record(3, 0.3);
+
+    // no record for this heap
+    assertEquals(4, search.getBeamWidth(0, 4));
+    // all confident
+    assertEquals(1, search.getBeamWidth(1, 4));
+    // in between
+    assertEquals(4, search.getBeamWidth(2, 4));
+    // uncertain
+    assertEquals(8, search.getBeamWidth(3, 4));
+
+    search.explored(1);
+    search.explored(4);
+    assertEquals(2, adaptiveBeam.getStepCount());
+    assertEquals(2.5, adaptiveBeam.getAverageBeamWidth(), 0.0001);
+  }
+
+  @Test
+  public void testPrune() throws Exception {
+    AdaptiveBeam adaptiveBeam = new AdaptiveBeam(true, 0.99, 0.5, 1, 0);
+    List<Decision> decisions = new ArrayList<>();
+    decisions.add(new Decision("A", 0.004));
+    decisions.add(new Decision("B", 0.995));
+    decisions.add(new Decision("C", 0.001));
+
+    List<Decision> pruned = adaptiveBeam.prune(decisions);
+    assertEquals(1, pruned.size());
+    assertEquals("B", pruned.get(0).getOutcome());
+    assertEquals(0.995, AdaptiveBeam.getTopProbability(decisions), 0.0001);
+
+    decisions = new ArrayList<>();
+    decisions.add(new Decision("A", 0.4));
+    decisions.add(new Decision("B", 0.6));
+    assertEquals(2, adaptiveBeam.prune(decisions).size());
+
+    // a fixed beam never prunes or changes the width
+    AdaptiveBeam fixed = AdaptiveBeam.fixed();
+    assertEquals(2, fixed.prune(decisions).size());
+    AdaptiveBeam.Search<Integer> search = fixed.start();
+    search.record(1, 0.999);
+    assertEquals(4, search.getBeamWidth(1, 4));
+  }
+}
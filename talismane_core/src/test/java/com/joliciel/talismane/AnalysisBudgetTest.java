@@ -0,0 +1,60 @@
+package com.joliciel.talismane;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.rawText.Sentence;
+
+public class AnalysisBudgetTest {
+
+  @Test
+  public void testNoLimit() throws Exception {
+    AnalysisBudget budget = new AnalysisBudget(0, 0);
+    AnalysisBudget.SentenceBudget sentenceBudget = budget.start(new Sentence("Hello", "test"));
+    assertEquals(10, sentenceBudget.getBeamWidth(10));
+    assertEquals(10, sentenceBudget.getBeamWidth(10));
+    assertEquals(false, sentenceBudget.isNarrowed());
+    assertEquals(false, sentenceBudget.isExhausted());
+  }
+
+  @Test
+  public void testNarrowOnLowMemory() throws Exception {
+    AnalysisBudget budget = new AnalysisBudget(0, Long.MAX_VALUE);
+    AnalysisBudget.SentenceBudget sentenceBudget = budget.start(new Sentence("Hello", "test"));
+    assertEquals(5, sentenceBudget.getBeamWidth(10));
+    assertEquals(true, sentenceBudget.isNarrowed());
+    assertEquals(2, sentenceBudget.getBeamWidth(10));
+    assertEquals(1, sentenceBudget.getBeamWidth(10));
+    assertEquals(false, sentenceBudget.isExhausted());
+    assertEquals(1, sentenceBudget.getBeamWidth(10));
+    assertEquals(true, sentenceBudget.isExhausted());
+  }
+
+  @Test
+  public void testNarrowOnTimeOut() throws Exception {
+    AnalysisBudget budget = new AnalysisBudget(1, 0);
+    AnalysisBudget.SentenceBudget sentenceBudget = budget.start(new Sentence("Hello", "test"));
+    Thread.sleep(5);
+    assertEquals(2, sentenceBudget.getBeamWidth(4));
+    assertEquals(1, sentenceBudget.getBeamWidth(4));
+    assertEquals(1, sentenceBudget.getBeamWidth(4));
+    // running out of time never stops the analysis
+    assertEquals(false, sentenceBudget.isExhausted());
+  }
+
+  @Test
+  public void testSharedAcrossModules() throws Exception {
+    Sentence sentence = new Sentence("Hello", "test");
+    AnalysisBudget tokeniserBudget = new AnalysisBudget(1, 0);
+    AnalysisBudget.SentenceBudget tokeniserSentenceBudget = tokeniserBudget.start(sentence);
+    Thread.sleep(5);
+    assertEquals(2, tokeniserSentenceBudget.getBeamWidth(4));
+
+    // the next module starts with the time already spent on the sentence
+    AnalysisBudget parserBudget = new AnalysisBudget(1, 0);
+    AnalysisBudget.SentenceBudget parserSentenceBudget = parserBudget.start(sentence);
+    assertEquals(5, parserSentenceBudget.getBeamWidth(10));
+    assertEquals(true, parserSentenceBudget.isNarrowed());
+  }
+}
@@ -0,0 +1,167 @@
+package com.joliciel.talismane;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.joliciel.talismane.AsyncProcessingStage.OverflowPolicy;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.joliciel.talismane.tokeniser.output.AsyncTokenSequenceProcessor;
+import com.joliciel.talismane.tokeniser.output.TokenSequenceProcessor;
+import com.typesafe.config.ConfigFactory;
+
+public class AsyncProcessingStageTest extends TalismaneTest {
+  private static final List<String> PROPERTIES = Arrays.asList("talismane.core.test.analysis.start-module", "talismane.core.test.analysis.end-module",
+      "talismane.core.test.analysis.async-output.enabled");
+
+  @Before
+  public void setUp() {
+    TalismaneSession.clearSessions();
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    System.setProperty("talismane.core.test.analysis.start-module", "tokeniser");
+    System.setProperty("talismane.core.test.analysis.end-module", "tokeniser");
+    ConfigFactory.invalidateCaches();
+  }
+
+  @After
+  public void tearDown() {
+    for (String property : PROPERTIES)
+      System.clearProperty(property);
+    ConfigFactory.invalidateCaches();
+    TalismaneSession.clearSessions();
+  }
+
+  @Test
+  public void testTasksRunInOrder() throws Exception {
+    List<Integer> results = new ArrayList<>();
+    Thread mainThread = Thread.currentThread();
+    List<Thread> threads = new ArrayList<>();
+    try (AsyncProcessingStage stage = new AsyncProcessingStage(3, OverflowPolicy.BLOCK, "test")) {
+      for (int i = 0; i < 50; i++) {
+        final int index = i;
+        stage.submit(() -> {
+          results.add(index);
+          threads.add(Thread.currentThread());
+        });
+      }
+    }
+    assertEquals(50, results.size());
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, results.get(i).intValue());
+      assertEquals(false, threads.get(i) == mainThread);
+    }
+  }
+
+  @Test
+  public void testOverflowFails() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch latch = new CountDownLatch(1);
+    AsyncProcessingStage stage = new AsyncProcessingStage(1, OverflowPolicy.FAIL, "test");
+    try {
+      // blocks the writer thread, leaving the buffer empty
+      stage.submit(() -> {
+        started.countDown();
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      });
+      started.await();
+      stage.submit(() -> {
+      });
+      try {
+        stage.submit(() -> {
+        });
+        fail("expected TalismaneException");
+      } catch (TalismaneException e) {
+        // expected
+      }
+    } finally {
+      latch.countDown();
+      stage.close();
+    }
+  }
+
+  @Test
+  public void testFailureRethrown() throws Exception {
+    AsyncProcessingStage stage = new AsyncProcessingStage(10, OverflowPolicy.BLOCK, "test");
+    List<Integer> results = new ArrayList<>();
+    try {
+      stage.submit(() -> {
+        throw new IOException("failed");
+      });
+      // may already rethrow the failure, if the writer thread got there first
+      stage.submit(() -> results.add(1));
+    } catch (IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    try {
+      stage.close();
+      fail("expected IOException");
+    } catch (IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    assertEquals(0, results.size());
+  }
+
+  @Test
+  public void testWriterClosedWhenProcessorCloseFails() throws Exception {
+    System.setProperty("talismane.core.test.analysis.async-output.enabled", "true");
+    ConfigFactory.invalidateCaches();
+    List<Boolean> closed = new ArrayList<>();
+    StringWriter writer = new StringWriter() {
+      @Override
+      public void close() throws IOException {
+        closed.add(true);
+        super.close();
+      }
+    };
+    Talismane talismane = new Talismane(writer, null, "test");
+    talismane.getTokenSequenceProcessors().add(0, new TokenSequenceProcessor() {
+      @Override
+      public void onNextTokenSequence(TokenSequence tokenSequence) {
+      }
+
+      @Override
+      public void close() {
+        throw new TalismaneException("close failed");
+      }
+    });
+    try {
+      talismane.analyse(new StringReader("Il pleut.\n"));
+      fail("expected TalismaneException");
+    } catch (TalismaneException e) {
+      assertEquals("close failed", e.getMessage());
+    }
+    assertEquals(false, closed.isEmpty());
+    assertEquals(true, writer.toString().contains("pleut"));
+  }
+
+  @Test
+  public void testSameOutputAsSynchronous() throws Exception {
+    String text = "Il pleut.\nIl fait beau. Je viens.\n";
+    StringWriter syncWriter = new StringWriter();
+    new Talismane(syncWriter, null, "test").analyse(new StringReader(text));
+
+    System.setProperty("talismane.core.test.analysis.async-output.enabled", "true");
+    ConfigFactory.invalidateCaches();
+    StringWriter asyncWriter = new StringWriter();
+    Talismane talismane = new Talismane(asyncWriter, null, "test");
+    assertEquals(true, talismane.getTokenSequenceProcessors().get(0) instanceof AsyncTokenSequenceProcessor);
+    talismane.analyse(new StringReader(text));
+
+    assertEquals(syncWriter.toString(), asyncWriter.toString());
+  }
+}
@@ -0,0 +1,114 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.joliciel.talismane.machineLearning.ClassificationModel;
+import com.joliciel.talismane.posTagger.ForwardStatisticalPosTagger;
+import com.joliciel.talismane.posTagger.PosTagAnnotatedCorpusReader;
+import com.joliciel.talismane.posTagger.PosTaggerTrainer;
+import com.joliciel.talismane.posTagger.evaluate.PosTagFScoreCalculator;
+import com.joliciel.talismane.posTagger.evaluate.PosTaggerEvaluator;
+import com.joliciel.talismane.stats.FScoreCalculator;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+public class CrossValidatorTest extends TalismaneTest {
+  private static final String CORPUS = "src/test/resources/crossValidation/posTagCorpus.txt";
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void testSameAsSequentialFolds() throws Exception {
+    System.setProperty("config.file", "src/test/resources/testCrossValidation.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+    final Config config = ConfigFactory.load();
+    File outDir = testFolder.newFolder();
+
+    List<FScoreCalculator<String>> results;
+    try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+      CrossValidator crossValidator = new CrossValidator(reader, outDir, sessionId);
+      results = crossValidator.crossValidate();
+    }
+    assertEquals(3, results.size());
+
+    // the folds pooled from their own threads
+    FScoreCalculator<String> allFolds = new FScoreCalculator<>();
+    for (FScoreCalculator<String> result : results)
+      allFolds.merge(result);
+    StringWriter expectedCsv = new StringWriter();
+    allFolds.writeScoresToCSV(expectedCsv);
+    String baseName = TalismaneSession.get(sessionId).getBaseName();
+    String allFoldsCsv = new String(Files.readAllBytes(new File(outDir, baseName + "_allFolds.fscores.csv").toPath()),
+        TalismaneSession.get(sessionId).getCsvCharset());
+    assertEquals(expectedCsv.toString(), allFoldsCsv);
+
+    // each fold trained and evaluated on its own, reading the corpus directly
+    Config trainConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger.train");
+    Config evalConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger.input");
+    for (int i = 0; i < 3; i++) {
+      Config foldTrainConfig = trainConfig.withValue("cross-validation.fold-count", ConfigValueFactory.fromAnyRef(3))
+          .withValue("cross-validation.exclude-index", ConfigValueFactory.fromAnyRef(i));
+      Config foldEvalConfig = evalConfig.withValue("cross-validation.fold-count", ConfigValueFactory.fromAnyRef(3))
+          .withValue("cross-validation.include-index", ConfigValueFactory.fromAnyRef(i));
+
+      ClassificationModel model;
+      try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+        PosTaggerTrainer trainer = new PosTaggerTrainer(PosTagAnnotatedCorpusReader.getCorpusReader(reader, foldTrainConfig, sessionId), sessionId);
+        model = trainer.trainModel();
+      }
+
+      FScoreCalculator<String> expected;
+      try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+        ForwardStatisticalPosTagger posTagger = new ForwardStatisticalPosTagger(model, sessionId);
+        PosTaggerEvaluator evaluator = new PosTaggerEvaluator(posTagger, PosTagAnnotatedCorpusReader.getCorpusReader(reader, foldEvalConfig, sessionId), null,
+            sessionId);
+        PosTagFScoreCalculator fScoreCalculator = new PosTagFScoreCalculator(outDir, "sequential_fold" + i, sessionId);
+        evaluator.addObserver(fScoreCalculator);
+        evaluator.evaluate();
+        expected = fScoreCalculator.getFScoreCalculator();
+      }
+
+      assertTrue(expected.getTestCount() > 0);
+      FScoreCalculator<String> actual = results.get(i);
+      assertEquals(expected.getTestCount(), actual.getTestCount());
+      assertEquals(expected.getTotalTruePositiveCount(), actual.getTotalTruePositiveCount());
+      assertEquals(expected.getTruePositiveCounts(), actual.getTruePositiveCounts());
+      assertEquals(expected.getFalsePositiveCounts(), actual.getFalsePositiveCounts());
+      assertEquals(expected.getTotalFScore(), actual.getTotalFScore(), 0.0001);
+    }
+  }
+}
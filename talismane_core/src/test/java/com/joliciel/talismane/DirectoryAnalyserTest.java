@@ -0,0 +1,98 @@
+package com.joliciel.talismane;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.typesafe.config.ConfigFactory;
+
+public class DirectoryAnalyserTest extends TalismaneTest {
+  private static final List<String> PROPERTIES = Arrays.asList("talismane.core.test.analysis.start-module", "talismane.core.test.analysis.end-module",
+      "talismane.core.test.analysis.file-threads", "talismane.core.test.analysis.skip-existing-output", "talismane.core.test.suffix");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setUp() {
+    TalismaneSession.clearSessions();
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    System.setProperty("talismane.core.test.analysis.start-module", "tokeniser");
+    System.setProperty("talismane.core.test.analysis.end-module", "tokeniser");
+    System.setProperty("talismane.core.test.analysis.file-threads", "2");
+    System.setProperty("talismane.core.test.suffix", ".tok");
+    ConfigFactory.invalidateCaches();
+  }
+
+  @After
+  public void tearDown() {
+    for (String property : PROPERTIES)
+      System.clearProperty(property);
+    ConfigFactory.invalidateCaches();
+    TalismaneSession.clearSessions();
+  }
+
+  @Test
+  public void testAnalyseEachFile() throws Exception {
+    File inDir = folder.newFolder("in");
+    File subDir = new File(inDir, "sub");
+    subDir.mkdirs();
+    File[] inFiles = { new File(inDir, "a.txt"), new File(inDir, "b.txt"), new File(subDir, "c.txt") };
+    String[] texts = { "Il pleut.", "Il fait beau.", "Je viens." };
+    for (int i = 0; i < inFiles.length; i++)
+      Files.write(inFiles[i].toPath(), texts[i].getBytes(StandardCharsets.UTF_8));
+
+    File outDir = folder.newFolder("out");
+    DirectoryAnalyser analyser = new DirectoryAnalyser(inDir, outDir, null, true, "test");
+    analyser.analyse();
+
+    File[] outFiles = { new File(outDir, "a.tok"), new File(outDir, "b.tok"), new File(new File(outDir, "sub"), "c.tok") };
+    for (File outFile : outFiles)
+      assertTrue(outFile.getPath(), outFile.exists());
+    assertEquals(false, new File(outDir, "a.tok.tmp").exists());
+    String output = new String(Files.readAllBytes(outFiles[1].toPath()), StandardCharsets.UTF_8);
+    assertTrue(output, output.contains("beau"));
+    assertEquals(false, output.contains("pleut"));
+
+    // by default, existing outputs are overwritten
+    Files.write(outFiles[0].toPath(), "done".getBytes(StandardCharsets.UTF_8));
+    outFiles[0].setLastModified(inFiles[0].lastModified() + 1000);
+    analyser = new DirectoryAnalyser(inDir, outDir, null, true, "test");
+    analyser.analyse();
+    String firstOutput = new String(Files.readAllBytes(outFiles[0].toPath()), StandardCharsets.UTF_8);
+    assertTrue(firstOutput, firstOutput.contains("pleut"));
+
+    // if requested, outputs which are already complete are skipped
+    System.setProperty("talismane.core.test.analysis.skip-existing-output", "true");
+    ConfigFactory.invalidateCaches();
+    Files.write(outFiles[0].toPath(), "done".getBytes(StandardCharsets.UTF_8));
+    outFiles[0].setLastModified(inFiles[0].lastModified() + 1000);
+    outFiles[1].delete();
+    analyser = new DirectoryAnalyser(inDir, outDir, null, true, "test");
+    analyser.analyse();
+    assertEquals("done", new String(Files.readAllBytes(outFiles[0].toPath()), StandardCharsets.UTF_8));
+    assertEquals(output, new String(Files.readAllBytes(outFiles[1].toPath()), StandardCharsets.UTF_8));
+
+    // without the directory structure, outputs are concatenated in file order
+    File outFile = new File(folder.getRoot(), "all.tok");
+    analyser = new DirectoryAnalyser(inDir, outFile, null, false, "test");
+    analyser.analyse();
+    String allOutput = new String(Files.readAllBytes(outFile.toPath()), StandardCharsets.UTF_8);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 1; i < outFiles.length; i++)
+      expected.append(new String(Files.readAllBytes(outFiles[i].toPath()), StandardCharsets.UTF_8));
+    assertTrue(allOutput, allOutput.endsWith(expected.toString()));
+    assertTrue(allOutput, allOutput.contains("pleut"));
+  }
+}
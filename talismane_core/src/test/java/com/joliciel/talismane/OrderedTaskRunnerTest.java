@@ -0,0 +1,53 @@
+package com.joliciel.talismane;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OrderedTaskRunnerTest {
+
+  @Test
+  public void testResultsInSubmissionOrder() throws Exception {
+    List<Integer> results = new ArrayList<>();
+    try (OrderedTaskRunner<Integer> runner = new OrderedTaskRunner<>(4, 3)) {
+      for (int i = 0; i < 20; i++) {
+        final int index = i;
+        // earlier tasks take longer
+        runner.submit(() -> {
+          Thread.sleep((20 - index) % 5);
+          return index;
+        });
+        while (runner.isFull())
+          results.add(runner.next());
+        assertEquals(true, i + 1 - results.size() < 3);
+      }
+      while (runner.hasNext())
+        results.add(runner.next());
+    }
+    assertEquals(20, results.size());
+    for (int i = 0; i < 20; i++)
+      assertEquals(i, results.get(i).intValue());
+  }
+
+  @Test
+  public void testTaskExceptionRethrown() throws Exception {
+    try (OrderedTaskRunner<Integer> runner = new OrderedTaskRunner<>(2, 2)) {
+      runner.submit(() -> 1);
+      runner.submit(() -> {
+        throw new IOException("failed");
+      });
+      assertEquals(1, runner.next().intValue());
+      try {
+        runner.next();
+        fail("expected IOException");
+      } catch (IOException e) {
+        assertEquals("failed", e.getMessage());
+      }
+    }
+  }
+}
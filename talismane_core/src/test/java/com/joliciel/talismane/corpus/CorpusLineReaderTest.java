@@ -0,0 +1,58 @@
+package com.joliciel.talismane.corpus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.corpus.CorpusLine.CorpusElement;
+import com.typesafe.config.ConfigFactory;
+
+public class CorpusLineReaderTest extends TalismaneTest {
+
+  @Test
+  public void testTabSeparatedSameAsRegex() throws Exception {
+    TalismaneSession.clearSessions();
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    final String sessionId = "test";
+    CorpusElement[] requiredElements = new CorpusElement[] { CorpusElement.INDEX, CorpusElement.TOKEN, CorpusElement.POSTAG };
+
+    String tabRegex = "%INDEX%\t%TOKEN%\t%LEMMA%\t%POSTAG%\t.*\t_\t%GOVERNOR%\t%LABEL%";
+    // a character class for the tab stops the reader from splitting on tabs
+    String regex = "%INDEX%[\t]%TOKEN%[\t]%LEMMA%[\t]%POSTAG%[\t].*[\t]_[\t]%GOVERNOR%[\t]%LABEL%";
+
+    CorpusLineReader tabReader = new CorpusLineReader(tabRegex, requiredElements, new ArrayList<>(), null, sessionId);
+    CorpusLineReader escapedTabReader = new CorpusLineReader(tabRegex.replace("\t", "\\t"), requiredElements, new ArrayList<>(), null, sessionId);
+    CorpusLineReader regexReader = new CorpusLineReader(regex, requiredElements, new ArrayList<>(), null, sessionId);
+    assertEquals(true, tabReader.isTabSeparated());
+    assertEquals(true, escapedTabReader.isTabSeparated());
+    assertEquals(false, regexReader.isTabSeparated());
+
+    String[] lines = new String[] { "1\tAu\tau\tP+D\tP+D\t_\t0\troot", "2\tsein\t_\tNC\t\t_\t1\t_",
+        // more columns than the layout: the extra tab ends up in the label
+        "3\tdu\tdu\tP+D\tP+D\t_\t1\tdep\textra", "4\t_\t_\tNPP\tNPP\t_\t١٢\tobj" };
+    for (String line : lines) {
+      CorpusLine expected = regexReader.read(line, 1);
+      assertEquals(expected.getElements(), tabReader.read(line, 1).getElements());
+      assertEquals(expected.getElements(), escapedTabReader.read(line, 1).getElements());
+    }
+
+    String[] badLines = new String[] { "1\tAu\tau\t\tP+D\t_\t0\troot", "1-2\tAu\tau\tP+D\tP+D\t_\t0\troot", "1\tAu\tau\tP+D\tP+D\tX\t0\troot",
+        "1\tAu\tau\tP+D\tP+D\t_\t0" };
+    for (String line : badLines) {
+      try {
+        tabReader.read(line, 1);
+        fail("Should have failed on: " + line);
+      } catch (TalismaneException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.joliciel.talismane.corpus;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+public class LineScannerTest {
+
+  @Test
+  public void testSameAsScanner() throws Exception {
+    String[] inputs = new String[] { "", "\n", "a", "a\n", "a\r\nb\rc\n\nd", "a\u2028b\u2029c\u0085d\r", "\r\n\r\n", "a\tb\n\n" };
+    for (String input : inputs) {
+      List<String> expected = new ArrayList<>();
+      try (Scanner scanner = new Scanner(new StringReader(input))) {
+        while (scanner.hasNextLine())
+          expected.add(scanner.nextLine());
+      }
+
+      List<String> actual = new ArrayList<>();
+      LineScanner lineScanner = new LineScanner(new StringReader(input));
+      while (lineScanner.hasNextLine())
+        actual.add(lineScanner.nextLine());
+
+      assertEquals(expected, actual);
+    }
+
+    // lines spanning several buffers
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++)
+      sb.append("line ").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+    List<String> expected = new ArrayList<>();
+    try (Scanner scanner = new Scanner(new StringReader(sb.toString()))) {
+      while (scanner.hasNextLine())
+        expected.add(scanner.nextLine());
+    }
+    List<String> actual = new ArrayList<>();
+    LineScanner lineScanner = new LineScanner(new StringReader(sb.toString()));
+    while (lineScanner.hasNextLine())
+      actual.add(lineScanner.nextLine());
+    assertEquals(expected, actual);
+  }
+}
@@ -3,6 +3,8 @@ package com.joliciel.talismane.lexicon;
 import com.joliciel.talismane.TalismaneTest;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
@@ -123,4 +125,39 @@ public class DiacriticizerTest extends TalismaneTest {
     assertEquals("mangé", results.iterator().next());
   }
 
+  @Test
+  public void testWriteAndRead() throws Exception {
+    final Lexicon lexicon = mock(Lexicon.class);
+    final LexicalEntry l1 = mock(LexicalEntry.class);
+    final LexicalEntry l2 = mock(LexicalEntry.class);
+    final LexicalEntry l3 = mock(LexicalEntry.class);
+    when(l1.getWord()).thenReturn("mangé");
+    when(l2.getWord()).thenReturn("mange");
+    when(l3.getWord()).thenReturn("être");
+    when(lexicon.getAllEntries()).thenReturn(Arrays.asList(l1, l2, l3).iterator());
+
+    Diacriticizer diacriticizer = new Diacriticizer();
+    diacriticizer.setLocale(Locale.FRENCH);
+    diacriticizer.addLexicon(lexicon);
+    assertEquals(Arrays.asList("mange", "mangé"), new ArrayList<>(diacriticizer.diacriticize("MANGE")));
+
+    // words can still be added once the index has been built
+    final Lexicon lexicon2 = mock(Lexicon.class);
+    final LexicalEntry l4 = mock(LexicalEntry.class);
+    when(l4.getWord()).thenReturn("bâton");
+    when(lexicon2.getAllEntries()).thenReturn(Arrays.asList(l4).iterator());
+    diacriticizer.addLexicon(lexicon2);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    diacriticizer.write(out);
+    Diacriticizer diacriticizer2 = Diacriticizer.read(new ByteArrayInputStream(out.toByteArray()));
+
+    assertEquals(Locale.FRENCH, diacriticizer2.getLocale());
+    for (String word : Arrays.asList("MANGE", "MANGÉ", "ETRE", "BATON", "Baton", "BATONS")) {
+      assertEquals(word, new ArrayList<>(diacriticizer.diacriticize(word)), new ArrayList<>(diacriticizer2.diacriticize(word)));
+    }
+    assertEquals(1, diacriticizer2.diacriticize("BATON").size());
+    assertEquals("être", diacriticizer2.diacriticize("ETRE").iterator().next());
+  }
+
 }
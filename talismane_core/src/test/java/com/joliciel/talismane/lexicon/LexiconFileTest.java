@@ -1,16 +1,24 @@
 package com.joliciel.talismane.lexicon;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeSet;
 
 import com.joliciel.talismane.TalismaneTest;
 import org.junit.Test;
 
 import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.posTagger.PosTag;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -48,4 +56,93 @@ public class LexiconFileTest extends TalismaneTest {
     assertTrue(foundNoun);
   }
 
+  @Test
+  public void testPosTagIndex() throws Exception {
+    TalismaneSession.clearSessions();
+    System.setProperty("config.file", "src/test/resources/testWithLex.conf");
+    ConfigFactory.invalidateCaches();
+
+    final String sessionId = "test";
+    TalismaneSession session = TalismaneSession.get(sessionId);
+    List<String> words = Arrays.asList("dame", "de", "donner", "des", "du", "dans", "droit", "xyzzy");
+
+    Set<PosTag> allPosTags = new TreeSet<>();
+    for (PosTaggerLexicon lexicon : session.getLexicons()) {
+      LexiconFile lexiconFile = (LexiconFile) lexicon;
+      assertNotNull(lexiconFile.getPosTagIndex());
+      PosTagMapper posTagMapper = session.getPosTagMapper(lexiconFile);
+      for (String word : words) {
+        Set<PosTag> expected = new TreeSet<>();
+        for (LexicalEntry entry : lexiconFile.getEntries(word))
+          expected.addAll(posTagMapper.getPosTags(entry));
+        Set<PosTag> posTags = lexiconFile.findPossiblePosTags(word);
+        assertEquals(word, new ArrayList<>(expected), new ArrayList<>(posTags));
+        assertSame(posTags, lexiconFile.findPossiblePosTags(word));
+        allPosTags.addAll(posTags);
+
+        for (PosTag posTag : session.getPosTagSet().getTags()) {
+          List<LexicalEntry> expectedEntries = new ArrayList<>();
+          for (LexicalEntry entry : lexiconFile.getEntries(word))
+            if (posTagMapper.getPosTags(entry).contains(posTag))
+              expectedEntries.add(entry);
+          assertEquals(word + ", " + posTag, expectedEntries, lexiconFile.findLexicalEntries(word, posTag));
+        }
+      }
+    }
+    assertTrue(allPosTags.size() > 1);
+
+    for (String word : words) {
+      Set<PosTag> expected = new TreeSet<>();
+      for (PosTaggerLexicon lexicon : session.getLexicons())
+        expected.addAll(lexicon.findPossiblePosTags(word));
+      assertEquals(word, new ArrayList<>(expected), new ArrayList<>(session.getMergedLexicon().findPossiblePosTags(word)));
+    }
+
+    // the merged lexicon caches its lookups
+    CachingLexicon cachingLexicon = (CachingLexicon) session.getMergedLexicon();
+    long hitCount = cachingLexicon.getCache().getHitCount();
+    for (String word : words) {
+      List<LexicalEntry> entries = cachingLexicon.getEntries(word);
+      assertEquals(cachingLexicon.getLexicon().getEntries(word), entries);
+      assertSame(entries, cachingLexicon.getEntries(word));
+    }
+    assertEquals(hitCount + words.size(), cachingLexicon.getCache().getHitCount());
+  }
+
+  @Test
+  public void testParallelLoad() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    final String sessionId = "test";
+
+    LexiconFile serialLexicon = this.loadClosedLexicon(sessionId, 1);
+    LexiconFile parallelLexicon = this.loadClosedLexicon(sessionId, 4);
+
+    List<String> serialEntries = new ArrayList<>();
+    for (Iterator<LexicalEntry> entries = serialLexicon.getAllEntries(); entries.hasNext();)
+      serialEntries.add(entries.next().toString());
+    List<String> parallelEntries = new ArrayList<>();
+    for (Iterator<LexicalEntry> entries = parallelLexicon.getAllEntries(); entries.hasNext();)
+      parallelEntries.add(entries.next().toString());
+    assertTrue(serialEntries.size() > 1000);
+    assertEquals(serialEntries, parallelEntries);
+
+    for (String lemma : Arrays.asList("de", "le", "avoir", "être")) {
+      assertEquals(lemma, serialLexicon.getEntriesForLemma(lemma).toString(), parallelLexicon.getEntriesForLemma(lemma).toString());
+    }
+  }
+
+  private LexiconFile loadClosedLexicon(String sessionId, int threadCount) throws Exception {
+    File regexFile = new File("src/test/resources/lexicons/TalismaneFrClosed_regex.txt");
+    RegexLexicalEntryReader reader = new RegexLexicalEntryReader(new Scanner(regexFile, "UTF-8"));
+    File lexFile = new File("src/test/resources/lexicons/TalismaneFrClosed.txt");
+    try (Scanner lexiconScanner = new Scanner(lexFile, "UTF-8")) {
+      LexiconFile lexiconFile = new LexiconFile("TalismaneFrClosed", lexiconScanner, reader, sessionId);
+      lexiconFile.setUniqueKeyAttributes(Arrays.asList(LexicalAttribute.Word, LexicalAttribute.Lemma, LexicalAttribute.Category));
+      // small chunks, so that they are spread over all threads
+      lexiconFile.load(threadCount, 50);
+      return lexiconFile;
+    }
+  }
 }
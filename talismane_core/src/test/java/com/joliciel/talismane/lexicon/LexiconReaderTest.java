@@ -1,12 +1,22 @@
 package com.joliciel.talismane.lexicon;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.joliciel.talismane.TalismaneTest;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.posTagger.PosTag;
@@ -15,6 +25,8 @@ import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
 public class LexiconReaderTest extends TalismaneTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
 
   @Test
   public void testReadLexicons() throws Exception {
@@ -49,4 +61,115 @@ public class LexiconReaderTest extends TalismaneTest {
     ConfigFactory.invalidateCaches();
   }
 
+  @Test
+  public void testSegmentedLexicons() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    final String sessionId = "test";
+    LexiconReader lexiconReader = new LexiconReader(sessionId);
+    List<PosTaggerLexicon> lexicons = lexiconReader.readLexicons(new File("src/test/resources/lexicons/lexicons_fr.txt"));
+    File lexiconFile = folder.newFile("lexicons.zip");
+    lexiconReader.serializeLexicons(lexicons, lexiconFile, 8);
+
+    List<PosTaggerLexicon> lazyLexicons = lexiconReader.deserializeLexicons(lexiconFile, true);
+    List<PosTaggerLexicon> eagerLexicons = lexiconReader.deserializeLexicons(lexiconFile, false);
+    assertEquals(lexicons.size(), lazyLexicons.size());
+    assertEquals(lexicons.size(), eagerLexicons.size());
+
+    for (int i = 0; i < lexicons.size(); i++) {
+      PosTaggerLexicon lexicon = lexicons.get(i);
+      LexiconSegments segments = ((LexiconFile) lazyLexicons.get(i)).getSegments();
+      assertEquals(lexicon.getName(), lazyLexicons.get(i).getName());
+      assertEquals(0, segments.getLoadedSegmentCount());
+      assertNull(((LexiconFile) eagerLexicons.get(i)).getSegments());
+
+      for (String word : Arrays.asList("dame", "de", "donner", "des", "du", "xyzzy")) {
+        assertEquals(word, lexicon.getEntries(word).toString(), lazyLexicons.get(i).getEntries(word).toString());
+        assertEquals(word, lexicon.getEntries(word).toString(), eagerLexicons.get(i).getEntries(word).toString());
+        assertEquals(word, lexicon.getEntriesForLemma(word).toString(), lazyLexicons.get(i).getEntriesForLemma(word).toString());
+        assertEquals(word, lexicon.getEntriesForLemma(word).toString(), eagerLexicons.get(i).getEntriesForLemma(word).toString());
+      }
+      assertTrue(segments.getLoadedSegmentCount() > 0);
+      assertTrue(segments.getLoadedSegmentCount() <= 8);
+
+      int entryCount = 0;
+      for (Iterator<LexicalEntry> entries = lexicon.getAllEntries(); entries.hasNext(); entries.next())
+        entryCount++;
+      int lazyEntryCount = 0;
+      for (Iterator<LexicalEntry> entries = lazyLexicons.get(i).getAllEntries(); entries.hasNext(); entries.next())
+        lazyEntryCount++;
+      assertEquals(entryCount, lazyEntryCount);
+      assertEquals(8, segments.getLoadedSegmentCount());
+    }
+
+    System.clearProperty("config.file");
+    ConfigFactory.invalidateCaches();
+  }
+
+  @Test
+  public void testSuffixPosTagIndex() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final Config config = ConfigFactory.load();
+
+    final String sessionId = "test";
+    PosTagSet posTagSet = TalismaneSession.get(sessionId).getPosTagSet();
+    LexiconReader lexiconReader = new LexiconReader(sessionId);
+    List<PosTaggerLexicon> lexicons = lexiconReader.readLexicons(new File("src/test/resources/lexicons/lexicons_fr.txt"));
+    Map<String, PosTagMapper> posTagMappers = new HashMap<>();
+    for (PosTaggerLexicon lexicon : lexicons)
+      posTagMappers.put(lexicon.getName(), PosTagMapper.getPosTagMapper(config, sessionId, lexicon.getName(), posTagSet));
+    SuffixPosTagIndex index = SuffixPosTagIndex.build(lexicons, lexicon -> posTagMappers.get(lexicon.getName()), posTagSet, 3);
+
+    Map<String, Set<PosTag>> wordPosTags = new HashMap<>();
+    for (PosTaggerLexicon lexicon : lexicons) {
+      for (Iterator<LexicalEntry> entries = lexicon.getAllEntries(); entries.hasNext();) {
+        LexicalEntry entry = entries.next();
+        wordPosTags.computeIfAbsent(entry.getWord(), k -> new HashSet<>()).addAll(posTagMappers.get(lexicon.getName()).getPosTags(entry));
+      }
+    }
+    assertEquals(wordPosTags.size(), index.getWordCount(0));
+
+    File lexiconFile = folder.newFile("lexicons.zip");
+    lexiconReader.serializeLexicons(lexicons, lexiconFile, 0, index);
+    lexiconReader.deserializeLexicons(lexiconFile, true);
+    SuffixPosTagIndex lazyIndex = lexiconReader.getSuffixPosTagIndex();
+    lexiconReader.deserializeLexicons(lexiconFile, false);
+    SuffixPosTagIndex eagerIndex = lexiconReader.getSuffixPosTagIndex();
+    assertEquals(posTagSet.getName(), lazyIndex.getPosTagSetName());
+    assertEquals(index.getNodeCount(), lazyIndex.getNodeCount());
+    assertEquals(index.getNodeCount(), eagerIndex.getNodeCount());
+
+    for (String word : Arrays.asList("dame", "donner", "parlait", "rapidement", "xyzzy")) {
+      for (int n = 0; n <= 4; n++) {
+        int wordCount = 0;
+        Map<PosTag, Integer> counts = new HashMap<>();
+        if (n <= word.length()) {
+          String suffix = word.substring(word.length() - n);
+          for (Map.Entry<String, Set<PosTag>> wordEntry : wordPosTags.entrySet()) {
+            if (wordEntry.getKey().endsWith(suffix)) {
+              wordCount++;
+              for (PosTag posTag : wordEntry.getValue())
+                counts.merge(posTag, 1, Integer::sum);
+            }
+          }
+        }
+        for (SuffixPosTagIndex oneIndex : Arrays.asList(index, lazyIndex, eagerIndex)) {
+          int node = oneIndex.findSuffix(word, n);
+          if (n > 3 || wordCount == 0) {
+            assertEquals(word + " " + n, -1, node);
+            continue;
+          }
+          assertEquals(word + " " + n, wordCount, oneIndex.getWordCount(node));
+          for (PosTag posTag : posTagSet.getTags())
+            assertEquals(word + " " + n + " " + posTag, counts.getOrDefault(posTag, 0).intValue(), oneIndex.getCount(node, posTag));
+        }
+      }
+    }
+    assertEquals(index.findSuffix("dame", 2), index.findSuffix("la dame ", 7, 2));
+
+    System.clearProperty("config.file");
+    ConfigFactory.invalidateCaches();
+  }
 }
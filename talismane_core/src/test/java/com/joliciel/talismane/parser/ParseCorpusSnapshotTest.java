@@ -0,0 +1,166 @@
+package com.joliciel.talismane.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneException;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.parser.output.CoNLLParseWriter;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.posTagger.PosTaggedToken;
+import com.joliciel.talismane.tokeniser.StringAttribute;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+public class ParseCorpusSnapshotTest extends TalismaneTest {
+
+  @Test
+  public void testSameAsCorpusReader() throws Exception {
+    TalismaneSession.clearSessions();
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final Config config = ConfigFactory.load();
+
+    final String sessionId = "test";
+
+    String input = "";
+    for (int i = 0; i < 4; i++) {
+      input += "1\tAu\tau\tP+D\tP+D\t_\t0\troot\t0\troot\n";
+      input += "2\tsein\tsein\tNC\tNC\tg=m|n=s\t1\tobj\t1\tobj\n";
+      input += "3\tdu\tdu\tP+D\tP+D\t_\t1\tdep\t1\tdep\n";
+      input += "4\tSénat\tSénat\tNPP\tNPP\t_\t3\tobj\t3\tobj\n";
+      input += "5\tsocialiste\tsocialiste\tADJ\tADJ\t_\t2\tmod\t4\tmod\n";
+      input += "\n";
+      input += "1\tIl\til\tCLS\tCLS\t_\t2\tsuj\t2\tsuj\n";
+      input += "2\tvient\tvenir\tV\tV\t_\t0\troot\t0\troot\n";
+      input += "3\t.\t.\tPONCT\tPONCT\t_\t2\tponct\t2\tponct\n";
+      input += "\n";
+    }
+    input += "1\tSénat\tSénat\tNPP\tNPP\t_\t0\troot\t0\troot\n";
+
+    Config inputConfig = config.getConfig("talismane.core.test.parser.input").withValue("corpus-lexical-entry-regex",
+        ConfigValueFactory.fromAnyRef("languagePacks/french/languagePack/talismane_conll_morph_regex.txt"));
+    ParseCorpusSnapshot snapshot = ParseCorpusSnapshot.load(
+        new ParserRegexBasedCorpusReader(new StringReader(input), ParseCorpusSnapshot.getFullCorpusConfig(inputConfig), sessionId), sessionId);
+    assertEquals(9, snapshot.size());
+    assertEquals(true, snapshot.hasDependencies());
+
+    Map<String, Object> include = new HashMap<>();
+    include.put("cross-validation.fold-count", 3);
+    include.put("cross-validation.include-index", 1);
+    Map<String, Object> exclude = new HashMap<>();
+    exclude.put("cross-validation.fold-count", 3);
+    exclude.put("cross-validation.exclude-index", 1);
+    Map<String, Object> slice = new HashMap<>();
+    slice.put("start-sentence", 2);
+    slice.put("sentence-count", 7);
+
+    for (Map<String, Object> values : Arrays.asList(new HashMap<String, Object>(), include, exclude, slice)) {
+      Config readerConfig = ConfigFactory.parseMap(values).withFallback(inputConfig);
+
+      StringWriter expectedOutput = new StringWriter();
+      CoNLLParseWriter expectedWriter = new CoNLLParseWriter(expectedOutput, false, 0);
+      ParserAnnotatedCorpusReader expectedReader = new ParserRegexBasedCorpusReader(new StringReader(input), readerConfig, sessionId);
+      while (expectedReader.hasNextSentence())
+        expectedWriter.onNextParseConfiguration(expectedReader.nextConfiguration());
+      expectedWriter.onCompleteParse();
+
+      StringWriter actualOutput = new StringWriter();
+      CoNLLParseWriter actualWriter = new CoNLLParseWriter(actualOutput, false, 0);
+      ParserAnnotatedCorpusReader actualReader = snapshot.getReader(readerConfig);
+      while (actualReader.hasNextSentence())
+        actualWriter.onNextParseConfiguration(actualReader.nextConfiguration());
+      actualWriter.onCompleteParse();
+      assertNull(actualReader.nextConfiguration());
+
+      assertEquals(expectedOutput.toString(), actualOutput.toString());
+      assertEquals(expectedReader.getCharacteristics().get("includeIndex"), actualReader.getCharacteristics().get("includeIndex"));
+    }
+
+    // the same lexical entry is shared by all sentences
+    ParserAnnotatedCorpusReader reader = snapshot.getReader(inputConfig);
+    PosTagSequence first = reader.nextPosTagSequence();
+    reader.nextPosTagSequence();
+    PosTagSequence third = reader.nextPosTagSequence();
+    assertEquals("sein", first.get(2).getLemma());
+    assertEquals(true, first.get(2).getLexicalEntries().get(0) == third.get(2).getLexicalEntries().get(0));
+  }
+
+  @Test
+  public void testSameTokenDetails() throws Exception {
+    TalismaneSession.clearSessions();
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final Config config = ConfigFactory.load();
+
+    final String sessionId = "test";
+
+    String input = "";
+    input += "1\tAu\tau\tP+D\tP+D\t_\t0\troot\t0\troot\n";
+    input += "2\tsein\tsein\tNC\tNC\tg=m|n=s\t1\tobj\t1\tobj\n";
+    input += "\n";
+    input += "1\tIl\til\tCLS\tCLS\t_\t2\tsuj\t2\tsuj\n";
+    input += "2\tvient\tvenir\tV\tV\tt=P|p=3|n=s\t0\troot\t0\troot\n";
+    input += "\n";
+
+    Config withEntries = config.getConfig("talismane.core.test.parser.input").withValue("corpus-lexical-entry-regex",
+        ConfigValueFactory.fromAnyRef("languagePacks/french/languagePack/talismane_conll_morph_regex.txt"));
+    Config withoutEntries = config.getConfig("talismane.core.test.parser.input");
+
+    for (Config inputConfig : Arrays.asList(withEntries, withoutEntries)) {
+      ParseCorpusSnapshot snapshot = ParseCorpusSnapshot
+          .load(new AttributeCorpusReader(new StringReader(input), ParseCorpusSnapshot.getFullCorpusConfig(inputConfig), sessionId), sessionId);
+      ParserAnnotatedCorpusReader expectedReader = new AttributeCorpusReader(new StringReader(input), inputConfig, sessionId);
+      ParserAnnotatedCorpusReader actualReader = snapshot.getReader(inputConfig);
+      while (expectedReader.hasNextSentence()) {
+        PosTagSequence expected = expectedReader.nextConfiguration().getPosTagSequence();
+        PosTagSequence actual = actualReader.nextConfiguration().getPosTagSequence();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+          PosTaggedToken expectedToken = expected.get(i);
+          PosTaggedToken actualToken = actual.get(i);
+          assertEquals(expectedToken.getToken().getText(), actualToken.getToken().getText());
+          assertEquals(expectedToken.getToken().getAttributes(), actualToken.getToken().getAttributes());
+          assertEquals(expectedToken.getToken().getOriginalLemma(), actualToken.getToken().getOriginalLemma());
+          assertEquals(expectedToken.getToken().getOriginalMorphology(), actualToken.getToken().getOriginalMorphology());
+          assertEquals(expectedToken.hasLexicalEntries(), actualToken.hasLexicalEntries());
+          assertEquals(expectedToken.getLexicalEntries().toString(), actualToken.getLexicalEntries().toString());
+          assertEquals(expectedToken.getLemma(), actualToken.getLemma());
+          assertEquals(expectedToken.getMorphologyForCoNLL(), actualToken.getMorphologyForCoNLL());
+        }
+      }
+      assertEquals(false, actualReader.hasNextSentence());
+    }
+  }
+
+  /**
+   * Adds an attribute to each token which the sentence annotators can't
+   * recreate.
+   */
+  private static final class AttributeCorpusReader extends ParserRegexBasedCorpusReader {
+    private AttributeCorpusReader(StringReader reader, Config config, String sessionId) throws Exception {
+      super(reader, config, sessionId);
+    }
+
+    @Override
+    public ParseConfiguration nextConfiguration() throws TalismaneException, IOException {
+      ParseConfiguration configuration = super.nextConfiguration();
+      for (PosTaggedToken posTaggedToken : configuration.getPosTagSequence()) {
+        if (!posTaggedToken.isRoot())
+          posTaggedToken.getToken().addAttribute("length", new StringAttribute("length", "" + posTaggedToken.getToken().getText().length()));
+      }
+      return configuration;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.AdaptiveBeam;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.machineLearning.Decision;
+import com.joliciel.talismane.machineLearning.DecisionMaker;
+import com.joliciel.talismane.machineLearning.GeometricMeanScoringStrategy;
+import com.joliciel.talismane.parser.Parser.ParseComparisonStrategyType;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.posTagger.PosTaggedToken;
+import com.joliciel.talismane.rawText.Sentence;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.typesafe.config.ConfigFactory;
+
+public class TransitionBasedParserTest extends TalismaneTest {
+
+  @Test
+  public void testAdaptiveBeamKeepsBestValidTransition() throws Exception {
+    System.setProperty("config.file", "src/test/resources/testEvaluation.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+
+    // the model is always very confident about a left arc, which can't be
+    // applied while the root is on top of the stack
+    DecisionMaker decisionMaker = mock(DecisionMaker.class);
+    when(decisionMaker.getDefaultScoringStrategy()).thenReturn(new GeometricMeanScoringStrategy());
+    when(decisionMaker.decide(any())).thenAnswer(
+        invocation -> new ArrayList<>(Arrays.asList(new Decision("LeftArc[suj]", 0.95), new Decision("Shift", 0.03), new Decision("RightArc[root]", 0.02))));
+
+    AdaptiveBeam adaptiveBeam = new AdaptiveBeam(true, 0.9, 0.5, 1, 0);
+    TransitionBasedParser parser = new TransitionBasedParser(decisionMaker, TalismaneSession.get(sessionId).getTransitionSystem(), new HashSet<>(), 1, false,
+        ParseComparisonStrategy.forType(ParseComparisonStrategyType.transitionCount), 0, 0, adaptiveBeam, sessionId);
+
+    Sentence sentence = new Sentence("Il dort", sessionId);
+    TokenSequence tokenSequence = new TokenSequence(sentence, sessionId);
+    tokenSequence.addToken(0, 2);
+    tokenSequence.addToken(3, 7);
+    PosTagSequence posTagSequence = new PosTagSequence(tokenSequence);
+    posTagSequence.addPosTaggedToken(new PosTaggedToken(tokenSequence.get(0), new Decision("CLS"), sessionId));
+    posTagSequence.addPosTaggedToken(new PosTaggedToken(tokenSequence.get(1), new Decision("V"), sessionId));
+
+    ParseConfiguration configuration = parser.parseSentence(posTagSequence);
+    assertTrue(configuration.isTerminal());
+    List<String> arcs = new ArrayList<>();
+    for (DependencyArc arc : configuration.getDependencies())
+      arcs.add(arc.getHead().getToken().getText() + "-" + arc.getLabel() + "->" + arc.getDependent().getToken().getText());
+    assertEquals(Arrays.asList("dort-suj->Il"), arcs);
+
+    System.clearProperty("config.file");
+    ConfigFactory.invalidateCaches();
+  }
+}
@@ -0,0 +1,42 @@
+package com.joliciel.talismane.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Scanner;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneTest;
+
+public class TransitionSystemTest extends TalismaneTest {
+
+  @Test
+  public void testTransitionsShared() throws Exception {
+    DependencyLabelSet labelSet = new DependencyLabelSet(new Scanner("suj\tsujet\nobj\tobjet\nponct\tponctuation\tPunctuation\n"));
+    TransitionSystem transitionSystem = new ArcEagerTransitionSystem();
+    transitionSystem.setDependencyLabelSet(labelSet);
+    // Shift, Reduce, and a LeftArc and RightArc per label
+    assertEquals(8, transitionSystem.getTransitions().size());
+
+    for (Transition transition : transitionSystem.getTransitions()) {
+      assertSame(transition, transitionSystem.getTransitionForCode(transition.getCode()));
+    }
+
+    Transition leftArc = transitionSystem.getTransitionForCode(new String("LeftArc[suj]"));
+    assertSame(leftArc, transitionSystem.getTransitionForCode("LeftArc[suj]"));
+    assertEquals("LeftArc[suj]", leftArc.getCode());
+
+    // not in getTransitions(), but still shared
+    Transition forceReduce = transitionSystem.getTransitionForCode("ForceReduce");
+    assertSame(forceReduce, transitionSystem.getTransitionForCode("ForceReduce"));
+
+    try {
+      transitionSystem.getTransitionForCode("RightArc[det]");
+      fail("expected UnknownDependencyLabelException");
+    } catch (UnknownDependencyLabelException e) {
+      // expected
+    }
+  }
+}
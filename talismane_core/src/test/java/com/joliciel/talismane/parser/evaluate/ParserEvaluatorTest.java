@@ -0,0 +1,133 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.parser.evaluate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.machineLearning.ClassificationModel;
+import com.joliciel.talismane.parser.DependencyArc;
+import com.joliciel.talismane.parser.ParseConfiguration;
+import com.joliciel.talismane.parser.ParserAnnotatedCorpusReader;
+import com.joliciel.talismane.parser.ParserTrainer;
+import com.joliciel.talismane.parser.TransitionBasedParser;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.stats.FScoreCalculator;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+public class ParserEvaluatorTest extends TalismaneTest {
+  private static final String CORPUS = "src/test/resources/evaluation/parseCorpus.txt";
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void testThreadsSameAsSerial() throws Exception {
+    System.setProperty("config.file", "src/test/resources/testEvaluation.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+    final Config config = ConfigFactory.load();
+    Config trainConfig = config.getConfig("talismane.core." + sessionId + ".parser.train");
+    Config evalConfig = config.getConfig("talismane.core." + sessionId + ".parser.evaluate");
+
+    ClassificationModel model;
+    try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+      ParserTrainer trainer = new ParserTrainer(ParserAnnotatedCorpusReader.getCorpusReader(reader, trainConfig, sessionId), sessionId);
+      model = trainer.trainModel();
+    }
+
+    File outDir = testFolder.newFolder();
+    List<String> serialEvents = new ArrayList<>();
+    FScoreCalculator<String> serialFScores;
+    try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+      ParserEvaluator evaluator = new ParserEvaluator(ParserAnnotatedCorpusReader.getCorpusReader(reader, evalConfig, sessionId),
+          new TransitionBasedParser(model, sessionId), null, null, false, false, sessionId);
+      ParserFScoreCalculator fScoreCalculator = new ParserFScoreCalculator(outDir, "serial", sessionId);
+      evaluator.addObserver(fScoreCalculator);
+      evaluator.addObserver(new RecordingObserver(serialEvents));
+      evaluator.evaluate();
+      serialFScores = fScoreCalculator.getFscoreCalculator();
+    }
+
+    List<String> threadedEvents = new ArrayList<>();
+    FScoreCalculator<String> threadedFScores;
+    try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+      ParserEvaluator evaluator = new ParserEvaluator(ParserAnnotatedCorpusReader.getCorpusReader(reader, evalConfig, sessionId),
+          new TransitionBasedParser(model, sessionId), null, null, false, false, sessionId);
+      evaluator.setThreadCount(3);
+      ParserFScoreCalculator fScoreCalculator = new ParserFScoreCalculator(outDir, "threaded", sessionId);
+      evaluator.addObserver(fScoreCalculator);
+      evaluator.addObserver(new RecordingObserver(threadedEvents));
+      evaluator.evaluate();
+      threadedFScores = fScoreCalculator.getFscoreCalculator();
+    }
+
+    assertTrue(serialFScores.getTestCount() > 0);
+    assertEquals(serialEvents, threadedEvents);
+    assertEquals(serialFScores.getTestCount(), threadedFScores.getTestCount());
+    assertEquals(serialFScores.getTruePositiveCounts(), threadedFScores.getTruePositiveCounts());
+    assertEquals(serialFScores.getFalsePositiveCounts(), threadedFScores.getFalsePositiveCounts());
+    assertEquals(serialFScores.getTotalFScore(), threadedFScores.getTotalFScore(), 0.0001);
+  }
+
+  /**
+   * Records each callback, with the sentence and the dependencies guessed for
+   * it.
+   */
+  private static final class RecordingObserver implements ParseEvaluationObserver {
+    private final List<String> events;
+
+    private RecordingObserver(List<String> events) {
+      this.events = events;
+    }
+
+    @Override
+    public void onParseStart(ParseConfiguration realConfiguration, List<PosTagSequence> posTagSequences) {
+      events.add("start " + realConfiguration.getPosTagSequence().getTokenSequence().getSentence().getText());
+    }
+
+    @Override
+    public void onParseEnd(ParseConfiguration realConfiguration, List<ParseConfiguration> guessedConfigurations) {
+      TreeSet<String> arcs = new TreeSet<>();
+      for (DependencyArc arc : guessedConfigurations.get(0).getDependencies())
+        arcs.add(arc.toString());
+      events.add("end " + realConfiguration.getPosTagSequence().getTokenSequence().getSentence().getText() + " " + arcs);
+    }
+
+    @Override
+    public void onEvaluationComplete() throws IOException {
+      events.add("complete");
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.joliciel.talismane.parser.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.lexicon.CompactLexicalEntry;
+import com.joliciel.talismane.lexicon.CompactLexicalEntrySupport;
+import com.joliciel.talismane.lexicon.LexicalEntry;
+import com.joliciel.talismane.parser.ParseConfiguration;
+import com.joliciel.talismane.parser.ParserBinaryCorpusReader;
+import com.joliciel.talismane.parser.ParserRegexBasedCorpusReader;
+import com.joliciel.talismane.posTagger.PosTaggedToken;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+public class BinaryParseWriterTest extends TalismaneTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    TalismaneSession.clearSessions();
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final Config config = ConfigFactory.load();
+
+    final String sessionId = "test";
+
+    String input = "";
+    input += "1\tAu\tau\tP+D\tP+D\t_\t0\troot\t0\troot\n";
+    input += "2\tsein\tsein\tNC\tNC\tg=m|n=s\t1\tobj\t1\tobj\n";
+    input += "3\tdu\tdu\tP+D\tP+D\t_\t1\tdep\t1\tdep\n";
+    input += "4\tSénat\tSénat\tNPP\tNPP\t_\t3\tobj\t3\tobj\n";
+    input += "5\tsocialiste\tsocialiste\tADJ\tADJ\t_\t2\tmod\t4\tmod\n";
+    input += "\n";
+    input += "1\tIl\til\tCLS\tCLS\t_\t2\tsuj\t2\tsuj\n";
+    input += "2\tvient\tvenir\tV\tV\t_\t0\troot\t0\troot\n";
+    input += "3\t.\t.\tPONCT\tPONCT\t_\t2\tponct\t2\tponct\n";
+
+    StringWriter binaryOutput = new StringWriter();
+    StringWriter expectedOutput = new StringWriter();
+    BinaryParseWriter binaryWriter = new BinaryParseWriter(binaryOutput, 0);
+    CoNLLParseWriter expectedWriter = new CoNLLParseWriter(expectedOutput, false, 0);
+
+    CompactLexicalEntrySupport lexicalEntrySupport = new CompactLexicalEntrySupport("");
+    ParserRegexBasedCorpusReader reader = new ParserRegexBasedCorpusReader(new StringReader(input), config.getConfig("talismane.core.test.parser.input"),
+        sessionId);
+    while (reader.hasNextSentence()) {
+      ParseConfiguration parseConfiguration = reader.nextConfiguration();
+      for (PosTaggedToken posTaggedToken : parseConfiguration.getPosTagSequence()) {
+        if (posTaggedToken.getToken().getText().equals("sein")) {
+          CompactLexicalEntry lexicalEntry = new CompactLexicalEntry(lexicalEntrySupport);
+          lexicalEntry.setWord("sein");
+          lexicalEntry.setLemma("sein");
+          lexicalEntry.setCategory("NC");
+          lexicalEntry.addGender("m");
+          lexicalEntry.addNumber("s");
+          List<LexicalEntry> lexicalEntries = new ArrayList<>();
+          lexicalEntries.add(lexicalEntry);
+          posTaggedToken.setLexicalEntries(lexicalEntries);
+        }
+      }
+      binaryWriter.onNextParseConfiguration(parseConfiguration);
+      expectedWriter.onNextParseConfiguration(parseConfiguration);
+    }
+    binaryWriter.onCompleteParse();
+    expectedWriter.onCompleteParse();
+
+    String binary = binaryOutput.toString();
+    assertEquals(true, binary.startsWith("TPB"));
+    for (int i = 0; i < binary.length(); i++)
+      assertEquals(true, binary.charAt(i) <= 0xFF);
+
+    // concatenated streams are read as a single stream
+    StringWriter actualOutput = new StringWriter();
+    CoNLLParseWriter actualWriter = new CoNLLParseWriter(actualOutput, false, 0);
+    ParserBinaryCorpusReader binaryReader = new ParserBinaryCorpusReader(new StringReader(binary + binary), config.getConfig("talismane.core.test.parser.input"),
+        sessionId);
+    int sentenceCount = 0;
+    while (binaryReader.hasNextSentence()) {
+      ParseConfiguration parseConfiguration = binaryReader.nextConfiguration();
+      actualWriter.onNextParseConfiguration(parseConfiguration);
+      sentenceCount++;
+    }
+    actualWriter.onCompleteParse();
+    assertNull(binaryReader.nextConfiguration());
+
+    assertEquals(4, sentenceCount);
+    assertEquals(true, actualOutput.toString().contains("2\tsein\tsein\tNC\tNC\tn=s|g=m\t1\tobj\t1\tobj"));
+    assertEquals(expectedOutput.toString() + expectedOutput.toString(), actualOutput.toString());
+  }
+}
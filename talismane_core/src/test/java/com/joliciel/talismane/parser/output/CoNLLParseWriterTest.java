@@ -0,0 +1,63 @@
+package com.joliciel.talismane.parser.output;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.Talismane;
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.parser.ParseConfiguration;
+import com.joliciel.talismane.parser.ParserRegexBasedCorpusReader;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+public class CoNLLParseWriterTest extends TalismaneTest {
+
+  @Test
+  public void testSameAsFreemarker() throws Exception {
+    TalismaneSession.clearSessions();
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final Config config = ConfigFactory.load();
+
+    final String sessionId = "test";
+
+    String input = "";
+    input += "1\tAu\tau\tP+D\tP+D\t_\t0\troot\t0\troot\n";
+    input += "2\tsein\tsein\tNC\tNC\tg=m|n=s\t1\tobj\t1\tobj\n";
+    input += "3\tdu\tdu\tP+D\tP+D\t_\t1\tdep\t1\tdep\n";
+    input += "4\tParti\tParti\tNPP\tNPP\t_\t3\tobj\t3\tobj\n";
+    input += "5\tsocialiste\tsocialiste\tADJ\tADJ\t_\t2\tmod\t4\tmod\n";
+    input += "\n";
+    input += "1\tIl\til\tCLS\tCLS\t_\t2\tsuj\t2\tsuj\n";
+    input += "2\tvient\tvenir\tV\tV\t_\t0\troot\t0\troot\n";
+    input += "3\t.\t.\tPONCT\tPONCT\t_\t2\tponct\t2\tponct\n";
+
+    for (String templateName : new String[] { "parser_conll_template.ftl", "parser_conll_template_with_prob.ftl" }) {
+      StringWriter freemarkerOutput = new StringWriter();
+      StringWriter directOutput = new StringWriter();
+      FreemarkerParseWriter freemarkerWriter = new FreemarkerParseWriter(
+          new BufferedReader(new InputStreamReader(Talismane.class.getResourceAsStream("output/" + templateName))), freemarkerOutput, sessionId);
+      CoNLLParseWriter directWriter = new CoNLLParseWriter(directOutput, templateName.contains("with_prob"), 0);
+
+      ParserRegexBasedCorpusReader reader = new ParserRegexBasedCorpusReader(new StringReader(input), config.getConfig("talismane.core.test.parser.input"),
+          sessionId);
+      while (reader.hasNextSentence()) {
+        ParseConfiguration parseConfiguration = reader.nextConfiguration();
+        freemarkerWriter.onNextParseConfiguration(parseConfiguration);
+        directWriter.onNextParseConfiguration(parseConfiguration);
+      }
+      freemarkerWriter.onCompleteParse();
+      directWriter.onCompleteParse();
+
+      assertEquals(true, directOutput.toString().contains("5\tsocialiste\t_\tADJ\tADJ\t\t2\tmod\t4\tmod"));
+      assertEquals(freemarkerOutput.toString(), directOutput.toString());
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.joliciel.talismane.posTagger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneTest;
+
+public class PosTagSetTest extends TalismaneTest {
+
+  @Test
+  public void testIds() throws Exception {
+    List<String> descriptors = Arrays.asList("# test", "Test tagset", "fr", "NC\tnom commun\tOPEN", "ADJ\tadjectif\tOPEN", "DET\tdéterminant\tCLOSED");
+    PosTagSet posTagSet = new PosTagSet(descriptors);
+
+    int i = 0;
+    for (PosTag posTag : posTagSet.getTags()) {
+      assertEquals(i, posTagSet.getId(posTag));
+      assertSame(posTag, posTagSet.getPosTag(i));
+      assertSame(posTag, posTagSet.getPosTag(posTag.getCode()));
+      assertEquals(1L << i, posTagSet.getBit(posTag));
+      i++;
+    }
+    assertEquals(-1, posTagSet.getId(PosTag.ROOT_POS_TAG));
+    assertSame(PosTag.ROOT_POS_TAG, posTagSet.getPosTag(PosTag.ROOT_POS_TAG_CODE));
+  }
+}
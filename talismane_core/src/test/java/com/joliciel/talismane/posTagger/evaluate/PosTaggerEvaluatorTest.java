@@ -0,0 +1,120 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.posTagger.evaluate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.machineLearning.ClassificationModel;
+import com.joliciel.talismane.posTagger.ForwardStatisticalPosTagger;
+import com.joliciel.talismane.posTagger.PosTagAnnotatedCorpusReader;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.posTagger.PosTaggerTrainer;
+import com.joliciel.talismane.stats.FScoreCalculator;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+public class PosTaggerEvaluatorTest extends TalismaneTest {
+  private static final String CORPUS = "src/test/resources/crossValidation/posTagCorpus.txt";
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void testThreadsSameAsSerial() throws Exception {
+    System.setProperty("config.file", "src/test/resources/testEvaluation.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+    final Config config = ConfigFactory.load();
+    Config trainConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger.train");
+    Config evalConfig = config.getConfig("talismane.core." + sessionId + ".pos-tagger.evaluate");
+
+    ClassificationModel model;
+    try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+      PosTaggerTrainer trainer = new PosTaggerTrainer(PosTagAnnotatedCorpusReader.getCorpusReader(reader, trainConfig, sessionId), sessionId);
+      model = trainer.trainModel();
+    }
+
+    File outDir = testFolder.newFolder();
+    List<String> serialEvents = new ArrayList<>();
+    FScoreCalculator<String> serialFScores;
+    try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+      PosTaggerEvaluator evaluator = new PosTaggerEvaluator(new ForwardStatisticalPosTagger(model, sessionId),
+          PosTagAnnotatedCorpusReader.getCorpusReader(reader, evalConfig, sessionId), null, sessionId);
+      PosTagFScoreCalculator fScoreCalculator = new PosTagFScoreCalculator(outDir, "serial", sessionId);
+      evaluator.addObserver(fScoreCalculator);
+      evaluator.addObserver(new RecordingObserver(serialEvents));
+      evaluator.evaluate();
+      serialFScores = fScoreCalculator.getFScoreCalculator();
+    }
+
+    List<String> threadedEvents = new ArrayList<>();
+    FScoreCalculator<String> threadedFScores;
+    try (Reader reader = new InputStreamReader(new FileInputStream(CORPUS), "UTF-8")) {
+      PosTaggerEvaluator evaluator = new PosTaggerEvaluator(new ForwardStatisticalPosTagger(model, sessionId),
+          PosTagAnnotatedCorpusReader.getCorpusReader(reader, evalConfig, sessionId), null, sessionId);
+      evaluator.setThreadCount(3);
+      PosTagFScoreCalculator fScoreCalculator = new PosTagFScoreCalculator(outDir, "threaded", sessionId);
+      evaluator.addObserver(fScoreCalculator);
+      evaluator.addObserver(new RecordingObserver(threadedEvents));
+      evaluator.evaluate();
+      threadedFScores = fScoreCalculator.getFScoreCalculator();
+    }
+
+    assertTrue(serialFScores.getTestCount() > 0);
+    assertEquals(serialEvents, threadedEvents);
+    assertEquals(serialFScores.getTestCount(), threadedFScores.getTestCount());
+    assertEquals(serialFScores.getTruePositiveCounts(), threadedFScores.getTruePositiveCounts());
+    assertEquals(serialFScores.getFalsePositiveCounts(), threadedFScores.getFalsePositiveCounts());
+    assertEquals(serialFScores.getTotalFScore(), threadedFScores.getTotalFScore(), 0.0001);
+  }
+
+  /**
+   * Records each callback, with the real and guessed sequences.
+   */
+  private static final class RecordingObserver implements PosTagEvaluationObserver {
+    private final List<String> events;
+
+    private RecordingObserver(List<String> events) {
+      this.events = events;
+    }
+
+    @Override
+    public void onNextPosTagSequence(PosTagSequence realSequence, List<PosTagSequence> guessedSequences) {
+      events.add(realSequence.toString() + " => " + guessedSequences.get(0).toString());
+    }
+
+    @Override
+    public void onEvaluationComplete() {
+      events.add("complete");
+    }
+  }
+}
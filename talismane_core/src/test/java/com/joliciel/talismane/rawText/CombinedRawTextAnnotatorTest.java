@@ -0,0 +1,47 @@
+package com.joliciel.talismane.rawText;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.AnnotatedText;
+import com.joliciel.talismane.Annotation;
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.rawText.RawTextMarker.RawTextReplaceMarker;
+
+public class CombinedRawTextAnnotatorTest extends TalismaneTest {
+
+  @Test
+  public void testSameAsSeparate() throws Exception {
+    List<RawTextAnnotator> annotators = new ArrayList<>();
+    annotators.add(new RawTextRegexAnnotator(RawTextMarkType.SKIP, "<skip>.*?</skip>", 0, 1000));
+    RawTextRegexAnnotator replacer = new RawTextRegexAnnotator(RawTextMarkType.REPLACE, "<skip>(.*?)</skip>", 0, 1000);
+    replacer.setReplacement("Skipped:$1");
+    annotators.add(replacer);
+    annotators.add(new RawTextRegexAnnotator(RawTextMarkType.SENTENCE_BREAK, "(\\w)\\1", 0, 1000));
+    annotators.add(new RawTextRegexAnnotator(RawTextMarkType.NO_SENTENCE_BREAK, "M(r|me)\\.", 0, 1000));
+    annotators.add(new NewlineSpaceMarker(1000));
+    annotators.add(new DuplicateWhiteSpaceFilter(1000));
+
+    String text = "J'ai du <skip>skip me</skip>mal  à le croire.\nMr. Smith<skip>skip this</skip>   too.\r\nMme. Jones";
+
+    AnnotatedText separateText = new AnnotatedText(text, 2, text.length() - 3);
+    for (RawTextAnnotator annotator : annotators) {
+      annotator.annotate(separateText);
+    }
+
+    AnnotatedText combinedText = new AnnotatedText(text, 2, text.length() - 3);
+    CombinedRawTextAnnotator combined = new CombinedRawTextAnnotator(annotators);
+    combined.annotate(combinedText);
+
+    assertEquals(separateText.getAnnotations().toString(), combinedText.getAnnotations().toString());
+
+    List<Annotation<RawTextReplaceMarker>> replaces = combinedText.getAnnotations(RawTextReplaceMarker.class);
+    assertEquals(2, replaces.size());
+    assertEquals("Skipped:skip me", replaces.get(0).getData().getInsertionText());
+    assertEquals("Skipped:skip this", replaces.get(1).getData().getInsertionText());
+  }
+}
@@ -2,6 +2,7 @@ package com.joliciel.talismane.rawText;
 
 import com.joliciel.talismane.AnnotatedText;
 import com.joliciel.talismane.Annotation;
+import com.joliciel.talismane.TalismaneSession;
 import com.joliciel.talismane.TalismaneTest;
 import com.joliciel.talismane.rawText.RawTextMarker.RawTextNoSentenceBreakMarker;
 import com.joliciel.talismane.rawText.RawTextMarker.RawTextReplaceMarker;
@@ -367,4 +368,44 @@ public class RollingTextBlockTest extends TalismaneTest {
     assertEquals("and Mrs.".length(), noSentenceBreaks.get(0).getEnd());
 
   }
+
+  @Test
+  public void testIncrementalAnnotation() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    final String sessionId = "test";
+
+    String[] segments = new String[] { "1 <skip>a</skip>  2 ", "3  <sk", "ip>b</skip> 4 <skip>c", "</skip>5  ", " 6 <skip>d</skip>", "", "", "" };
+
+    List<RawTextAnnotator> annotators = new ArrayList<>();
+    annotators.add(new RawTextRegexAnnotator(RawTextMarkType.SKIP, "<skip>.*?</skip>", 0, 1000));
+    annotators.add(new DuplicateWhiteSpaceFilter(1000));
+
+    List<String> fullScanTexts = this.getProcessedTexts(segments, annotators, sessionId);
+
+    System.setProperty("talismane.core.test.annotators.incremental-text-annotation", "true");
+    try {
+      ConfigFactory.invalidateCaches();
+      TalismaneSession.clearSessions();
+      List<String> incrementalTexts = this.getProcessedTexts(segments, annotators, sessionId);
+      assertEquals(fullScanTexts, incrementalTexts);
+    } finally {
+      System.clearProperty("talismane.core.test.annotators.incremental-text-annotation");
+    }
+
+    assertEquals("1  2 3  4 5 6 ", String.join("", fullScanTexts));
+  }
+
+  private List<String> getProcessedTexts(String[] segments, List<RawTextAnnotator> annotators, String sessionId) throws Exception {
+    List<String> processedTexts = new ArrayList<>();
+    RollingTextBlock textBlock = new RollingTextBlock(true, null, sessionId);
+    for (String segment : segments) {
+      textBlock = textBlock.roll(segment);
+      textBlock.annotateRawTextBlock(annotators);
+      AnnotatedText processedText = textBlock.getProcessedText();
+      processedTexts.add(processedText.getText().subSequence(processedText.getAnalysisStart(), processedText.getAnalysisEnd()).toString());
+    }
+    return processedTexts;
+  }
 }
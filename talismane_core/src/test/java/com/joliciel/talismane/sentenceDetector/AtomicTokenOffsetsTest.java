@@ -0,0 +1,49 @@
+package com.joliciel.talismane.sentenceDetector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.rawText.Sentence;
+import com.joliciel.talismane.tokeniser.Token;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.joliciel.talismane.tokeniser.Tokeniser;
+import com.typesafe.config.ConfigFactory;
+
+public class AtomicTokenOffsetsTest extends TalismaneTest {
+
+  @Test
+  public void testSameAsTokenSequence() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    final String sessionId = "test";
+
+    String text = "Hello Mr. Jones.  How are you, \"M. Smith\"? I'm fine... - Good!\n12.5 km";
+    Sentence sentence = new Sentence(text, sessionId);
+    TokenSequence tokenSequence = new TokenSequence(sentence, sessionId);
+    tokenSequence.findDefaultTokens();
+    List<Token> tokens = tokenSequence.listWithWhiteSpace();
+
+    AtomicTokenOffsets tokenOffsets = new AtomicTokenOffsets(text, Tokeniser.getTokenSeparators(sessionId));
+
+    assertEquals(tokens.size(), tokenOffsets.size());
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      assertEquals(token.getOriginalText(), tokenOffsets.getText(i));
+      assertEquals(token.getStartIndex(), tokenOffsets.getStart(i));
+      assertEquals(token.getEndIndex(), tokenOffsets.getEnd(i));
+      assertEquals(token.isSeparator(), tokenOffsets.isSeparator(i));
+      assertEquals(token.isWhiteSpace(), tokenOffsets.isWhiteSpace(i));
+    }
+
+    for (int i = 0; i < text.length(); i++) {
+      int tokenIndex = tokenOffsets.indexOf(i);
+      assertEquals(true, tokenOffsets.getStart(tokenIndex) <= i && i < tokenOffsets.getEnd(tokenIndex));
+    }
+    assertEquals(-1, tokenOffsets.indexOf(text.length()));
+  }
+}
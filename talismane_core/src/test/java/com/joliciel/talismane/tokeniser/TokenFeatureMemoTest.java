@@ -0,0 +1,167 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.tokeniser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.lexicon.LexicalEntry;
+import com.joliciel.talismane.lexicon.PosTaggerLexicon;
+import com.joliciel.talismane.machineLearning.Decision;
+import com.joliciel.talismane.parser.ParseConfiguration;
+import com.joliciel.talismane.posTagger.PosTag;
+import com.joliciel.talismane.posTagger.PosTagOpenClassIndicator;
+import com.joliciel.talismane.posTagger.PosTagSequence;
+import com.joliciel.talismane.posTagger.PosTaggedToken;
+import com.joliciel.talismane.rawText.Sentence;
+import com.typesafe.config.ConfigFactory;
+
+public class TokenFeatureMemoTest extends TalismaneTest {
+
+  @Test
+  public void testWord() throws Exception {
+    PosTaggerLexicon lexicon = mock(PosTaggerLexicon.class);
+    PosTag nc = new PosTag("NC", "nom commun", PosTagOpenClassIndicator.OPEN);
+    PosTag v = new PosTag("V", "verbe", PosTagOpenClassIndicator.OPEN);
+    Set<PosTag> posTags = new LinkedHashSet<>(Arrays.asList(nc, v));
+    when(lexicon.findPossiblePosTags("Porte")).thenReturn(posTags);
+
+    TokenFeatureMemo memo = new TokenFeatureMemo(lexicon, Locale.FRENCH);
+    TokenFeatureMemo.Word word = memo.getWord("Porte");
+    assertSame(word, memo.getWord(new String("Porte")));
+    assertEquals("porte", word.getLowercase());
+    assertEquals("Po", word.getPrefix(2));
+    assertEquals("rte", word.getSuffix(3));
+    assertNull(word.getSuffix(5));
+    assertEquals("NC,V", word.getPosTagCodes());
+    assertEquals(2, word.getPosTagOutcomes().size());
+    assertSame(posTags, word.getPossiblePosTags());
+    verify(lexicon, times(1)).findPossiblePosTags("Porte");
+
+    TokenFeatureMemo.Word compound = memo.getWord("parce que");
+    assertEquals("pa", compound.getPrefix(2));
+    assertEquals("ue", compound.getSuffix(2));
+    assertEquals(2, memo.size());
+  }
+
+  @Test
+  public void testSharedBySentence() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+
+    Sentence sentence = new Sentence("le chat et le chien", sessionId);
+    TokenSequence tokenSequence = new TokenSequence(sentence, sessionId);
+    Token le1 = tokenSequence.addToken(0, 2);
+    tokenSequence.addToken(3, 7);
+    tokenSequence.addToken(8, 10);
+    Token le2 = tokenSequence.addToken(11, 13);
+    tokenSequence.addToken(14, 19);
+
+    TokenFeatureMemo memo = sentence.getTokenFeatureMemo();
+    assertSame(le1.getFeatureMemo(), le2.getFeatureMemo());
+    TokenSequence clone = tokenSequence.cloneTokenSequence();
+    assertSame(le1.getFeatureMemo(), clone.get(3).getFeatureMemo());
+    assertSame(memo, sentence.getTokenFeatureMemo());
+
+    sentence.releaseTokenFeatureMemo();
+    assertNull(sentence.getTokenFeatureMemo());
+
+    System.clearProperty("config.file");
+    ConfigFactory.invalidateCaches();
+  }
+
+  @Test
+  public void testSharedAcrossModules() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+
+    Sentence sentence = new Sentence("le chat et le chien", sessionId);
+    TokenSequence tokenSequence = new TokenSequence(sentence, sessionId);
+    tokenSequence.addToken(0, 2);
+    tokenSequence.addToken(3, 7);
+    tokenSequence.addToken(8, 10);
+    tokenSequence.addToken(11, 13);
+    tokenSequence.addToken(14, 19);
+
+    // the tokeniser's tokens
+    TokenFeatureMemo.Word chat = tokenSequence.get(1).getFeatureMemo();
+    Set<PosTag> chatPosTags = tokenSequence.get(1).getPossiblePosTags();
+
+    // the pos-tagger's tokens
+    PosTagSequence posTagSequence = new PosTagSequence(tokenSequence);
+    String[] tags = new String[] { "DET", "NC", "CC", "DET", "NC" };
+    for (int i = 0; i < tags.length; i++)
+      posTagSequence.addPosTaggedToken(new PosTaggedToken(tokenSequence.get(i), new Decision(tags[i]), sessionId));
+    assertSame(chat, posTagSequence.get(1).getToken().getFeatureMemo());
+    List<LexicalEntry> chatEntries = posTagSequence.get(1).getLexicalEntries();
+
+    // the parser's copy of the pos-tagged tokens
+    ParseConfiguration configuration = new ParseConfiguration(posTagSequence.clonePosTagSequence());
+    PosTaggedToken parserChat = configuration.getPosTagSequence().get(2);
+    assertNotSame(posTagSequence.get(1), parserChat);
+    assertSame(chat, parserChat.getToken().getFeatureMemo());
+    assertSame(chatPosTags, parserChat.getToken().getPossiblePosTags());
+    assertSame(chatEntries, parserChat.getLexicalEntries());
+
+    TokenFeatureMemo memo = sentence.getTokenFeatureMemo();
+    int size = memo.size();
+    sentence.releaseTokenFeatureMemo();
+
+    // after the release, e.g. in an output writer: no new memo is built
+    PosTaggedToken copy = posTagSequence.get(4).clonePosTaggedToken(posTagSequence.get(4).getToken());
+    copy.getLexicalEntries();
+    assertNull(sentence.getTokenFeatureMemo());
+    assertEquals(size, memo.size());
+
+    System.clearProperty("config.file");
+    ConfigFactory.invalidateCaches();
+  }
+
+  @Test
+  public void testNoSentence() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+
+    Token token = new Token("chat", null, 0, 0, 4, sessionId);
+    TokenFeatureMemo.Word word = token.getFeatureMemo();
+    assertEquals("chat", word.getText());
+    assertSame(word, token.getFeatureMemo());
+
+    System.clearProperty("config.file");
+    ConfigFactory.invalidateCaches();
+  }
+}
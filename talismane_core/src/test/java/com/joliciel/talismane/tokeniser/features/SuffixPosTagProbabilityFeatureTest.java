@@ -0,0 +1,81 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.tokeniser.features;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.lexicon.SuffixPosTagIndex;
+import com.joliciel.talismane.machineLearning.features.FeatureResult;
+import com.joliciel.talismane.machineLearning.features.IntegerLiteralFeature;
+import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
+import com.joliciel.talismane.machineLearning.features.StringLiteralFeature;
+import com.joliciel.talismane.rawText.Sentence;
+import com.joliciel.talismane.tokeniser.Token;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.typesafe.config.ConfigFactory;
+
+public class SuffixPosTagProbabilityFeatureTest extends TalismaneTest {
+
+  @Test
+  public void testCheckInternal() throws Exception {
+    System.setProperty("config.file", "src/test/resources/testWithLex.conf");
+    ConfigFactory.invalidateCaches();
+
+    final String sessionId = "test";
+    TalismaneSession session = TalismaneSession.get(sessionId);
+
+    Sentence sentence = new Sentence("une dame", sessionId);
+    TokenSequence tokenSequence = new TokenSequence(sentence, sessionId);
+    Token token = new Token("dame", tokenSequence, 1, "une ".length(), "une dame".length(), sessionId);
+    RuntimeEnvironment env = new RuntimeEnvironment();
+
+    SuffixPosTagIndex index = session.getSuffixPosTagIndex();
+    int node = index.findSuffix("dame", 2);
+    assertTrue(node >= 0);
+    double expected = index.getProbability(node, session.getPosTagSet().getPosTag("NC"));
+    assertTrue(expected > 0);
+
+    SuffixPosTagProbabilityFeature feature = this.getFeature(2, "NC", sessionId);
+    FeatureResult<Double> result = feature.checkInternal(token, env);
+    assertEquals(expected, result.getOutcome(), 0.0001);
+
+    // pos-tag not in the tag set
+    feature = this.getFeature(2, "XYZ", sessionId);
+    assertNull(feature.checkInternal(token, env));
+
+    // suffix as long as the word
+    feature = this.getFeature(4, "NC", sessionId);
+    assertNull(feature.checkInternal(token, env));
+
+    System.clearProperty("config.file");
+    ConfigFactory.invalidateCaches();
+  }
+
+  private SuffixPosTagProbabilityFeature getFeature(int n, String posTag, String sessionId) {
+    SuffixPosTagProbabilityFeature feature = new SuffixPosTagProbabilityFeature(new IntegerLiteralFeature<>(n), new StringLiteralFeature<>(posTag));
+    feature.setSessionId(sessionId);
+    return feature;
+  }
+}
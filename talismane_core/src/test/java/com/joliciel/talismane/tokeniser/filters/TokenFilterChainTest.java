@@ -0,0 +1,94 @@
+package com.joliciel.talismane.tokeniser.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.TalismaneSession;
+import com.joliciel.talismane.TalismaneTest;
+import com.joliciel.talismane.lexicon.Diacriticizer;
+import com.joliciel.talismane.rawText.Sentence;
+import com.joliciel.talismane.tokeniser.Token;
+import com.joliciel.talismane.tokeniser.TokenSequence;
+import com.typesafe.config.ConfigFactory;
+
+public class TokenFilterChainTest extends TalismaneTest {
+  private static final String TEXT = "Paris VEUX SAVOIR « LA VERITE » – Paris";
+
+  @Test
+  public void testSameAsSequential() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+    Diacriticizer diacriticizer = mock(Diacriticizer.class);
+    when(diacriticizer.diacriticize("VEUX")).thenReturn(new HashSet<>(Arrays.asList("veux")));
+    when(diacriticizer.diacriticize("SAVOIR")).thenReturn(new HashSet<>(Arrays.asList("savoir")));
+    TalismaneSession.get(sessionId).setDiacriticizer(diacriticizer);
+
+    // the token filter between the two fused passes isn't streaming
+    TokenFilter accentFilter = tokenSequence -> {
+      for (Token token : tokenSequence)
+        token.setText(token.getText().replace("Verite", "Vérité"));
+    };
+    List<TokenFilter> filters = Arrays.asList(new UppercaseSeriesFilter(sessionId), new LowercaseKnownWordFilter(sessionId), new QuoteNormaliser(sessionId),
+        accentFilter, new LowercaseFirstWordFilter(sessionId), new DiacriticRemover(sessionId));
+
+    TokenSequence expected = this.getTokenSequence(sessionId);
+    for (TokenFilter filter : filters)
+      filter.apply(expected);
+
+    TokenFilterChain chain = new TokenFilterChain(filters);
+    assertEquals(3, chain.getPassCount());
+    TokenSequence actual = this.getTokenSequence(sessionId);
+    chain.apply(actual);
+
+    assertEquals("paris|veux|savoir|\"|La|Verite|\"|-|Paris|", this.getText(expected));
+    assertEquals(this.getText(expected), this.getText(actual));
+  }
+
+  @Test
+  public void testSharedLookups() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    final String sessionId = "test";
+    Diacriticizer diacriticizer = mock(Diacriticizer.class);
+    TalismaneSession.get(sessionId).setDiacriticizer(diacriticizer);
+
+    TokenFilterChain chain = new TokenFilterChain(Arrays.asList(new LowercaseKnownWordFilter(sessionId), new LowercaseFirstWordFilter(sessionId)));
+    assertEquals(1, chain.getPassCount());
+    TokenSequence tokenSequence = this.getTokenSequence(sessionId);
+    chain.apply(tokenSequence);
+
+    // looked up by both filters, and for both occurrences
+    verify(diacriticizer, times(1)).diacriticize("Paris");
+    assertEquals("paris|VEUX|SAVOIR|«|LA|VERITE|»|–|Paris|", this.getText(tokenSequence));
+  }
+
+  private TokenSequence getTokenSequence(String sessionId) {
+    Sentence sentence = new Sentence(TEXT, sessionId);
+    TokenSequence tokenSequence = new TokenSequence(sentence, sessionId);
+    int start = 0;
+    for (String word : TEXT.split(" ")) {
+      tokenSequence.addToken(start, start + word.length());
+      start += word.length() + 1;
+    }
+    return tokenSequence;
+  }
+
+  private String getText(TokenSequence tokenSequence) {
+    StringBuilder sb = new StringBuilder();
+    for (Token token : tokenSequence) {
+      sb.append(token.getText());
+      sb.append('|');
+    }
+    return sb.toString();
+  }
+}
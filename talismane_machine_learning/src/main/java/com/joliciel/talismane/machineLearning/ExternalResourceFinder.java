@@ -18,6 +18,8 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.talismane.machineLearning;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -51,6 +53,16 @@ public class ExternalResourceFinder {
     return resourceMap.values();
   }
 
+  /**
+   * Add a resource compiled by
+   * {@link MappedExternalResource#compile(ExternalResource, java.io.File)},
+   * mapped rather than read onto the heap, and shared with any other finder
+   * which adds the same file.
+   */
+  public void addMappedExternalResource(File file) throws IOException {
+    this.addExternalResource(MappedExternalResource.open(file));
+  }
+
   /**
    * Add external resources located in a scanner from a particular filename.
    */
@@ -0,0 +1,524 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.machineLearning;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.talismane.utils.JolicielException;
+import com.joliciel.talismane.utils.WeightedOutcome;
+
+import gnu.trove.map.TObjectDoubleMap;
+
+/**
+ * An external resource compiled into a binary file, which is memory-mapped
+ * rather than read onto the heap. Keys are hashed into a packed table of
+ * slots, each pointing at a range of entries, and each entry at a string in a
+ * shared pool of characters, in which each distinct string is only stored
+ * once. Lookups read the mapped file directly, and are thread-safe.<br>
+ * <br>
+ * A resource is compiled from a {@link TextFileResource},
+ * {@link TextFileMultivaluedResource} or {@link SparseStringMatrixResource}
+ * using {@link #compile(ExternalResource, File)}, and opened using
+ * {@link #open(File)}, which returns the same instance for a given file to all
+ * models and sessions. When serialized, e.g. within a model, only the
+ * resource's name and file path are written. On deserialization, a resource
+ * already opened with the same name is used if there is one, otherwise the
+ * file is opened at the same path.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public abstract class MappedExternalResource<T> implements ExternalResource<T> {
+  private static final long serialVersionUID = 1L;
+  private static final Logger LOG = LoggerFactory.getLogger(MappedExternalResource.class);
+
+  /**
+   * The file extension used for compiled resources.
+   */
+  public static final String EXTENSION = ".mapped";
+
+  private static final int MAGIC = 0x4D524553;
+  private static final int VERSION = 1;
+  private static final int TYPE_KEY_VALUE = 0;
+  private static final int TYPE_KEY_MULTI_VALUE = 1;
+  private static final int TYPE_MATRIX = 2;
+  private static final int SLOT_SIZE = 16;
+  private static final int ENTRY_SIZE = 16;
+
+  private static final Map<String, MappedExternalResource<?>> resourcesByPath = new ConcurrentHashMap<>();
+  private static final Map<String, MappedExternalResource<?>> resourcesByName = new ConcurrentHashMap<>();
+
+  private final String name;
+  private final File file;
+  private final transient ByteBuffer buffer;
+  private final transient CharBuffer chars;
+  private final transient int slotMask;
+  private final transient int slotsPosition;
+  private final transient int entriesPosition;
+  private final transient int keyCount;
+
+  private MappedExternalResource(String name, File file, ByteBuffer buffer, int slotCount, int keyCount, int entryCount, int headerSize) {
+    this.name = name;
+    this.file = file;
+    this.buffer = buffer;
+    this.slotMask = slotCount - 1;
+    this.keyCount = keyCount;
+    this.slotsPosition = headerSize;
+    this.entriesPosition = slotsPosition + slotCount * SLOT_SIZE;
+    int charsPosition = entriesPosition + entryCount * ENTRY_SIZE;
+    ByteBuffer charBytes = buffer.duplicate();
+    charBytes.position(charsPosition);
+    this.chars = charBytes.slice().asCharBuffer();
+  }
+
+  /**
+   * Open a compiled resource, or return the instance already opened for this
+   * file.
+   */
+  public static MappedExternalResource<?> open(File file) throws IOException {
+    String path = file.getCanonicalPath();
+    MappedExternalResource<?> resource = resourcesByPath.get(path);
+    if (resource == null) {
+      synchronized (resourcesByPath) {
+        resource = resourcesByPath.get(path);
+        if (resource == null) {
+          resource = map(new File(path));
+          resourcesByPath.put(path, resource);
+          resourcesByName.put(resource.getName(), resource);
+        }
+      }
+    }
+    return resource;
+  }
+
+  private static MappedExternalResource<?> map(File file) throws IOException {
+    LOG.debug("Mapping " + file.getPath());
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE)
+        throw new JolicielException("Mapped resource too large: " + file.getPath());
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.getInt(0) != MAGIC)
+      throw new JolicielException("Not a mapped resource: " + file.getPath());
+    int version = buffer.getInt(4);
+    if (version != VERSION)
+      throw new JolicielException("Unsupported mapped resource version " + version + ": " + file.getPath());
+    int type = buffer.getInt(8);
+    int nameLength = buffer.getInt(12);
+    char[] nameChars = new char[nameLength];
+    for (int i = 0; i < nameLength; i++)
+      nameChars[i] = buffer.getChar(16 + i * 2);
+    String name = new String(nameChars);
+    int position = 16 + nameLength * 2;
+    int slotCount = buffer.getInt(position);
+    int keyCount = buffer.getInt(position + 4);
+    int entryCount = buffer.getInt(position + 8);
+    int headerSize = position + 12;
+
+    switch (type) {
+    case TYPE_KEY_VALUE:
+      return new KeyValue(name, file, buffer, slotCount, keyCount, entryCount, headerSize);
+    case TYPE_KEY_MULTI_VALUE:
+      return new KeyMultiValue(name, file, buffer, slotCount, keyCount, entryCount, headerSize);
+    case TYPE_MATRIX:
+      return new Matrix(name, file, buffer, slotCount, keyCount, entryCount, headerSize);
+    default:
+      throw new JolicielException("Unknown mapped resource type " + type + ": " + file.getPath());
+    }
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The compiled file from which this resource is mapped.
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * The number of distinct keys, or of rows for a matrix.
+   */
+  public int getKeyCount() {
+    return keyCount;
+  }
+
+  /**
+   * The slot for the key formed by joining the key elements, each followed by
+   * a |, or -1 if there is none.
+   */
+  int findSlot(List<String> keyElements) {
+    int hash = 0;
+    int length = 0;
+    for (String keyElement : keyElements) {
+      for (int i = 0; i < keyElement.length(); i++)
+        hash = 31 * hash + keyElement.charAt(i);
+      hash = 31 * hash + '|';
+      length += keyElement.length() + 1;
+    }
+    for (int slot = spread(hash) & slotMask;; slot = (slot + 1) & slotMask) {
+      int slotPosition = slotsPosition + slot * SLOT_SIZE;
+      int keyOffset = buffer.getInt(slotPosition);
+      if (keyOffset < 0)
+        return -1;
+      if (buffer.getInt(slotPosition + 4) == length && this.keyEquals(keyOffset, keyElements))
+        return slot;
+    }
+  }
+
+  private boolean keyEquals(int offset, List<String> keyElements) {
+    int j = offset;
+    for (String keyElement : keyElements) {
+      for (int i = 0; i < keyElement.length(); i++)
+        if (chars.get(j++) != keyElement.charAt(i))
+          return false;
+      if (chars.get(j++) != '|')
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * The slot for a single string key, or -1 if there is none.
+   */
+  int findSlot(String key) {
+    for (int slot = spread(key.hashCode()) & slotMask;; slot = (slot + 1) & slotMask) {
+      int slotPosition = slotsPosition + slot * SLOT_SIZE;
+      int keyOffset = buffer.getInt(slotPosition);
+      if (keyOffset < 0)
+        return -1;
+      if (buffer.getInt(slotPosition + 4) == key.length() && this.compare(keyOffset, key.length(), key) == 0)
+        return slot;
+    }
+  }
+
+  int getEntryStart(int slot) {
+    return buffer.getInt(slotsPosition + slot * SLOT_SIZE + 8);
+  }
+
+  int getEntryCount(int slot) {
+    return buffer.getInt(slotsPosition + slot * SLOT_SIZE + 12);
+  }
+
+  String getEntryString(int entry) {
+    int entryPosition = entriesPosition + entry * ENTRY_SIZE;
+    int offset = buffer.getInt(entryPosition);
+    int length = buffer.getInt(entryPosition + 4);
+    char[] stringChars = new char[length];
+    for (int i = 0; i < length; i++)
+      stringChars[i] = chars.get(offset + i);
+    return new String(stringChars);
+  }
+
+  double getEntryValue(int entry) {
+    return buffer.getDouble(entriesPosition + entry * ENTRY_SIZE + 8);
+  }
+
+  /**
+   * Compares the entry's string to the string provided, as per
+   * {@link String#compareTo(String)}.
+   */
+  int compareEntry(int entry, String string) {
+    int entryPosition = entriesPosition + entry * ENTRY_SIZE;
+    return this.compare(buffer.getInt(entryPosition), buffer.getInt(entryPosition + 4), string);
+  }
+
+  private int compare(int offset, int length, String string) {
+    int n = Math.min(length, string.length());
+    for (int i = 0; i < n; i++) {
+      char c = chars.get(offset + i);
+      if (c != string.charAt(i))
+        return c - string.charAt(i);
+    }
+    return length - string.length();
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  protected final Object writeReplace() throws ObjectStreamException {
+    return new SerializedForm(name, file.getPath());
+  }
+
+  /**
+   * Stands in for a mapped resource when serialized.
+   */
+  private static final class SerializedForm implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final String path;
+
+    private SerializedForm(String name, String path) {
+      this.name = name;
+      this.path = path;
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+      MappedExternalResource<?> resource = resourcesByName.get(name);
+      if (resource != null)
+        return resource;
+      try {
+        return open(new File(path));
+      } catch (IOException e) {
+        throw new JolicielException("Unable to open mapped resource " + name + " at " + path, e);
+      }
+    }
+  }
+
+  /**
+   * A mapped {@link TextFileResource}.
+   */
+  public static final class KeyValue extends MappedExternalResource<String> {
+    private static final long serialVersionUID = 1L;
+
+    private KeyValue(String name, File file, ByteBuffer buffer, int slotCount, int keyCount, int entryCount, int headerSize) {
+      super(name, file, buffer, slotCount, keyCount, entryCount, headerSize);
+    }
+
+    @Override
+    public String getResult(List<String> keyElements) {
+      int slot = this.findSlot(keyElements);
+      if (slot < 0)
+        return null;
+      return this.getEntryString(this.getEntryStart(slot));
+    }
+  }
+
+  /**
+   * A mapped {@link TextFileMultivaluedResource}.
+   */
+  public static final class KeyMultiValue extends MappedExternalResource<List<WeightedOutcome<String>>> {
+    private static final long serialVersionUID = 1L;
+
+    private KeyMultiValue(String name, File file, ByteBuffer buffer, int slotCount, int keyCount, int entryCount, int headerSize) {
+      super(name, file, buffer, slotCount, keyCount, entryCount, headerSize);
+    }
+
+    @Override
+    public List<WeightedOutcome<String>> getResult(List<String> keyElements) {
+      int slot = this.findSlot(keyElements);
+      if (slot < 0)
+        return null;
+      int start = this.getEntryStart(slot);
+      int count = this.getEntryCount(slot);
+      List<WeightedOutcome<String>> results = new ArrayList<>(count);
+      for (int i = start; i < start + count; i++)
+        results.add(new WeightedOutcome<>(this.getEntryString(i), this.getEntryValue(i)));
+      return results;
+    }
+  }
+
+  /**
+   * A mapped {@link SparseStringMatrixResource}. The columns of each row are
+   * sorted, and found by binary search.
+   */
+  public static final class Matrix extends MappedExternalResource<Double> {
+    private static final long serialVersionUID = 1L;
+
+    private Matrix(String name, File file, ByteBuffer buffer, int slotCount, int keyCount, int entryCount, int headerSize) {
+      super(name, file, buffer, slotCount, keyCount, entryCount, headerSize);
+    }
+
+    @Override
+    public Double getResult(List<String> keyElements) {
+      if (keyElements.size() != 2)
+        throw new JolicielException("SparseStringMatrixResource only possible with 2 key elements");
+      return this.getResult(keyElements.get(0), keyElements.get(1));
+    }
+
+    public Double getResult(String string1, String string2) {
+      int entry = this.findEntry(string1, string2);
+      return entry < 0 ? null : this.getEntryValue(entry);
+    }
+
+    public double getValueOrZero(String string1, String string2) {
+      int entry = this.findEntry(string1, string2);
+      return entry < 0 ? 0 : this.getEntryValue(entry);
+    }
+
+    /**
+     * The columns of a given row, with their values, or null if the row
+     * doesn't exist.
+     */
+    public Map<String, Double> getInnerKeys(String key) {
+      int slot = this.findSlot(key);
+      if (slot < 0)
+        return null;
+      int start = this.getEntryStart(slot);
+      int count = this.getEntryCount(slot);
+      Map<String, Double> row = new LinkedHashMap<>();
+      for (int i = start; i < start + count; i++)
+        row.put(this.getEntryString(i), this.getEntryValue(i));
+      return Collections.unmodifiableMap(row);
+    }
+
+    private int findEntry(String string1, String string2) {
+      int slot = this.findSlot(string1);
+      if (slot < 0)
+        return -1;
+      int low = this.getEntryStart(slot);
+      int high = low + this.getEntryCount(slot) - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int comparison = this.compareEntry(mid, string2);
+        if (comparison < 0)
+          low = mid + 1;
+        else if (comparison > 0)
+          high = mid - 1;
+        else
+          return mid;
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Compile a resource into a file which can be mapped by
+   * {@link #open(File)}.
+   */
+  public static void compile(ExternalResource<?> resource, File outFile) throws IOException {
+    int type;
+    Map<String, List<Map.Entry<String, Double>>> keyEntries = new LinkedHashMap<>();
+    if (resource instanceof TextFileResource) {
+      type = TYPE_KEY_VALUE;
+      for (Map.Entry<String, String> entry : ((TextFileResource) resource).resultMap.entrySet())
+        keyEntries.put(entry.getKey(), Collections.singletonList(new SimpleEntry<>(entry.getValue(), 0.0)));
+    } else if (resource instanceof TextFileMultivaluedResource) {
+      type = TYPE_KEY_MULTI_VALUE;
+      for (Map.Entry<String, List<WeightedOutcome<String>>> entry : ((TextFileMultivaluedResource) resource).resultsMap.entrySet()) {
+        List<Map.Entry<String, Double>> values = new ArrayList<>();
+        for (WeightedOutcome<String> outcome : entry.getValue())
+          values.add(new SimpleEntry<>(outcome.getOutcome(), outcome.getWeight()));
+        keyEntries.put(entry.getKey(), values);
+      }
+    } else if (resource instanceof SparseStringMatrixResource) {
+      type = TYPE_MATRIX;
+      for (Map.Entry<String, TObjectDoubleMap<String>> row : ((SparseStringMatrixResource) resource).matrix.entrySet()) {
+        List<Map.Entry<String, Double>> values = new ArrayList<>();
+        row.getValue().forEachEntry((column, value) -> values.add(new SimpleEntry<>(column, value)));
+        values.sort(Map.Entry.comparingByKey());
+        keyEntries.put(row.getKey(), values);
+      }
+    } else {
+      throw new JolicielException("Cannot compile resource of type " + resource.getClass().getName());
+    }
+
+    // the string pool, storing each distinct string once
+    StringBuilder pool = new StringBuilder();
+    Map<String, Integer> offsets = new HashMap<>();
+    int slotCount = 1;
+    while (slotCount < keyEntries.size() * 2)
+      slotCount *= 2;
+    int[] slots = new int[slotCount * 4];
+    for (int i = 0; i < slotCount; i++)
+      slots[i * 4] = -1;
+    int entryCount = 0;
+    for (Map.Entry<String, List<Map.Entry<String, Double>>> keyEntry : keyEntries.entrySet()) {
+      String key = keyEntry.getKey();
+      int slot = spread(key.hashCode()) & (slotCount - 1);
+      while (slots[slot * 4] >= 0)
+        slot = (slot + 1) & (slotCount - 1);
+      slots[slot * 4] = poolOffset(key, pool, offsets);
+      slots[slot * 4 + 1] = key.length();
+      slots[slot * 4 + 2] = entryCount;
+      slots[slot * 4 + 3] = keyEntry.getValue().size();
+      entryCount += keyEntry.getValue().size();
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(type);
+      out.writeInt(resource.getName().length());
+      out.writeChars(resource.getName());
+      out.writeInt(slotCount);
+      out.writeInt(keyEntries.size());
+      out.writeInt(entryCount);
+      for (int value : slots)
+        out.writeInt(value);
+      // entries are written in the order in which their indexes were assigned
+      for (List<Map.Entry<String, Double>> entries : keyEntries.values()) {
+        for (Map.Entry<String, Double> entry : entries) {
+          out.writeInt(poolOffset(entry.getKey(), pool, offsets));
+          out.writeInt(entry.getKey().length());
+          out.writeDouble(entry.getValue());
+        }
+      }
+      out.writeChars(pool.toString());
+    }
+  }
+
+  private static int poolOffset(String string, StringBuilder pool, Map<String, Integer> offsets) {
+    Integer offset = offsets.get(string);
+    if (offset == null) {
+      offset = pool.length();
+      pool.append(string);
+      offsets.put(string, offset);
+    }
+    return offset;
+  }
+
+  /**
+   * Compile a text file resource, as read by
+   * {@link ExternalResourceFinder#addExternalResource(String, Scanner)}.
+   * Arguments: the text file, and the compiled file to write.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.out.println("Usage: MappedExternalResource [text resource file] [compiled file]");
+      return;
+    }
+    File inFile = new File(args[0]);
+    ExternalResourceFinder finder = new ExternalResourceFinder();
+    try (Scanner scanner = new Scanner(new InputStreamReader(new FileInputStream(inFile), "UTF-8"))) {
+      finder.addExternalResource(inFile.getName(), scanner);
+    }
+    for (ExternalResource<?> resource : finder.getExternalResources())
+      compile(resource, new File(args[1]));
+  }
+}
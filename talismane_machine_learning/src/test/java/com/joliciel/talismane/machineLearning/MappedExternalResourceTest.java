@@ -0,0 +1,119 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2017 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.machineLearning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.joliciel.talismane.utils.WeightedOutcome;
+
+public class MappedExternalResourceTest {
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void testKeyValue() throws Exception {
+    TextFileResource resource = new TextFileResource("test", new Scanner("Name: testKeyValue\nchat\tNC\tanimal\nchien\tNC\tanimal\nle\tDET\tdéterminant\n"));
+    File file = testFolder.newFile("testKeyValue" + MappedExternalResource.EXTENSION);
+    MappedExternalResource.compile(resource, file);
+
+    @SuppressWarnings("unchecked")
+    ExternalResource<String> mapped = (ExternalResource<String>) MappedExternalResource.open(file);
+    assertEquals("testKeyValue", mapped.getName());
+    for (List<String> key : Arrays.asList(Arrays.asList("chat", "NC"), Arrays.asList("le", "DET"), Arrays.asList("le", "NC"), Arrays.asList("chat")))
+      assertEquals(resource.getResult(key), mapped.getResult(key));
+    assertEquals("déterminant", mapped.getResult(Arrays.asList("le", "DET")));
+    assertNull(mapped.getResult(Arrays.asList("chat")));
+
+    ExternalResourceFinder finder = new ExternalResourceFinder();
+    finder.addMappedExternalResource(file);
+    assertSame(mapped, finder.getExternalResource("testKeyValue"));
+  }
+
+  @Test
+  public void testKeyMultiValue() throws Exception {
+    TextFileMultivaluedResource resource = new TextFileMultivaluedResource("testKeyMultiValue",
+        new Scanner("Type: KeyMultiValue\nchat\tNC\t0.75\nchat\tV\t0.25\nle\tDET\t1.0\n"));
+    File file = testFolder.newFile("testKeyMultiValue" + MappedExternalResource.EXTENSION);
+    MappedExternalResource.compile(resource, file);
+
+    @SuppressWarnings("unchecked")
+    ExternalResource<List<WeightedOutcome<String>>> mapped = (ExternalResource<List<WeightedOutcome<String>>>) MappedExternalResource.open(file);
+    List<WeightedOutcome<String>> results = mapped.getResult(Arrays.asList("chat"));
+    assertEquals(2, results.size());
+    assertEquals("NC", results.get(0).getOutcome());
+    assertEquals(0.75, results.get(0).getWeight(), 0.0001);
+    assertEquals("V", results.get(1).getOutcome());
+    assertEquals(0.25, results.get(1).getWeight(), 0.0001);
+    assertNull(mapped.getResult(Arrays.asList("chien")));
+  }
+
+  @Test
+  public void testMatrix() throws Exception {
+    SparseStringMatrixResource resource = new SparseStringMatrixResource("testMatrix");
+    resource.add("chat", "chien", 0.5);
+    resource.add("chat", "animal", 0.8);
+    resource.add("chat", "souris", 0.3);
+    resource.add("chien", "chat", 0.5);
+    File file = testFolder.newFile("testMatrix" + MappedExternalResource.EXTENSION);
+    MappedExternalResource.compile(resource, file);
+
+    MappedExternalResource.Matrix mapped = (MappedExternalResource.Matrix) MappedExternalResource.open(file);
+    assertEquals(2, mapped.getKeyCount());
+    assertEquals(0.8, mapped.getResult("chat", "animal"), 0.0001);
+    assertEquals(0.3, mapped.getResult(Arrays.asList("chat", "souris")), 0.0001);
+    assertEquals(0.5, mapped.getResult("chien", "chat"), 0.0001);
+    assertNull(mapped.getResult("chien", "souris"));
+    assertEquals(0.0, mapped.getValueOrZero("souris", "chat"), 0.0001);
+    assertEquals(Arrays.asList("animal", "chien", "souris"), Arrays.asList(mapped.getInnerKeys("chat").keySet().toArray()));
+  }
+
+  @Test
+  public void testSerializationShared() throws Exception {
+    TextFileResource resource = new TextFileResource("testShared", new Scanner("chat\tNC\n"));
+    File file = testFolder.newFile("testShared" + MappedExternalResource.EXTENSION);
+    MappedExternalResource.compile(resource, file);
+    MappedExternalResource<?> mapped = MappedExternalResource.open(file);
+    assertSame(mapped, MappedExternalResource.open(new File(file.getParentFile(), "./" + file.getName())));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(mapped);
+    }
+    // only the name and path are written
+    assertEquals(true, bytes.size() < 1024);
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertSame(mapped, in.readObject());
+    }
+  }
+}
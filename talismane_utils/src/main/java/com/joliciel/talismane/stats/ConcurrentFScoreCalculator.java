@@ -0,0 +1,201 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2014 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.stats;
+
+import java.io.File;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An f-score calculator which can be incremented by any number of threads
+ * without locking, and whose results are read as a
+ * {@link FScoreCalculator}.<br>
+ * <br>
+ * Each outcome is interned to an int id, and each thread counts its tests in
+ * its own confusion matrix of primitive counters, indexed by expected and
+ * guessed outcome id. The matrices are only summed when
+ * {@link #getFScoreCalculator()} is called, which should happen once the
+ * incrementing threads have finished, e.g. after their futures have
+ * returned.<br>
+ * <br>
+ * The CSV output is identical to that of a {@link FScoreCalculator}
+ * incremented with the same tests.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class ConcurrentFScoreCalculator<E> {
+  private final Object label;
+  private final Map<E, Integer> outcomeIds = new ConcurrentHashMap<>();
+  private final List<E> outcomes = new CopyOnWriteArrayList<>();
+  private final Queue<Shard> shards = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<Shard> localShard = ThreadLocal.withInitial(() -> {
+    Shard shard = new Shard();
+    shards.add(shard);
+    return shard;
+  });
+
+  public ConcurrentFScoreCalculator(Object label) {
+    this.label = label;
+  }
+
+  public ConcurrentFScoreCalculator() {
+    this(null);
+  }
+
+  /**
+   * Increment this f-score by a given expected value and guessed value, in
+   * the current thread's counters.
+   */
+  public void increment(E expected, E guessed) {
+    localShard.get().add(this.getOutcomeId(expected), this.getOutcomeId(guessed), 1);
+  }
+
+  /**
+   * Add all of the tests counted by another calculator to this one. The other
+   * calculator's threads should have finished incrementing it.
+   */
+  public void merge(ConcurrentFScoreCalculator<E> other) {
+    int[][] otherCounts = other.getCounts();
+    Shard shard = new Shard();
+    for (int expected = 0; expected < otherCounts.length; expected++) {
+      int expectedId = this.getOutcomeId(other.outcomes.get(expected));
+      for (int guessed = 0; guessed < otherCounts[expected].length; guessed++) {
+        if (otherCounts[expected][guessed] > 0)
+          shard.add(expectedId, this.getOutcomeId(other.outcomes.get(guessed)), otherCounts[expected][guessed]);
+      }
+    }
+    shards.add(shard);
+  }
+
+  /**
+   * Add all of the tests counted by an existing f-score calculator to this
+   * one.
+   */
+  public void merge(FScoreCalculator<E> other) {
+    FScoreCalculator<E> copy = new FScoreCalculator<>();
+    copy.merge(other);
+    Shard shard = new Shard();
+    for (E expected : copy.falseNegatives.keySet()) {
+      Map<E, Integer> guessedCounts = copy.falseNegatives.get(expected);
+      for (E guessed : guessedCounts.keySet())
+        shard.add(this.getOutcomeId(expected), this.getOutcomeId(guessed), guessedCounts.get(guessed));
+    }
+    shards.add(shard);
+  }
+
+  /**
+   * A new f-score calculator containing all of the tests counted so far, by
+   * all threads.
+   */
+  public FScoreCalculator<E> getFScoreCalculator() {
+    int[][] counts = this.getCounts();
+    FScoreCalculator<E> fScoreCalculator = new FScoreCalculator<>(label);
+    for (int expected = 0; expected < counts.length; expected++) {
+      for (int guessed = 0; guessed < counts[expected].length; guessed++) {
+        fScoreCalculator.increment(outcomes.get(expected), outcomes.get(guessed), counts[expected][guessed]);
+      }
+    }
+    return fScoreCalculator;
+  }
+
+  /**
+   * Total number of tests counted so far, by all threads.
+   */
+  public int getTestCount() {
+    int testCount = 0;
+    for (int[] row : this.getCounts()) {
+      for (int count : row)
+        testCount += count;
+    }
+    return testCount;
+  }
+
+  public void writeScoresToCSV(Writer fscoreFileWriter) {
+    this.getFScoreCalculator().writeScoresToCSV(fscoreFileWriter);
+  }
+
+  public void writeScoresToCSVFile(File fscoreFile) {
+    this.getFScoreCalculator().writeScoresToCSVFile(fscoreFile);
+  }
+
+  public void writeScoresToCSVFile(File fscoreFile, String outputEncoding) {
+    this.getFScoreCalculator().writeScoresToCSVFile(fscoreFile, outputEncoding);
+  }
+
+  private int getOutcomeId(E outcome) {
+    Integer id = outcomeIds.get(outcome);
+    if (id == null) {
+      synchronized (outcomes) {
+        id = outcomeIds.get(outcome);
+        if (id == null) {
+          id = outcomes.size();
+          outcomes.add(outcome);
+          outcomeIds.put(outcome, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * The sum of all shards, indexed by expected and guessed outcome id.
+   */
+  private int[][] getCounts() {
+    int outcomeCount = outcomes.size();
+    int[][] counts = new int[outcomeCount][outcomeCount];
+    for (Shard shard : shards) {
+      int[][] shardCounts = shard.counts;
+      for (int expected = 0; expected < shardCounts.length && expected < outcomeCount; expected++) {
+        int[] row = shardCounts[expected];
+        for (int guessed = 0; guessed < row.length && guessed < outcomeCount; guessed++)
+          counts[expected][guessed] += row[guessed];
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * A confusion matrix written by a single thread.
+   */
+  private static final class Shard {
+    private int[][] counts = new int[0][];
+
+    private void add(int expected, int guessed, int count) {
+      if (expected >= counts.length) {
+        int oldLength = counts.length;
+        counts = Arrays.copyOf(counts, Math.max(expected + 1, oldLength * 2));
+        for (int i = oldLength; i < counts.length; i++)
+          counts[i] = new int[0];
+      }
+      int[] row = counts[expected];
+      if (guessed >= row.length) {
+        row = Arrays.copyOf(row, Math.max(guessed + 1, row.length * 2));
+        counts[expected] = row;
+      }
+      row[guessed] += count;
+    }
+  }
+}
@@ -27,6 +27,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +44,10 @@ import com.joliciel.talismane.utils.CSVFormatter;
 import com.joliciel.talismane.utils.JolicielException;
 
 /**
- * Calculates the f-score for a given classification task.
+ * Calculates the f-score for a given classification task.<br>
+ * <br>
+ * This calculator isn't thread-safe: to count tests from several threads, use
+ * a {@link ConcurrentFScoreCalculator}.
  * 
  * @author Assaf Urieli
  *
@@ -86,8 +91,18 @@ public class FScoreCalculator<E> {
   /**
    * Increment this f-score by a given expected value and guessed value.
    */
-  public synchronized void increment(E expected, E guessed) {
-    int pairCount = 1;
+  public void increment(E expected, E guessed) {
+    this.increment(expected, guessed, 1);
+  }
+
+  /**
+   * Increment this f-score by a given number of tests with the same expected
+   * value and guessed value.
+   */
+  public void increment(E expected, E guessed, int count) {
+    if (count == 0)
+      return;
+    int pairCount = count;
     Map<E, Integer> falsePositivesForGuessed = falsePositives.get(guessed);
     if (falsePositivesForGuessed == null) {
       falsePositivesForGuessed = new HashMap<E, Integer>();
@@ -95,10 +110,10 @@ public class FScoreCalculator<E> {
     }
     Integer pairCountObj = falsePositivesForGuessed.get(expected);
     if (pairCountObj != null)
-      pairCount = pairCountObj.intValue() + 1;
+      pairCount = pairCountObj.intValue() + count;
     falsePositivesForGuessed.put(expected, pairCount);
 
-    pairCount = 1;
+    pairCount = count;
     Map<E, Integer> falseNegativesForExpected = falseNegatives.get(expected);
     if (falseNegativesForExpected == null) {
       falseNegativesForExpected = new HashMap<E, Integer>();
@@ -106,42 +121,61 @@ public class FScoreCalculator<E> {
     }
     pairCountObj = falseNegativesForExpected.get(guessed);
     if (pairCountObj != null)
-      pairCount = pairCountObj.intValue() + 1;
+      pairCount = pairCountObj.intValue() + count;
     falseNegativesForExpected.put(guessed, pairCount);
 
     if (expected.equals(guessed)) {
-      int truePositiveCount = 1;
+      int truePositiveCount = count;
       Integer truePositiveCountObj = truePositiveCounts.get(expected);
       if (truePositiveCountObj != null)
-        truePositiveCount = truePositiveCountObj.intValue() + 1;
+        truePositiveCount = truePositiveCountObj.intValue() + count;
       truePositiveCounts.put(expected, truePositiveCount);
     } else {
       // we didn't guess correctly that this was an X
-      int falseNegativeCount = 1;
+      int falseNegativeCount = count;
       Integer falseNegativeCountObj = falseNegativeCounts.get(expected);
       if (falseNegativeCountObj != null)
-        falseNegativeCount = falseNegativeCountObj.intValue() + 1;
+        falseNegativeCount = falseNegativeCountObj.intValue() + count;
       falseNegativeCounts.put(expected, falseNegativeCount);
 
       // we guessed that this was a Y, when it wasn't
-      int falsePositiveCount = 1;
+      int falsePositiveCount = count;
       Integer falsePositiveCountObj = falsePositiveCounts.get(guessed);
       if (falsePositiveCountObj != null)
-        falsePositiveCount = falsePositiveCountObj.intValue() + 1;
+        falsePositiveCount = falsePositiveCountObj.intValue() + count;
       falsePositiveCounts.put(guessed, falsePositiveCount);
     }
     outcomeSet.add(guessed);
     outcomeSet.add(expected);
-    testCount++;
+    testCount += count;
     updatedSinceLastEval = true;
   }
 
+  /**
+   * Add all of the tests counted by another f-score calculator to this one,
+   * e.g. to combine the results of several evaluation threads or
+   * cross-validation folds.
+   */
+  public void merge(FScoreCalculator<E> other) {
+    Map<E, Map<E, Integer>> otherFalseNegatives = new HashMap<>();
+    for (E expected : other.falseNegatives.keySet())
+      otherFalseNegatives.put(expected, new HashMap<>(other.falseNegatives.get(expected)));
+    for (E expected : otherFalseNegatives.keySet()) {
+      Map<E, Integer> guessedCounts = otherFalseNegatives.get(expected);
+      for (E guessed : guessedCounts.keySet())
+        this.increment(expected, guessed, guessedCounts.get(guessed));
+    }
+  }
+
   void evaluate() {
     if (updatedSinceLastEval) {
       LOG.debug("###F-score calculations " + (label == null ? "" : " for " + label.toString()));
       precisions = new HashMap<E, Double>();
       recalls = new HashMap<E, Double>();
       fScores = new HashMap<E, Double>();
+      totalTruePositiveCount = 0;
+      totalFalsePositiveCount = 0;
+      totalFalseNegativeCount = 0;
 
       for (E outcome : outcomeSet) {
         LOG.trace("Outcome: " + outcome);
@@ -609,77 +643,126 @@ public class FScoreCalculator<E> {
       if (numFiles == 0) {
         throw new JolicielException("No files found matching prefix and suffix provided");
       }
-      Map<String, DescriptiveStatistics> descriptiveStatsMap = new HashMap<String, DescriptiveStatistics>();
-      Map<String, FScoreStats> outcomeStats = new HashMap<String, FScoreCalculator.FScoreStats>();
-      Set<String> outcomes = new TreeSet<String>();
-      for (Map<String, FScoreStats> statsMap : fileStatsMap.values()) {
-        for (FScoreStats stats : statsMap.values()) {
-          DescriptiveStatistics fScoreStats = descriptiveStatsMap.get(stats.outcome + "fScore");
-          if (fScoreStats == null) {
-            fScoreStats = new DescriptiveStatistics();
-            descriptiveStatsMap.put(stats.outcome + "fScore", fScoreStats);
-          }
-          fScoreStats.addValue(stats.fScore);
-          DescriptiveStatistics precisionStats = descriptiveStatsMap.get(stats.outcome + "precision");
-          if (precisionStats == null) {
-            precisionStats = new DescriptiveStatistics();
-            descriptiveStatsMap.put(stats.outcome + "precision", precisionStats);
-          }
-          precisionStats.addValue(stats.precision);
-          DescriptiveStatistics recallStats = descriptiveStatsMap.get(stats.outcome + "recall");
-          if (recallStats == null) {
-            recallStats = new DescriptiveStatistics();
-            descriptiveStatsMap.put(stats.outcome + "recall", recallStats);
-          }
-          recallStats.addValue(stats.recall);
+      writeCrossValidationResults(fileStatsMap.values(), prefix + suffix, csvFileWriter);
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe);
+    }
+  }
 
-          FScoreStats outcomeStat = outcomeStats.get(stats.outcome);
-          if (outcomeStat == null) {
-            outcomeStat = new FScoreStats();
-            outcomeStat.outcome = stats.outcome;
-            outcomeStats.put(stats.outcome, outcomeStat);
-          }
-          outcomeStat.truePos += stats.truePos;
-          outcomeStat.falsePos += stats.falsePos;
-          outcomeStat.falseNeg += stats.falseNeg;
-          outcomeStat.count += stats.count;
+  /**
+   * Combine the results of n cross validation folds into a single f-score
+   * file, in the same format as
+   * {@link #combineCrossValidationResults(File, String, String, Writer)}, but
+   * without going through the f-score files of each fold.
+   * 
+   * @param title
+   *          written on the first line of the file
+   */
+  public static <E> void combineCrossValidationResults(List<FScoreCalculator<E>> foldCalculators, String title, Writer csvFileWriter) {
+    try {
+      List<Map<String, FScoreStats>> foldStatsMaps = new ArrayList<>();
+      for (FScoreCalculator<E> foldCalculator : foldCalculators) {
+        Map<String, FScoreStats> statsMap = new HashMap<>();
+        for (E outcome : foldCalculator.getOutcomeSet()) {
+          FScoreStats stats = new FScoreStats();
+          stats.outcome = outcome.toString();
+          stats.truePos = foldCalculator.getTruePositiveCount(outcome);
+          stats.falsePos = foldCalculator.getFalsePositiveCount(outcome);
+          stats.falseNeg = foldCalculator.getFalseNegativeCount(outcome);
+          stats.count = stats.truePos + stats.falseNeg;
+          stats.precision = foldCalculator.getPrecision(outcome) * 100;
+          stats.recall = foldCalculator.getRecall(outcome) * 100;
+          stats.fScore = foldCalculator.getFScore(outcome) * 100;
+          statsMap.put(stats.outcome, stats);
+        }
+        // the same as the TOTAL line in each fold's f-score file
+        FScoreStats stats = new FScoreStats();
+        stats.outcome = "TOTAL";
+        stats.truePos = foldCalculator.getTotalTruePositiveCount();
+        stats.falsePos = foldCalculator.getTotalFalsePositiveCount();
+        stats.falseNeg = foldCalculator.getTotalFalseNegativeCount();
+        stats.count = stats.truePos + stats.falseNeg;
+        stats.precision = foldCalculator.getTotalPrecision() * 100;
+        stats.recall = foldCalculator.getTotalRecall() * 100;
+        stats.fScore = foldCalculator.getTotalFScore() * 100;
+        statsMap.put(stats.outcome, stats);
+        foldStatsMaps.add(statsMap);
+      }
+      writeCrossValidationResults(foldStatsMaps, title, csvFileWriter);
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe);
+    }
+  }
 
-          outcomes.add(stats.outcome);
+  private static void writeCrossValidationResults(Collection<Map<String, FScoreStats>> foldStatsMaps, String title, Writer csvFileWriter) throws IOException {
+    Map<String, DescriptiveStatistics> descriptiveStatsMap = new HashMap<String, DescriptiveStatistics>();
+    Map<String, FScoreStats> outcomeStats = new HashMap<String, FScoreCalculator.FScoreStats>();
+    Set<String> outcomes = new TreeSet<String>();
+    for (Map<String, FScoreStats> statsMap : foldStatsMaps) {
+      for (FScoreStats stats : statsMap.values()) {
+        DescriptiveStatistics fScoreStats = descriptiveStatsMap.get(stats.outcome + "fScore");
+        if (fScoreStats == null) {
+          fScoreStats = new DescriptiveStatistics();
+          descriptiveStatsMap.put(stats.outcome + "fScore", fScoreStats);
+        }
+        fScoreStats.addValue(stats.fScore);
+        DescriptiveStatistics precisionStats = descriptiveStatsMap.get(stats.outcome + "precision");
+        if (precisionStats == null) {
+          precisionStats = new DescriptiveStatistics();
+          descriptiveStatsMap.put(stats.outcome + "precision", precisionStats);
         }
+        precisionStats.addValue(stats.precision);
+        DescriptiveStatistics recallStats = descriptiveStatsMap.get(stats.outcome + "recall");
+        if (recallStats == null) {
+          recallStats = new DescriptiveStatistics();
+          descriptiveStatsMap.put(stats.outcome + "recall", recallStats);
+        }
+        recallStats.addValue(stats.recall);
+
+        FScoreStats outcomeStat = outcomeStats.get(stats.outcome);
+        if (outcomeStat == null) {
+          outcomeStat = new FScoreStats();
+          outcomeStat.outcome = stats.outcome;
+          outcomeStats.put(stats.outcome, outcomeStat);
+        }
+        outcomeStat.truePos += stats.truePos;
+        outcomeStat.falsePos += stats.falsePos;
+        outcomeStat.falseNeg += stats.falseNeg;
+        outcomeStat.count += stats.count;
+
+        outcomes.add(stats.outcome);
       }
+    }
 
-      csvFileWriter.write(CSV.format(prefix + suffix));
+    csvFileWriter.write(CSV.format(title));
+    csvFileWriter.write("\n");
+    csvFileWriter.write(CSV.format("outcome"));
+    csvFileWriter.write(CSV.format("true+") + CSV.format("false+") + CSV.format("false-") + CSV.format("count") + CSV.format("tot precision")
+        + CSV.format("avg precision") + CSV.format("dev precision") + CSV.format("tot recall") + CSV.format("avg recall") + CSV.format("dev recall")
+        + CSV.format("tot f-score") + CSV.format("avg f-score") + CSV.format("dev f-score") + "\n");
+
+    for (String outcome : outcomes) {
+      csvFileWriter.write(CSV.format(outcome));
+      FScoreStats outcomeStat = outcomeStats.get(outcome);
+      DescriptiveStatistics fScoreStats = descriptiveStatsMap.get(outcome + "fScore");
+      DescriptiveStatistics precisionStats = descriptiveStatsMap.get(outcome + "precision");
+      DescriptiveStatistics recallStats = descriptiveStatsMap.get(outcome + "recall");
+      outcomeStat.calculate();
+      csvFileWriter.write(CSV.format(outcomeStat.truePos));
+      csvFileWriter.write(CSV.format(outcomeStat.falsePos));
+      csvFileWriter.write(CSV.format(outcomeStat.falseNeg));
+      csvFileWriter.write(CSV.format(outcomeStat.count));
+      csvFileWriter.write(CSV.format(outcomeStat.precision * 100));
+      csvFileWriter.write(CSV.format(precisionStats.getMean()));
+      csvFileWriter.write(CSV.format(precisionStats.getStandardDeviation()));
+      csvFileWriter.write(CSV.format(outcomeStat.recall * 100));
+      csvFileWriter.write(CSV.format(recallStats.getMean()));
+      csvFileWriter.write(CSV.format(recallStats.getStandardDeviation()));
+      csvFileWriter.write(CSV.format(outcomeStat.fScore * 100));
+      csvFileWriter.write(CSV.format(fScoreStats.getMean()));
+      csvFileWriter.write(CSV.format(fScoreStats.getStandardDeviation()));
       csvFileWriter.write("\n");
-      csvFileWriter.write(CSV.format("outcome"));
-      csvFileWriter.write(CSV.format("true+") + CSV.format("false+") + CSV.format("false-") + CSV.format("count") + CSV.format("tot precision")
-          + CSV.format("avg precision") + CSV.format("dev precision") + CSV.format("tot recall") + CSV.format("avg recall") + CSV.format("dev recall")
-          + CSV.format("tot f-score") + CSV.format("avg f-score") + CSV.format("dev f-score") + "\n");
-
-      for (String outcome : outcomes) {
-        csvFileWriter.write(CSV.format(outcome));
-        FScoreStats outcomeStat = outcomeStats.get(outcome);
-        DescriptiveStatistics fScoreStats = descriptiveStatsMap.get(outcome + "fScore");
-        DescriptiveStatistics precisionStats = descriptiveStatsMap.get(outcome + "precision");
-        DescriptiveStatistics recallStats = descriptiveStatsMap.get(outcome + "recall");
-        outcomeStat.calculate();
-        csvFileWriter.write(CSV.format(outcomeStat.truePos));
-        csvFileWriter.write(CSV.format(outcomeStat.falsePos));
-        csvFileWriter.write(CSV.format(outcomeStat.falseNeg));
-        csvFileWriter.write(CSV.format(outcomeStat.count));
-        csvFileWriter.write(CSV.format(outcomeStat.precision * 100));
-        csvFileWriter.write(CSV.format(precisionStats.getMean()));
-        csvFileWriter.write(CSV.format(precisionStats.getStandardDeviation()));
-        csvFileWriter.write(CSV.format(outcomeStat.recall * 100));
-        csvFileWriter.write(CSV.format(recallStats.getMean()));
-        csvFileWriter.write(CSV.format(recallStats.getStandardDeviation()));
-        csvFileWriter.write(CSV.format(outcomeStat.fScore * 100));
-        csvFileWriter.write(CSV.format(fScoreStats.getMean()));
-        csvFileWriter.write(CSV.format(fScoreStats.getStandardDeviation()));
-        csvFileWriter.write("\n");
-        csvFileWriter.flush();
-      }
-    } catch (IOException ioe) {
-      throw new RuntimeException(ioe);
+      csvFileWriter.flush();
     }
   }
 
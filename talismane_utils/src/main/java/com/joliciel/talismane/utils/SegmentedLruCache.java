@@ -0,0 +1,223 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2014 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.utils;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache with a bounded number of entries, using a segmented LRU
+ * eviction policy.<br>
+ * <br>
+ * New entries are placed in a probationary segment, and are only promoted to
+ * the protected segment (80% of the capacity) when they are read again. When
+ * the cache is full, the least recently used probationary entry is evicted
+ * first, so that a burst of rare keys cannot flush out the frequent ones.
+ * Entries demoted from the protected segment get a second chance in the
+ * probationary segment.<br>
+ * <br>
+ * To limit contention, keys are spread by hash over several independently
+ * locked stripes, each with its own share of the capacity. Hits, misses and
+ * evictions are counted for monitoring.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class SegmentedLruCache<K, V> {
+  private static final double PROTECTED_RATIO = 0.8;
+
+  private final Stripe<K, V>[] stripes;
+  private final int capacity;
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  /**
+   * @param capacity
+   *          the maximum number of entries
+   * @param concurrencyLevel
+   *          the expected number of threads accessing the cache at the same
+   *          time
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public SegmentedLruCache(int capacity, int concurrencyLevel) {
+    this.capacity = capacity;
+    int stripeCount = 1;
+    while (stripeCount < concurrencyLevel && stripeCount * 2 <= capacity)
+      stripeCount *= 2;
+    this.stripes = new Stripe[stripeCount];
+    int stripeCapacity = (capacity + stripeCount - 1) / stripeCount;
+    for (int i = 0; i < stripeCount; i++)
+      stripes[i] = new Stripe<>(stripeCapacity);
+  }
+
+  /**
+   * The value cached for this key, or null if none.
+   */
+  public V get(K key) {
+    V value = this.getStripe(key).get(key);
+    if (value == null)
+      missCount.increment();
+    else
+      hitCount.increment();
+    return value;
+  }
+
+  /**
+   * The value cached for this key if there is one, otherwise the value
+   * calculated by the loader, which is then added to the cache. The loader is
+   * run outside of any lock, and may therefore be run more than once for the
+   * same key by concurrent threads. Null values are not cached.
+   */
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+    V value = this.get(key);
+    if (value == null) {
+      value = loader.apply(key);
+      if (value != null)
+        this.put(key, value);
+    }
+    return value;
+  }
+
+  public void put(K key, V value) {
+    if (capacity <= 0)
+      return;
+    if (this.getStripe(key).put(key, value))
+      evictionCount.increment();
+  }
+
+  public void clear() {
+    for (Stripe<K, V> stripe : stripes)
+      stripe.clear();
+  }
+
+  /**
+   * The current number of entries.
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe<K, V> stripe : stripes)
+      size += stripe.size();
+    return size;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * The proportion of reads which found a value in the cache, or 0 if there
+   * haven't been any reads.
+   */
+  public double getHitRate() {
+    long hits = hitCount.sum();
+    long total = hits + missCount.sum();
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "SegmentedLruCache [size=" + this.size() + ", capacity=" + capacity + ", hits=" + this.getHitCount() + ", misses=" + this.getMissCount()
+        + ", evictions=" + this.getEvictionCount() + ", hitRate=" + String.format("%.4f", this.getHitRate()) + "]";
+  }
+
+  private Stripe<K, V> getStripe(K key) {
+    int hash = key.hashCode();
+    hash ^= (hash >>> 16);
+    return stripes[hash & (stripes.length - 1)];
+  }
+
+  private static final class Stripe<K, V> {
+    private final int capacity;
+    private final int protectedCapacity;
+    private final LinkedHashMap<K, V> probationary = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private Stripe(int capacity) {
+      this.capacity = capacity;
+      this.protectedCapacity = Math.max(1, (int) (capacity * PROTECTED_RATIO));
+    }
+
+    private synchronized V get(K key) {
+      V value = protectedSegment.get(key);
+      if (value != null)
+        return value;
+      value = probationary.remove(key);
+      if (value != null) {
+        protectedSegment.put(key, value);
+        if (protectedSegment.size() > protectedCapacity) {
+          Map.Entry<K, V> eldest = this.removeEldest(protectedSegment);
+          probationary.put(eldest.getKey(), eldest.getValue());
+        }
+      }
+      return value;
+    }
+
+    /**
+     * Returns true if an entry was evicted.
+     */
+    private synchronized boolean put(K key, V value) {
+      if (protectedSegment.containsKey(key)) {
+        protectedSegment.put(key, value);
+        return false;
+      }
+      probationary.put(key, value);
+      if (probationary.size() + protectedSegment.size() > capacity) {
+        if (probationary.size() > 0)
+          this.removeEldest(probationary);
+        else
+          this.removeEldest(protectedSegment);
+        return true;
+      }
+      return false;
+    }
+
+    private synchronized void clear() {
+      probationary.clear();
+      protectedSegment.clear();
+    }
+
+    private synchronized int size() {
+      return probationary.size() + protectedSegment.size();
+    }
+
+    private Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> segment) {
+      Iterator<Map.Entry<K, V>> iterator = segment.entrySet().iterator();
+      Map.Entry<K, V> eldest = new AbstractMap.SimpleImmutableEntry<>(iterator.next());
+      iterator.remove();
+      return eldest;
+    }
+  }
+}
@@ -49,17 +49,43 @@ public class DirectoryReader extends Reader implements CurrentFileProvider {
   private String endOfFileString = "";
   private List<CurrentFileObserver> observers = new ArrayList<CurrentFileObserver>();
   private char[] leftoverBuf = null;
+  private final boolean memoryMapped;
+  private final int windowSize;
 
   public DirectoryReader(File dir, Charset charset) {
+    this(dir, charset, false, 0);
+  }
+
+  /**
+   * @param memoryMapped
+   *          if true, each file is read via a {@link MappedFileReader}
+   * @param windowSize
+   *          the number of characters decoded at a time by each
+   *          {@link MappedFileReader}, or 0 for the default
+   */
+  public DirectoryReader(File dir, Charset charset, boolean memoryMapped, int windowSize) {
     super();
     this.dir = dir;
     this.charset = charset;
-    files = new ArrayList<File>();
-    if (this.dir.isDirectory()) {
-      this.addFiles(this.dir, files);
+    this.memoryMapped = memoryMapped;
+    this.windowSize = windowSize;
+    files = listFiles(dir);
+  }
+
+  /**
+   * All of the files in a given directory structure, in the order in which
+   * they are read: sorted by name, with the files in each sub-directory
+   * immediately following the sub-directory's position. If dir is a file,
+   * returns this file only.
+   */
+  public static List<File> listFiles(File dir) {
+    List<File> files = new ArrayList<File>();
+    if (dir.isDirectory()) {
+      addFiles(dir, files);
     } else {
-      this.files.add(this.dir);
+      files.add(dir);
     }
+    return files;
   }
 
   @Override
@@ -84,7 +110,10 @@ public class DirectoryReader extends Reader implements CurrentFileProvider {
     if (reader == null) {
       if (currentIndex < files.size()) {
         File file = files.get(currentIndex++);
-        this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+        if (memoryMapped)
+          this.reader = new MappedFileReader(file, charset, windowSize);
+        else
+          this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
         for (CurrentFileObserver observer : observers) {
           observer.onNextFile(file);
         }
@@ -120,12 +149,12 @@ public class DirectoryReader extends Reader implements CurrentFileProvider {
       this.reader.close();
   }
 
-  private void addFiles(File directory, List<File> files) {
+  private static void addFiles(File directory, List<File> files) {
     File[] theFiles = directory.listFiles();
     Arrays.sort(theFiles);
     for (File file : theFiles) {
       if (file.isDirectory())
-        this.addFiles(file, files);
+        addFiles(file, files);
       else
         files.add(file);
     }
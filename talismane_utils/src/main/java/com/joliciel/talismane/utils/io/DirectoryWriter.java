@@ -58,33 +58,7 @@ public class DirectoryWriter extends Writer implements CurrentFileObserver {
         writer.close();
       }
 
-      String fileName = file.getName();
-      if (suffix != null) {
-        if (fileName.indexOf('.') > 0) {
-          fileName = fileName.substring(0, fileName.lastIndexOf('.'));
-        }
-        fileName += suffix;
-      }
-      if (LOG.isDebugEnabled())
-        LOG.debug("Writing to " + fileName);
-
-      // need to construct relative directory tree
-      Stack<File> parents = new Stack<File>();
-      File parent = file.getParentFile();
-      while (parent != null && !parent.equals(inDir)) {
-        parents.push(parent);
-        parent = parent.getParentFile();
-      }
-
-      File outSubDir = outDir;
-      while (!parents.isEmpty()) {
-        parent = parents.pop();
-        outSubDir = new File(outSubDir, parent.getName());
-        outSubDir.mkdirs();
-      }
-
-      // path constructed, make the file
-      File outFile = new File(outSubDir, fileName);
+      File outFile = this.getOutputFile(file);
       outFile.delete();
       outFile.createNewFile();
       writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile), charset));
@@ -94,6 +68,42 @@ public class DirectoryWriter extends Writer implements CurrentFileObserver {
     }
   }
 
+  /**
+   * The output file corresponding to a given input file, in the same relative
+   * directory under the output directory as the input file under the input
+   * directory, and with the suffix applied. Any missing parent directories
+   * are created.
+   */
+  public File getOutputFile(File file) {
+    String fileName = file.getName();
+    if (suffix != null) {
+      if (fileName.indexOf('.') > 0) {
+        fileName = fileName.substring(0, fileName.lastIndexOf('.'));
+      }
+      fileName += suffix;
+    }
+    if (LOG.isDebugEnabled())
+      LOG.debug("Writing to " + fileName);
+
+    // need to construct relative directory tree
+    Stack<File> parents = new Stack<File>();
+    File parent = file.getParentFile();
+    while (parent != null && !parent.equals(inDir)) {
+      parents.push(parent);
+      parent = parent.getParentFile();
+    }
+
+    File outSubDir = outDir;
+    while (!parents.isEmpty()) {
+      parent = parents.pop();
+      outSubDir = new File(outSubDir, parent.getName());
+      outSubDir.mkdirs();
+    }
+
+    // path constructed, make the file
+    return new File(outSubDir, fileName);
+  }
+
   @Override
   public void write(char[] cbuf, int off, int len) throws IOException {
     this.writer.write(cbuf, off, len);
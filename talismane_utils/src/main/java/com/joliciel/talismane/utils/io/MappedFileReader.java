@@ -0,0 +1,147 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2014 Joliciel Informatique
+//
+//This file is part of Talismane.
+//
+//Talismane is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Talismane is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Talismane.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.talismane.utils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A reader which decodes a file directly from a memory-mapped byte buffer,
+ * rather than copying it through an input stream.<br>
+ * <br>
+ * The file is mapped in regions of up to {@link #DEFAULT_REGION_SIZE} bytes,
+ * and decoded into a window of a fixed number of characters, typically the
+ * block size. A character whose bytes straddle two regions is decoded from the
+ * start of the next region. Malformed and unmappable input is replaced exactly
+ * as by an {@link java.io.InputStreamReader}, so that the characters read, and
+ * hence their offsets, are identical.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class MappedFileReader extends Reader {
+  public static final int DEFAULT_REGION_SIZE = 1 << 26;
+  public static final int DEFAULT_WINDOW_SIZE = 8192;
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final int regionSize;
+  private final CharsetDecoder decoder;
+  private final CharBuffer window;
+  private long regionStart = 0;
+  private MappedByteBuffer region;
+  private boolean flushing = false;
+  private boolean finished = false;
+
+  /**
+   * @param windowSize
+   *          the number of characters to decode at a time, or 0 for the
+   *          default window size
+   */
+  public MappedFileReader(File file, Charset charset, int windowSize) throws IOException {
+    this(file, charset, windowSize, DEFAULT_REGION_SIZE);
+  }
+
+  MappedFileReader(File file, Charset charset, int windowSize, int regionSize) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.fileSize = channel.size();
+    // a region must be able to hold at least one character
+    this.regionSize = Math.max(regionSize, 16);
+    this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // the window must be able to hold a surrogate pair
+    this.window = CharBuffer.allocate(windowSize > 0 ? Math.max(windowSize, 2) : DEFAULT_WINDOW_SIZE);
+    this.window.flip();
+    this.mapRegion(0);
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0)
+      return 0;
+    if (!window.hasRemaining())
+      this.fillWindow();
+    if (!window.hasRemaining())
+      return -1;
+    int count = Math.min(len, window.remaining());
+    window.get(cbuf, off, count);
+    return count;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!window.hasRemaining())
+      this.fillWindow();
+    if (!window.hasRemaining())
+      return -1;
+    return window.get();
+  }
+
+  @Override
+  public boolean ready() throws IOException {
+    return window.hasRemaining() || !finished;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void fillWindow() throws IOException {
+    window.clear();
+    while (!finished && window.hasRemaining()) {
+      if (!flushing) {
+        boolean lastRegion = regionStart + region.limit() >= fileSize;
+        CoderResult result = decoder.decode(region, window, lastRegion);
+        if (result.isOverflow())
+          break;
+        if (result.isError())
+          result.throwException();
+        if (!lastRegion) {
+          // any incomplete character at the end of the region is decoded
+          // from the start of the next region
+          this.mapRegion(regionStart + region.position());
+          continue;
+        }
+        flushing = true;
+      }
+      // the decoder may have more characters to write than the window can
+      // hold, in which case the flush is resumed once the window is drained
+      CoderResult result = decoder.flush(window);
+      if (result.isOverflow())
+        break;
+      finished = true;
+    }
+    window.flip();
+  }
+
+  private void mapRegion(long start) throws IOException {
+    regionStart = start;
+    long size = Math.min(regionSize, fileSize - start);
+    region = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+  }
+}
@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,6 +17,15 @@ public class SingleFileReader extends BufferedReader implements CurrentFileProvi
     super(in);
     this.file = file;
   }
+
+  /**
+   * Read the file via a {@link MappedFileReader}, decoding windowSize
+   * characters at a time.
+   */
+  public SingleFileReader(File file, Charset charset, int windowSize) throws IOException {
+    this(file, new MappedFileReader(file, charset, windowSize));
+  }
+
   private void reportFile() {
     if (!fileReported) {
       for (CurrentFileObserver observer: observers) {
@@ -0,0 +1,75 @@
+package com.joliciel.talismane.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ConcurrentFScoreCalculatorTest {
+  private static final String[] OUTCOMES = { "NC", "V", "DET", "ADJ", "P" };
+
+  private static String getExpected(int i) {
+    return OUTCOMES[i % OUTCOMES.length];
+  }
+
+  private static String getGuessed(int i) {
+    return i % 7 == 0 ? OUTCOMES[(i / 7) % OUTCOMES.length] : getExpected(i);
+  }
+
+  @Test
+  public void testSameCSVAsFScoreCalculator() throws Exception {
+    FScoreCalculator<String> fScoreCalculator = new FScoreCalculator<>();
+    for (int i = 0; i < 1000; i++)
+      fScoreCalculator.increment(getExpected(i), getGuessed(i));
+
+    ConcurrentFScoreCalculator<String> concurrentCalculator = new ConcurrentFScoreCalculator<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int start = t;
+      Thread thread = new Thread(() -> {
+        for (int i = start; i < 1000; i += 4)
+          concurrentCalculator.increment(getExpected(i), getGuessed(i));
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads)
+      thread.join();
+
+    assertEquals(1000, concurrentCalculator.getTestCount());
+
+    StringWriter expected = new StringWriter();
+    fScoreCalculator.writeScoresToCSV(expected);
+    StringWriter actual = new StringWriter();
+    concurrentCalculator.writeScoresToCSV(actual);
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  public void testMerge() throws Exception {
+    FScoreCalculator<String> fScoreCalculator = new FScoreCalculator<>();
+    ConcurrentFScoreCalculator<String> first = new ConcurrentFScoreCalculator<>();
+    ConcurrentFScoreCalculator<String> second = new ConcurrentFScoreCalculator<>();
+    FScoreCalculator<String> third = new FScoreCalculator<>();
+    for (int i = 0; i < 300; i++) {
+      fScoreCalculator.increment(getExpected(i), getGuessed(i));
+      if (i < 100)
+        first.increment(getExpected(i), getGuessed(i));
+      else if (i < 200)
+        second.increment(getExpected(i), getGuessed(i));
+      else
+        third.increment(getExpected(i), getGuessed(i));
+    }
+    first.merge(second);
+    first.merge(third);
+
+    StringWriter expected = new StringWriter();
+    fScoreCalculator.writeScoresToCSV(expected);
+    StringWriter actual = new StringWriter();
+    first.writeScoresToCSV(actual);
+    assertEquals(expected.toString(), actual.toString());
+  }
+}
@@ -0,0 +1,79 @@
+package com.joliciel.talismane.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.utils.CSVFormatter;
+
+public class FScoreCalculatorTest {
+
+  @Test
+  public void testCombineCrossValidationResults() throws Exception {
+    FScoreCalculator<String> fold0 = new FScoreCalculator<>();
+    fold0.increment("A", "A");
+    fold0.increment("A", "B");
+    fold0.increment("B", "B");
+    FScoreCalculator<String> fold1 = new FScoreCalculator<>();
+    fold1.increment("A", "A");
+    fold1.increment("B", "B");
+
+    StringWriter writer = new StringWriter();
+    FScoreCalculator.combineCrossValidationResults(Arrays.asList(fold0, fold1), "test", writer);
+    String[] lines = writer.toString().split("\n");
+    assertEquals(5, lines.length);
+    assertEquals("test,", lines[0]);
+
+    CSVFormatter csv = new CSVFormatter();
+    List<String> a = csv.getCSVCells(lines[2]);
+    assertEquals("A", a.get(0));
+    assertEquals("2", a.get(1));
+    assertEquals("0", a.get(2));
+    assertEquals("1", a.get(3));
+    assertEquals("3", a.get(4));
+
+    List<String> b = csv.getCSVCells(lines[3]);
+    assertEquals("B", b.get(0));
+    assertEquals("2", b.get(1));
+    assertEquals("1", b.get(2));
+    assertEquals("0", b.get(3));
+
+    List<String> total = csv.getCSVCells(lines[4]);
+    assertEquals("TOTAL", total.get(0));
+    assertEquals("4", total.get(1));
+    assertEquals("1", total.get(2));
+    assertEquals("1", total.get(3));
+    assertEquals("5", total.get(4));
+  }
+
+  @Test
+  public void testMerge() throws Exception {
+    FScoreCalculator<String> all = new FScoreCalculator<>();
+    FScoreCalculator<String> first = new FScoreCalculator<>();
+    FScoreCalculator<String> second = new FScoreCalculator<>();
+    String[][] tests = { { "A", "A" }, { "A", "B" }, { "B", "B" }, { "C", "A" }, { "B", "B" } };
+    for (int i = 0; i < tests.length; i++) {
+      all.increment(tests[i][0], tests[i][1]);
+      if (i < 2)
+        first.increment(tests[i][0], tests[i][1]);
+      else
+        second.increment(tests[i][0], tests[i][1]);
+    }
+    // evaluate before merging, to check totals are recalculated
+    first.getTotalFScore();
+    first.merge(second);
+    assertEquals(all.getTestCount(), first.getTestCount());
+    assertEquals(all.getTotalTruePositiveCount(), first.getTotalTruePositiveCount());
+    assertEquals(all.getTotalFScore(), first.getTotalFScore(), 0.0001);
+
+    StringWriter expected = new StringWriter();
+    all.writeScoresToCSV(expected);
+    StringWriter actual = new StringWriter();
+    first.writeScoresToCSV(actual);
+    assertEquals(expected.toString(), actual.toString());
+  }
+}
@@ -0,0 +1,80 @@
+package com.joliciel.talismane.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SegmentedLruCacheTest {
+
+  @Test
+  public void testFrequentEntriesSurviveScan() throws Exception {
+    SegmentedLruCache<String, Integer> cache = new SegmentedLruCache<>(10, 1);
+    for (int i = 0; i < 5; i++)
+      cache.put("frequent" + i, i);
+    // read twice, to promote them to the protected segment
+    for (int i = 0; i < 5; i++)
+      assertEquals(i, cache.get("frequent" + i).intValue());
+
+    // a scan of rare keys only evicts other rare keys
+    for (int i = 0; i < 100; i++)
+      cache.put("rare" + i, i);
+    assertEquals(10, cache.size());
+    for (int i = 0; i < 5; i++)
+      assertEquals(i, cache.get("frequent" + i).intValue());
+    assertNull(cache.get("rare0"));
+    assertEquals(95, cache.getEvictionCount());
+    assertEquals(10, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testComputeIfAbsent() throws Exception {
+    SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(100, 4);
+    AtomicInteger loadCount = new AtomicInteger();
+    for (int j = 0; j < 3; j++) {
+      for (int i = 0; i < 10; i++) {
+        assertEquals("v" + i, cache.computeIfAbsent(i, k -> {
+          loadCount.incrementAndGet();
+          return "v" + k;
+        }));
+      }
+    }
+    assertEquals(10, loadCount.get());
+    assertEquals(20.0 / 30.0, cache.getHitRate(), 0.0001);
+  }
+
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    SegmentedLruCache<Integer, Integer> cache = new SegmentedLruCache<>(64, 8);
+    List<Thread> threads = new ArrayList<>();
+    List<Throwable> errors = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      Thread thread = new Thread(() -> {
+        try {
+          for (int i = 0; i < 10000; i++) {
+            int key = i % 200;
+            Integer value = cache.computeIfAbsent(key, k -> k * 2);
+            assertEquals(key * 2, value.intValue());
+          }
+        } catch (Throwable e) {
+          synchronized (errors) {
+            errors.add(e);
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads)
+      thread.join();
+    assertEquals(0, errors.size());
+    assertTrue(cache.size() <= 64);
+    assertEquals(80000, cache.getHitCount() + cache.getMissCount());
+  }
+}
@@ -0,0 +1,149 @@
+package com.joliciel.talismane.utils.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileReaderTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSameCharactersAsInputStreamReader() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (int i = 0; i < 50; i++)
+      bytes.write(("Ligne " + i + " : l'été à Noël, 𝄞 « œuvre ».\n").getBytes(StandardCharsets.UTF_8));
+    // malformed input
+    bytes.write(new byte[] { (byte) 0xC3, 'x', (byte) 0xE2, (byte) 0x82 });
+    File file = folder.newFile("text.txt");
+    Files.write(file.toPath(), bytes.toByteArray());
+
+    String expected = null;
+    try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+      expected = readAll(reader, 1024);
+    }
+
+    // regions and windows which split multi-byte characters
+    for (int regionSize : new int[] { 16, 17, 19, 100, MappedFileReader.DEFAULT_REGION_SIZE }) {
+      for (int windowSize : new int[] { 1, 7, 1000 }) {
+        try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, windowSize, regionSize)) {
+          assertEquals("region " + regionSize + ", window " + windowSize, expected, readAll(reader, 5));
+        }
+      }
+    }
+
+    try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, 0)) {
+      StringBuilder sb = new StringBuilder();
+      int c;
+      while ((c = reader.read()) >= 0)
+        sb.append((char) c);
+      assertEquals(expected, sb.toString());
+    }
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    File file = folder.newFile("empty.txt");
+    try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, 10)) {
+      assertEquals(-1, reader.read());
+    }
+  }
+
+  @Test
+  public void testFlushLargerThanWindow() throws Exception {
+    File file = folder.newFile("flush.txt");
+    Files.write(file.toPath(), "abc".getBytes(StandardCharsets.US_ASCII));
+    for (int windowSize : new int[] { 2, 3, 1000 }) {
+      try (Reader reader = new MappedFileReader(file, new TrailingCharset(), windowSize)) {
+        assertEquals("window " + windowSize, "abc" + TrailingCharset.TRAILER, readAll(reader, 5));
+      }
+    }
+  }
+
+  /**
+   * An ASCII charset whose decoder writes a trailer when flushed, a few
+   * characters at a time.
+   */
+  private static final class TrailingCharset extends Charset {
+    private static final String TRAILER = "[end of input]";
+
+    private TrailingCharset() {
+      super("x-trailing-test", new String[0]);
+    }
+
+    @Override
+    public boolean contains(Charset cs) {
+      return false;
+    }
+
+    @Override
+    public boolean canEncode() {
+      return false;
+    }
+
+    @Override
+    public CharsetEncoder newEncoder() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CharsetDecoder newDecoder() {
+      return new CharsetDecoder(this, 1.0f, 1.0f) {
+        private int flushed = 0;
+
+        @Override
+        protected CoderResult decodeLoop(ByteBuffer in, CharBuffer out) {
+          while (in.hasRemaining()) {
+            if (!out.hasRemaining())
+              return CoderResult.OVERFLOW;
+            out.put((char) in.get());
+          }
+          return CoderResult.UNDERFLOW;
+        }
+
+        @Override
+        protected CoderResult implFlush(CharBuffer out) {
+          // at most three characters per call
+          int count = Math.min(3, TRAILER.length() - flushed);
+          for (int i = 0; i < count; i++) {
+            if (!out.hasRemaining())
+              return CoderResult.OVERFLOW;
+            out.put(TRAILER.charAt(flushed++));
+          }
+          return flushed < TRAILER.length() ? CoderResult.OVERFLOW : CoderResult.UNDERFLOW;
+        }
+
+        @Override
+        protected void implReset() {
+          flushed = 0;
+        }
+      };
+    }
+  }
+
+  private static String readAll(Reader reader, int bufferSize) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    char[] buffer = new char[bufferSize];
+    int count;
+    while ((count = reader.read(buffer, 0, buffer.length)) >= 0)
+      sb.append(buffer, 0, count);
+    return sb.toString();
+  }
+}